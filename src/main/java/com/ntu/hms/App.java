@@ -3,6 +3,7 @@ package com.ntu.hms;
 import static com.ntu.hms.factory.SingletonFactory.getApplicationManager;
 
 import com.ntu.hms.manager.application.ApplicationManager;
+import com.ntu.hms.server.TerminalServer;
 
 /** The App class serves as the main entry point for the hospital management system application. */
 public class App {
@@ -29,13 +30,20 @@ public class App {
 
   /**
    * The main method serves as the entry point for starting the hospital management system
-   * application.
+   * application. With "--server" and an optional port as arguments, the application serves many
+   * terminals over a local TCP socket instead of the console; the port defaults to {@value
+   * TerminalServer#DEFAULT_PORT}.
    *
    * @param args command-line arguments passed to the application
    */
   public static void main(String[] args) {
     applicationManager = getApplicationManager();
-    applicationManager.start();
+    if (args.length > 0 && args[0].equals("--server")) {
+      applicationManager.startServer(
+          args.length > 1 ? Integer.parseInt(args[1]) : TerminalServer.DEFAULT_PORT);
+    } else {
+      applicationManager.start();
+    }
   }
 
   /**
@@ -2,6 +2,8 @@ package com.ntu.hms;
 
 import com.ntu.hms.enums.Environment;
 import com.ntu.hms.model.users.User;
+import com.ntu.hms.server.SessionScannerWrapper;
+import com.ntu.hms.server.TerminalServer;
 import com.ntu.hms.util.ScannerWrapper;
 import java.io.Console;
 import java.util.List;
@@ -9,7 +11,9 @@ import java.util.List;
 /**
  * The AuthenticationService class provides user authentication functionalities. This service
  * supports both production and development environments. Users in production environment are
- * authenticated via the console, while in development environment, a scanner is used.
+ * authenticated via the console, while in development environment, a scanner is used. A terminal
+ * served by a {@link TerminalServer} has no console of its own, so its users are always
+ * authenticated through the scanner, which reads the terminal of the calling session.
  */
 public class AuthenticationService {
   private static final String DEFAULT_PASSWORD = "password";
@@ -40,7 +44,7 @@ public class AuthenticationService {
    * @return the authenticated User object if authentication succeeds; otherwise null
    */
   public User authenticate() {
-    if (environment == Environment.PROD) {
+    if (readsConsole()) {
       if (console == null) {
         System.out.println("No console available. Please run in a terminal. ");
         return null;
@@ -52,32 +56,28 @@ public class AuthenticationService {
 
       String password = new String(passwordArray);
 
-      List<User> users = CsvDB.readUsers();
-      for (User user : users) {
-        if (user.getHospitalID().equals(id) && user.getPassword().equals(password)) {
-          if (user.getPassword().equals(DEFAULT_PASSWORD)) {
-            changePassword(user, users);
-          }
-          return user;
+      User user = CsvDB.findUserById(id);
+      if (user != null && user.getPassword().equals(password)) {
+        if (user.getPassword().equals(DEFAULT_PASSWORD)) {
+          changePassword(user, CsvDB.readUsers());
         }
+        return user;
       }
 
       System.out.println("Login failed! Please try again!\n");
-    } else if (environment == Environment.DEV) {
+    } else {
       System.out.println("=== Hospital Management System ===");
       System.out.println("Hospital ID: ");
       String id = scanner.nextLine();
       System.out.println("Password: ");
       String password = scanner.nextLine();
 
-      List<User> users = CsvDB.readUsers();
-      for (User user : users) {
-        if (user.getHospitalID().equals(id) && user.getPassword().equals(password)) {
-          if (user.getPassword().equals(DEFAULT_PASSWORD)) {
-            changePassword(user, users);
-          }
-          return user;
+      User user = CsvDB.findUserById(id);
+      if (user != null && user.getPassword().equals(password)) {
+        if (user.getPassword().equals(DEFAULT_PASSWORD)) {
+          changePassword(user, CsvDB.readUsers());
         }
+        return user;
       }
       System.out.println("Login failed! Please try again!\n");
     }
@@ -95,7 +95,7 @@ public class AuthenticationService {
    */
   private void changePassword(User user, List<User> users) {
     System.out.println("=== Please change your password first! ===");
-    if (environment == Environment.PROD) {
+    if (readsConsole()) {
       while (true) {
         char[] newPasswordArray = console.readPassword("New Password: ");
         String newPassword = new String(newPasswordArray);
@@ -111,7 +111,7 @@ public class AuthenticationService {
           System.out.println("Passwords do not match. Please try again.\n");
         }
       }
-    } else if (environment == Environment.DEV) {
+    } else {
       while (true) {
         System.out.println("New Password: ");
         String newPassword = scanner.nextLine();
@@ -130,6 +130,16 @@ public class AuthenticationService {
     }
   }
 
+  /**
+   * Checks whether the credentials are read from the console, which is only the case in production
+   * and outside of a terminal session, since the console belongs to the server, not the terminal.
+   */
+  private boolean readsConsole() {
+    return environment == Environment.PROD
+        && !(scanner instanceof SessionScannerWrapper
+            && ((SessionScannerWrapper) scanner).isServingSession());
+  }
+
   /**
    * Provides a builder for constructing instances of AuthenticationService.
    *
@@ -1,28 +1,38 @@
 package com.ntu.hms;
 
-import static com.ntu.hms.factory.SingletonFactory.*;
-
-import com.ntu.hms.manager.appointment.AppointmentManager;
-import com.ntu.hms.manager.inventory.InventoryManager;
-import com.ntu.hms.manager.medicalrecord.MedicalRecordManager;
-import com.ntu.hms.manager.schedule.ScheduleManager;
-import com.ntu.hms.manager.user.UserManager;
+import com.ntu.hms.codec.ModelMetadataRegistry;
+import com.ntu.hms.enums.AppointmentOutcomeStatus;
+import com.ntu.hms.enums.AppointmentStatus;
+import com.ntu.hms.enums.ScheduleStatus;
 import com.ntu.hms.model.*;
 import com.ntu.hms.model.users.Administrator;
 import com.ntu.hms.model.users.Doctor;
 import com.ntu.hms.model.users.Patient;
 import com.ntu.hms.model.users.Pharmacist;
 import com.ntu.hms.model.users.User;
-import com.ntu.hms.util.ScannerWrapper;
-import java.io.*;
-import java.lang.reflect.Field;
+import com.ntu.hms.storage.ArchiveCompactor;
+import com.ntu.hms.storage.BootstrapLoader;
+import com.ntu.hms.storage.ChangeTracker;
+import com.ntu.hms.storage.ColumnarTable;
+import com.ntu.hms.storage.CommitFailedException;
+import com.ntu.hms.storage.CsvTable;
+import com.ntu.hms.storage.GroupCommitter;
+import com.ntu.hms.storage.GroupedIndex;
+import com.ntu.hms.storage.Repository;
+import com.ntu.hms.storage.SecondaryIndex;
+import com.ntu.hms.storage.SequenceAllocator;
+import com.ntu.hms.storage.StorageEngine;
+import com.ntu.hms.storage.StorageEngines;
+import com.ntu.hms.storage.TableArchive;
+import com.ntu.hms.storage.ValueSetIndex;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -30,10 +40,31 @@ import java.util.stream.Stream;
  * class includes methods for handling different entities such as Users, Patients, Doctors,
  * Pharmacists, Administrators, Appointments, Treatments, Diagnoses, Schedules, Medications,
  * AppointmentOutcomeRecords, and ReplenishmentRequests.
+ *
+ * <p>Each CSV file is backed by a {@link CsvTable}, loaded once and then held in memory. Reading a
+ * table returns a new list over the model instances held by the table, without touching the disk;
+ * callers that need only some of the models scan the table's repository through a cursor instead,
+ * which copies nothing. Saving a list appends only the changed rows to the table's mutation log,
+ * which is replayed on load and compacted back into the CSV file in the background and on {@link
+ * #close()}.
+ *
+ * <p>{@link #load(StorageEngine)} loads every table concurrently in the background when the
+ * application starts; {@link #awaitUserTables()} lets the login wait for just the user tables it
+ * reads.
+ *
+ * <p>Appointments and appointment outcome records also have a {@link ColumnarTable}, from which the
+ * aggregate reports, such as {@link #countAppointmentsByStatus()}, read only the columns they need.
+ *
+ * <p>When the {@link ArchiveCompactor} is enabled, {@link #archive(LocalDate)} periodically moves
+ * the appointments completed or cancelled before the retention horizon, their outcome records and
+ * the past schedules no other appointment needs into {@link TableArchive}s, where they can still be
+ * read by date range or ID.
+ *
+ * <p>The IDs of new entities, such as {@link #nextAppointmentID()}, are drawn from sequences kept
+ * in the IdSequence table by a {@link SequenceAllocator}, rather than from the size of the entity's
+ * table.
  */
 public class CsvDB {
-  private static final String CSV_DELIMITER = ",";
-
   private static final String APPOINTMENT_HEADER =
       "Appointment ID,Patient ID,Doctor ID,Date,Session,Status";
   private static final String PATIENT_HEADER =
@@ -51,6 +82,7 @@ public class CsvDB {
       "Appointment ID,Type of Service,Consultation Notes,Prescriptions,Prescription Status";
   private static final String REPLENISHMENT_REQUEST_HEADER =
       "Request ID,Medication Batch,Status,Pharmacist ID";
+  private static final String ID_SEQUENCE_HEADER = "Sequence,Next Value";
 
   private static final String PATIENT_CSV_PATH = "csvdb/Patient.csv";
   private static final String DOCTOR_CSV_PATH = "csvdb/Doctor.csv";
@@ -64,6 +96,132 @@ public class CsvDB {
   private static final String APPOINTMENT_OUTCOME_RECORD_CSV_PATH =
       "csvdb/AppointmentOutcomeRecord.csv";
   private static final String REPLENISHMENT_REQUEST_CSV_PATH = "csvdb/ReplenishmentRequest.csv";
+  private static final String ID_SEQUENCE_CSV_PATH = "csvdb/IdSequence.csv";
+
+  private static final MedicalRecordProjection MEDICAL_RECORDS =
+      new MedicalRecordProjection(CsvDB::joinMedicalRecord);
+
+  private static final CsvTable<Patient> PATIENT_TABLE =
+      new CsvTable<>(PATIENT_CSV_PATH, PATIENT_HEADER, Patient.class, User::getHospitalID);
+  private static final CsvTable<Doctor> DOCTOR_TABLE =
+      new CsvTable<>(DOCTOR_CSV_PATH, DOCTOR_HEADER, Doctor.class, User::getHospitalID);
+  private static final CsvTable<Pharmacist> PHARMACIST_TABLE =
+      new CsvTable<>(PHARMACIST_CSV_PATH, PHARMACIST_HEADER, Pharmacist.class, User::getHospitalID);
+  private static final CsvTable<Administrator> ADMINISTRATOR_TABLE =
+      new CsvTable<>(
+          ADMINISTRATOR_CSV_PATH, ADMINISTRATOR_HEADER, Administrator.class, User::getHospitalID);
+  private static final CsvTable<Appointment> APPOINTMENT_TABLE =
+      new CsvTable<>(
+          APPOINTMENT_CSV_PATH,
+          APPOINTMENT_HEADER,
+          Appointment.class,
+          Appointment::getAppointmentID);
+  private static final SecondaryIndex<String, Appointment> APPOINTMENTS_BY_PATIENT =
+      APPOINTMENT_TABLE.addIndex(SecondaryIndex.hashed(Appointment::getPatientID));
+  private static final SecondaryIndex<String, Appointment> APPOINTMENTS_BY_DOCTOR =
+      APPOINTMENT_TABLE.addIndex(SecondaryIndex.hashed(Appointment::getDoctorID));
+  private static final SecondaryIndex<LocalDate, Appointment> APPOINTMENTS_BY_DATE =
+      APPOINTMENT_TABLE.addIndex(SecondaryIndex.sorted(Appointment::getDate));
+  private static final SecondaryIndex<AppointmentStatus, Appointment> APPOINTMENTS_BY_STATUS =
+      APPOINTMENT_TABLE.addIndex(
+          SecondaryIndex.enumerated(AppointmentStatus.class, Appointment::getStatus));
+  private static final CsvTable<Diagnosis> DIAGNOSIS_TABLE =
+      new CsvTable<>(
+          DIAGNOSIS_CSV_PATH, DIAGNOSIS_HEADER, Diagnosis.class, Diagnosis::getAppointmentId);
+  private static final SecondaryIndex<String, Diagnosis> DIAGNOSES_BY_PATIENT =
+      DIAGNOSIS_TABLE.addIndex(SecondaryIndex.hashed(Diagnosis::getPatientId));
+  private static final ChangeTracker<String, Diagnosis> DIAGNOSIS_CHANGES =
+      DIAGNOSIS_TABLE.addIndex(
+          new ChangeTracker<>(
+              Diagnosis::getPatientId, MEDICAL_RECORDS::refreshPatient, MEDICAL_RECORDS::clear));
+  private static final CsvTable<Schedule> SCHEDULE_TABLE =
+      new CsvTable<>(
+          SCHEDULE_CSV_PATH,
+          SCHEDULE_HEADER,
+          Schedule.class,
+          schedule -> schedule.getDoctorID() + "|" + schedule.getDate());
+  private static final GroupedIndex<String, LocalDate, Schedule> SCHEDULES_BY_DOCTOR_AND_DATE =
+      SCHEDULE_TABLE.addIndex(new GroupedIndex<>(Schedule::getDoctorID, Schedule::getDate));
+  private static final ValueSetIndex<String, String, Schedule> PATIENTS_BY_DOCTOR =
+      SCHEDULE_TABLE.addIndex(
+          new ValueSetIndex<>(Schedule::getDoctorID, CsvDB::getConfirmedPatientIDs));
+  private static final CsvTable<Treatment> TREATMENT_TABLE =
+      new CsvTable<>(
+          TREATMENT_CSV_PATH, TREATMENT_HEADER, Treatment.class, Treatment::getAppointmentID);
+  private static final SecondaryIndex<String, Treatment> TREATMENTS_BY_PATIENT =
+      TREATMENT_TABLE.addIndex(SecondaryIndex.hashed(Treatment::getPatientID));
+  private static final ChangeTracker<String, Treatment> TREATMENT_CHANGES =
+      TREATMENT_TABLE.addIndex(
+          new ChangeTracker<>(
+              Treatment::getPatientID, MEDICAL_RECORDS::refreshPatient, MEDICAL_RECORDS::clear));
+  private static final CsvTable<Medication> MEDICATION_TABLE =
+      new CsvTable<>(
+          MEDICATION_CSV_PATH, MEDICATION_HEADER, Medication.class, Medication::getMedicationID);
+  private static final CsvTable<AppointmentOutcomeRecord> APPOINTMENT_OUTCOME_RECORD_TABLE =
+      new CsvTable<>(
+          APPOINTMENT_OUTCOME_RECORD_CSV_PATH,
+          APPOINTMENT_OUTCOME_RECORD_HEADER,
+          AppointmentOutcomeRecord.class,
+          AppointmentOutcomeRecord::getAppointmentID);
+  private static final ChangeTracker<String, AppointmentOutcomeRecord>
+      APPOINTMENT_OUTCOME_RECORD_CHANGES =
+          APPOINTMENT_OUTCOME_RECORD_TABLE.addIndex(
+              new ChangeTracker<>(
+                  AppointmentOutcomeRecord::getAppointmentID,
+                  MEDICAL_RECORDS::refreshAppointment,
+                  MEDICAL_RECORDS::clear));
+  private static final CsvTable<ReplenishmentRequest> REPLENISHMENT_REQUEST_TABLE =
+      new CsvTable<>(
+          REPLENISHMENT_REQUEST_CSV_PATH,
+          REPLENISHMENT_REQUEST_HEADER,
+          ReplenishmentRequest.class,
+          ReplenishmentRequest::getRequestID);
+  private static final CsvTable<IdSequence> ID_SEQUENCE_TABLE =
+      new CsvTable<>(
+          ID_SEQUENCE_CSV_PATH, ID_SEQUENCE_HEADER, IdSequence.class, IdSequence::getName);
+  private static final SequenceAllocator ID_SEQUENCES = new SequenceAllocator(ID_SEQUENCE_TABLE);
+
+  private static final ColumnarTable<Appointment> APPOINTMENT_COLUMNS =
+      new ColumnarTable<>(APPOINTMENT_TABLE)
+          .addDictionaryColumn("doctorID", Appointment::getDoctorID)
+          .addDictionaryColumn("patientID", Appointment::getPatientID)
+          .addDateColumn("date", Appointment::getDate)
+          .addIntColumn("session", Appointment::getSession)
+          .addDictionaryColumn("status", Appointment::getStatus);
+  private static final ColumnarTable<AppointmentOutcomeRecord> APPOINTMENT_OUTCOME_RECORD_COLUMNS =
+      new ColumnarTable<>(APPOINTMENT_OUTCOME_RECORD_TABLE)
+          .addDictionaryColumn("typeOfService", AppointmentOutcomeRecord::getTypeOfService)
+          .addIntColumn(
+              "prescriptionCount",
+              record -> record.getPrescriptions() == null ? 0 : record.getPrescriptions().size())
+          .addDictionaryColumn(
+              "prescriptionStatus", AppointmentOutcomeRecord::getPrescriptionStatus);
+
+  private static final TableArchive<Appointment> APPOINTMENT_ARCHIVE =
+      new TableArchive<>(APPOINTMENT_TABLE, Appointment::getDate);
+  private static final TableArchive<Schedule> SCHEDULE_ARCHIVE =
+      new TableArchive<>(SCHEDULE_TABLE, Schedule::getDate);
+  private static final TableArchive<AppointmentOutcomeRecord> APPOINTMENT_OUTCOME_RECORD_ARCHIVE =
+      new TableArchive<>(
+          APPOINTMENT_OUTCOME_RECORD_TABLE,
+          record -> findAppointmentDate(record.getAppointmentID()));
+
+  private static final List<CsvTable<?>> TABLES =
+      Arrays.asList(
+          PATIENT_TABLE,
+          DOCTOR_TABLE,
+          PHARMACIST_TABLE,
+          ADMINISTRATOR_TABLE,
+          APPOINTMENT_TABLE,
+          DIAGNOSIS_TABLE,
+          SCHEDULE_TABLE,
+          TREATMENT_TABLE,
+          MEDICATION_TABLE,
+          APPOINTMENT_OUTCOME_RECORD_TABLE,
+          REPLENISHMENT_REQUEST_TABLE,
+          ID_SEQUENCE_TABLE);
+
+  private static BootstrapLoader loader;
 
   /**
    * Creates a Path instance from the specified path string.
@@ -80,201 +238,6 @@ public class CsvDB {
     }
   }
 
-  /**
-   * Reads a CSV file from the given path and maps each line to an instance of the specified class.
-   *
-   * @param <T> the type of the class to which each line of the CSV should be mapped
-   * @param csvPath the path to the CSV file
-   * @param clazz the class type to which each line of the CSV should be mapped
-   * @return a list of instances of the specified class, where each instance represents a line in
-   *     the CSV, excluding the header
-   * @throws RuntimeException if the specified CSV file cannot be read
-   */
-  private static <T> List<T> readCsv(String csvPath, Class<T> clazz) {
-    ClassLoader classLoader = CsvDB.class.getClassLoader();
-    InputStream inputStream = classLoader.getResourceAsStream(csvPath);
-    try (BufferedReader bufferedReader =
-        new BufferedReader(new InputStreamReader(Objects.requireNonNull(inputStream)))) {
-
-      // Use streams to read the CSV data
-      return bufferedReader
-          .lines()
-          .skip(1) // Skip the header line
-          .map(line -> mapToInstance(line, clazz)) // Map each line to an instance of T
-          .collect(Collectors.toList());
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    }
-  }
-
-  /**
-   * Maps a CSV line to an instance of the specified class type by parsing the values and assigning
-   * them to the fields of the newly created instance.
-   *
-   * @param <T> the type of the class to be instantiated
-   * @param line the CSV line containing the data
-   * @param clazz the class type to which the CSV line should be mapped
-   * @return an instance of the specified class type, populated with data from the CSV line, or null
-   *     if an error occurs during instantiation or data mapping
-   */
-  private static <T> T mapToInstance(String line, Class<T> clazz) {
-    try {
-      // Create an instance of T using reflection
-      T instance = clazz.getDeclaredConstructor().newInstance();
-
-      String[] data = line.split(CSV_DELIMITER);
-      Field[] csvFields = getCsvFields(clazz);
-      IntStream.range(0, csvFields.length)
-          .forEach(
-              index -> {
-                try {
-                  Field field = csvFields[index];
-                  field.setAccessible(true);
-
-                  if (field.getType().equals(int.class)) {
-                    field.set(instance, Integer.parseInt(data[index].trim()));
-                  } else if (field.getType().equals(boolean.class)) {
-                    field.set(instance, Boolean.parseBoolean(data[index].trim()));
-                  } else if (field.getType().equals(String.class)) {
-                    field.set(instance, data[index].trim());
-                  } else if (field.getType().equals(LocalDate.class)) {
-                    field.set(instance, LocalDate.parse(data[index], getDateTimeFormatter()));
-                  } else if (field.getType().equals(List.class)
-                      && field
-                          .getGenericType()
-                          .getTypeName()
-                          .contains(MedicationItem.class.getSimpleName())) {
-                    List<MedicationItem> medicationItems = parseMedicationItems(data[index]);
-                    field.set(instance, medicationItems);
-                  } else if (field.getName().equals("session")) {
-                    String[] sessionsData = Arrays.copyOfRange(data, 2, data.length);
-                    field.set(instance, sessionsData);
-                  }
-                } catch (Exception e) {
-                  throw new RuntimeException(e);
-                }
-              });
-
-      Field[] nonCsvFields = getNonCsvFields(clazz);
-      IntStream.range(0, nonCsvFields.length)
-          .forEach(
-              index -> {
-                try {
-                  Field field = nonCsvFields[index];
-                  field.setAccessible(true);
-
-                  if (field.getType().equals(AppointmentManager.class)) {
-                    field.set(instance, getAppointmentManager());
-                  } else if (field.getType().equals(InventoryManager.class)) {
-                    field.set(instance, getInventoryManager());
-                  } else if (field.getType().equals(MedicalRecordManager.class)) {
-                    field.set(instance, getMedicalRecordManager());
-                  } else if (field.getType().equals(ScheduleManager.class)) {
-                    field.set(instance, getScheduleManager());
-                  } else if (field.getType().equals(UserManager.class)) {
-                    field.set(instance, getUserManager());
-                  } else if (field.getType().equals(ScannerWrapper.class)) {
-                    field.set(instance, getScannerWrapper());
-                  }
-                } catch (Exception e) {
-                  throw new RuntimeException(e);
-                }
-              });
-
-      return instance;
-    } catch (ReflectiveOperationException e) {
-      e.printStackTrace();
-      return null;
-    }
-  }
-
-  /**
-   * Retrieves all fields marked as CSV fields from the specified class and its superclasses.
-   *
-   * @param clazz the class from which to retrieve CSV fields
-   * @return an array of Fields that are designated as CSV fields
-   */
-  private static Field[] getCsvFields(Class<?> clazz) {
-    List<Field> fields = new ArrayList<>();
-    while (clazz != null) {
-      List<Field> currentFields =
-          Arrays.stream(clazz.getDeclaredFields())
-              .filter(CsvDB::isCsvField)
-              .collect(Collectors.toList());
-      fields.addAll(0, currentFields);
-      clazz = clazz.getSuperclass();
-    }
-
-    return fields.toArray(new Field[0]);
-  }
-
-  /**
-   * Retrieves all fields that are not marked as CSV fields from the specified class and its
-   * superclasses.
-   *
-   * @param clazz the class from which to retrieve non-CSV fields
-   * @return an array of Fields that are not designated as CSV fields
-   */
-  private static Field[] getNonCsvFields(Class<?> clazz) {
-    List<Field> fields = new ArrayList<>();
-    while (clazz != null) {
-      List<Field> currentFields =
-          Arrays.stream(clazz.getDeclaredFields())
-              .filter(field -> !isCsvField(field))
-              .collect(Collectors.toList());
-      fields.addAll(0, currentFields);
-      clazz = clazz.getSuperclass();
-    }
-
-    return fields.toArray(new Field[0]);
-  }
-
-  /**
-   * Determines if a given field is a CSV-compatible field.
-   *
-   * @param field the field to be checked
-   * @return true if the field is compatible with CSV processing, false otherwise
-   */
-  private static boolean isCsvField(Field field) {
-    return !field.getType().equals(AppointmentManager.class)
-        && !field.getType().equals(InventoryManager.class)
-        && !field.getType().equals(MedicalRecordManager.class)
-        && !field.getType().equals(ScheduleManager.class)
-        && !field.getType().equals(UserManager.class)
-        && !field.getType().equals(ScannerWrapper.class);
-  }
-
-  /**
-   * Parses a CSV formatted string containing medication data into a list of MedicationItem objects.
-   *
-   * @param medicationData the CSV string containing medication data, where each medication entry is
-   *     separated by a semicolon (;) and fields within each entry are separated by a colon (:)
-   * @return a list of MedicationItem objects parsed from the CSV string
-   */
-  // Helper method to parse a CSV value into a list of Medication objects
-  private static List<MedicationItem> parseMedicationItems(String medicationData) {
-    List<MedicationItem> medicationItems = new ArrayList<>();
-
-    // Split each medication entry by semicolon (;)
-    String[] medicationEntries = medicationData.split(";");
-    for (String entry : medicationEntries) {
-      String[] fields = entry.split(":");
-
-      // Assuming the fields are: medicationID, medicationName, quantity
-      if (fields.length == 3) {
-        String medicationID = fields[0].trim();
-        String medicationName = fields[1].trim();
-        int quantity = Integer.parseInt(fields[2].trim());
-
-        // Create a Medication object
-        MedicationItem medicationItem = new MedicationItem(medicationID, medicationName, quantity);
-        medicationItems.add(medicationItem);
-      }
-    }
-
-    return medicationItems;
-  }
-
   /**
    * Reads and aggregates users from various sources (patients, doctors, pharmacists, and
    * administrators).
@@ -298,7 +261,7 @@ public class CsvDB {
    * @return a list of Patient instances populated with the data from the CSV file.
    */
   public static List<Patient> readPatients() {
-    return readCsv(PATIENT_CSV_PATH, Patient.class);
+    return PATIENT_TABLE.read();
   }
 
   /**
@@ -307,7 +270,7 @@ public class CsvDB {
    * @return a list of Doctor instances populated with the data from the CSV file.
    */
   public static List<Doctor> readDoctors() {
-    return readCsv(DOCTOR_CSV_PATH, Doctor.class);
+    return DOCTOR_TABLE.read();
   }
 
   /**
@@ -316,7 +279,7 @@ public class CsvDB {
    * @return a list of Pharmacist instances populated with the data from the CSV file.
    */
   public static List<Pharmacist> readPharmacists() {
-    return readCsv(PHARMACIST_CSV_PATH, Pharmacist.class);
+    return PHARMACIST_TABLE.read();
   }
 
   /**
@@ -325,7 +288,7 @@ public class CsvDB {
    * @return a list of Administrator instances populated with the data from the CSV file.
    */
   public static List<Administrator> readAdministrators() {
-    return readCsv(ADMINISTRATOR_CSV_PATH, Administrator.class);
+    return ADMINISTRATOR_TABLE.read();
   }
 
   /**
@@ -335,7 +298,7 @@ public class CsvDB {
    */
   // Appointment.csv file
   public static List<Appointment> readAppointments() {
-    return readCsv(APPOINTMENT_CSV_PATH, Appointment.class);
+    return APPOINTMENT_TABLE.read();
   }
 
   /**
@@ -344,7 +307,7 @@ public class CsvDB {
    * @return a list of Treatment instances populated with the data from the CSV file.
    */
   public static List<Treatment> readTreatments() {
-    return readCsv(TREATMENT_CSV_PATH, Treatment.class);
+    return TREATMENT_TABLE.read();
   }
 
   /**
@@ -354,7 +317,7 @@ public class CsvDB {
    */
   // ReplenishmentRequest.csv file
   public static List<ReplenishmentRequest> readReplenishmentRequests() {
-    return readCsv(REPLENISHMENT_REQUEST_CSV_PATH, ReplenishmentRequest.class);
+    return REPLENISHMENT_REQUEST_TABLE.read();
   }
 
   /**
@@ -363,7 +326,7 @@ public class CsvDB {
    * @return a list of Diagnosis instances populated with the data from the CSV file.
    */
   public static List<Diagnosis> readDiagnoses() {
-    return readCsv(DIAGNOSIS_CSV_PATH, Diagnosis.class);
+    return DIAGNOSIS_TABLE.read();
   }
 
   /**
@@ -373,7 +336,7 @@ public class CsvDB {
    */
   // Read Schedule.csv file
   public static List<Schedule> readSchedules() {
-    return readCsv(SCHEDULE_CSV_PATH, Schedule.class);
+    return SCHEDULE_TABLE.read();
   }
 
   /**
@@ -383,7 +346,7 @@ public class CsvDB {
    */
   // Read Medication.csv file
   public static List<Medication> readMedications() {
-    return readCsv(MEDICATION_CSV_PATH, Medication.class);
+    return MEDICATION_TABLE.read();
   }
 
   /**
@@ -393,86 +356,604 @@ public class CsvDB {
    */
   // Read AppointmentOutcomeRecord.csv file
   public static List<AppointmentOutcomeRecord> readAppointmentOutcomeRecords() {
-    return readCsv(APPOINTMENT_OUTCOME_RECORD_CSV_PATH, AppointmentOutcomeRecord.class);
-  }
-
-  /**
-   * Writes a list of objects to a CSV file.
-   *
-   * @param <T> the type of objects in the modelList
-   * @param csvPathString the path to the CSV file as a string
-   * @param header the header row for the CSV file
-   * @param modelList the list of objects to write to the CSV file
-   */
-  private static <T> void writeCsv(String csvPathString, String header, List<T> modelList) {
-    Path csvPath = Paths.get("target", "classes", csvPathString);
-
-    try (Writer writer = new FileWriter(csvPath.toFile())) {
-      Class<?> clazz = modelList.get(0).getClass();
-
-      // Write the CSV header
-      writer.write(header);
-      writer.write("\n");
-
-      // Get fields that should be used for CSV output
-      Field[] csvFields = getCsvFields(clazz);
-
-      // Write each object's data as a CSV row using Streams
-      String csvData =
-          modelList
-              .stream()
-              .map(
-                  item ->
-                      Stream.of(csvFields)
-                          .map(
-                              field -> {
-                                try {
-                                  field.setAccessible(true);
-                                  Object value = field.get(item);
-
-                                  String csvValue = null;
-                                  if (value instanceof String) {
-                                    csvValue = (String) value;
-                                  } else if (value instanceof Integer) {
-                                    csvValue = Integer.toString((int) value);
-                                  } else if (value instanceof LocalDate) {
-                                    csvValue = ((LocalDate) value).format(getDateTimeFormatter());
-                                  } else if (value instanceof Boolean) {
-                                    csvValue = Boolean.toString((boolean) value);
-                                  } else if (value instanceof List) {
-                                    List<?> list = (List<?>) value;
-                                    if (!list.isEmpty() && list.get(0) instanceof MedicationItem) {
-                                      csvValue =
-                                          list.stream()
-                                              .map(
-                                                  medicationItem -> {
-                                                    MedicationItem medItem =
-                                                        (MedicationItem) medicationItem;
-                                                    return medItem.getMedicationID()
-                                                        + ":"
-                                                        + medItem.getMedicationName()
-                                                        + ":"
-                                                        + medItem.getQuantity();
-                                                  })
-                                              .collect(Collectors.joining(";"));
-                                    }
-                                  } else if (field.getName().equals("session")) {
-                                    csvValue = String.join(CSV_DELIMITER, (String[]) value);
-                                  }
-                                  return csvValue;
-                                } catch (IllegalAccessException e) {
-                                  throw new RuntimeException("Failed to access field value", e);
-                                }
-                              })
-                          .collect(Collectors.joining(CSV_DELIMITER)))
-              .collect(Collectors.joining("\n"));
-
-      writer.write(csvData);
-      writer.write("\n");
-
-    } catch (IOException e) {
-      throw new RuntimeException("Error writing CSV file", e);
+    return APPOINTMENT_OUTCOME_RECORD_TABLE.read();
+  }
+
+  /**
+   * Retrieves the repository of patients, indexed by hospital ID.
+   *
+   * @return the patient repository
+   */
+  public static Repository<Patient> getPatientRepository() {
+    return PATIENT_TABLE;
+  }
+
+  /**
+   * Retrieves the repository of doctors, indexed by hospital ID.
+   *
+   * @return the doctor repository
+   */
+  public static Repository<Doctor> getDoctorRepository() {
+    return DOCTOR_TABLE;
+  }
+
+  /**
+   * Retrieves the repository of pharmacists, indexed by hospital ID.
+   *
+   * @return the pharmacist repository
+   */
+  public static Repository<Pharmacist> getPharmacistRepository() {
+    return PHARMACIST_TABLE;
+  }
+
+  /**
+   * Retrieves the repository of administrators, indexed by hospital ID.
+   *
+   * @return the administrator repository
+   */
+  public static Repository<Administrator> getAdministratorRepository() {
+    return ADMINISTRATOR_TABLE;
+  }
+
+  /**
+   * Retrieves the repository of appointments, indexed by appointment ID.
+   *
+   * @return the appointment repository
+   */
+  public static Repository<Appointment> getAppointmentRepository() {
+    return APPOINTMENT_TABLE;
+  }
+
+  /**
+   * Retrieves the repository of diagnoses, indexed by appointment ID.
+   *
+   * @return the diagnosis repository
+   */
+  public static Repository<Diagnosis> getDiagnosisRepository() {
+    return DIAGNOSIS_TABLE;
+  }
+
+  /**
+   * Retrieves the repository of treatments, indexed by appointment ID.
+   *
+   * @return the treatment repository
+   */
+  public static Repository<Treatment> getTreatmentRepository() {
+    return TREATMENT_TABLE;
+  }
+
+  /**
+   * Retrieves the repository of schedules, indexed by doctor ID and date.
+   *
+   * @return the schedule repository
+   */
+  public static Repository<Schedule> getScheduleRepository() {
+    return SCHEDULE_TABLE;
+  }
+
+  /**
+   * Retrieves the repository of medications, indexed by medication ID.
+   *
+   * @return the medication repository
+   */
+  public static Repository<Medication> getMedicationRepository() {
+    return MEDICATION_TABLE;
+  }
+
+  /**
+   * Retrieves the repository of replenishment requests, indexed by request ID.
+   *
+   * @return the replenishment request repository
+   */
+  public static Repository<ReplenishmentRequest> getReplenishmentRequestRepository() {
+    return REPLENISHMENT_REQUEST_TABLE;
+  }
+
+  /**
+   * Retrieves the repository of appointment outcome records, indexed by appointment ID.
+   *
+   * @return the appointment outcome record repository
+   */
+  public static Repository<AppointmentOutcomeRecord> getAppointmentOutcomeRecordRepository() {
+    return APPOINTMENT_OUTCOME_RECORD_TABLE;
+  }
+
+  /**
+   * Retrieves the column-oriented copy of the appointments, with the dictionary columns doctorID,
+   * patientID and status, the date column date and the integer column session.
+   *
+   * @return the appointment columns
+   */
+  public static ColumnarTable<Appointment> getAppointmentColumns() {
+    return APPOINTMENT_COLUMNS;
+  }
+
+  /**
+   * Retrieves the column-oriented copy of the appointment outcome records, with the dictionary
+   * columns typeOfService and prescriptionStatus and the integer column prescriptionCount.
+   *
+   * @return the appointment outcome record columns
+   */
+  public static ColumnarTable<AppointmentOutcomeRecord> getAppointmentOutcomeRecordColumns() {
+    return APPOINTMENT_OUTCOME_RECORD_COLUMNS;
+  }
+
+  /**
+   * Counts the appointments of every status, reading only the status column.
+   *
+   * @return the number of appointments of each status, leaving out the statuses with none
+   */
+  public static Map<AppointmentStatus, Integer> countAppointmentsByStatus() {
+    return countByEnum(APPOINTMENT_COLUMNS.readDictionary("status"), AppointmentStatus.class);
+  }
+
+  /**
+   * Counts the appointments of every doctor in every month, reading only the doctor ID and date
+   * columns.
+   *
+   * @return the number of appointments of each doctor, by month in ascending order
+   */
+  public static Map<String, SortedMap<YearMonth, Integer>> countAppointmentsByDoctorAndMonth() {
+    ColumnarTable.DictionaryColumn doctors = APPOINTMENT_COLUMNS.readDictionary("doctorID");
+    int[] doctorCodes = doctors.getCodes();
+    int[] days = APPOINTMENT_COLUMNS.readInts("date");
+
+    // Count into one array per doctor, indexed by month from the earliest one
+    int firstMonth = Integer.MAX_VALUE;
+    int lastMonth = Integer.MIN_VALUE;
+    int[] months = new int[days.length];
+    for (int i = 0; i < days.length; i++) {
+      if (days[i] == Integer.MIN_VALUE) {
+        continue;
+      }
+      LocalDate date = LocalDate.ofEpochDay(days[i]);
+      months[i] = date.getYear() * 12 + date.getMonthValue() - 1;
+      firstMonth = Math.min(firstMonth, months[i]);
+      lastMonth = Math.max(lastMonth, months[i]);
+    }
+    Map<String, SortedMap<YearMonth, Integer>> counts = new LinkedHashMap<>();
+    if (firstMonth > lastMonth) {
+      return counts;
+    }
+
+    int[][] monthCounts = new int[doctors.getDictionarySize()][lastMonth - firstMonth + 1];
+    for (int i = 0; i < days.length; i++) {
+      if (doctorCodes[i] >= 0 && days[i] != Integer.MIN_VALUE) {
+        monthCounts[doctorCodes[i]][months[i] - firstMonth]++;
+      }
+    }
+    for (int code = 0; code < monthCounts.length; code++) {
+      SortedMap<YearMonth, Integer> doctorCounts = new TreeMap<>();
+      for (int month = 0; month < monthCounts[code].length; month++) {
+        if (monthCounts[code][month] > 0) {
+          int value = firstMonth + month;
+          doctorCounts.put(YearMonth.of(value / 12, value % 12 + 1), monthCounts[code][month]);
+        }
+      }
+      if (!doctorCounts.isEmpty()) {
+        counts.put(doctors.getValue(code), doctorCounts);
+      }
+    }
+    return counts;
+  }
+
+  /**
+   * Counts the appointment outcome records of every prescription status, reading only the
+   * prescription status column.
+   *
+   * @return the number of records of each prescription status, leaving out the statuses with none
+   */
+  public static Map<AppointmentOutcomeStatus, Integer> countOutcomesByPrescriptionStatus() {
+    return countByEnum(
+        APPOINTMENT_OUTCOME_RECORD_COLUMNS.readDictionary("prescriptionStatus"),
+        AppointmentOutcomeStatus.class);
+  }
+
+  private static <E extends Enum<E>> Map<E, Integer> countByEnum(
+      ColumnarTable.DictionaryColumn column, Class<E> enumType) {
+    int[] counts = new int[column.getDictionarySize()];
+    for (int code : column.getCodes()) {
+      if (code >= 0) {
+        counts[code]++;
+      }
+    }
+    Map<E, Integer> countsByConstant = new EnumMap<>(enumType);
+    for (int code = 0; code < counts.length; code++) {
+      countsByConstant.put(Enum.valueOf(enumType, column.getValue(code)), counts[code]);
+    }
+    return countsByConstant;
+  }
+
+  /**
+   * Retrieves the appointments of the specified patient, whatever their status.
+   *
+   * @param patientID the hospital ID of the patient
+   * @return a list of the patient's appointments, in table order
+   */
+  public static List<Appointment> findAppointmentsByPatientID(String patientID) {
+    return APPOINTMENTS_BY_PATIENT.find(patientID);
+  }
+
+  /**
+   * Retrieves the appointments with the specified doctor, whatever their status.
+   *
+   * @param doctorID the hospital ID of the doctor
+   * @return a list of the doctor's appointments, in table order
+   */
+  public static List<Appointment> findAppointmentsByDoctorID(String doctorID) {
+    return APPOINTMENTS_BY_DOCTOR.find(doctorID);
+  }
+
+  /**
+   * Retrieves the appointments with the specified status.
+   *
+   * @param status the status of the appointments
+   * @return a list of the matching appointments, in table order
+   */
+  public static List<Appointment> findAppointmentsByStatus(AppointmentStatus status) {
+    return APPOINTMENTS_BY_STATUS.find(status);
+  }
+
+  /**
+   * Retrieves the appointments taking place between the specified dates, inclusive. Either date may
+   * be null to leave that end of the range open.
+   *
+   * @param from the first date of the range, or null
+   * @param to the last date of the range, or null
+   * @return a list of the matching appointments, sorted by date and then in table order
+   */
+  public static List<Appointment> findAppointmentsBetween(LocalDate from, LocalDate to) {
+    return APPOINTMENTS_BY_DATE.findRange(from, true, to, true);
+  }
+
+  /**
+   * Retrieves the schedule of a doctor on the specified date.
+   *
+   * @param doctorID the hospital ID of the doctor
+   * @param date the date of the schedule
+   * @return the matching schedule, or null if the doctor has no schedule on that date
+   */
+  public static Schedule findSchedule(String doctorID, LocalDate date) {
+    return SCHEDULES_BY_DOCTOR_AND_DATE.find(doctorID, date);
+  }
+
+  /**
+   * Retrieves the schedules of a doctor between the specified dates, inclusive. Either date may be
+   * null to leave that end of the range open.
+   *
+   * @param doctorID the hospital ID of the doctor
+   * @param from the first date of the range, or null
+   * @param to the last date of the range, or null
+   * @return a list of the doctor's schedules within the range, sorted by date
+   */
+  public static List<Schedule> findSchedulesBetween(String doctorID, LocalDate from, LocalDate to) {
+    return SCHEDULES_BY_DOCTOR_AND_DATE.findRange(doctorID, from, to);
+  }
+
+  /**
+   * Retrieves the medical record of a patient: every diagnosis of the patient joined with the
+   * treatment of the same appointment and with its outcome record. A diagnosis without a treatment
+   * is left out. The record is materialized on first read and kept until a save changes one of the
+   * patient's diagnoses, treatments or outcome records, so reading it again is a single lookup.
+   *
+   * @param patientID the hospital ID of the patient
+   * @return an unmodifiable list of the entries of the patient's medical record, in diagnosis order
+   *     and then in treatment order
+   */
+  public static List<MedicalRecordEntry> findMedicalRecord(String patientID) {
+    return MEDICAL_RECORDS.get(patientID);
+  }
+
+  /**
+   * Joins the medical record of a patient. The patient's diagnoses and treatments are looked up in
+   * their patient indexes first, so only those rows take part in the join; the treatments are then
+   * hashed by appointment ID and probed once per diagnosis, and the outcome records are found by
+   * primary key.
+   */
+  private static List<MedicalRecordEntry> joinMedicalRecord(String patientID) {
+    Map<String, List<Treatment>> treatmentsByAppointment = new HashMap<>();
+    for (Treatment treatment : TREATMENTS_BY_PATIENT.find(patientID)) {
+      treatmentsByAppointment
+          .computeIfAbsent(treatment.getAppointmentID(), key -> new ArrayList<>(1))
+          .add(treatment);
+    }
+
+    List<MedicalRecordEntry> entries = new ArrayList<>();
+    for (Diagnosis diagnosis : DIAGNOSES_BY_PATIENT.find(patientID)) {
+      List<Treatment> treatments = treatmentsByAppointment.get(diagnosis.getAppointmentId());
+      if (treatments == null) {
+        continue;
+      }
+      AppointmentOutcomeRecord outcome = findAppointmentOutcomeRecord(diagnosis.getAppointmentId());
+      for (Treatment treatment : treatments) {
+        entries.add(new MedicalRecordEntry(diagnosis, treatment, outcome));
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Retrieves the outcome record of the specified appointment, looking in the archive when the
+   * record is no longer in the table.
+   *
+   * @param appointmentID the ID of the appointment
+   * @return the outcome record of the appointment, or null if there is none
+   */
+  public static AppointmentOutcomeRecord findAppointmentOutcomeRecord(String appointmentID) {
+    AppointmentOutcomeRecord record = APPOINTMENT_OUTCOME_RECORD_TABLE.findById(appointmentID);
+    return record != null ? record : APPOINTMENT_OUTCOME_RECORD_ARCHIVE.findById(appointmentID);
+  }
+
+  /**
+   * Retrieves the archived appointments taking place between the specified dates, inclusive,
+   * reading only the archive segments of the months in the range. Either date may be null to leave
+   * that end of the range open.
+   *
+   * @param from the first date of the range, or null
+   * @param to the last date of the range, or null
+   * @return a list of the matching archived appointments, by month and then in archive order
+   */
+  public static List<Appointment> findArchivedAppointmentsBetween(LocalDate from, LocalDate to) {
+    return APPOINTMENT_ARCHIVE.findBetween(from, to);
+  }
+
+  /**
+   * Retrieves the archived schedules of a doctor between the specified dates, inclusive. Either
+   * date may be null to leave that end of the range open.
+   *
+   * @param doctorID the hospital ID of the doctor
+   * @param from the first date of the range, or null
+   * @param to the last date of the range, or null
+   * @return a list of the doctor's archived schedules within the range, sorted by date
+   */
+  public static List<Schedule> findArchivedSchedulesBetween(
+      String doctorID, LocalDate from, LocalDate to) {
+    return SCHEDULE_ARCHIVE
+        .findBetween(from, to)
+        .stream()
+        .filter(schedule -> schedule.getDoctorID().equals(doctorID))
+        .sorted(Comparator.comparing(Schedule::getDate))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Generates the ID of a new appointment, such as "A0004". Archived appointments keep their IDs,
+   * so they are never handed out again.
+   *
+   * @return the new appointment ID
+   * @throws CommitFailedException if a new block of IDs could not be reserved
+   */
+  public static String nextAppointmentID() {
+    return nextId(
+        "Appointment",
+        "A",
+        () ->
+            Stream.concat(
+                APPOINTMENT_TABLE.read().stream().map(Appointment::getAppointmentID),
+                APPOINTMENT_ARCHIVE.findKeys().stream()));
+  }
+
+  /**
+   * Generates the ID of a new replenishment request, such as "R0002".
+   *
+   * @return the new request ID
+   * @throws CommitFailedException if a new block of IDs could not be reserved
+   */
+  public static String nextReplenishmentRequestID() {
+    return nextId(
+        "ReplenishmentRequest",
+        "R",
+        () -> REPLENISHMENT_REQUEST_TABLE.read().stream().map(ReplenishmentRequest::getRequestID));
+  }
+
+  /**
+   * Generates the ID of a new medication, such as "M0005".
+   *
+   * @return the new medication ID
+   * @throws CommitFailedException if a new block of IDs could not be reserved
+   */
+  public static String nextMedicationID() {
+    return nextId(
+        "Medication", "M", () -> MEDICATION_TABLE.read().stream().map(Medication::getMedicationID));
+  }
+
+  /**
+   * Generates the hospital ID of a new patient, such as "P0006".
+   *
+   * @return the new hospital ID
+   * @throws CommitFailedException if a new block of IDs could not be reserved
+   */
+  public static String nextPatientID() {
+    return nextId("Patient", "P", () -> PATIENT_TABLE.read().stream().map(User::getHospitalID));
+  }
+
+  /**
+   * Generates the hospital ID of a new doctor, such as "D0007".
+   *
+   * @return the new hospital ID
+   * @throws CommitFailedException if a new block of IDs could not be reserved
+   */
+  public static String nextDoctorID() {
+    return nextId("Doctor", "D", () -> DOCTOR_TABLE.read().stream().map(User::getHospitalID));
+  }
+
+  /**
+   * Generates the hospital ID of a new pharmacist, such as "PH0002".
+   *
+   * @return the new hospital ID
+   * @throws CommitFailedException if a new block of IDs could not be reserved
+   */
+  public static String nextPharmacistID() {
+    return nextId(
+        "Pharmacist", "PH", () -> PHARMACIST_TABLE.read().stream().map(User::getHospitalID));
+  }
+
+  /**
+   * Generates the hospital ID of a new administrator, such as "A0006".
+   *
+   * @return the new hospital ID
+   * @throws CommitFailedException if a new block of IDs could not be reserved
+   */
+  public static String nextAdministratorID() {
+    return nextId(
+        "Administrator", "A", () -> ADMINISTRATOR_TABLE.read().stream().map(User::getHospitalID));
+  }
+
+  /**
+   * Draws the next number of a sequence and formats it as an ID, the number padded to four digits.
+   * A sequence drawn from for the first time starts after the highest number among the IDs already
+   * in use, so the existing rows are read only then. The number of an ID is the run of digits that
+   * ends it, after the prefix and any further letters: the "AH0005" of an administrator counts
+   * toward the "A" sequence, so the first new administrator of the original data is A0006, as it
+   * was when IDs were numbered after the size of their table.
+   */
+  private static String nextId(String sequence, String prefix, Supplier<Stream<String>> usedIDs) {
+    int number = ID_SEQUENCES.next(sequence, () -> firstUnusedNumber(prefix, usedIDs.get()));
+    return prefix + String.format("%04d", number);
+  }
+
+  /**
+   * Finds the number after the highest one among the IDs made of the prefix, optionally more
+   * letters, and digits.
+   */
+  private static int firstUnusedNumber(String prefix, Stream<String> ids) {
+    return ids.filter(id -> id.startsWith(prefix))
+            .map(id -> id.substring(prefix.length()).replaceFirst("^\\p{Alpha}*", ""))
+            .filter(digits -> !digits.isEmpty() && digits.chars().allMatch(Character::isDigit))
+            .mapToInt(Integer::parseInt)
+            .max()
+            .orElse(0)
+        + 1;
+  }
+
+  /**
+   * Moves the appointments completed or cancelled before the specified horizon into the archive,
+   * together with their outcome records, unless a prescription is still to be dispensed, and the
+   * schedules dated before the horizon on which no appointment remains. The archive segments are
+   * written before the rows are removed, all in one transaction, and the three tables are then
+   * compacted, so their snapshots hold only the working set. This is run by the {@link
+   * ArchiveCompactor}.
+   *
+   * @param horizon the date before which finished records are archived
+   * @return the number of appointments archived
+   * @throws CommitFailedException if the removal of the rows could not be committed
+   */
+  public static int archive(LocalDate horizon) {
+    int[] archivedCount = new int[1];
+    transaction(
+        () -> {
+          List<AppointmentOutcomeRecord> records = readAppointmentOutcomeRecords();
+          Set<String> undispensed = new HashSet<>();
+          for (AppointmentOutcomeRecord record : records) {
+            if (record.getPrescriptionStatus() == AppointmentOutcomeStatus.PENDING) {
+              undispensed.add(record.getAppointmentID());
+            }
+          }
+
+          List<Appointment> appointments = readAppointments();
+          List<Appointment> expired = new ArrayList<>();
+          Set<String> expiredIDs = new HashSet<>();
+          Set<String> bookedDays = new HashSet<>();
+          for (Appointment appointment : appointments) {
+            boolean finished =
+                appointment.getStatus() == AppointmentStatus.COMPLETED
+                    || appointment.getStatus() == AppointmentStatus.CANCELLED;
+            if (appointment.getDate().isBefore(horizon)
+                && finished
+                && !undispensed.contains(appointment.getAppointmentID())) {
+              expired.add(appointment);
+              expiredIDs.add(appointment.getAppointmentID());
+            } else {
+              bookedDays.add(appointment.getDoctorID() + "|" + appointment.getDate());
+            }
+          }
+          List<AppointmentOutcomeRecord> expiredRecords = new ArrayList<>();
+          for (AppointmentOutcomeRecord record : records) {
+            if (expiredIDs.contains(record.getAppointmentID())) {
+              expiredRecords.add(record);
+            }
+          }
+          List<Schedule> schedules = readSchedules();
+          List<Schedule> expiredSchedules = new ArrayList<>();
+          Set<String> expiredDays = new HashSet<>();
+          for (Schedule schedule : schedules) {
+            String day = schedule.getDoctorID() + "|" + schedule.getDate();
+            if (schedule.getDate().isBefore(horizon) && !bookedDays.contains(day)) {
+              expiredSchedules.add(schedule);
+              expiredDays.add(day);
+            }
+          }
+
+          // The records are archived first, while their appointments still give them a date
+          APPOINTMENT_OUTCOME_RECORD_ARCHIVE.archive(expiredRecords);
+          APPOINTMENT_ARCHIVE.archive(expired);
+          SCHEDULE_ARCHIVE.archive(expiredSchedules);
+          records.removeIf(record -> expiredIDs.contains(record.getAppointmentID()));
+          appointments.removeIf(appointment -> expiredIDs.contains(appointment.getAppointmentID()));
+          schedules.removeIf(
+              schedule -> expiredDays.contains(schedule.getDoctorID() + "|" + schedule.getDate()));
+          saveAppointmentOutcomeRecords(records);
+          saveAppointments(appointments);
+          saveSchedules(schedules);
+          archivedCount[0] = expired.size();
+        });
+    GroupCommitter.exclusive(
+        () -> {
+          APPOINTMENT_TABLE.compact();
+          SCHEDULE_TABLE.compact();
+          APPOINTMENT_OUTCOME_RECORD_TABLE.compact();
+        });
+    return archivedCount[0];
+  }
+
+  /** Retrieves the date of an appointment, whether it is still in the table or archived. */
+  private static LocalDate findAppointmentDate(String appointmentID) {
+    Appointment appointment = APPOINTMENT_TABLE.findById(appointmentID);
+    if (appointment == null) {
+      appointment = APPOINTMENT_ARCHIVE.findById(appointmentID);
     }
+    return appointment == null ? null : appointment.getDate();
+  }
+
+  /**
+   * Retrieves the patients under the care of a doctor: those with a confirmed session in any of the
+   * doctor's schedules. The patients are kept per doctor in an index the schedule table updates
+   * with every save, such as a session being confirmed or declined, so the lookup costs the number
+   * of patients returned rather than the number of schedules.
+   *
+   * @param doctorID the hospital ID of the doctor
+   * @return a list of the hospital IDs of the patients, in the order they were first confirmed
+   */
+  public static List<String> findPatientIDsUnderCare(String doctorID) {
+    return PATIENTS_BY_DOCTOR.find(doctorID);
+  }
+
+  /** Retrieves the IDs of the patients booked in the confirmed sessions of a schedule. */
+  private static List<String> getConfirmedPatientIDs(Schedule schedule) {
+    List<String> patientIDs = new ArrayList<>();
+    for (int confirmed = schedule.getSessionsWithStatus(ScheduleStatus.CONFIRMED);
+        confirmed != 0;
+        confirmed &= confirmed - 1) {
+      patientIDs.add(schedule.getPatientIdFromSession(Integer.numberOfTrailingZeros(confirmed)));
+    }
+    return patientIDs;
+  }
+
+  /**
+   * Retrieves the user with the specified hospital ID, whatever their role.
+   *
+   * @param hospitalID the hospital ID of the user
+   * @return the user with the matching hospital ID, or null if no match is found
+   */
+  public static User findUserById(String hospitalID) {
+    for (Repository<? extends User> repository :
+        Arrays.asList(PATIENT_TABLE, DOCTOR_TABLE, PHARMACIST_TABLE, ADMINISTRATOR_TABLE)) {
+      User user = repository.findById(hospitalID);
+      if (user != null) {
+        return user;
+      }
+    }
+    return null;
   }
 
   /**
@@ -498,10 +979,24 @@ public class CsvDB {
         administrators.add((Administrator) user);
       }
     }
-    savePatients(patients);
-    saveDoctors(doctors);
-    savePharmacists(pharmacists);
-    saveAdministrators(administrators);
+    transaction(
+        () -> {
+          savePatients(patients);
+          saveDoctors(doctors);
+          savePharmacists(pharmacists);
+          saveAdministrators(administrators);
+        });
+  }
+
+  /**
+   * Runs the specified body in a transaction, so that every table saved by the body is committed
+   * together: after a crash, either all of the saves are visible or none of them are. Nested calls
+   * join the outermost transaction.
+   *
+   * @param body the body of the transaction, typically a sequence of save calls
+   */
+  public static void transaction(Runnable body) {
+    GroupCommitter.transaction(body);
   }
 
   /**
@@ -511,7 +1006,7 @@ public class CsvDB {
    * @param treatments the list of Treatment objects to be saved
    */
   public static void saveTreatment(List<Treatment> treatments) {
-    writeCsv(TREATMENT_CSV_PATH, TREATMENT_HEADER, treatments);
+    TREATMENT_TABLE.save(treatments);
   }
 
   /**
@@ -521,7 +1016,7 @@ public class CsvDB {
    * @param diagnoses the list of Diagnosis objects to be saved
    */
   public static void saveDiagnosis(List<Diagnosis> diagnoses) {
-    writeCsv(DIAGNOSIS_CSV_PATH, DIAGNOSIS_HEADER, diagnoses);
+    DIAGNOSIS_TABLE.save(diagnoses);
   }
 
   /**
@@ -530,7 +1025,7 @@ public class CsvDB {
    * @param appointments the list of Appointment objects to be saved
    */
   public static void saveAppointments(List<Appointment> appointments) {
-    writeCsv(APPOINTMENT_CSV_PATH, APPOINTMENT_HEADER, appointments);
+    APPOINTMENT_TABLE.save(appointments);
   }
 
   /**
@@ -539,7 +1034,7 @@ public class CsvDB {
    * @param medications the list of Medication objects to be saved
    */
   public static void saveMedications(List<Medication> medications) {
-    writeCsv(MEDICATION_CSV_PATH, MEDICATION_HEADER, medications);
+    MEDICATION_TABLE.save(medications);
   }
 
   /**
@@ -548,7 +1043,7 @@ public class CsvDB {
    * @param patients the list of Patient objects to be saved
    */
   public static void savePatients(List<Patient> patients) {
-    writeCsv(PATIENT_CSV_PATH, PATIENT_HEADER, patients);
+    PATIENT_TABLE.save(patients);
   }
 
   /**
@@ -557,7 +1052,7 @@ public class CsvDB {
    * @param doctors the list of Doctor objects to be saved
    */
   public static void saveDoctors(List<Doctor> doctors) {
-    writeCsv(DOCTOR_CSV_PATH, DOCTOR_HEADER, doctors);
+    DOCTOR_TABLE.save(doctors);
   }
 
   /**
@@ -566,7 +1061,7 @@ public class CsvDB {
    * @param pharmacists a list of Pharmacist objects to be saved.
    */
   public static void savePharmacists(List<Pharmacist> pharmacists) {
-    writeCsv(PHARMACIST_CSV_PATH, PHARMACIST_HEADER, pharmacists);
+    PHARMACIST_TABLE.save(pharmacists);
   }
 
   /**
@@ -575,7 +1070,7 @@ public class CsvDB {
    * @param administrators the list of Administrator objects to be saved to the CSV file
    */
   public static void saveAdministrators(List<Administrator> administrators) {
-    writeCsv(ADMINISTRATOR_CSV_PATH, ADMINISTRATOR_HEADER, administrators);
+    ADMINISTRATOR_TABLE.save(administrators);
   }
 
   /**
@@ -584,7 +1079,7 @@ public class CsvDB {
    * @param schedules the list of schedules to be saved
    */
   public static void saveSchedules(List<Schedule> schedules) {
-    writeCsv(SCHEDULE_CSV_PATH, SCHEDULE_HEADER, schedules);
+    SCHEDULE_TABLE.save(schedules);
   }
 
   /**
@@ -594,10 +1089,7 @@ public class CsvDB {
    */
   public static void saveAppointmentOutcomeRecords(
       List<AppointmentOutcomeRecord> appointmentOutcomeRecords) {
-    writeCsv(
-        APPOINTMENT_OUTCOME_RECORD_CSV_PATH,
-        APPOINTMENT_OUTCOME_RECORD_HEADER,
-        appointmentOutcomeRecords);
+    APPOINTMENT_OUTCOME_RECORD_TABLE.save(appointmentOutcomeRecords);
   }
 
   /**
@@ -606,6 +1098,86 @@ public class CsvDB {
    * @param replenishmentRequests the list of ReplenishmentRequest objects to be saved
    */
   public static void saveReplenishmentRequests(List<ReplenishmentRequest> replenishmentRequests) {
-    writeCsv(REPLENISHMENT_REQUEST_CSV_PATH, REPLENISHMENT_REQUEST_HEADER, replenishmentRequests);
+    REPLENISHMENT_REQUEST_TABLE.save(replenishmentRequests);
+  }
+
+  /**
+   * Starts loading every table concurrently in the background from the specified storage engine,
+   * the user tables first. Does nothing if the tables are already being loaded. The managers
+   * injected into the models are created on the calling thread beforehand, since SingletonFactory
+   * is not thread-safe. The {@link ArchiveCompactor} is started too, if it is enabled.
+   *
+   * @param engine the storage engine the tables are kept in
+   * @throws IllegalStateException if the tables were already opened with another engine
+   */
+  public static synchronized void load(StorageEngine engine) {
+    if (loader == null) {
+      StorageEngines.use(engine);
+      ModelMetadataRegistry.resolveInjectedTypes();
+      loader = BootstrapLoader.start(TABLES);
+      ArchiveCompactor.start(CsvDB::archive);
+    }
+  }
+
+  /**
+   * Waits until the patient, doctor, pharmacist and administrator tables are loaded, which is all
+   * that authenticating a user needs. Returns immediately if {@link #load(StorageEngine)} was not
+   * called.
+   */
+  public static void awaitUserTables() {
+    BootstrapLoader current = getLoader();
+    if (current != null) {
+      current.await(PATIENT_TABLE, DOCTOR_TABLE, PHARMACIST_TABLE, ADMINISTRATOR_TABLE);
+    }
+  }
+
+  /**
+   * Waits until every table is loaded and reports how long each one took.
+   *
+   * @return the row count and load time of every table, or an empty list if {@link
+   *     #load(StorageEngine)} was not called
+   */
+  public static List<BootstrapLoader.TableLoad> awaitTables() {
+    BootstrapLoader current = getLoader();
+    return current == null ? Collections.emptyList() : current.awaitAll();
+  }
+
+  private static synchronized BootstrapLoader getLoader() {
+    return loader;
+  }
+
+  /**
+   * Compacts the mutation log of every table into its CSV file and releases the rows and archived
+   * keys held in memory. This is called when the application exits, so the CSV files are
+   * self-contained afterwards. The archiving pass in progress, if any, and tables still being
+   * loaded by {@link #load(StorageEngine)} are waited for first, the IDs reserved but not handed
+   * out are given back to their sequences, and changes still being written behind are flushed.
+   *
+   * @throws CommitFailedException if changes written behind could not be committed
+   */
+  public static void close() {
+    ArchiveCompactor.stop();
+    BootstrapLoader current;
+    synchronized (CsvDB.class) {
+      current = loader;
+      loader = null;
+    }
+    if (current != null) {
+      // Let the background loads finish, so none of them reloads a table after the checkpoint
+      try {
+        current.awaitAll();
+      } catch (RuntimeException e) {
+        // A table that failed to load has nothing to compact
+      }
+    }
+    try {
+      ID_SEQUENCES.release();
+      GroupCommitter.flush();
+    } finally {
+      GroupCommitter.checkpoint(TABLES);
+      APPOINTMENT_ARCHIVE.close();
+      SCHEDULE_ARCHIVE.close();
+      APPOINTMENT_OUTCOME_RECORD_ARCHIVE.close();
+    }
   }
 }
@@ -0,0 +1,88 @@
+package com.ntu.hms;
+
+import com.ntu.hms.model.MedicalRecordEntry;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A materialized view of the medical records of the patients read so far, so that opening the same
+ * patient's record again is a single lookup. The {@link com.ntu.hms.storage.ChangeTracker}s of the
+ * diagnosis, treatment and appointment outcome record tables report every patient and appointment a
+ * save touches, and only those patients' records are dropped, to be joined again on their next
+ * read. A reload of one of the tables drops every record.
+ */
+final class MedicalRecordProjection {
+  private final Function<String, List<MedicalRecordEntry>> builder;
+  private final Map<String, List<MedicalRecordEntry>> recordsByPatient = new ConcurrentHashMap<>();
+  // The patient of every appointment in a record, so a changed outcome record finds its patient
+  private final Map<String, String> patientsByAppointment = new ConcurrentHashMap<>();
+  // Incremented by every refresh, so a record joined before a refresh is not kept after it
+  private long version;
+
+  /**
+   * Constructs a MedicalRecordProjection.
+   *
+   * @param builder the function joining the medical record of a patient
+   */
+  MedicalRecordProjection(Function<String, List<MedicalRecordEntry>> builder) {
+    this.builder = builder;
+  }
+
+  /**
+   * Retrieves the medical record of a patient, joining it first if it is not materialized.
+   *
+   * @param patientID the hospital ID of the patient
+   * @return an unmodifiable list of the entries of the patient's medical record
+   */
+  List<MedicalRecordEntry> get(String patientID) {
+    List<MedicalRecordEntry> entries = recordsByPatient.get(patientID);
+    if (entries != null) {
+      return entries;
+    }
+
+    long builtVersion;
+    synchronized (this) {
+      builtVersion = version;
+    }
+    entries = Collections.unmodifiableList(builder.apply(patientID));
+    synchronized (this) {
+      if (version == builtVersion) {
+        entries.forEach(entry -> patientsByAppointment.put(entry.getAppointmentID(), patientID));
+        recordsByPatient.put(patientID, entries);
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Drops the medical record of a patient whose diagnoses or treatments changed.
+   *
+   * @param patientID the hospital ID of the patient
+   */
+  synchronized void refreshPatient(String patientID) {
+    version++;
+    recordsByPatient.remove(patientID);
+  }
+
+  /**
+   * Drops the medical record holding the specified appointment, whose outcome record changed.
+   *
+   * @param appointmentID the ID of the appointment
+   */
+  synchronized void refreshAppointment(String appointmentID) {
+    String patientID = patientsByAppointment.remove(appointmentID);
+    if (patientID != null) {
+      refreshPatient(patientID);
+    }
+  }
+
+  /** Drops every medical record. */
+  synchronized void clear() {
+    version++;
+    recordsByPatient.clear();
+    patientsByAppointment.clear();
+  }
+}
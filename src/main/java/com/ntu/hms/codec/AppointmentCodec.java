@@ -0,0 +1,57 @@
+package com.ntu.hms.codec;
+
+import static com.ntu.hms.codec.CsvValues.*;
+
+import com.ntu.hms.enums.AppointmentStatus;
+import com.ntu.hms.model.Appointment;
+
+/**
+ * CSV codec for the Appointment table. The columns are: Appointment ID, Patient ID, Doctor ID,
+ * Date, Session and Status.
+ */
+public class AppointmentCodec implements CsvCodec<Appointment>, BinaryCodec<Appointment> {
+
+  @Override
+  public Appointment decode(String[] columns) {
+    return new Appointment(
+        parseString(columns[0]),
+        parseString(columns[1]),
+        parseString(columns[2]),
+        parseDate(columns[3]),
+        parseInt(columns[4]),
+        parseEnum(AppointmentStatus.class, columns[5]));
+  }
+
+  @Override
+  public String encode(Appointment appointment) {
+    return String.join(
+        CSV_DELIMITER,
+        appointment.getAppointmentID(),
+        appointment.getPatientID(),
+        appointment.getDoctorID(),
+        formatDate(appointment.getDate()),
+        Integer.toString(appointment.getSession()),
+        formatEnum(appointment.getStatus()));
+  }
+
+  @Override
+  public void write(Appointment appointment, SnapshotOutput output) {
+    output.writeString(appointment.getAppointmentID());
+    output.writeId(appointment.getPatientID());
+    output.writeId(appointment.getDoctorID());
+    output.writeDate(appointment.getDate());
+    output.writeInt(appointment.getSession());
+    output.writeEnum(appointment.getStatus());
+  }
+
+  @Override
+  public Appointment read(SnapshotInput input) {
+    return new Appointment(
+        input.readString(),
+        input.readId(),
+        input.readId(),
+        input.readDate(),
+        input.readInt(),
+        input.readEnum(AppointmentStatus.class));
+  }
+}
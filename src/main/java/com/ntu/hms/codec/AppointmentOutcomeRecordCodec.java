@@ -0,0 +1,54 @@
+package com.ntu.hms.codec;
+
+import static com.ntu.hms.codec.CsvValues.*;
+
+import com.ntu.hms.enums.AppointmentOutcomeStatus;
+import com.ntu.hms.model.AppointmentOutcomeRecord;
+
+/**
+ * CSV codec for the AppointmentOutcomeRecord table. The columns are: Appointment ID, Type of
+ * Service, Consultation Notes, Prescriptions and Prescription Status.
+ */
+public class AppointmentOutcomeRecordCodec
+    implements CsvCodec<AppointmentOutcomeRecord>, BinaryCodec<AppointmentOutcomeRecord> {
+
+  @Override
+  public AppointmentOutcomeRecord decode(String[] columns) {
+    return new AppointmentOutcomeRecord(
+        parseString(columns[0]),
+        parseString(columns[1]),
+        parseString(columns[2]),
+        parseMedicationItems(columns[3]),
+        parseEnum(AppointmentOutcomeStatus.class, columns[4]));
+  }
+
+  @Override
+  public String encode(AppointmentOutcomeRecord record) {
+    return String.join(
+        CSV_DELIMITER,
+        record.getAppointmentID(),
+        record.getTypeOfService(),
+        record.getConsultationNotes(),
+        formatMedicationItems(record.getPrescriptions()),
+        formatEnum(record.getPrescriptionStatus()));
+  }
+
+  @Override
+  public void write(AppointmentOutcomeRecord record, SnapshotOutput output) {
+    output.writeString(record.getAppointmentID());
+    output.writeId(record.getTypeOfService());
+    output.writeString(record.getConsultationNotes());
+    output.writeMedicationItems(record.getPrescriptions());
+    output.writeEnum(record.getPrescriptionStatus());
+  }
+
+  @Override
+  public AppointmentOutcomeRecord read(SnapshotInput input) {
+    return new AppointmentOutcomeRecord(
+        input.readString(),
+        input.readId(),
+        input.readString(),
+        input.readMedicationItems(),
+        input.readEnum(AppointmentOutcomeStatus.class));
+  }
+}
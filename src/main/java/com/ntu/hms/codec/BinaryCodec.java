@@ -0,0 +1,28 @@
+package com.ntu.hms.codec;
+
+/**
+ * A BinaryCodec converts between an instance of a model class and its record in a binary snapshot
+ * of the model's table. Snapshots are a faster alternative to the CSV files when the application
+ * restarts; the CSV files remain the canonical copy of the data.
+ *
+ * @param <T> the model class handled by this codec
+ */
+public interface BinaryCodec<T> {
+
+  /**
+   * Writes the fields of a model instance as one snapshot record.
+   *
+   * @param model the model instance to be written
+   * @param output the output the record is written to
+   */
+  void write(T model, SnapshotOutput output);
+
+  /**
+   * Creates a model instance from one snapshot record, reading the fields in the order {@link
+   * #write(Object, SnapshotOutput)} wrote them.
+   *
+   * @param input the input positioned at the start of the record
+   * @return a new model instance populated with the values of the record
+   */
+  T read(SnapshotInput input);
+}
@@ -0,0 +1,27 @@
+package com.ntu.hms.codec;
+
+/**
+ * A CsvCodec converts between one row of a CSV table and an instance of the model class stored in
+ * that table. Each model class has its own compiled codec, so reading and writing a row does not
+ * need any reflection.
+ *
+ * @param <T> the model class handled by this codec
+ */
+public interface CsvCodec<T> {
+
+  /**
+   * Creates a model instance from the columns of a single CSV row.
+   *
+   * @param columns the values of the row, in the order of the table header
+   * @return a new model instance populated with the values of the row
+   */
+  T decode(String[] columns);
+
+  /**
+   * Converts a model instance into a single CSV row, without the trailing line separator.
+   *
+   * @param model the model instance to be converted
+   * @return the CSV representation of the model instance
+   */
+  String encode(T model);
+}
@@ -0,0 +1,69 @@
+package com.ntu.hms.codec;
+
+import com.ntu.hms.model.*;
+import com.ntu.hms.model.users.Administrator;
+import com.ntu.hms.model.users.Doctor;
+import com.ntu.hms.model.users.Patient;
+import com.ntu.hms.model.users.Pharmacist;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Registry of the CSV codecs for every model class stored in the csvdb folder. The codecs are
+ * created once when this class is loaded and shared by all readers and writers. Every codec also
+ * implements {@link BinaryCodec}, for the binary snapshots of the tables.
+ */
+public final class CsvCodecs {
+  private static final Map<Class<?>, CsvCodec<?>> CODECS;
+
+  static {
+    Map<Class<?>, CsvCodec<?>> codecs = new HashMap<>();
+    codecs.put(Patient.class, new PatientCodec());
+    codecs.put(Doctor.class, new StaffCodec<>(Doctor::new));
+    codecs.put(Pharmacist.class, new StaffCodec<>(Pharmacist::new));
+    codecs.put(Administrator.class, new StaffCodec<>(Administrator::new));
+    codecs.put(Appointment.class, new AppointmentCodec());
+    codecs.put(Schedule.class, new ScheduleCodec());
+    codecs.put(Medication.class, new MedicationCodec());
+    codecs.put(Diagnosis.class, new DiagnosisCodec());
+    codecs.put(Treatment.class, new TreatmentCodec());
+    codecs.put(AppointmentOutcomeRecord.class, new AppointmentOutcomeRecordCodec());
+    codecs.put(ReplenishmentRequest.class, new ReplenishmentRequestCodec());
+    codecs.put(IdSequence.class, new IdSequenceCodec());
+    CODECS = Collections.unmodifiableMap(codecs);
+  }
+
+  private CsvCodecs() {}
+
+  /**
+   * Retrieves the codec for the specified model class.
+   *
+   * @param <T> the model class handled by the codec
+   * @param clazz the model class whose codec is to be retrieved
+   * @return the codec for the model class
+   * @throws IllegalArgumentException if no codec is registered for the model class
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> CsvCodec<T> forClass(Class<T> clazz) {
+    CsvCodec<T> codec = (CsvCodec<T>) CODECS.get(clazz);
+    if (codec == null) {
+      throw new IllegalArgumentException("No CSV codec registered for " + clazz.getName());
+    }
+    return codec;
+  }
+
+  /**
+   * Retrieves the binary snapshot codec for the specified model class.
+   *
+   * @param <T> the model class handled by the codec
+   * @param clazz the model class whose codec is to be retrieved
+   * @return the binary codec for the model class, or null if its codec has no binary form
+   * @throws IllegalArgumentException if no codec is registered for the model class
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> BinaryCodec<T> binaryForClass(Class<T> clazz) {
+    CsvCodec<T> codec = forClass(clazz);
+    return codec instanceof BinaryCodec ? (BinaryCodec<T>) codec : null;
+  }
+}
@@ -0,0 +1,186 @@
+package com.ntu.hms.codec;
+
+import static com.ntu.hms.factory.SingletonFactory.getDateTimeFormatter;
+
+import com.ntu.hms.model.MedicationItem;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helper methods shared by the CSV codecs for parsing and formatting individual column values. The
+ * formats match the ones used by the CSV files in the csvdb folder.
+ */
+public final class CsvValues {
+  public static final String CSV_DELIMITER = ",";
+
+  private static final String NULL_VALUE = "null";
+  private static final String MEDICATION_ITEM_DELIMITER = ";";
+  private static final String MEDICATION_FIELD_DELIMITER = ":";
+
+  private CsvValues() {}
+
+  /**
+   * Splits a CSV row into its columns. Trailing empty columns are kept so that a row always has the
+   * same number of columns as the table header.
+   *
+   * @param line the CSV row to be split
+   * @return the columns of the row
+   */
+  public static String[] split(String line) {
+    return line.split(CSV_DELIMITER, -1);
+  }
+
+  /**
+   * Parses a text column, removing any surrounding whitespace.
+   *
+   * @param value the raw column value
+   * @return the trimmed column value
+   */
+  public static String parseString(String value) {
+    return value.trim();
+  }
+
+  /**
+   * Parses an integer column.
+   *
+   * @param value the raw column value
+   * @return the integer held by the column
+   */
+  public static int parseInt(String value) {
+    return Integer.parseInt(value.trim());
+  }
+
+  /**
+   * Parses a boolean column.
+   *
+   * @param value the raw column value
+   * @return true if the column holds "true" (ignoring case), false otherwise
+   */
+  public static boolean parseBoolean(String value) {
+    return Boolean.parseBoolean(value.trim());
+  }
+
+  /**
+   * Parses an enum column holding the name of a constant, ignoring case. The text "null", written
+   * for a missing value, is parsed as null.
+   *
+   * @param enumType the enum class of the column
+   * @param value the raw column value
+   * @param <E> the enum type
+   * @return the constant held by the column, or null
+   * @throws IllegalArgumentException if the column does not name a constant of the enum
+   */
+  public static <E extends Enum<E>> E parseEnum(Class<E> enumType, String value) {
+    String name = value.trim();
+    if (name.equals(NULL_VALUE)) {
+      return null;
+    }
+    for (E constant : enumType.getEnumConstants()) {
+      if (constant.name().equalsIgnoreCase(name)) {
+        return constant;
+      }
+    }
+    throw new IllegalArgumentException(
+        "No " + enumType.getSimpleName() + " constant named \"" + name + "\"");
+  }
+
+  /**
+   * Formats an enum column as the name of its constant, or "null" for a missing value.
+   *
+   * @param constant the constant to be formatted
+   * @return the formatted constant
+   */
+  public static String formatEnum(Enum<?> constant) {
+    return constant == null ? NULL_VALUE : constant.name();
+  }
+
+  /**
+   * Parses a date column in the dd/MM/yyyy format.
+   *
+   * @param value the raw column value
+   * @return the date held by the column
+   */
+  public static LocalDate parseDate(String value) {
+    return LocalDate.parse(value.trim(), getDateTimeFormatter());
+  }
+
+  /**
+   * Formats a date in the dd/MM/yyyy format.
+   *
+   * @param date the date to be formatted
+   * @return the formatted date
+   */
+  public static String formatDate(LocalDate date) {
+    int year = date.getYear();
+    if (year < 1 || year > 9999) {
+      return date.format(getDateTimeFormatter());
+    }
+    // Written out directly, since the formatter dominates the cost of encoding a dated row
+    int day = date.getDayOfMonth();
+    int month = date.getMonthValue();
+    return new String(
+        new char[] {
+          digit(day / 10),
+          digit(day % 10),
+          '/',
+          digit(month / 10),
+          digit(month % 10),
+          '/',
+          digit(year / 1000),
+          digit(year / 100 % 10),
+          digit(year / 10 % 10),
+          digit(year % 10)
+        });
+  }
+
+  private static char digit(int value) {
+    return (char) ('0' + value);
+  }
+
+  /**
+   * Parses a list of medication items stored as "medicationID:medicationName:quantity" entries
+   * separated by semicolons. Entries that do not have exactly three parts are skipped.
+   *
+   * @param value the raw column value
+   * @return the medication items held by the column
+   */
+  public static List<MedicationItem> parseMedicationItems(String value) {
+    List<MedicationItem> medicationItems = new ArrayList<>();
+    for (String entry : value.split(MEDICATION_ITEM_DELIMITER)) {
+      String[] fields = entry.split(MEDICATION_FIELD_DELIMITER);
+      if (fields.length == 3) {
+        medicationItems.add(
+            new MedicationItem(fields[0].trim(), fields[1].trim(), parseInt(fields[2])));
+      }
+    }
+    return medicationItems;
+  }
+
+  /**
+   * Formats a list of medication items as "medicationID:medicationName:quantity" entries separated
+   * by semicolons. An empty or missing list is formatted as an empty column.
+   *
+   * @param medicationItems the medication items to be formatted
+   * @return the formatted medication items
+   */
+  public static String formatMedicationItems(List<MedicationItem> medicationItems) {
+    if (medicationItems == null) {
+      return "";
+    }
+
+    StringBuilder value = new StringBuilder();
+    for (MedicationItem item : medicationItems) {
+      if (value.length() > 0) {
+        value.append(MEDICATION_ITEM_DELIMITER);
+      }
+      value
+          .append(item.getMedicationID())
+          .append(MEDICATION_FIELD_DELIMITER)
+          .append(item.getMedicationName())
+          .append(MEDICATION_FIELD_DELIMITER)
+          .append(item.getQuantity());
+    }
+    return value.toString();
+  }
+}
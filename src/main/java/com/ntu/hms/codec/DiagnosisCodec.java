@@ -0,0 +1,35 @@
+package com.ntu.hms.codec;
+
+import static com.ntu.hms.codec.CsvValues.*;
+
+import com.ntu.hms.model.Diagnosis;
+
+/** CSV codec for the Diagnosis table. The columns are: Appointment ID, Patient ID and Diagnosis. */
+public class DiagnosisCodec implements CsvCodec<Diagnosis>, BinaryCodec<Diagnosis> {
+
+  @Override
+  public Diagnosis decode(String[] columns) {
+    return new Diagnosis(parseString(columns[0]), parseString(columns[1]), parseString(columns[2]));
+  }
+
+  @Override
+  public String encode(Diagnosis diagnosis) {
+    return String.join(
+        CSV_DELIMITER,
+        diagnosis.getAppointmentId(),
+        diagnosis.getPatientId(),
+        diagnosis.getDiagnosis());
+  }
+
+  @Override
+  public void write(Diagnosis diagnosis, SnapshotOutput output) {
+    output.writeString(diagnosis.getAppointmentId());
+    output.writeId(diagnosis.getPatientId());
+    output.writeString(diagnosis.getDiagnosis());
+  }
+
+  @Override
+  public Diagnosis read(SnapshotInput input) {
+    return new Diagnosis(input.readString(), input.readId(), input.readString());
+  }
+}
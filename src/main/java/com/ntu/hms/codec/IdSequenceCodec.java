@@ -0,0 +1,30 @@
+package com.ntu.hms.codec;
+
+import static com.ntu.hms.codec.CsvValues.*;
+
+import com.ntu.hms.model.IdSequence;
+
+/** CSV codec for the IdSequence table. The columns are: Sequence and Next Value. */
+public class IdSequenceCodec implements CsvCodec<IdSequence>, BinaryCodec<IdSequence> {
+
+  @Override
+  public IdSequence decode(String[] columns) {
+    return new IdSequence(parseString(columns[0]), parseInt(columns[1]));
+  }
+
+  @Override
+  public String encode(IdSequence sequence) {
+    return String.join(CSV_DELIMITER, sequence.getName(), String.valueOf(sequence.getNextValue()));
+  }
+
+  @Override
+  public void write(IdSequence sequence, SnapshotOutput output) {
+    output.writeString(sequence.getName());
+    output.writeInt(sequence.getNextValue());
+  }
+
+  @Override
+  public IdSequence read(SnapshotInput input) {
+    return new IdSequence(input.readString(), input.readInt());
+  }
+}
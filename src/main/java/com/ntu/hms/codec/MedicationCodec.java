@@ -0,0 +1,53 @@
+package com.ntu.hms.codec;
+
+import static com.ntu.hms.codec.CsvValues.*;
+
+import com.ntu.hms.enums.MedicationStatus;
+import com.ntu.hms.model.Medication;
+
+/**
+ * CSV codec for the Medication table. The columns are: Medication ID, Medication Name, Stock
+ * Status, Alert and Quantity.
+ */
+public class MedicationCodec implements CsvCodec<Medication>, BinaryCodec<Medication> {
+
+  @Override
+  public Medication decode(String[] columns) {
+    return new Medication(
+        parseString(columns[0]),
+        parseString(columns[1]),
+        parseEnum(MedicationStatus.class, columns[2]),
+        parseBoolean(columns[3]),
+        parseInt(columns[4]));
+  }
+
+  @Override
+  public String encode(Medication medication) {
+    return String.join(
+        CSV_DELIMITER,
+        medication.getMedicationID(),
+        medication.getMedicationName(),
+        formatEnum(medication.getStockStatus()),
+        Boolean.toString(medication.getAlert()),
+        Integer.toString(medication.getTotalQuantity()));
+  }
+
+  @Override
+  public void write(Medication medication, SnapshotOutput output) {
+    output.writeString(medication.getMedicationID());
+    output.writeId(medication.getMedicationName());
+    output.writeEnum(medication.getStockStatus());
+    output.writeBoolean(medication.getAlert());
+    output.writeInt(medication.getTotalQuantity());
+  }
+
+  @Override
+  public Medication read(SnapshotInput input) {
+    return new Medication(
+        input.readString(),
+        input.readId(),
+        input.readEnum(MedicationStatus.class),
+        input.readBoolean(),
+        input.readInt());
+  }
+}
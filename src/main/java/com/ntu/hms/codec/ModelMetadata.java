@@ -0,0 +1,102 @@
+package com.ntu.hms.codec;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Metadata describing how a model class is stored in the csvdb folder. It holds the codec that
+ * converts the class to and from a CSV row, and the injection plan for the managers and scanner
+ * that the model depends on. Instances are built once per class by {@link ModelMetadataRegistry}.
+ *
+ * @param <T> the model class described by this metadata
+ */
+public class ModelMetadata<T> {
+  private final Class<T> modelClass;
+  private final CsvCodec<T> codec;
+  private final List<Injection> injections;
+
+  ModelMetadata(Class<T> modelClass, CsvCodec<T> codec, List<Injection> injections) {
+    this.modelClass = modelClass;
+    this.codec = codec;
+    this.injections = Collections.unmodifiableList(injections);
+  }
+
+  /**
+   * Retrieves the model class described by this metadata.
+   *
+   * @return the model class
+   */
+  public Class<T> getModelClass() {
+    return modelClass;
+  }
+
+  /**
+   * Retrieves the codec that converts the model class to and from a CSV row.
+   *
+   * @return the codec of the model class
+   */
+  public CsvCodec<T> getCodec() {
+    return codec;
+  }
+
+  /**
+   * Retrieves the number of fields injected into each decoded instance.
+   *
+   * @return the number of injected fields
+   */
+  public int getInjectionCount() {
+    return injections.size();
+  }
+
+  /**
+   * Decodes a CSV row and injects the dependencies of the resulting instance.
+   *
+   * @param line the CSV row to be decoded
+   * @return the decoded instance
+   */
+  public T decode(String line) {
+    return decode(CsvValues.split(line));
+  }
+
+  /**
+   * Decodes the columns of a CSV row and injects the dependencies of the resulting instance.
+   *
+   * @param columns the values of the row, in the order of the table header
+   * @return the decoded instance
+   */
+  public T decode(String[] columns) {
+    T instance = codec.decode(columns);
+    inject(instance);
+    return instance;
+  }
+
+  /**
+   * Injects the managers and scanner that the model depends on into an instance, using the current
+   * singletons from SingletonFactory.
+   *
+   * @param instance the instance to be injected
+   * @throws IllegalStateException if a field cannot be set
+   */
+  public void inject(T instance) {
+    for (Injection injection : injections) {
+      try {
+        injection.field.set(instance, injection.supplier.get());
+      } catch (IllegalAccessException e) {
+        throw new IllegalStateException("Failed to inject " + injection.field, e);
+      }
+    }
+  }
+
+  /** A field of the model class together with the supplier of the value injected into it. */
+  static final class Injection {
+    private final Field field;
+    private final Supplier<?> supplier;
+
+    Injection(Field field, Supplier<?> supplier) {
+      this.field = field;
+      this.supplier = supplier;
+    }
+  }
+}
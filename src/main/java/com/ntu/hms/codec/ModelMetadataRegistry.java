@@ -0,0 +1,90 @@
+package com.ntu.hms.codec;
+
+import com.ntu.hms.factory.SingletonFactory;
+import com.ntu.hms.manager.appointment.AppointmentManager;
+import com.ntu.hms.manager.inventory.InventoryManager;
+import com.ntu.hms.manager.medicalrecord.MedicalRecordManager;
+import com.ntu.hms.manager.schedule.ScheduleManager;
+import com.ntu.hms.manager.user.UserManager;
+import com.ntu.hms.util.ScannerWrapper;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Registry of the {@link ModelMetadata} of every model class stored in the csvdb folder. The
+ * reflective discovery of a class runs the first time the class is requested; every later request
+ * is served from the cache.
+ */
+public final class ModelMetadataRegistry {
+  private static final Map<Class<?>, Supplier<?>> INJECTED_TYPES = new HashMap<>();
+
+  static {
+    INJECTED_TYPES.put(AppointmentManager.class, SingletonFactory::getAppointmentManager);
+    INJECTED_TYPES.put(InventoryManager.class, SingletonFactory::getInventoryManager);
+    INJECTED_TYPES.put(MedicalRecordManager.class, SingletonFactory::getMedicalRecordManager);
+    INJECTED_TYPES.put(ScheduleManager.class, SingletonFactory::getScheduleManager);
+    INJECTED_TYPES.put(UserManager.class, SingletonFactory::getUserManager);
+    INJECTED_TYPES.put(ScannerWrapper.class, SingletonFactory::getScannerWrapper);
+  }
+
+  private static final Map<Class<?>, ModelMetadata<?>> METADATA = new ConcurrentHashMap<>();
+
+  private ModelMetadataRegistry() {}
+
+  /**
+   * Retrieves the metadata of the specified model class, building it on first use.
+   *
+   * @param <T> the model class
+   * @param clazz the model class whose metadata is to be retrieved
+   * @return the metadata of the model class
+   * @throws IllegalArgumentException if no CSV codec is registered for the model class
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> ModelMetadata<T> forClass(Class<T> clazz) {
+    ModelMetadata<T> metadata = (ModelMetadata<T>) METADATA.get(clazz);
+    if (metadata != null) {
+      return metadata;
+    }
+    return (ModelMetadata<T>) METADATA.computeIfAbsent(clazz, ModelMetadataRegistry::build);
+  }
+
+  /**
+   * Creates every singleton injected into the models on the calling thread. SingletonFactory
+   * creates its singletons lazily without synchronization, so this must be called before models are
+   * decoded on other threads, which then only read the singletons.
+   */
+  public static void resolveInjectedTypes() {
+    INJECTED_TYPES.values().forEach(Supplier::get);
+  }
+
+  /**
+   * Builds the metadata of a model class by walking its fields and those of its superclasses for
+   * the managers and scanner to be injected.
+   */
+  private static <T> ModelMetadata<T> build(Class<T> clazz) {
+    CsvCodec<T> codec = CsvCodecs.forClass(clazz);
+
+    List<ModelMetadata.Injection> injections = new ArrayList<>();
+    for (Class<?> current = clazz; current != null; current = current.getSuperclass()) {
+      for (Field field : current.getDeclaredFields()) {
+        int modifiers = field.getModifiers();
+        if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+          continue;
+        }
+
+        Supplier<?> supplier = INJECTED_TYPES.get(field.getType());
+        if (supplier != null) {
+          field.setAccessible(true);
+          injections.add(new ModelMetadata.Injection(field, supplier));
+        }
+      }
+    }
+    return new ModelMetadata<>(clazz, codec, injections);
+  }
+}
@@ -0,0 +1,68 @@
+package com.ntu.hms.codec;
+
+import static com.ntu.hms.codec.CsvValues.*;
+
+import com.ntu.hms.model.users.Patient;
+
+/**
+ * CSV codec for the Patient table. The columns are: Patient ID, Password, Name, Age, Gender, Date
+ * of Birth, Phone Number, Email and Blood Type.
+ */
+public class PatientCodec implements CsvCodec<Patient>, BinaryCodec<Patient> {
+
+  @Override
+  public Patient decode(String[] columns) {
+    return new Patient(
+        parseString(columns[0]),
+        parseString(columns[1]),
+        parseString(columns[2]),
+        parseInt(columns[3]),
+        parseString(columns[4]),
+        parseString(columns[5]),
+        parseString(columns[6]),
+        parseString(columns[7]),
+        parseString(columns[8]));
+  }
+
+  @Override
+  public String encode(Patient patient) {
+    return String.join(
+        CSV_DELIMITER,
+        patient.getHospitalID(),
+        patient.getPassword(),
+        patient.getName(),
+        Integer.toString(patient.getAge()),
+        patient.getGender(),
+        patient.getDateOfBirth(),
+        patient.getPhoneNumber(),
+        patient.getEmail(),
+        patient.getBloodType());
+  }
+
+  @Override
+  public void write(Patient patient, SnapshotOutput output) {
+    output.writeString(patient.getHospitalID());
+    output.writeString(patient.getPassword());
+    output.writeString(patient.getName());
+    output.writeInt(patient.getAge());
+    output.writeId(patient.getGender());
+    output.writeString(patient.getDateOfBirth());
+    output.writeString(patient.getPhoneNumber());
+    output.writeString(patient.getEmail());
+    output.writeId(patient.getBloodType());
+  }
+
+  @Override
+  public Patient read(SnapshotInput input) {
+    return new Patient(
+        input.readString(),
+        input.readString(),
+        input.readString(),
+        input.readInt(),
+        input.readId(),
+        input.readString(),
+        input.readString(),
+        input.readString(),
+        input.readId());
+  }
+}
@@ -0,0 +1,50 @@
+package com.ntu.hms.codec;
+
+import static com.ntu.hms.codec.CsvValues.*;
+
+import com.ntu.hms.enums.ReplenishmentStatus;
+import com.ntu.hms.model.ReplenishmentRequest;
+
+/**
+ * CSV codec for the ReplenishmentRequest table. The columns are: Request ID, Medication Batch,
+ * Status and Pharmacist ID.
+ */
+public class ReplenishmentRequestCodec
+    implements CsvCodec<ReplenishmentRequest>, BinaryCodec<ReplenishmentRequest> {
+
+  @Override
+  public ReplenishmentRequest decode(String[] columns) {
+    return new ReplenishmentRequest(
+        parseString(columns[0]),
+        parseMedicationItems(columns[1]),
+        parseEnum(ReplenishmentStatus.class, columns[2]),
+        parseString(columns[3]));
+  }
+
+  @Override
+  public String encode(ReplenishmentRequest request) {
+    return String.join(
+        CSV_DELIMITER,
+        request.getRequestID(),
+        formatMedicationItems(request.getMedicationBatch()),
+        formatEnum(request.getStatus()),
+        request.getPharmacistID());
+  }
+
+  @Override
+  public void write(ReplenishmentRequest request, SnapshotOutput output) {
+    output.writeString(request.getRequestID());
+    output.writeMedicationItems(request.getMedicationBatch());
+    output.writeEnum(request.getStatus());
+    output.writeId(request.getPharmacistID());
+  }
+
+  @Override
+  public ReplenishmentRequest read(SnapshotInput input) {
+    return new ReplenishmentRequest(
+        input.readString(),
+        input.readMedicationItems(),
+        input.readEnum(ReplenishmentStatus.class),
+        input.readId());
+  }
+}
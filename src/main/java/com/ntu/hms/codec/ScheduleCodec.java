@@ -0,0 +1,56 @@
+package com.ntu.hms.codec;
+
+import static com.ntu.hms.codec.CsvValues.*;
+
+import com.ntu.hms.model.Schedule;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * CSV codec for the Schedule table. The columns are: Doctor ID, Date, followed by one column per
+ * session of the day.
+ */
+public class ScheduleCodec implements CsvCodec<Schedule>, BinaryCodec<Schedule> {
+
+  @Override
+  public Schedule decode(String[] columns) {
+    return new Schedule(
+        parseString(columns[0]),
+        parseDate(columns[1]),
+        Arrays.copyOfRange(columns, 2, columns.length));
+  }
+
+  @Override
+  public String encode(Schedule schedule) {
+    StringBuilder row =
+        new StringBuilder(64)
+            .append(schedule.getDoctorID())
+            .append(CSV_DELIMITER)
+            .append(formatDate(schedule.getDate()));
+    for (int i = 0; i < schedule.getSessionCount(); i++) {
+      row.append(CSV_DELIMITER).append(schedule.getSessionInfo(i));
+    }
+    return row.toString();
+  }
+
+  @Override
+  public void write(Schedule schedule, SnapshotOutput output) {
+    output.writeId(schedule.getDoctorID());
+    output.writeDate(schedule.getDate());
+    output.writeInt(schedule.getSessionCount());
+    for (int i = 0; i < schedule.getSessionCount(); i++) {
+      output.writeId(schedule.getSessionInfo(i));
+    }
+  }
+
+  @Override
+  public Schedule read(SnapshotInput input) {
+    String doctorID = input.readId();
+    LocalDate date = input.readDate();
+    String[] sessions = new String[input.readInt()];
+    for (int i = 0; i < sessions.length; i++) {
+      sessions[i] = input.readId();
+    }
+    return new Schedule(doctorID, date, sessions);
+  }
+}
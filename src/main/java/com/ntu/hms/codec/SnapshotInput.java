@@ -0,0 +1,188 @@
+package com.ntu.hms.codec;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.ntu.hms.model.MedicationItem;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes the records of a binary snapshot written through a {@link SnapshotOutput}. The values of
+ * a record must be read in the order they were written. Dictionary-encoded values are shared, so
+ * every occurrence of an identifier in the snapshot is the same String instance.
+ */
+public final class SnapshotInput {
+  private final byte[] data;
+  private final int end;
+  private final List<String> dictionary = new ArrayList<>();
+  private int position;
+  private int recordEnd;
+
+  /**
+   * Constructs a SnapshotInput over the records held in a range of an array.
+   *
+   * @param data the array holding the records
+   * @param start the offset of the first record
+   * @param end the offset just past the last record
+   */
+  public SnapshotInput(byte[] data, int start, int end) {
+    this.data = data;
+    this.end = end;
+    this.position = start;
+    this.recordEnd = end;
+  }
+
+  /**
+   * Starts reading the next record, whose values can then be read.
+   *
+   * @throws IOException if the record is longer than what is left of the snapshot
+   */
+  public void beginRecord() throws IOException {
+    recordEnd = end;
+    long length;
+    try {
+      length = readVarLong();
+    } catch (IndexOutOfBoundsException e) {
+      throw new IOException("Truncated snapshot record", e);
+    }
+    if (length > end - position) {
+      throw new IOException("Truncated snapshot record");
+    }
+    recordEnd = position + (int) length;
+  }
+
+  /**
+   * Finishes reading the current record.
+   *
+   * @throws IOException if the values read did not span the whole record
+   */
+  public void endRecord() throws IOException {
+    if (position != recordEnd) {
+      throw new IOException("Malformed snapshot record");
+    }
+    recordEnd = end;
+  }
+
+  /**
+   * Reads an integer.
+   *
+   * @return the value read
+   */
+  public int readInt() {
+    long value = readVarLong();
+    return (int) (value >>> 1) ^ -(int) (value & 1);
+  }
+
+  /**
+   * Reads a long integer.
+   *
+   * @return the value read
+   */
+  public long readLong() {
+    long value = readVarLong();
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * Reads a boolean.
+   *
+   * @return the value read
+   */
+  public boolean readBoolean() {
+    return readByte() != 0;
+  }
+
+  /**
+   * Reads a date written as its epoch day.
+   *
+   * @return the value read
+   */
+  public LocalDate readDate() {
+    return LocalDate.ofEpochDay(readLong());
+  }
+
+  /**
+   * Reads a free-text string.
+   *
+   * @return the value read, which may be null
+   */
+  public String readString() {
+    long length = readVarLong();
+    if (length == SnapshotOutput.NULL) {
+      return null;
+    }
+    int count = (int) (length - 1);
+    if (count < 0 || count > recordEnd - position) {
+      throw new IndexOutOfBoundsException("String past the end of the snapshot record");
+    }
+    String value = new String(data, position, count, UTF_8);
+    position += count;
+    return value;
+  }
+
+  /**
+   * Reads a value written through the dictionary.
+   *
+   * @return the value read, which may be null
+   */
+  public String readId() {
+    long code = readVarLong();
+    if (code == SnapshotOutput.NULL) {
+      return null;
+    }
+    if (code == SnapshotOutput.NEW_ENTRY) {
+      String value = readString();
+      dictionary.add(value);
+      return value;
+    }
+    return dictionary.get((int) (code - SnapshotOutput.FIRST_INDEX));
+  }
+
+  /**
+   * Reads an enum constant written by name.
+   *
+   * @param enumType the class of the enum
+   * @param <E> the type of the enum
+   * @return the constant read, which may be null
+   * @throws IllegalArgumentException if the enum has no constant with the name read
+   */
+  public <E extends Enum<E>> E readEnum(Class<E> enumType) {
+    String name = readId();
+    return name == null ? null : Enum.valueOf(enumType, name);
+  }
+
+  /**
+   * Reads a list of medication items.
+   *
+   * @return the medication items read
+   */
+  public List<MedicationItem> readMedicationItems() {
+    int count = readInt();
+    List<MedicationItem> medicationItems = new ArrayList<>(Math.min(count, recordEnd - position));
+    for (int i = 0; i < count; i++) {
+      medicationItems.add(new MedicationItem(readId(), readId(), readInt()));
+    }
+    return medicationItems;
+  }
+
+  private long readVarLong() {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int bits = readByte();
+      value |= (long) (bits & 0x7F) << shift;
+      if ((bits & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IndexOutOfBoundsException("Malformed variable-length value");
+  }
+
+  private int readByte() {
+    if (position >= recordEnd) {
+      throw new IndexOutOfBoundsException("Read past the end of the snapshot record");
+    }
+    return data[position++] & 0xFF;
+  }
+}
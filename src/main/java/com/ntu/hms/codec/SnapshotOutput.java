@@ -0,0 +1,171 @@
+package com.ntu.hms.codec;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.ntu.hms.model.MedicationItem;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes the records of a binary snapshot. Integers are written as variable-length zig-zag values,
+ * dates as their epoch day, and strings as their UTF-8 bytes prefixed with their length.
+ * Identifiers and enum constants are dictionary-encoded: the first occurrence of a value is written
+ * in full and every later one as its index in the dictionary, which spans the whole snapshot.
+ *
+ * <p>Each record is built in memory and written out, prefixed with its length, by {@link
+ * #writeRecord(OutputStream)}. {@link SnapshotInput} reads the records back.
+ */
+public final class SnapshotOutput {
+  static final int NULL = 0;
+  static final int NEW_ENTRY = 1;
+  static final int FIRST_INDEX = 2;
+
+  private final Map<String, Integer> dictionary = new HashMap<>();
+  private byte[] record = new byte[256];
+  private int size;
+
+  /**
+   * Writes an integer.
+   *
+   * @param value the value to be written
+   */
+  public void writeInt(int value) {
+    writeVarLong(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Writes a long integer.
+   *
+   * @param value the value to be written
+   */
+  public void writeLong(long value) {
+    writeVarLong((value << 1) ^ (value >> 63));
+  }
+
+  /**
+   * Writes a boolean.
+   *
+   * @param value the value to be written
+   */
+  public void writeBoolean(boolean value) {
+    writeByte(value ? 1 : 0);
+  }
+
+  /**
+   * Writes a date as its epoch day.
+   *
+   * @param date the date to be written, which must not be null
+   */
+  public void writeDate(LocalDate date) {
+    writeLong(date.toEpochDay());
+  }
+
+  /**
+   * Writes a free-text string, which may be null.
+   *
+   * @param value the value to be written
+   */
+  public void writeString(String value) {
+    if (value == null) {
+      writeVarLong(NULL);
+      return;
+    }
+    byte[] bytes = value.getBytes(UTF_8);
+    writeVarLong(bytes.length + 1L);
+    writeBytes(bytes);
+  }
+
+  /**
+   * Writes an identifier, or any other value repeated across records, through the dictionary.
+   *
+   * @param value the value to be written, which may be null
+   */
+  public void writeId(String value) {
+    if (value == null) {
+      writeVarLong(NULL);
+      return;
+    }
+    Integer index = dictionary.get(value);
+    if (index != null) {
+      writeVarLong(index + (long) FIRST_INDEX);
+      return;
+    }
+    dictionary.put(value, dictionary.size());
+    writeVarLong(NEW_ENTRY);
+    writeString(value);
+  }
+
+  /**
+   * Writes an enum constant by name, through the dictionary.
+   *
+   * @param constant the constant to be written, which may be null
+   */
+  public void writeEnum(Enum<?> constant) {
+    writeId(constant == null ? null : constant.name());
+  }
+
+  /**
+   * Writes a list of medication items, which may be null.
+   *
+   * @param medicationItems the medication items to be written
+   */
+  public void writeMedicationItems(List<MedicationItem> medicationItems) {
+    if (medicationItems == null) {
+      writeInt(0);
+      return;
+    }
+    writeInt(medicationItems.size());
+    for (MedicationItem item : medicationItems) {
+      writeId(item.getMedicationID());
+      writeId(item.getMedicationName());
+      writeInt(item.getQuantity());
+    }
+  }
+
+  /**
+   * Writes the record built so far to a stream, prefixed with its length, and starts a new record.
+   *
+   * @param stream the stream the record is written to
+   * @throws IOException if the stream cannot be written
+   */
+  public void writeRecord(OutputStream stream) throws IOException {
+    int length = size;
+    do {
+      int bits = length & 0x7F;
+      length >>>= 7;
+      stream.write(length == 0 ? bits : bits | 0x80);
+    } while (length != 0);
+    stream.write(record, 0, size);
+    size = 0;
+  }
+
+  private void writeVarLong(long value) {
+    while ((value & ~0x7FL) != 0) {
+      writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    writeByte((int) value);
+  }
+
+  private void writeByte(int value) {
+    ensureCapacity(1);
+    record[size++] = (byte) value;
+  }
+
+  private void writeBytes(byte[] bytes) {
+    ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, record, size, bytes.length);
+    size += bytes.length;
+  }
+
+  private void ensureCapacity(int extra) {
+    if (size + extra > record.length) {
+      record = Arrays.copyOf(record, Math.max(size + extra, record.length * 2));
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package com.ntu.hms.codec;
+
+import static com.ntu.hms.codec.CsvValues.*;
+
+import com.ntu.hms.model.users.User;
+
+/**
+ * CSV codec shared by the Doctor, Pharmacist and Administrator tables, which all store the same
+ * columns: Hospital ID, Password, Name, Age and Gender.
+ *
+ * @param <T> the type of staff stored in the table
+ */
+public class StaffCodec<T extends User> implements CsvCodec<T>, BinaryCodec<T> {
+  private final StaffFactory<T> staffFactory;
+
+  /**
+   * Constructs a StaffCodec that creates staff members with the given factory.
+   *
+   * @param staffFactory the factory used to create a staff member from the decoded columns,
+   *     typically a constructor reference such as {@code Doctor::new}
+   */
+  public StaffCodec(StaffFactory<T> staffFactory) {
+    this.staffFactory = staffFactory;
+  }
+
+  @Override
+  public T decode(String[] columns) {
+    return staffFactory.create(
+        parseString(columns[0]),
+        parseString(columns[1]),
+        parseString(columns[2]),
+        parseInt(columns[3]),
+        parseString(columns[4]));
+  }
+
+  @Override
+  public String encode(T staff) {
+    return String.join(
+        CSV_DELIMITER,
+        staff.getHospitalID(),
+        staff.getPassword(),
+        staff.getName(),
+        Integer.toString(staff.getAge()),
+        staff.getGender());
+  }
+
+  @Override
+  public void write(T staff, SnapshotOutput output) {
+    output.writeString(staff.getHospitalID());
+    output.writeString(staff.getPassword());
+    output.writeString(staff.getName());
+    output.writeInt(staff.getAge());
+    output.writeId(staff.getGender());
+  }
+
+  @Override
+  public T read(SnapshotInput input) {
+    return staffFactory.create(
+        input.readString(),
+        input.readString(),
+        input.readString(),
+        input.readInt(),
+        input.readId());
+  }
+
+  /**
+   * Creates a staff member from the values of a CSV row.
+   *
+   * @param <T> the type of staff member created
+   */
+  @FunctionalInterface
+  public interface StaffFactory<T extends User> {
+    T create(String hospitalID, String password, String name, int age, String gender);
+  }
+}
@@ -0,0 +1,35 @@
+package com.ntu.hms.codec;
+
+import static com.ntu.hms.codec.CsvValues.*;
+
+import com.ntu.hms.model.Treatment;
+
+/** CSV codec for the Treatment table. The columns are: Appointment ID, Patient ID and Treatment. */
+public class TreatmentCodec implements CsvCodec<Treatment>, BinaryCodec<Treatment> {
+
+  @Override
+  public Treatment decode(String[] columns) {
+    return new Treatment(parseString(columns[0]), parseString(columns[1]), parseString(columns[2]));
+  }
+
+  @Override
+  public String encode(Treatment treatment) {
+    return String.join(
+        CSV_DELIMITER,
+        treatment.getAppointmentID(),
+        treatment.getPatientID(),
+        treatment.getTreatment());
+  }
+
+  @Override
+  public void write(Treatment treatment, SnapshotOutput output) {
+    output.writeString(treatment.getAppointmentID());
+    output.writeId(treatment.getPatientID());
+    output.writeString(treatment.getTreatment());
+  }
+
+  @Override
+  public Treatment read(SnapshotInput input) {
+    return new Treatment(input.readString(), input.readId(), input.readString());
+  }
+}
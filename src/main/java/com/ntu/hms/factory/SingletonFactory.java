@@ -19,6 +19,10 @@ import com.ntu.hms.manager.inventory.InventoryManager;
 import com.ntu.hms.manager.medicalrecord.MedicalRecordManager;
 import com.ntu.hms.manager.schedule.ScheduleManager;
 import com.ntu.hms.manager.user.UserManager;
+import com.ntu.hms.server.SessionScannerWrapper;
+import com.ntu.hms.storage.CsvStorageEngine;
+import com.ntu.hms.storage.StorageEngine;
+import com.ntu.hms.storage.StorageEngines;
 import com.ntu.hms.util.ScannerWrapper;
 import java.time.format.DateTimeFormatter;
 import java.util.Scanner;
@@ -40,16 +44,18 @@ public class SingletonFactory {
   private static MedicalRecordManager medicalRecordManager;
   private static ScheduleManager scheduleManager;
   private static UserManager userManager;
+  private static StorageEngine storageEngine;
 
   /**
    * Returns a singleton instance of ScannerWrapper. If the instance does not already exist, it
-   * initializes a new ScannerWrapper with a Scanner that reads from the standard input.
+   * initializes a new SessionScannerWrapper with a Scanner that reads from the standard input, so
+   * that in server mode the same instance reads from the terminal of each session instead.
    *
    * @return a singleton ScannerWrapper instance
    */
   public static ScannerWrapper getScannerWrapper() {
     if (scannerWrapper == null) {
-      scannerWrapper = new ScannerWrapper(new Scanner(System.in));
+      scannerWrapper = new SessionScannerWrapper(new Scanner(System.in));
     }
     return scannerWrapper;
   }
@@ -112,6 +118,7 @@ public class SingletonFactory {
               .setContextManager(getContextManager())
               .setEnvironment(getEnvironment())
               .setScanner(getScannerWrapper())
+              .setStorageEngine(getStorageEngine())
               .build();
     }
     return applicationManager;
@@ -208,13 +215,30 @@ public class SingletonFactory {
     return userManager;
   }
 
+  /**
+   * Returns a singleton instance of StorageEngine. If the instance does not already exist, it
+   * creates the engine named by the "csvdb.engine" system property: "csv", the default, "memory" or
+   * "file". The engine is not destroyed with the other singletons, since the tables stay open in it
+   * from one run of the application to the next.
+   *
+   * @return a singleton StorageEngine instance
+   */
+  public static StorageEngine getStorageEngine() {
+    if (storageEngine == null) {
+      storageEngine =
+          StorageEngines.forName(System.getProperty("csvdb.engine", CsvStorageEngine.NAME));
+    }
+    return storageEngine;
+  }
+
   /**
    * Resets all singleton instances managed by the SingletonFactory to null. This method sets each
    * singleton instance field in the SingletonFactory to null, effectively destroying the current
    * instances and forcing reinitialization when they are next requested.
    *
    * <p>This can be useful in scenarios where it is necessary to reset the state of the application,
-   * particularly in development or testing environments where objects need to be reinitialized.
+   * particularly in development or testing environments where objects need to be reinitialized. The
+   * storage engine is kept.
    */
   public static void destroySingletons() {
     environment = null;
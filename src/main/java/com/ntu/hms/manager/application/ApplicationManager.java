@@ -7,9 +7,14 @@ import static com.ntu.hms.enums.UserAction.LOGIN;
 import static com.ntu.hms.factory.SingletonFactory.destroySingletons;
 
 import com.ntu.hms.AuthenticationService;
+import com.ntu.hms.CsvDB;
 import com.ntu.hms.enums.Environment;
 import com.ntu.hms.model.users.*;
+import com.ntu.hms.server.TerminalServer;
+import com.ntu.hms.storage.StorageEngine;
+import com.ntu.hms.storage.WriteConflictException;
 import com.ntu.hms.util.ScannerWrapper;
+import java.util.NoSuchElementException;
 
 /**
  * The ApplicationManager class is the core component that manages the application lifecycle
@@ -22,6 +27,7 @@ public class ApplicationManager {
   private final ContextManager contextManager;
   private final Environment environment;
   private final ScannerWrapper scanner;
+  private final StorageEngine storageEngine;
 
   /**
    * Constructs an instance of ApplicationManager.
@@ -30,16 +36,19 @@ public class ApplicationManager {
    * @param contextManager the manager for handling user contexts
    * @param environment the current environment (e.g., PROD or DEV)
    * @param scanner the wrapper for scanner input operations
+   * @param storageEngine the storage engine the tables are kept in
    */
   private ApplicationManager(
       AuthenticationService authenticationService,
       ContextManager contextManager,
       Environment environment,
-      ScannerWrapper scanner) {
+      ScannerWrapper scanner,
+      StorageEngine storageEngine) {
     this.authenticationService = authenticationService;
     this.contextManager = contextManager;
     this.environment = environment;
     this.scanner = scanner;
+    this.storageEngine = storageEngine;
   }
 
   /**
@@ -47,16 +56,65 @@ public class ApplicationManager {
    *
    * <p>The method continuously asks the user for input to either log in or exit the application. If
    * the user chooses to log in, the handleLogin method is invoked to manage the login process. If
-   * the user chooses to exit, the exit method is called, and the loop is terminated.
+   * the user chooses to exit, the exit method is called, and the loop is terminated. The tables are
+   * loaded from the storage engine in the background meanwhile.
    */
   public void start() {
+    CsvDB.load(storageEngine);
+    runSession();
+    exit(); // Exit the program
+  }
+
+  /**
+   * Starts the application in server mode, serving the login loop to every terminal connecting to
+   * the specified port of the loopback interface, each in its own session, against the same tables.
+   *
+   * <p>The console then only accepts 'exit', which disconnects the terminals and exits the
+   * application. Without a console, the server runs until the process is stopped; the changes
+   * already committed are replayed from the mutation logs on the next start.
+   *
+   * @param port the port to listen on
+   */
+  public void startServer(int port) {
+    CsvDB.load(storageEngine);
+    TerminalServer server = TerminalServer.start(port, this::runSession);
+    System.out.println("=== Hospital Management System ===");
+    System.out.println("Serving terminal sessions on port " + server.getPort() + ".");
+    try {
+      while (true) {
+        System.out.print("Enter 'exit' to stop the server: ");
+        if (scanner.nextLine().equalsIgnoreCase(EXIT.name())) {
+          break;
+        }
+      }
+    } catch (NoSuchElementException e) {
+      // No console: serve until the process is stopped
+      try {
+        server.join();
+      } catch (InterruptedException interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    server.close();
+    exit();
+  }
+
+  /**
+   * Runs the login loop of one user session, prompting the user to either log in or exit, until the
+   * user chooses to exit. This is the whole of {@link #start()} besides loading and closing the
+   * tables, and what a terminal connected to {@link #startServer(int)} runs.
+   */
+  public void runSession() {
     while (true) {
       String userAction = loginOrExit();
       if (userAction.equalsIgnoreCase(LOGIN.name())) {
-        handleLogin(); // Handle login and user context flow
+        try {
+          handleLogin(); // Handle login and user context flow
+        } catch (WriteConflictException e) {
+          System.out.println(ContextManager.WRITE_CONFLICT_MESSAGE);
+        }
       } else if (userAction.equalsIgnoreCase(EXIT.name())) {
-        exit(); // Exit the program
-        break; // This line ensures that if exit() doesn't terminate the program, the loop ends.
+        break;
       }
     }
   }
@@ -67,10 +125,10 @@ public class ApplicationManager {
    * <p>This method is invoked as part of the main loop to handle user authentication. It uses the
    * `authenticationService` to authenticate the user. If authentication succeeds, the user's
    * context is managed via the `handleUserContext` method. If authentication fails, a message is
-   * printed, and the method returns.
+   * printed, and the method returns. Authentication first waits for the user tables to be loaded.
    */
   private void handleLogin() {
-    // Load all CSV data
+    CsvDB.awaitUserTables();
     User user = authenticationService.authenticate();
 
     if (user == null) {
@@ -120,12 +178,14 @@ public class ApplicationManager {
   }
 
   /**
-   * Terminates the application based on the current environment.
+   * Terminates the application based on the current environment. Changes still being written behind
+   * are first flushed, and pending changes in the mutation logs compacted into the CSV files.
    *
    * <p>In the production environment (PROD), it closes the scanner and exits the program. In the
    * development environment (DEV), it destroys singleton instances.
    */
   public void exit() {
+    CsvDB.close();
     if (environment == PROD) {
       scanner.close();
       System.exit(0);
@@ -148,6 +208,7 @@ public class ApplicationManager {
     private ContextManager contextManager;
     private Environment environment;
     private ScannerWrapper scanner;
+    private StorageEngine storageEngine;
 
     /**
      * Sets the AuthenticationService instance to be used by the ApplicationManagerBuilder.
@@ -194,15 +255,27 @@ public class ApplicationManager {
       return this;
     }
 
+    /**
+     * Sets the StorageEngine instance to be used by the ApplicationManagerBuilder.
+     *
+     * @param storageEngine the StorageEngine instance to be set
+     * @return the current instance of ApplicationManagerBuilder for method chaining
+     */
+    public ApplicationManagerBuilder setStorageEngine(StorageEngine storageEngine) {
+      this.storageEngine = storageEngine;
+      return this;
+    }
+
     /**
      * Builds and returns an instance of ApplicationManager configured with the specified services,
-     * context manager, environment, and scanner wrapped by this builder.
+     * context manager, environment, scanner and storage engine wrapped by this builder.
      *
      * @return a new instance of ApplicationManager with the configured components
      */
     // Method to build an ApplicationManager instance
     public ApplicationManager build() {
-      return new ApplicationManager(authenticationService, contextManager, environment, scanner);
+      return new ApplicationManager(
+          authenticationService, contextManager, environment, scanner, storageEngine);
     }
   }
 }
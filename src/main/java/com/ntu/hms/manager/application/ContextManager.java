@@ -1,6 +1,7 @@
 package com.ntu.hms.manager.application;
 
 import com.ntu.hms.model.users.*;
+import com.ntu.hms.storage.WriteConflictException;
 import com.ntu.hms.util.ScannerWrapper;
 import java.util.InputMismatchException;
 
@@ -13,6 +14,10 @@ import java.util.InputMismatchException;
  * management.
  */
 public class ContextManager implements ContextManagerInterface {
+  /** Shown when an action could not be saved because another terminal changed the same rows. */
+  static final String WRITE_CONFLICT_MESSAGE =
+      "Someone else changed these records at the same time; nothing was saved. Try again.";
+
   private final ScannerWrapper scanner;
 
   /**
@@ -109,6 +114,8 @@ public class ContextManager implements ContextManagerInterface {
         System.out.println("Invalid input. Please enter a valid number.");
         System.out.println("Press Enter to continue...");
         scanner.nextLine();
+      } catch (WriteConflictException e) {
+        System.out.println(WRITE_CONFLICT_MESSAGE);
       }
     }
   }
@@ -163,6 +170,8 @@ public class ContextManager implements ContextManagerInterface {
         System.out.println("Invalid input. Please enter a valid number.");
         System.out.println("Press Enter to continue...");
         scanner.nextLine();
+      } catch (WriteConflictException e) {
+        System.out.println(WRITE_CONFLICT_MESSAGE);
       }
     }
   }
@@ -220,6 +229,8 @@ public class ContextManager implements ContextManagerInterface {
         System.out.println("Invalid input. Please enter a valid number.");
         System.out.println("Press Enter to continue...");
         scanner.nextLine();
+      } catch (WriteConflictException e) {
+        System.out.println(WRITE_CONFLICT_MESSAGE);
       }
     }
   }
@@ -332,6 +343,8 @@ public class ContextManager implements ContextManagerInterface {
         System.out.println("Invalid input. Please enter a valid number.");
         System.out.println("Press Enter to continue...");
         scanner.nextLine();
+      } catch (WriteConflictException e) {
+        System.out.println(WRITE_CONFLICT_MESSAGE);
       }
     }
   }
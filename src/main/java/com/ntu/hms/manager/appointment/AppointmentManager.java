@@ -9,7 +9,6 @@ import static com.ntu.hms.util.UtilProvider.*;
 import com.ntu.hms.CsvDB;
 import com.ntu.hms.enums.AppointmentOutcomeStatus;
 import com.ntu.hms.enums.AppointmentStatus;
-import com.ntu.hms.enums.ScheduleStatus;
 import com.ntu.hms.model.*;
 import com.ntu.hms.model.users.Doctor;
 import com.ntu.hms.model.users.Patient;
@@ -18,6 +17,8 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -29,6 +30,13 @@ import java.util.stream.IntStream;
  * appointment outcomes.
  */
 public class AppointmentManager implements AppointmentManagerInterface {
+  /** The statuses of appointments that can still be rescheduled or cancelled. */
+  private static final EnumSet<AppointmentStatus> ACTIVE_STATUSES = EnumSet.of(PENDING, CONFIRMED);
+
+  /** The statuses of appointments that have ended. */
+  private static final EnumSet<AppointmentStatus> CLOSED_STATUSES =
+      EnumSet.of(CANCELLED, COMPLETED);
+
   private final DateTimeFormatter dateFormatter;
   private final ScannerWrapper scanner;
 
@@ -103,32 +111,21 @@ public class AppointmentManager implements AppointmentManagerInterface {
     }
 
     // Find or create a schedule for the chosen date
-    Schedule scheduleForDate = null;
-    List<Schedule> schedules = CsvDB.readSchedules();
-    for (Schedule schedule : schedules) {
-      if (schedule.getDoctorID().equals(doctorID) && schedule.getDate().equals(appointmentDate)) {
-        scheduleForDate = schedule;
-        break;
-      }
-    }
+    Schedule scheduleForDate = getScheduleByDoctorIDAndDate(doctorID, appointmentDate);
 
     if (scheduleForDate == null) {
       scheduleForDate = Schedule.createDefaultSchedule(doctorID, appointmentDate);
-      schedules.add(scheduleForDate);
     }
 
     // Display available sessions and allow patient to select
     System.out.println("\nAvailable sessions:");
-    String[] session = scheduleForDate.getSession();
-    boolean hasAvailableSession = false;
-    for (int i = 0; i < session.length; i++) {
-      if (session[i].equals("Available")) {
+    for (int i = 0; i < scheduleForDate.getSessionCount(); i++) {
+      if (scheduleForDate.isSessionAvailable(i)) {
         System.out.printf("Session %d: Available\n", i + 1);
-        hasAvailableSession = true;
       }
     }
 
-    if (!hasAvailableSession) {
+    if (!scheduleForDate.hasAvailableSession()) {
       System.out.println("No available sessions on this date.");
       return;
     }
@@ -151,32 +148,53 @@ public class AppointmentManager implements AppointmentManagerInterface {
     }
 
     if (sessionNumber < 1
-        || sessionNumber > session.length
-        || !session[sessionNumber - 1].equals("Available")) {
+        || sessionNumber > scheduleForDate.getSessionCount()
+        || !scheduleForDate.isSessionAvailable(sessionNumber - 1)) {
       System.out.println("Invalid session selection or session not available.");
       return;
     }
 
-    // Mark the session as booked with patient ID and Pending status
-    session[sessionNumber - 1] = patient.getHospitalID() + "-" + ScheduleStatus.PENDING.name();
-    scheduleForDate.setSession(session);
-
-    // Save updated schedules to the CSV file
-    CsvDB.saveSchedules(schedules);
+    // Book the session and save it with the new appointment in one transaction. Another terminal
+    // may have booked the session, or created the schedule, since it was shown, so both are
+    // looked up again while no other booking can be made
+    Schedule shownSchedule = scheduleForDate;
+    boolean[] booked = new boolean[1];
+    CsvDB.transaction(
+        () -> {
+          List<Schedule> schedules = CsvDB.readSchedules();
+          Schedule schedule = getScheduleByDoctorIDAndDate(doctorID, appointmentDate);
+          if (schedule == null) {
+            schedule = shownSchedule;
+            schedules.add(schedule);
+          }
+          if (!schedule.isSessionAvailable(sessionNumber - 1)) {
+            return;
+          }
 
-    List<Appointment> appointments = CsvDB.readAppointments();
-    String appointmentID = "A" + String.format("%04d", appointments.size() + 1);
-    Appointment newAppointment =
-        new Appointment(
-            appointmentID,
-            patient.getHospitalID(),
-            doctorID,
-            appointmentDate,
-            sessionNumber,
-            AppointmentStatus.PENDING.name());
-    appointments.add(newAppointment);
-    CsvDB.saveAppointments(
-        appointments); // Update com.ntu.hms.Appointment.csv with the new appointment
+          // Mark the session as booked with patient ID and Pending status
+          schedule.bookSession(sessionNumber - 1, patient.getHospitalID());
+          CsvDB.saveSchedules(schedules);
+
+          List<Appointment> appointments = CsvDB.readAppointments();
+          String appointmentID = CsvDB.nextAppointmentID();
+          Appointment newAppointment =
+              new Appointment(
+                  appointmentID,
+                  patient.getHospitalID(),
+                  doctorID,
+                  appointmentDate,
+                  sessionNumber,
+                  AppointmentStatus.PENDING);
+          appointments.add(newAppointment);
+          CsvDB.saveAppointments(
+              appointments); // Update com.ntu.hms.Appointment.csv with the new appointment
+          booked[0] = true;
+        });
+
+    if (!booked[0]) {
+      System.out.println("Session " + sessionNumber + " was just booked by someone else.");
+      return;
+    }
 
     System.out.printf(
         "Appointment booked for Dr. %s on %s, Session %d.\n",
@@ -194,17 +212,12 @@ public class AppointmentManager implements AppointmentManagerInterface {
   @Override
   public void rescheduleAppointment(Patient patient) {
     List<Doctor> doctors = CsvDB.readDoctors();
-    List<Appointment> appointments = CsvDB.readAppointments();
-    List<Schedule> schedules = CsvDB.readSchedules();
 
     // Filter to show only pending or confirmed appointments
     List<Appointment> reschedulableAppointments =
         getAppointmentsForPatient(patient.getHospitalID())
             .stream()
-            .filter(
-                appointment ->
-                    appointment.getStatus().equalsIgnoreCase(PENDING.name())
-                        || appointment.getStatus().equalsIgnoreCase(CONFIRMED.name()))
+            .filter(appointment -> ACTIVE_STATUSES.contains(appointment.getStatus()))
             .collect(Collectors.toList());
 
     // Check if there are any appointments to reschedule
@@ -273,19 +286,11 @@ public class AppointmentManager implements AppointmentManagerInterface {
 
     // Find or create schedule for the new date
     Optional<Schedule> optionalSchedule =
-        schedules
-            .stream()
-            .filter(schedule -> schedule.getDoctorID().equals(selectedDoctor.getHospitalID()))
-            .filter(schedule -> schedule.getDate().equals(newAppointmentDate))
-            .findFirst();
+        Optional.ofNullable(
+            getScheduleByDoctorIDAndDate(selectedDoctor.getHospitalID(), newAppointmentDate));
     Schedule newScheduleForDate =
         optionalSchedule.orElseGet(
-            () -> {
-              Schedule schedule =
-                  createDefaultSchedule(selectedDoctor.getHospitalID(), newAppointmentDate);
-              schedules.add(schedule);
-              return schedule;
-            });
+            () -> createDefaultSchedule(selectedDoctor.getHospitalID(), newAppointmentDate));
 
     // Display available sessions for new date
     System.out.println(
@@ -294,16 +299,13 @@ public class AppointmentManager implements AppointmentManagerInterface {
             + " on "
             + newAppointmentDate.format(dateFormatter)
             + ":");
-    String[] newSession = newScheduleForDate.getSession();
-    boolean hasAvailableSession = false;
-    for (int i = 0; i < newSession.length; i++) {
-      if (newSession[i].equals("Available")) {
+    for (int i = 0; i < newScheduleForDate.getSessionCount(); i++) {
+      if (newScheduleForDate.isSessionAvailable(i)) {
         System.out.printf("Session %d: Available\n", i + 1);
-        hasAvailableSession = true;
       }
     }
 
-    if (!hasAvailableSession) {
+    if (!newScheduleForDate.hasAvailableSession()) {
       System.out.println("No available sessions on this date.");
       return;
     }
@@ -314,48 +316,62 @@ public class AppointmentManager implements AppointmentManagerInterface {
     // scanner.nextLine(); // consume newline character
 
     if (newSessionNumber < 1
-        || newSessionNumber > newSession.length
-        || !newSession[newSessionNumber - 1].equals("Available")) {
+        || newSessionNumber > newScheduleForDate.getSessionCount()
+        || !newScheduleForDate.isSessionAvailable(newSessionNumber - 1)) {
       System.out.println("Invalid session selection or session not available.");
       return;
     }
 
-    // Update old schedule slot to "Available"
+    // Move the appointment and save it with both schedules in one transaction. Another terminal
+    // may have booked the new session, created its schedule or changed the appointment since they
+    // were shown, so they are looked up again while no other booking can be made
     String doctorID = chosenAppointment.getDoctorID();
-    LocalDate oldAppointmentDate = chosenAppointment.getDate();
-    int oldSessionNumber = chosenAppointment.getSession();
-    for (Schedule schedule : schedules) {
-      if (schedule.getDoctorID().equals(doctorID)
-          && schedule.getDate().equals(oldAppointmentDate)) {
-        String[] oldSessionSlots = schedule.getSession();
-        oldSessionSlots[oldSessionNumber - 1] = "Available";
-        schedule.setSession(oldSessionSlots);
-        break;
-      }
-    }
+    Schedule shownSchedule = newScheduleForDate;
+    boolean[] rescheduled = new boolean[1];
+    CsvDB.transaction(
+        () -> {
+          List<Appointment> appointments = CsvDB.readAppointments();
+          List<Schedule> schedules = CsvDB.readSchedules();
+          Appointment appointment =
+              CsvDB.getAppointmentRepository().findById(chosenAppointment.getAppointmentID());
+          if (appointment == null || !ACTIVE_STATUSES.contains(appointment.getStatus())) {
+            return;
+          }
+          Schedule newSchedule = getScheduleByDoctorIDAndDate(doctorID, newAppointmentDate);
+          if (newSchedule == null) {
+            newSchedule = shownSchedule;
+            schedules.add(newSchedule);
+          }
+          if (!newSchedule.isSessionAvailable(newSessionNumber - 1)) {
+            return;
+          }
 
-    // Update appointment details and mark the new session as "Pending"
-    chosenAppointment.setDate(newAppointmentDate);
-    chosenAppointment.setSession(newSessionNumber);
-    if (chosenAppointment.getStatus().equalsIgnoreCase(CONFIRMED.name())) {
-      chosenAppointment.setStatus(PENDING.name()); // Change confirmed to pending if rescheduled
-    }
+          // Update old schedule slot to "Available"
+          Schedule oldScheduleForDate =
+              getScheduleByDoctorIDAndDate(doctorID, appointment.getDate());
+          if (oldScheduleForDate != null) {
+            oldScheduleForDate.setSessionAvailable(appointment.getSession() - 1);
+          }
 
-    newSession[newSessionNumber - 1] =
-        patient.getHospitalID() + "-" + ScheduleStatus.PENDING.name();
-    newScheduleForDate.setSession(newSession);
+          // Update appointment details and mark the new session as "Pending"
+          appointment.setDate(newAppointmentDate);
+          appointment.setSession(newSessionNumber);
+          if (appointment.getStatus() == CONFIRMED) {
+            appointment.setStatus(PENDING); // Change confirmed to pending if rescheduled
+          }
 
-    // Update the original appointments list with the chosen appointment's new details
-    for (int i = 0; i < appointments.size(); i++) {
-      if (appointments.get(i).getAppointmentID().equals(chosenAppointment.getAppointmentID())) {
-        appointments.set(i, chosenAppointment);
-        break;
-      }
-    }
+          newSchedule.bookSession(newSessionNumber - 1, patient.getHospitalID());
+
+          CsvDB.saveAppointments(appointments); // Save the full list of appointments
+          CsvDB.saveSchedules(schedules);
+          rescheduled[0] = true;
+        });
 
-    // Save updated appointments and schedules to CSV files
-    CsvDB.saveAppointments(appointments); // Save the full list of appointments
-    CsvDB.saveSchedules(schedules);
+    if (!rescheduled[0]) {
+      System.out.println(
+          "The appointment or session " + newSessionNumber + " was just changed by someone else.");
+      return;
+    }
 
     System.out.printf(
         "Your appointment with Dr. %s has been rescheduled to %s, Session %d.\n",
@@ -370,18 +386,11 @@ public class AppointmentManager implements AppointmentManagerInterface {
    */
   @Override
   public void cancelAppointment(Patient patient) {
-    List<Appointment> appointments = CsvDB.readAppointments();
-    List<Schedule> schedules = CsvDB.readSchedules();
-    List<Doctor> doctors = CsvDB.readDoctors();
-
     // Filter to show only pending or confirmed appointments
     List<Appointment> cancellableAppointments =
         getAppointmentsForPatient(patient.getHospitalID())
             .stream()
-            .filter(
-                appointment ->
-                    appointment.getStatus().equalsIgnoreCase(PENDING.name())
-                        || appointment.getStatus().equalsIgnoreCase(CONFIRMED.name()))
+            .filter(appointment -> ACTIVE_STATUSES.contains(appointment.getStatus()))
             .collect(Collectors.toList());
 
     // Check if there are any appointments to cancel
@@ -430,44 +439,44 @@ public class AppointmentManager implements AppointmentManagerInterface {
       return;
     }
 
-    // Validate the choice
-    if (appointmentChoice >= 1 && appointmentChoice <= cancellableAppointments.size()) {
-      // Get the chosen appointment and update status
-      Appointment chosenAppointment = cancellableAppointments.get(appointmentChoice - 1);
-      chosenAppointment.setStatus(CANCELLED.name());
-
-      // Update the schedule slot to "Available"
-      String doctorID = chosenAppointment.getDoctorID();
-      LocalDate apptDate = chosenAppointment.getDate();
-      int sessionNumber = chosenAppointment.getSession();
-      for (Schedule schedule : schedules) {
-        if (schedule.getDoctorID().equals(doctorID) && schedule.getDate().equals(apptDate)) {
-          String[] sessionSlots = schedule.getSession();
-          sessionSlots[sessionNumber - 1] = "Available";
-          schedule.setSession(sessionSlots);
-          break;
-        }
-      }
+    // Cancel the appointment and free its session in one transaction. Another terminal may have
+    // cancelled, completed or accepted the appointment since it was shown, so it is looked up
+    // again while no other change can be made
+    Appointment chosenAppointment = cancellableAppointments.get(appointmentChoice - 1);
+    boolean[] cancelled = new boolean[1];
+    CsvDB.transaction(
+        () -> {
+          List<Appointment> appointments = CsvDB.readAppointments();
+          List<Schedule> schedules = CsvDB.readSchedules();
+          Appointment appointment =
+              CsvDB.getAppointmentRepository().findById(chosenAppointment.getAppointmentID());
+          if (appointment == null || !ACTIVE_STATUSES.contains(appointment.getStatus())) {
+            return;
+          }
+          appointment.setStatus(CANCELLED);
 
-      chosenAppointment.setStatus(CANCELLED.name());
+          // Update the schedule slot to "Available"
+          Schedule schedule =
+              getScheduleByDoctorIDAndDate(appointment.getDoctorID(), appointment.getDate());
+          if (schedule != null) {
+            schedule.setSessionAvailable(appointment.getSession() - 1);
+          }
 
-      // Update the original appointments list with the chosen appointment's new status
-      for (int i = 0; i < appointments.size(); i++) {
-        if (appointments.get(i).getAppointmentID().equals(chosenAppointment.getAppointmentID())) {
-          appointments.set(i, chosenAppointment);
-          break;
-        }
-      }
+          // Save the changes
+          CsvDB.saveAppointments(appointments);
+          CsvDB.saveSchedules(schedules);
+          cancelled[0] = true;
+        });
 
-      // Save the changes
-      CsvDB.saveAppointments(appointments);
-      CsvDB.saveSchedules(schedules);
-      System.out.printf(
-          "Your appointment with Dr. %s on %s has been cancelled.\n",
-          getDoctorById(doctorID).getName(), chosenAppointment.getDate().format(dateFormatter));
-    } else {
-      System.out.println("Invalid choice.");
+    if (!cancelled[0]) {
+      System.out.println("The appointment was just changed by someone else.");
+      return;
     }
+
+    System.out.printf(
+        "Your appointment with Dr. %s on %s has been cancelled.\n",
+        getDoctorById(chosenAppointment.getDoctorID()).getName(),
+        chosenAppointment.getDate().format(dateFormatter));
   }
 
   /**
@@ -479,10 +488,9 @@ public class AppointmentManager implements AppointmentManagerInterface {
   public void showAppointmentOutcome(Patient patient) {
     // Filter to show only the patient's completed appointments
     List<Appointment> completedAppointments =
-        CsvDB.readAppointments()
+        getAppointmentsForPatient(patient.getHospitalID())
             .stream()
-            .filter(appointment -> appointment.getPatientID().equals(patient.getHospitalID()))
-            .filter(appointment -> appointment.getStatus().equalsIgnoreCase(COMPLETED.name()))
+            .filter(appointment -> appointment.getStatus() == COMPLETED)
             .collect(Collectors.toList());
 
     // Check if there are any completed appointments for this patient
@@ -536,23 +544,18 @@ public class AppointmentManager implements AppointmentManagerInterface {
 
     // Find the outcome record for the selected completed appointment
     Appointment selectedAppointment = completedAppointments.get(choice - 1);
-    boolean foundOutcome = false;
-
-    for (AppointmentOutcomeRecord record : CsvDB.readAppointmentOutcomeRecords()) {
-      if (record.getAppointmentID().equals(selectedAppointment.getAppointmentID())) {
-        // Display the outcome record details
-        System.out.println("\n=== Appointment Outcome Record ===");
-        System.out.println("Appointment ID: " + record.getAppointmentID());
-        System.out.println("Type of Service: " + record.getTypeOfService());
-        System.out.println("Consultation Notes: " + record.getConsultationNotes());
-        System.out.println("Prescriptions: " + record.getPrescriptionsAsString());
-        System.out.println("Prescription Status: " + record.getPrescriptionStatus());
-        foundOutcome = true;
-        break;
-      }
-    }
-
-    if (!foundOutcome) {
+    AppointmentOutcomeRecord record =
+        getOutcomeByAppointmentID(selectedAppointment.getAppointmentID());
+
+    if (record != null) {
+      // Display the outcome record details
+      System.out.println("\n=== Appointment Outcome Record ===");
+      System.out.println("Appointment ID: " + record.getAppointmentID());
+      System.out.println("Type of Service: " + record.getTypeOfService());
+      System.out.println("Consultation Notes: " + record.getConsultationNotes());
+      System.out.println("Prescriptions: " + record.getPrescriptionsAsString());
+      System.out.println("Prescription Status: " + record.getPrescriptionStatus());
+    } else {
       System.out.println("No outcome record found for the selected appointment.");
     }
   }
@@ -625,27 +628,26 @@ public class AppointmentManager implements AppointmentManagerInterface {
     }
 
     // Filter and display appointments based on user's choice
-    List<Appointment> appointments = CsvDB.readAppointments();
     switch (choice) {
       case 1:
         System.out.println("\n=== Completed Appointments ===");
-        filterAndDisplayAppointments(appointments, AppointmentStatus.COMPLETED.name());
+        filterAndDisplayAppointments(AppointmentStatus.COMPLETED);
         break;
       case 2:
         System.out.println("\n=== Cancelled Appointments ===");
-        filterAndDisplayAppointments(appointments, AppointmentStatus.CANCELLED.name());
+        filterAndDisplayAppointments(AppointmentStatus.CANCELLED);
         break;
       case 3:
         System.out.println("\n=== Pending Appointments ===");
-        filterAndDisplayAppointments(appointments, AppointmentStatus.PENDING.name());
+        filterAndDisplayAppointments(AppointmentStatus.PENDING);
         break;
       case 4:
         System.out.println("\n=== No Show Appointments ===");
-        filterAndDisplayAppointments(appointments, AppointmentStatus.NO_SHOW.name());
+        filterAndDisplayAppointments(AppointmentStatus.NO_SHOW);
         break;
       case 5:
         System.out.println("\n=== All Appointments ===");
-        displayAllAppointments(appointments);
+        displayAllAppointments(CsvDB.readAppointments());
         break;
       default:
         System.out.println("Invalid choice. Returning to the main menu...");
@@ -665,11 +667,9 @@ public class AppointmentManager implements AppointmentManagerInterface {
   public void showScheduledAppointments(Patient patient) {
     // Filter confirmed appointments for this patient
     List<Appointment> patientAppointments =
-        CsvDB.readAppointments()
+        getAppointmentsForPatient(patient.getHospitalID())
             .stream()
-            .filter(appointment -> appointment.getPatientID().equals(patient.getHospitalID()))
-            .filter(appointment -> !appointment.getStatus().equalsIgnoreCase(CANCELLED.name()))
-            .filter(appointment -> !appointment.getStatus().equalsIgnoreCase(COMPLETED.name()))
+            .filter(appointment -> !CLOSED_STATUSES.contains(appointment.getStatus()))
             .collect(Collectors.toList());
 
     if (patientAppointments.isEmpty()) {
@@ -698,59 +698,55 @@ public class AppointmentManager implements AppointmentManagerInterface {
   /**
    * Displays the upcoming confirmed appointments for a given doctor.
    *
-   * <p>This method retrieves the doctor's schedule, filters out past dates, and prints the upcoming
-   * confirmed appointments, organized by dates. If no upcoming confirmed appointments are found, it
-   * displays a message indicating the absence of such appointments.
+   * <p>This method retrieves the doctor's confirmed appointments, filters out past dates, and
+   * prints the upcoming confirmed appointments, organized by dates. If no upcoming confirmed
+   * appointments are found, it displays a message indicating the absence of such appointments.
    *
    * @param doctor The doctor for whom the upcoming appointments are to be shown.
    */
   @Override
   public void showUpcomingAppointments(Doctor doctor) {
-    List<Patient> patients = CsvDB.readPatients();
     LocalDate today = LocalDate.now();
-    List<Schedule> doctorSchedule = getScheduleByDoctorID(doctor.getHospitalID());
+
+    // Look up the doctor's confirmed appointments from today onwards, ordered by date and session
+    List<Appointment> upcomingAppointments =
+        Appointment.getConfirmedAppointmentsByDoctorID(doctor.getHospitalID())
+            .stream()
+            .filter(appointment -> !appointment.getDate().isBefore(today))
+            .sorted(
+                Comparator.comparing(Appointment::getDate)
+                    .thenComparingInt(Appointment::getSession))
+            .collect(Collectors.toList());
 
     // Create a list to store appointment information grouped by date
     ArrayList<String> appointmentDetails = new ArrayList<>();
     LocalDate lastDisplayedDate = null;
 
-    // Iterate through the schedules to find upcoming confirmed appointments
-    for (Schedule schedule : doctorSchedule) {
-      if (schedule.getDate().isBefore(today)) {
-        continue; // Skip past dates, only consider today or future dates
-      }
-
-      for (int i = 0; i < schedule.getSession().length; i++) {
-        String sessionInfo = schedule.getSession()[i];
-
-        // Check if the session is booked with a patient
-        if (sessionInfo.contains("-" + ScheduleStatus.CONFIRMED.name())) {
-          String patientId = schedule.getPatientIdFromSession(i);
-          Patient scheduledPatient =
-              (patientId != null) ? getPatientById(patientId, patients) : null;
-          if (scheduledPatient != null) {
-            // Display a new date header if the date has changed
-            if (lastDisplayedDate == null || !lastDisplayedDate.equals(schedule.getDate())) {
-              lastDisplayedDate = schedule.getDate();
-              System.out.println(
-                  "\nAppointments for "
-                      + lastDisplayedDate.format(DateTimeFormatter.ofPattern("dd/MM/yyyy"))
-                      + ":");
-              System.out.println("---------------------------------------------------------------");
-              System.out.printf("%-5s %-15s %s\n", "No.", "Time", "Patient Name");
-            }
-
-            // Format the appointment details into a consistent string
-            String formattedAppointment =
-                String.format(
-                    "%-5d %-15s %s",
-                    appointmentDetails.size() + 1, sessionTimings[i], scheduledPatient.getName());
-            appointmentDetails.add(formattedAppointment);
-
-            // Print the formatted appointment
-            System.out.println(formattedAppointment);
-          }
+    for (Appointment appointment : upcomingAppointments) {
+      Patient scheduledPatient = getPatientById(appointment.getPatientID());
+      if (scheduledPatient != null) {
+        // Display a new date header if the date has changed
+        if (lastDisplayedDate == null || !lastDisplayedDate.equals(appointment.getDate())) {
+          lastDisplayedDate = appointment.getDate();
+          System.out.println(
+              "\nAppointments for "
+                  + lastDisplayedDate.format(DateTimeFormatter.ofPattern("dd/MM/yyyy"))
+                  + ":");
+          System.out.println("---------------------------------------------------------------");
+          System.out.printf("%-5s %-15s %s\n", "No.", "Time", "Patient Name");
         }
+
+        // Format the appointment details into a consistent string
+        String formattedAppointment =
+            String.format(
+                "%-5d %-15s %s",
+                appointmentDetails.size() + 1,
+                sessionTimings[appointment.getSession() - 1],
+                scheduledPatient.getName());
+        appointmentDetails.add(formattedAppointment);
+
+        // Print the formatted appointment
+        System.out.println(formattedAppointment);
       }
     }
 
@@ -789,7 +785,7 @@ public class AppointmentManager implements AppointmentManagerInterface {
       System.out.println("\n=== Confirmed Appointments ===");
 
       ArrayList<Appointment> confirmedAppointments =
-          Appointment.getConfirmedAppointmentsByDoctorID(doctor.getHospitalID(), appointments);
+          Appointment.getConfirmedAppointmentsByDoctorID(doctor.getHospitalID());
 
       for (Appointment appointment : confirmedAppointments) {
         System.out.printf(
@@ -928,7 +924,7 @@ public class AppointmentManager implements AppointmentManagerInterface {
                     typeOfService,
                     consultationNotes,
                     prescribedMedicines,
-                    AppointmentOutcomeStatus.PENDING.name());
+                    AppointmentOutcomeStatus.PENDING);
 
             Treatment treatment =
                 new Treatment(
@@ -945,25 +941,30 @@ public class AppointmentManager implements AppointmentManagerInterface {
             diagnoses.add(diagnosis);
             appointmentOutcomeRecords.add(outcomeRecord);
 
-            CsvDB.saveAppointmentOutcomeRecords(appointmentOutcomeRecords);
-            CsvDB.saveDiagnosis(diagnoses);
-            CsvDB.saveTreatment(treatments);
-
-            // saveAppointmentOutcomeRecords(apptOutcomeRecords);
-            selectedAppointment.setStatus(AppointmentStatus.COMPLETED.name());
+            // Save the outcome with the completed appointment, so the appointment is never
+            // completed without its outcome or the other way round
+            CsvDB.transaction(
+                () -> {
+                  selectedAppointment.setStatus(AppointmentStatus.COMPLETED);
+                  CsvDB.saveAppointmentOutcomeRecords(appointmentOutcomeRecords);
+                  CsvDB.saveDiagnosis(diagnoses);
+                  CsvDB.saveTreatment(treatments);
+                  CsvDB.saveAppointments(appointments);
+                });
             System.out.println("\nAppointment outcome recorded successfully as 'Completed'.");
 
           } else if (outcome.equals("N")) {
-            selectedAppointment.setStatus(AppointmentStatus.NO_SHOW.name());
+            CsvDB.transaction(
+                () -> {
+                  selectedAppointment.setStatus(AppointmentStatus.NO_SHOW);
+                  CsvDB.saveAppointments(appointments);
+                });
             System.out.println("\nAppointment outcome recorded successfully as 'No-Show'.");
           } else {
             System.out.println(
                 "\nInvalid input. Please enter either 'Y' for Completed or 'N' for No-Show.");
             continue; // Continue to allow user to retry entering a valid input
           }
-
-          // Save the updated appointment list to CSV
-          CsvDB.saveAppointments(appointments);
         } else {
           System.out.println("\nInvalid choice. Please select a valid appointment number.");
         }
@@ -980,10 +981,7 @@ public class AppointmentManager implements AppointmentManagerInterface {
    * @return A list of appointments that belong to the specified patient.
    */
   public List<Appointment> getAppointmentsForPatient(String patientID) {
-    return CsvDB.readAppointments()
-        .stream()
-        .filter(appointment -> appointment.getPatientID().equals(patientID))
-        .collect(Collectors.toList());
+    return CsvDB.findAppointmentsByPatientID(patientID);
   }
 
   /**
@@ -995,7 +993,10 @@ public class AppointmentManager implements AppointmentManagerInterface {
    * @param status The new status to be set for the appointment.
    */
   public static void updateAppointment(
-      List<Appointment> appts, Schedule chosenSchedule, int sessionIndex, String status) {
+      List<Appointment> appts,
+      Schedule chosenSchedule,
+      int sessionIndex,
+      AppointmentStatus status) {
     Appointment selectedAcAppointment =
         getAppointmentByScheduleAndSession(chosenSchedule, sessionIndex, appts);
     if (selectedAcAppointment != null) {
@@ -1011,64 +1012,49 @@ public class AppointmentManager implements AppointmentManagerInterface {
   /**
    * Filters and displays appointments based on their status.
    *
-   * <p>This method filters appointments by the given status and prints the appointment details. If
-   * the status is "Completed", it also retrieves and displays the relevant appointment outcome
-   * records. If no appointments are found with the specified status, a corresponding message is
-   * displayed.
+   * <p>This method looks up the appointments with the given status in the status index and prints
+   * the appointment details. If the status is "Completed", it also retrieves and displays the
+   * relevant appointment outcome records. If no appointments are found with the specified status, a
+   * corresponding message is displayed.
    *
-   * @param appointments the list of all appointments to be filtered and displayed
    * @param status the status by which to filter the appointments (e.g., "Completed", "Pending")
    */
   // Modified Method to filter and display appointments based on their status
-  private void filterAndDisplayAppointments(List<Appointment> appointments, String status) {
+  private void filterAndDisplayAppointments(AppointmentStatus status) {
     boolean found = false;
 
-    // Read Appointment Outcome Records (only if status is Completed)
-    List<AppointmentOutcomeRecord> outcomeRecords = new ArrayList<>();
-    if (status.equalsIgnoreCase(AppointmentStatus.COMPLETED.name())) {
-      try {
-        outcomeRecords = CsvDB.readAppointmentOutcomeRecords();
-      } catch (Exception e) {
-        System.out.println("Error reading appointment outcome records: " + e.getMessage());
-        return;
-      }
-    }
-
-    for (Appointment appt : appointments) {
-      if (appt.getStatus().equalsIgnoreCase(status)) {
-        // Display the basic appointment details
-        System.out.printf(
-            "Appointment ID: %s | Patient ID: %s | Doctor ID: %s | Date: %s | Session: %d | Status: %s\n",
-            appt.getAppointmentID(),
-            appt.getPatientID(),
-            appt.getDoctorID(),
-            appt.getDate(),
-            appt.getSession(),
-            appt.getStatus());
-        found = true;
-
-        // If the appointment is "Completed", display additional outcome details
-        if (status.equalsIgnoreCase(AppointmentStatus.COMPLETED.name())) {
-          // Find the corresponding appointment outcome record
-          AppointmentOutcomeRecord outcomeRecord =
-              getOutcomeByAppointmentID(outcomeRecords, appt.getAppointmentID());
-          if (outcomeRecord != null) {
-            // System.out.printf(" com.ntu.hms.Diagnosis: %s\n", outcomeRecord.getDiagnosis());
-            // System.out.printf(" com.ntu.hms.Treatment: %s\n", outcomeRecord.getTreatment());
-            System.out.printf(
-                "Appointment ID: %s | Type of Service: %s | Consultation Notes: %s | Prescriptions: %s | Prescription Status: %s\n",
-                outcomeRecord.getAppointmentID(),
-                outcomeRecord.getTypeOfService(),
-                outcomeRecord.getConsultationNotes(),
-                outcomeRecord.getPrescriptions(),
-                outcomeRecord.getPrescriptionStatus());
-          } else {
-            System.out.println("  No outcome record available for this appointment.");
-          }
+    for (Appointment appt : CsvDB.findAppointmentsByStatus(status)) {
+      // Display the basic appointment details
+      System.out.printf(
+          "Appointment ID: %s | Patient ID: %s | Doctor ID: %s | Date: %s | Session: %d | Status: %s\n",
+          appt.getAppointmentID(),
+          appt.getPatientID(),
+          appt.getDoctorID(),
+          appt.getDate(),
+          appt.getSession(),
+          appt.getStatus());
+      found = true;
+
+      // If the appointment is "Completed", display additional outcome details
+      if (status == AppointmentStatus.COMPLETED) {
+        // Find the corresponding appointment outcome record
+        AppointmentOutcomeRecord outcomeRecord = getOutcomeByAppointmentID(appt.getAppointmentID());
+        if (outcomeRecord != null) {
+          // System.out.printf(" com.ntu.hms.Diagnosis: %s\n", outcomeRecord.getDiagnosis());
+          // System.out.printf(" com.ntu.hms.Treatment: %s\n", outcomeRecord.getTreatment());
+          System.out.printf(
+              "Appointment ID: %s | Type of Service: %s | Consultation Notes: %s | Prescriptions: %s | Prescription Status: %s\n",
+              outcomeRecord.getAppointmentID(),
+              outcomeRecord.getTypeOfService(),
+              outcomeRecord.getConsultationNotes(),
+              outcomeRecord.getPrescriptions(),
+              outcomeRecord.getPrescriptionStatus());
+        } else {
+          System.out.println("  No outcome record available for this appointment.");
         }
-
-        System.out.println("-------------------------------------------------------");
       }
+
+      System.out.println("-------------------------------------------------------");
     }
 
     if (!found) {
@@ -1102,16 +1088,6 @@ public class AppointmentManager implements AppointmentManagerInterface {
     }
   }
 
-  public AppointmentOutcomeRecord getOutcomeByAppointmentID(
-      List<AppointmentOutcomeRecord> outcomeRecords, String appointmentID) {
-    for (AppointmentOutcomeRecord outcome : outcomeRecords) {
-      if (outcome.getAppointmentID().equals(appointmentID)) {
-        return outcome;
-      }
-    }
-    return null;
-  }
-
   /**
    * Creates a new instance of AppointmentManagerBuilder, which is used to construct
    * AppointmentManager instances with specified configurations.
@@ -7,6 +7,7 @@ import com.ntu.hms.model.Medication;
 import com.ntu.hms.model.MedicationItem;
 import com.ntu.hms.model.ReplenishmentRequest;
 import com.ntu.hms.model.users.Pharmacist;
+import com.ntu.hms.storage.Cursor;
 import com.ntu.hms.util.ScannerWrapper;
 import java.util.ArrayList;
 import java.util.List;
@@ -64,7 +65,7 @@ public class InventoryManager implements InventoryManagerInterface {
    * @param quantity The total quantity of the medication in stock.
    */
   public void updateInventory(
-      Medication medication, String stockStatus, boolean alert, int quantity) {
+      Medication medication, MedicationStatus stockStatus, boolean alert, int quantity) {
     medication.setStockStatus(stockStatus);
     medication.setAlert(alert);
     medication.setTotalQuantity(quantity);
@@ -120,15 +121,15 @@ public class InventoryManager implements InventoryManagerInterface {
         int newQuantity = med.getTotalQuantity() + quantity;
 
         // Determine stock status based on the new quantity
-        String stockStatus = MedicationStatus.LOW.name();
+        MedicationStatus stockStatus = MedicationStatus.LOW;
         boolean alert = false;
         if (newQuantity < 10) {
-          stockStatus = MedicationStatus.LOW.name();
+          stockStatus = MedicationStatus.LOW;
           alert = true;
         } else if (newQuantity <= 50) {
-          stockStatus = MedicationStatus.MEDIUM.name();
+          stockStatus = MedicationStatus.MEDIUM;
         } else {
-          stockStatus = MedicationStatus.HIGH.name();
+          stockStatus = MedicationStatus.HIGH;
         }
 
         med.setTotalQuantity(newQuantity);
@@ -185,19 +186,19 @@ public class InventoryManager implements InventoryManagerInterface {
     int quantity = scanner.nextInt();
 
     // Determine stock status based on quantity
-    String stockStatus = MedicationStatus.LOW.name();
+    MedicationStatus stockStatus = MedicationStatus.LOW;
     boolean alert = false;
     if (quantity < 10) {
-      stockStatus = MedicationStatus.LOW.name();
+      stockStatus = MedicationStatus.LOW;
       alert = true;
     } else if (quantity <= 50) {
-      stockStatus = MedicationStatus.MEDIUM.name();
+      stockStatus = MedicationStatus.MEDIUM;
     } else {
-      stockStatus = MedicationStatus.HIGH.name();
+      stockStatus = MedicationStatus.HIGH;
     }
 
     // Create a new medication and add to inventory
-    String medicationID = "M000" + (inventory.size() + 1);
+    String medicationID = CsvDB.nextMedicationID();
     Medication newMedication =
         new Medication(medicationID, medicationName, stockStatus, alert, quantity);
     inventory.add(newMedication);
@@ -287,9 +288,6 @@ public class InventoryManager implements InventoryManagerInterface {
       return;
     }
 
-    int latestRequestID = replenishmentRequests.size();
-    String newRequestID = "R" + String.format("%04d", latestRequestID + 1);
-
     String choiceToAddMore;
     int lowStockCounter = 0;
     int addedCount = 0;
@@ -358,9 +356,9 @@ public class InventoryManager implements InventoryManagerInterface {
       if (!medicationBatch.isEmpty()) {
         ReplenishmentRequest newRequest =
             new ReplenishmentRequest(
-                newRequestID,
+                CsvDB.nextReplenishmentRequestID(),
                 medicationBatch,
-                ReplenishmentStatus.PENDING.name(),
+                ReplenishmentStatus.PENDING,
                 pharmacist.getHospitalID());
         replenishmentRequests.add(newRequest);
         CsvDB.saveReplenishmentRequests(replenishmentRequests);
@@ -389,19 +387,19 @@ public class InventoryManager implements InventoryManagerInterface {
    */
   @Override
   public void handleReplenishmentRequest() {
-    List<ReplenishmentRequest> replenishmentRequests = CsvDB.readReplenishmentRequests();
-    List<Medication> inventory = CsvDB.readMedications();
     boolean requestFound = false;
 
     System.out.println("\n=== Pending Replenishment Requests ===");
     // Display all pending replenishment requests
-    for (ReplenishmentRequest request : replenishmentRequests) {
-      if (request.getStatus().equalsIgnoreCase(ReplenishmentStatus.PENDING.name())) {
-        System.out.printf(
-            "Request ID: %s | Status: %s | Pharmacist ID: %s\n",
-            request.getRequestID(), request.getStatus(), request.getPharmacistID());
-        requestFound = true;
-      }
+    Cursor<ReplenishmentRequest> pendingRequests =
+        CsvDB.getReplenishmentRequestRepository()
+            .scan(request -> request.getStatus() == ReplenishmentStatus.PENDING);
+    while (pendingRequests.hasNext()) {
+      ReplenishmentRequest request = pendingRequests.next();
+      System.out.printf(
+          "Request ID: %s | Status: %s | Pharmacist ID: %s\n",
+          request.getRequestID(), request.getStatus(), request.getPharmacistID());
+      requestFound = true;
     }
 
     if (!requestFound) {
@@ -412,7 +410,6 @@ public class InventoryManager implements InventoryManagerInterface {
     System.out.print(
         "\nEnter the Request ID to approve or decline (or press enter to return to main menu): ");
     String requestIDToApprove = scanner.nextLine();
-    ReplenishmentRequest selectedRequest = null;
     // If user presses "Enter" only, return to main menu
     if (requestIDToApprove.trim().isEmpty()) {
       System.out.println("Returning to main menu...");
@@ -420,13 +417,12 @@ public class InventoryManager implements InventoryManagerInterface {
     }
 
     // Find the selected request
-    for (ReplenishmentRequest request : replenishmentRequests) {
-      if (request.getRequestID().equalsIgnoreCase(requestIDToApprove)
-          && request.getStatus().equalsIgnoreCase(ReplenishmentStatus.PENDING.name())) {
-        selectedRequest = request;
-        break;
-      }
-    }
+    ReplenishmentRequest selectedRequest =
+        CsvDB.getReplenishmentRequestRepository()
+            .findFirst(
+                request ->
+                    request.getRequestID().equalsIgnoreCase(requestIDToApprove)
+                        && request.getStatus() == ReplenishmentStatus.PENDING);
 
     if (selectedRequest == null) {
       System.out.println("Invalid Request ID or request is not pending. Please try again.");
@@ -437,70 +433,93 @@ public class InventoryManager implements InventoryManagerInterface {
     System.out.print("\nEnter 'A' to approve or 'D' to decline the request: ");
     String decision = scanner.nextLine().trim().toUpperCase();
 
-    switch (decision) {
-      case "A":
-        // Set the status to "APPROVED"
-        selectedRequest.setStatus(ReplenishmentStatus.APPROVED.name());
+    if (!decision.equals("A") && !decision.equals("D")) {
+      System.out.println("Invalid input. Returning to main menu...");
+      return;
+    }
 
-        // Update inventory based on the approved replenishment request
-        for (MedicationItem item : selectedRequest.getMedicationBatch()) {
-          Medication medicationToUpdate = null;
+    // Decide the request and restock the inventory in one transaction. Another terminal may have
+    // decided the same request since it was shown, so it is looked up again while no other change
+    // can be made, and its stock is added only once
+    String requestID = selectedRequest.getRequestID();
+    List<String> restocked = new ArrayList<>();
+    boolean[] pending = new boolean[1];
+    CsvDB.transaction(
+        () -> {
+          List<ReplenishmentRequest> requests = CsvDB.readReplenishmentRequests();
+          List<Medication> medications = CsvDB.readMedications();
+          ReplenishmentRequest request =
+              CsvDB.getReplenishmentRequestRepository()
+                  .findFirst(
+                      candidate ->
+                          candidate.getRequestID().equals(requestID)
+                              && candidate.getStatus() == ReplenishmentStatus.PENDING);
+          pending[0] = request != null;
+          if (!pending[0]) {
+            return;
+          }
 
-          // Find the medication in the inventory
-          for (Medication medication : inventory) {
-            if (medication.getMedicationID().equalsIgnoreCase(item.getMedicationID())) {
-              medicationToUpdate = medication;
-              break;
-            }
+          if (decision.equals("D")) {
+            // Set the status to "DECLINED"
+            request.setStatus(ReplenishmentStatus.DECLINED);
+            CsvDB.saveReplenishmentRequests(requests);
+            return;
           }
 
-          if (medicationToUpdate != null) {
-            // Update the quantity, stockStatus and alert level of the medication in the inventory
-            String stockStatus = MedicationStatus.LOW.name();
-            boolean alert = false;
-            int newQuantity = medicationToUpdate.getTotalQuantity() + item.getQuantity();
-
-            if (newQuantity < 10) {
-              stockStatus = MedicationStatus.LOW.name();
-              alert = true;
-            } else if (newQuantity <= 50) {
-              stockStatus = MedicationStatus.MEDIUM.name();
+          // Set the status to "APPROVED"
+          request.setStatus(ReplenishmentStatus.APPROVED);
+
+          // Update inventory based on the approved replenishment request
+          for (MedicationItem item : request.getMedicationBatch()) {
+            // Find the medication in the inventory
+            Medication medicationToUpdate =
+                CsvDB.getMedicationRepository()
+                    .findFirst(
+                        medication ->
+                            medication.getMedicationID().equalsIgnoreCase(item.getMedicationID()));
+
+            if (medicationToUpdate != null) {
+              // Update the quantity, stockStatus and alert level of the medication in the
+              // inventory
+              MedicationStatus stockStatus = MedicationStatus.LOW;
+              boolean alert = false;
+              int newQuantity = medicationToUpdate.getTotalQuantity() + item.getQuantity();
+
+              if (newQuantity < 10) {
+                stockStatus = MedicationStatus.LOW;
+                alert = true;
+              } else if (newQuantity <= 50) {
+                stockStatus = MedicationStatus.MEDIUM;
+              } else {
+                stockStatus = MedicationStatus.HIGH;
+              }
+
+              medicationToUpdate.setTotalQuantity(newQuantity);
+              medicationToUpdate.setStockStatus(stockStatus);
+              medicationToUpdate.setAlert(alert);
+
+              restocked.add(
+                  String.format(
+                      "Medication '%s' is restocked. New quantity: %d",
+                      medicationToUpdate.getMedicationName(),
+                      medicationToUpdate.getTotalQuantity()));
             } else {
-              stockStatus = MedicationStatus.HIGH.name();
+              restocked.add(
+                  "Medication with ID " + item.getMedicationID() + " not found in inventory.");
             }
-
-            medicationToUpdate.setTotalQuantity(newQuantity);
-            medicationToUpdate.setStockStatus(stockStatus);
-            medicationToUpdate.setAlert(alert);
-
-            System.out.printf(
-                "Medication '%s' is restocked. New quantity: %d\n",
-                medicationToUpdate.getMedicationName(), medicationToUpdate.getTotalQuantity());
-          } else {
-            System.out.println(
-                "Medication with ID " + item.getMedicationID() + " not found in inventory.");
           }
-        }
-
-        break;
 
-      case "D":
-        // Set the status to "DECLINED"
-        selectedRequest.setStatus(ReplenishmentStatus.DECLINED.name());
-        System.out.println("Replenishment request has been declined.");
-        break;
-
-      default:
-        System.out.println("Invalid input. Returning to main menu...");
-        return;
-    }
+          // Save the updated replenishment requests and inventory to the CSV files together
+          CsvDB.saveReplenishmentRequests(requests);
+          CsvDB.saveMedications(medications);
+        });
 
-    // Save the updated replenishment requests to the CSV file
-    CsvDB.saveReplenishmentRequests(replenishmentRequests);
-
-    // Save the updated inventory to the CSV file
-    if (decision.equals("A")) {
-      CsvDB.saveMedications(inventory);
+    if (!pending[0]) {
+      System.out.println("Request ID: " + requestID + " was just decided by someone else.");
+    } else if (decision.equals("D")) {
+      System.out.println("Replenishment request has been declined.");
+    } else {
+      restocked.forEach(System.out::println);
       System.out.println("Inventory updated successfully.");
     }
   }
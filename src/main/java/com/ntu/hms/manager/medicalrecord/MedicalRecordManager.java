@@ -3,8 +3,7 @@ package com.ntu.hms.manager.medicalrecord;
 import static com.ntu.hms.util.UtilProvider.*;
 
 import com.ntu.hms.CsvDB;
-import com.ntu.hms.enums.AppointmentStatus;
-import com.ntu.hms.enums.ScheduleStatus;
+import com.ntu.hms.enums.AppointmentOutcomeStatus;
 import com.ntu.hms.model.*;
 import com.ntu.hms.model.users.Doctor;
 import com.ntu.hms.model.users.Patient;
@@ -50,44 +49,7 @@ public class MedicalRecordManager implements MedicalRecordManagerInterface {
 
     // Display diagnosis and treatment information with prescriptions only
     System.out.println("\n================= Diagnoses and Treatments =============");
-    int recordNo = 1;
-    boolean hasRecords = false;
-
-    for (Diagnosis diagnosis : CsvDB.readDiagnoses()) {
-      for (Treatment treatment : CsvDB.readTreatments()) {
-        if (diagnosis.getPatientId().equals(patient.getHospitalID())
-            && treatment.getPatientID().equals(patient.getHospitalID())
-            && diagnosis.getAppointmentId().equals(treatment.getAppointmentID())) {
-
-          // Display basic record information
-          System.out.printf("Record %d:\n", recordNo++);
-          System.out.printf("  Appointment ID : %s\n", diagnosis.getAppointmentId());
-          System.out.printf("  Diagnosis      : %s\n", diagnosis.getDiagnosis());
-          System.out.printf("  Treatment      : %s\n", treatment.getTreatment());
-
-          // Find and display only the prescriptions
-          AppointmentOutcomeRecord outcome =
-              getOutcomeByAppointmentID(diagnosis.getAppointmentId());
-          if (outcome != null && !outcome.getPrescriptions().isEmpty()) {
-            String prescriptions =
-                outcome
-                    .getPrescriptions()
-                    .stream()
-                    .map(MedicationItem::toString)
-                    .reduce((p1, p2) -> p1 + ", " + p2)
-                    .orElse("No prescriptions.");
-            System.out.printf("  Prescriptions  : %s\n", prescriptions);
-          } else {
-            System.out.println("  Prescriptions  : No prescriptions available.");
-          }
-
-          System.out.println("-------------------------------------------------------");
-          hasRecords = true;
-        }
-      }
-    }
-
-    if (!hasRecords) {
+    if (!printMedicalRecordEntries(patient.getHospitalID())) {
       System.out.println("No diagnoses or treatments found for this patient.");
     }
     System.out.println("=======================================================");
@@ -100,32 +62,17 @@ public class MedicalRecordManager implements MedicalRecordManagerInterface {
    */
   @Override
   public void showMedicalRecord(Doctor doctor) {
-    ArrayList<String> uniquePatientIds = new ArrayList<>();
     ArrayList<User> patientsUnderCare = new ArrayList<>();
     Patient currentPatient = null;
 
-    // Step 1: Filter all confirmed schedules for the logged-in doctor
-    for (Schedule schedule : CsvDB.readSchedules()) {
-      if (schedule.getDoctorID().equals(doctor.getHospitalID())) {
-        for (int i = 0; i < schedule.getSession().length; i++) {
-          String sessionInfo = schedule.getSession()[i];
-          if (sessionInfo.contains(ScheduleStatus.CONFIRMED.name())) {
-            String patientId = sessionInfo.split("-")[0]; // Extract the patient ID
-            if (!uniquePatientIds.contains(patientId)) {
-              uniquePatientIds.add(patientId);
-            }
-          }
-        }
-      }
-    }
+    // Step 1: Look up the patients with a confirmed session with the logged-in doctor
+    List<String> uniquePatientIds = CsvDB.findPatientIDsUnderCare(doctor.getHospitalID());
 
     // Step 2: Retrieve all user (patient) objects based on unique patient IDs
     for (String patientId : uniquePatientIds) {
-      for (Patient patient : CsvDB.readPatients()) {
-        if (patient.getHospitalID().equals(patientId)) {
-          patientsUnderCare.add(patient);
-          break;
-        }
+      Patient patient = getPatientById(patientId);
+      if (patient != null) {
+        patientsUnderCare.add(patient);
       }
     }
 
@@ -180,44 +127,7 @@ public class MedicalRecordManager implements MedicalRecordManagerInterface {
 
             // Display diagnosis and treatment information with prescriptions only
             System.out.println("\n================= Diagnoses and Treatments =============");
-            int recordNo = 1;
-            boolean hasRecords = false;
-
-            for (Diagnosis diagnosis : CsvDB.readDiagnoses()) {
-              for (Treatment treatment : CsvDB.readTreatments()) {
-                if (diagnosis.getPatientId().equals(currentPatient.getHospitalID())
-                    && treatment.getPatientID().equals(currentPatient.getHospitalID())
-                    && diagnosis.getAppointmentId().equals(treatment.getAppointmentID())) {
-
-                  // Display basic record information
-                  System.out.printf("Record %d:\n", recordNo++);
-                  System.out.printf("  Appointment ID : %s\n", diagnosis.getAppointmentId());
-                  System.out.printf("  Diagnosis      : %s\n", diagnosis.getDiagnosis());
-                  System.out.printf("  Treatment      : %s\n", treatment.getTreatment());
-
-                  // Find and display only the prescriptions
-                  AppointmentOutcomeRecord outcome =
-                      getOutcomeByAppointmentID(diagnosis.getAppointmentId());
-                  if (outcome != null && !outcome.getPrescriptions().isEmpty()) {
-                    String prescriptions =
-                        outcome
-                            .getPrescriptions()
-                            .stream()
-                            .map(MedicationItem::toString)
-                            .reduce((p1, p2) -> p1 + ", " + p2)
-                            .orElse("No prescriptions.");
-                    System.out.printf("  Prescriptions  : %s\n", prescriptions);
-                  } else {
-                    System.out.println("  Prescriptions  : No prescriptions available.");
-                  }
-
-                  System.out.println("-------------------------------------------------------");
-                  hasRecords = true;
-                }
-              }
-            }
-
-            if (!hasRecords) {
+            if (!printMedicalRecordEntries(currentPatient.getHospitalID())) {
               System.out.println("\nNo diagnoses or treatments found for this patient.");
             }
             System.out.println("=======================================================");
@@ -231,6 +141,43 @@ public class MedicalRecordManager implements MedicalRecordManagerInterface {
     }
   }
 
+  /**
+   * Prints the entries of a patient's medical record, each with its diagnosis, treatment and
+   * prescriptions. The entries are joined in one pass by {@link CsvDB#findMedicalRecord(String)}.
+   *
+   * @param patientID the hospital ID of the patient
+   * @return true if the patient has at least one entry, false otherwise
+   */
+  private boolean printMedicalRecordEntries(String patientID) {
+    List<MedicalRecordEntry> entries = CsvDB.findMedicalRecord(patientID);
+    int recordNo = 1;
+    for (MedicalRecordEntry entry : entries) {
+      // Display basic record information
+      System.out.printf("Record %d:\n", recordNo++);
+      System.out.printf("  Appointment ID : %s\n", entry.getAppointmentID());
+      System.out.printf("  Diagnosis      : %s\n", entry.getDiagnosis().getDiagnosis());
+      System.out.printf("  Treatment      : %s\n", entry.getTreatment().getTreatment());
+
+      // Display only the prescriptions of the outcome
+      AppointmentOutcomeRecord outcome = entry.getOutcome();
+      if (outcome != null && !outcome.getPrescriptions().isEmpty()) {
+        String prescriptions =
+            outcome
+                .getPrescriptions()
+                .stream()
+                .map(MedicationItem::toString)
+                .reduce((p1, p2) -> p1 + ", " + p2)
+                .orElse("No prescriptions.");
+        System.out.printf("  Prescriptions  : %s\n", prescriptions);
+      } else {
+        System.out.println("  Prescriptions  : No prescriptions available.");
+      }
+
+      System.out.println("-------------------------------------------------------");
+    }
+    return !entries.isEmpty();
+  }
+
   /**
    * Updates a medical record based on user input through a series of interactive prompts.
    *
@@ -410,9 +357,7 @@ public class MedicalRecordManager implements MedicalRecordManagerInterface {
         System.out.println("\nNo treatment found for this appointment.");
       }
 
-      if (AppointmentStatus.PENDING
-          .name()
-          .equalsIgnoreCase(selectedOutcome.getPrescriptionStatus())) {
+      if (selectedOutcome.getPrescriptionStatus() == AppointmentOutcomeStatus.PENDING) {
         System.out.println("\nPrescription Status: " + selectedOutcome.getPrescriptionStatus());
         String editPrescriptionResponse;
 
@@ -496,9 +441,12 @@ public class MedicalRecordManager implements MedicalRecordManagerInterface {
         }
       }
 
-      CsvDB.saveAppointmentOutcomeRecords(appointmentOutcomeRecords);
-      CsvDB.saveDiagnosis(diagnoses);
-      CsvDB.saveTreatment(treatments);
+      CsvDB.transaction(
+          () -> {
+            CsvDB.saveAppointmentOutcomeRecords(appointmentOutcomeRecords);
+            CsvDB.saveDiagnosis(diagnoses);
+            CsvDB.saveTreatment(treatments);
+          });
     }
   }
 
@@ -14,8 +14,11 @@ import com.ntu.hms.model.users.Patient;
 import com.ntu.hms.util.ScannerWrapper;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.IntStream;
 
 /**
@@ -62,7 +65,6 @@ public class ScheduleManager implements ScheduleManagerInterface {
   @Override
   public void showWeeklySchedule() {
     List<Doctor> doctors = CsvDB.readDoctors();
-    List<Schedule> schedules = CsvDB.readSchedules();
 
     // Display the available doctors to the user
     System.out.println("\nAvailable Doctors: ");
@@ -115,12 +117,10 @@ public class ScheduleManager implements ScheduleManagerInterface {
     LocalDate startDate = today.plusDays(1);
     LocalDate endDate = today.plusWeeks(numberOfWeeks);
 
-    // Filter schedules for the specified doctor
-    ArrayList<Schedule> doctorSchedule = new ArrayList<>();
-    for (Schedule schedule : schedules) {
-      if (schedule.getDoctorID().equals(doctorID)) {
-        doctorSchedule.add(schedule);
-      }
+    // Slice the doctor's schedules within the date range, keyed by date
+    Map<LocalDate, Schedule> doctorSchedule = new HashMap<>();
+    for (Schedule schedule : CsvDB.findSchedulesBetween(doctorID, startDate, endDate)) {
+      doctorSchedule.put(schedule.getDate(), schedule);
     }
 
     LocalDate currentDate = startDate;
@@ -128,23 +128,19 @@ public class ScheduleManager implements ScheduleManagerInterface {
     // Check each date within the range for availability or assume availability if
     // not in schedule
     while (!currentDate.isAfter(endDate)) {
-      boolean dateInSchedule = false;
-
-      for (Schedule schedule : doctorSchedule) {
-        if (schedule.getDate().equals(currentDate)) {
-          dateInSchedule = true;
+      Schedule schedule = doctorSchedule.get(currentDate);
+      boolean dateInSchedule = schedule != null;
 
-          // Display available sessions with timings for this date
-          System.out.printf(
-              "\nAvailable Sessions for Dr. %s on %s:\n",
-              selectedDoctor.getName(), currentDate.format(dateFormatter));
+      if (dateInSchedule) {
+        // Display available sessions with timings for this date
+        System.out.printf(
+            "\nAvailable Sessions for Dr. %s on %s:\n",
+            selectedDoctor.getName(), currentDate.format(dateFormatter));
 
-          for (int i = 0; i < schedule.getSession().length; i++) {
-            if (schedule.getSession()[i].equals("Available")) {
-              System.out.printf("Session %d (%s)\n", i + 1, sessionTimings[i]);
-            }
+        for (int i = 0; i < schedule.getSessionCount(); i++) {
+          if (schedule.isSessionAvailable(i)) {
+            System.out.printf("Session %d (%s)\n", i + 1, sessionTimings[i]);
           }
-          break;
         }
       }
 
@@ -198,7 +194,10 @@ public class ScheduleManager implements ScheduleManagerInterface {
     LocalDate today = LocalDate.now();
     LocalDate endDate =
         today.plusWeeks(numberOfWeeks); // Calculate the end date based on the number of weeks
-    List<Schedule> doctorSchedule = getScheduleByDoctorID(doctor.getHospitalID());
+    Map<LocalDate, Schedule> doctorSchedule = new HashMap<>();
+    for (Schedule schedule : CsvDB.findSchedulesBetween(doctor.getHospitalID(), today, endDate)) {
+      doctorSchedule.put(schedule.getDate(), schedule);
+    }
     List<Schedule> weeklySchedule = new ArrayList<>();
 
     // Iterate from today until the end date, excluding weekends
@@ -211,19 +210,12 @@ public class ScheduleManager implements ScheduleManagerInterface {
         continue; // Skip Saturday (6) and Sunday (7)
       }
 
-      boolean scheduleExists = false;
-
       // Check if there is an existing schedule for the current date
-      for (Schedule existingSchedule : doctorSchedule) {
-        if (existingSchedule.getDate().equals(currentDate)) {
-          weeklySchedule.add(existingSchedule);
-          scheduleExists = true;
-          break;
-        }
-      }
-
-      // If no schedule exists for the current date, create a default schedule
-      if (!scheduleExists) {
+      Schedule existingSchedule = doctorSchedule.get(currentDate);
+      if (existingSchedule != null) {
+        weeklySchedule.add(existingSchedule);
+      } else {
+        // If no schedule exists for the current date, create a default schedule
         Schedule newSchedule = Schedule.createDefaultSchedule(doctor.getHospitalID(), currentDate);
         weeklySchedule.add(newSchedule);
       }
@@ -241,17 +233,16 @@ public class ScheduleManager implements ScheduleManagerInterface {
           "\nYour Personal Schedule on %s:\n",
           schedule.getDate().format(DateTimeFormatter.ofPattern("dd/MM/yyyy")));
 
-      for (int i = 0; i < schedule.getSession().length; i++) {
-        String sessionInfo = schedule.getSession()[i];
+      for (int i = 0; i < schedule.getSessionCount(); i++) {
         String sessionTime = sessionTimings[i];
 
-        if (sessionInfo.equals("Available") || sessionInfo.equals("Unavailable")) {
-          System.out.printf("Session %d (%s): %s\n", i + 1, sessionTime, sessionInfo);
+        if (schedule.isSessionAvailable(i) || schedule.isSessionUnavailable(i)) {
+          System.out.printf(
+              "Session %d (%s): %s\n", i + 1, sessionTime, schedule.getSessionInfo(i));
         } else {
           // Need to retrieve the patient name
           String patientId = schedule.getPatientIdFromSession(i);
-          Patient scheduledPatient =
-              (patientId != null) ? getPatientById(patientId, CsvDB.readPatients()) : null;
+          Patient scheduledPatient = (patientId != null) ? getPatientById(patientId) : null;
           if (scheduledPatient != null) {
             String status = schedule.getSessionStatus(i);
             if (status.equals(ScheduleStatus.PENDING.name())) {
@@ -291,37 +282,32 @@ public class ScheduleManager implements ScheduleManagerInterface {
     boolean exit = false;
 
     while (!exit) {
-      List<Schedule> doctorSchedule = getScheduleByDoctorID(doctor.getHospitalID());
       List<String> pendingAppointments = new ArrayList<>();
       List<Schedule> pendingSchedules = new ArrayList<>();
       List<Integer> pendingSessionIndexes = new ArrayList<>();
 
-      // Gather all pending appointments
-      for (Schedule schedule : doctorSchedule) {
-        if (schedule.getDate().isBefore(LocalDate.now())) {
-          continue; // Skip past dates
-        }
+      // Gather all pending appointments, skipping past dates
+      for (Schedule schedule :
+          CsvDB.findSchedulesBetween(doctor.getHospitalID(), LocalDate.now(), null)) {
+        // Walk the bits of the pending sessions
+        for (int pending = schedule.getSessionsWithStatus(ScheduleStatus.PENDING);
+            pending != 0;
+            pending &= pending - 1) {
+          int i = Integer.numberOfTrailingZeros(pending);
+          String patientId = schedule.getPatientIdFromSession(i);
+          Patient scheduledPatient = getPatientById(patientId);
 
-        for (int i = 0; i < schedule.getSession().length; i++) {
-          String sessionInfo = schedule.getSession()[i];
-
-          if (sessionInfo.contains(ScheduleStatus.PENDING.name())) {
-            String patientId = sessionInfo.split("-")[0];
-            Patient scheduledPatient =
-                getPatientById(patientId, CsvDB.readPatients()); // Assuming static method
-
-            if (scheduledPatient != null) {
-              // Add pending appointment details to the list
-              String appointmentDetail =
-                  String.format(
-                      "Date: %s, Time: %s, Patient: %s",
-                      schedule.getDate().format(DateTimeFormatter.ofPattern("dd/MM/yyyy")),
-                      sessionTimings[i],
-                      scheduledPatient.getName());
-              pendingAppointments.add(appointmentDetail);
-              pendingSchedules.add(schedule);
-              pendingSessionIndexes.add(i);
-            }
+          if (scheduledPatient != null) {
+            // Add pending appointment details to the list
+            String appointmentDetail =
+                String.format(
+                    "Date: %s, Time: %s, Patient: %s",
+                    schedule.getDate().format(DateTimeFormatter.ofPattern("dd/MM/yyyy")),
+                    sessionTimings[i],
+                    scheduledPatient.getName());
+            pendingAppointments.add(appointmentDetail);
+            pendingSchedules.add(schedule);
+            pendingSessionIndexes.add(i);
           }
         }
       }
@@ -390,22 +376,48 @@ public class ScheduleManager implements ScheduleManagerInterface {
 
           char decision = decisionInput.toUpperCase().charAt(0);
 
-          List<Appointment> appointments = CsvDB.readAppointments();
-          if (decision == 'A') {
-            chosenSchedule.acceptAppointment(sessionIndex);
-            updateAppointment(
-                appointments, chosenSchedule, sessionIndex, AppointmentStatus.CONFIRMED.name());
-            System.out.println("\nBooking has been accepted");
-          } else if (decision == 'D') {
-            chosenSchedule.declineAppointment(sessionIndex);
-            updateAppointment(
-                appointments, chosenSchedule, sessionIndex, AppointmentStatus.CANCELLED.name());
-            System.out.println("\nBooking has been declined");
-          } else {
+          if (decision != 'A' && decision != 'D') {
             System.out.println("\nInvalid input, please enter 'A' or 'D'.");
+            continue;
           }
 
-          CsvDB.saveSchedules(doctorSchedule);
+          // Decide the booking and save it with its appointment in one transaction. The patient
+          // may have cancelled or moved the booking since it was shown, so the session is looked
+          // up again while no other change can be made
+          String doctorID = chosenSchedule.getDoctorID();
+          LocalDate date = chosenSchedule.getDate();
+          String patientId = chosenSchedule.getPatientIdFromSession(sessionIndex);
+          boolean[] decided = new boolean[1];
+          CsvDB.transaction(
+              () -> {
+                List<Appointment> appointments = CsvDB.readAppointments();
+                List<Schedule> schedules = CsvDB.readSchedules();
+                Schedule schedule = CsvDB.findSchedule(doctorID, date);
+                if (schedule == null
+                    || !schedule.hasSessionStatus(sessionIndex, ScheduleStatus.PENDING)
+                    || !patientId.equals(schedule.getPatientIdFromSession(sessionIndex))) {
+                  return;
+                }
+                if (decision == 'A') {
+                  schedule.acceptAppointment(sessionIndex);
+                  updateAppointment(
+                      appointments, schedule, sessionIndex, AppointmentStatus.CONFIRMED);
+                } else {
+                  schedule.declineAppointment(sessionIndex);
+                  updateAppointment(
+                      appointments, schedule, sessionIndex, AppointmentStatus.CANCELLED);
+                }
+                CsvDB.saveSchedules(schedules);
+                decided[0] = true;
+              });
+
+          if (!decided[0]) {
+            System.out.println("\nThe booking was just changed by someone else.");
+          } else if (decision == 'A') {
+            System.out.println("\nBooking has been accepted");
+          } else {
+            System.out.println("\nBooking has been declined");
+          }
 
         } else {
           System.out.println("\nInvalid choice. Please select a valid appointment number.");
@@ -429,9 +441,6 @@ public class ScheduleManager implements ScheduleManagerInterface {
    */
   @Override
   public void setAvailability(Doctor doctor) {
-    List<Schedule> schedules = CsvDB.readSchedules();
-    List<Appointment> appointments = CsvDB.readAppointments();
-
     boolean exit = false;
 
     while (!exit) {
@@ -446,98 +455,108 @@ public class ScheduleManager implements ScheduleManagerInterface {
         continue;
       }
 
+      LocalDate selectedDate;
       try {
-        LocalDate selectedDate =
-            LocalDate.parse(inputDate, DateTimeFormatter.ofPattern("dd/MM/yyyy"));
-        Schedule chosenSchedule = null;
-        List<Schedule> doctorSchedule = getScheduleByDoctorID(doctor.getHospitalID());
-
-        // Find the schedule for the selected date
-        for (Schedule schedule : doctorSchedule) {
-          if (schedule.getDate().equals(selectedDate)) {
-            chosenSchedule = schedule;
-            break;
-          }
-        }
+        selectedDate = LocalDate.parse(inputDate, DateTimeFormatter.ofPattern("dd/MM/yyyy"));
+      } catch (DateTimeParseException e) {
+        System.out.println("\nInvalid input format. Please use the correct format (dd/MM/yyyy).");
+        continue;
+      }
+
+      boolean continueUpdating = true;
+      while (continueUpdating) {
+        // Find the schedule for the selected date, as last saved by any terminal
+        Schedule chosenSchedule =
+            getScheduleByDoctorIDAndDate(doctor.getHospitalID(), selectedDate);
 
         if (chosenSchedule == null) {
-          // If no schedule found, create a default schedule with all sessions available
+          // If no schedule found, show a default schedule with all sessions available
           chosenSchedule = Schedule.createDefaultSchedule(doctor.getHospitalID(), selectedDate);
-          schedules.add(chosenSchedule);
         }
 
-        boolean continueUpdating = true;
-        while (continueUpdating) {
-          // Display sessions to update
-          System.out.printf(
-              "\nSchedule for %s:\n\n",
-              selectedDate.format(DateTimeFormatter.ofPattern("dd/MM/yyyy")));
-          for (int i = 0; i < chosenSchedule.getSession().length; i++) {
-            String sessionInfo = chosenSchedule.getSession()[i];
-            String sessionTime = sessionTimings[i];
-            System.out.printf("%d. Session %d (%s): %s\n", i + 1, i + 1, sessionTime, sessionInfo);
-          }
+        // Display sessions to update
+        System.out.printf(
+            "\nSchedule for %s:\n\n",
+            selectedDate.format(DateTimeFormatter.ofPattern("dd/MM/yyyy")));
+        for (int i = 0; i < chosenSchedule.getSessionCount(); i++) {
+          String sessionInfo = chosenSchedule.getSessionInfo(i);
+          String sessionTime = sessionTimings[i];
+          System.out.printf("%d. Session %d (%s): %s\n", i + 1, i + 1, sessionTime, sessionInfo);
+        }
 
-          // Prompt for session to update
-          System.out.println(
-              "\nEnter the number of the session to update availability, or press Enter to return:");
-          String sessionChoiceInput = scanner.nextLine();
+        // Prompt for session to update
+        System.out.println(
+            "\nEnter the number of the session to update availability, or press Enter to return:");
+        String sessionChoiceInput = scanner.nextLine();
 
-          if (sessionChoiceInput.trim().isEmpty()) {
-            continueUpdating = false;
-            continue;
-          }
+        if (sessionChoiceInput.trim().isEmpty()) {
+          continueUpdating = false;
+          continue;
+        }
 
-          try {
-            int sessionChoice = Integer.parseInt(sessionChoiceInput);
+        int sessionChoice;
+        try {
+          sessionChoice = Integer.parseInt(sessionChoiceInput);
+        } catch (NumberFormatException e) {
+          System.out.println("\nInvalid input. Please enter a valid number.");
+          continue;
+        }
+
+        if (sessionChoice <= 0 || sessionChoice > chosenSchedule.getSessionCount()) {
+          System.out.println(
+              "\nInvalid choice. Please select a valid session number or press enter to exit.");
+          continue;
+        }
+
+        // Update the session and save it with any declined appointment in one transaction. A
+        // patient may have booked, cancelled or moved the session since it was shown, so its
+        // status is looked up again while no other change can be made
+        int sessionIndex = sessionChoice - 1;
+        String[] outcome = new String[1];
+        CsvDB.transaction(
+            () -> {
+              List<Schedule> schedules = CsvDB.readSchedules();
+              List<Appointment> appointments = CsvDB.readAppointments();
+              Schedule schedule =
+                  getScheduleByDoctorIDAndDate(doctor.getHospitalID(), selectedDate);
+              if (schedule == null) {
+                schedule = Schedule.createDefaultSchedule(doctor.getHospitalID(), selectedDate);
+                schedules.add(schedule);
+              }
 
-            if (sessionChoice > 0 && sessionChoice <= chosenSchedule.getSession().length) {
               // Update availability
-              String currentStatus = chosenSchedule.getSession()[sessionChoice - 1];
-              if (currentStatus.contains("-" + ScheduleStatus.PENDING.name())) {
-                chosenSchedule.getSession()[sessionChoice - 1] = "Unavailable";
+              if (schedule.hasSessionStatus(sessionIndex, ScheduleStatus.PENDING)) {
+                schedule.setSessionUnavailable(sessionIndex);
                 // To add on patient appointment outcome logic
 
                 Appointment selectedAcAppointment =
                     Appointment.getAppointmentByScheduleAndSession(
-                        chosenSchedule, sessionChoice - 1, appointments);
-                selectedAcAppointment.setStatus(AppointmentStatus.CANCELLED.name());
-                System.out.printf(
-                    "\nBooking has been declined. Session %d has been updated to Unavailable as it was pending.\n",
-                    sessionChoice);
-              } else if (currentStatus.equals("Available")) {
-                chosenSchedule.getSession()[sessionChoice - 1] = "Unavailable";
-                System.out.printf("\nSession %d has been updated to Unavailable.\n", sessionChoice);
-              } else if (currentStatus.equals("Unavailable")) {
-                chosenSchedule.getSession()[sessionChoice - 1] = "Available";
-                System.out.printf("\nSession %d has been updated to Available.\n", sessionChoice);
+                        schedule, sessionIndex, appointments);
+                if (selectedAcAppointment != null) {
+                  selectedAcAppointment.setStatus(AppointmentStatus.CANCELLED);
+                }
+                outcome[0] =
+                    String.format(
+                        "\nBooking has been declined. Session %d has been updated to Unavailable as it was pending.",
+                        sessionChoice);
+              } else if (schedule.isSessionAvailable(sessionIndex)) {
+                schedule.setSessionUnavailable(sessionIndex);
+                outcome[0] =
+                    String.format("\nSession %d has been updated to Unavailable.", sessionChoice);
+              } else if (schedule.isSessionUnavailable(sessionIndex)) {
+                schedule.setSessionAvailable(sessionIndex);
+                outcome[0] =
+                    String.format("\nSession %d has been updated to Available.", sessionChoice);
               } else {
-                System.out.println(
-                    "\nYou cannot update this session as you have confirmed appointments.");
-                continue;
+                outcome[0] = "\nYou cannot update this session as you have confirmed appointments.";
+                return;
               }
 
               // Update CSV with the new status
-              for (int i = 0; i < schedules.size(); i++) {
-                Schedule currentSchedule = schedules.get(i);
-                if (currentSchedule.getDoctorID().equals(chosenSchedule.getDoctorID())
-                    && currentSchedule.getDate().equals(chosenSchedule.getDate())) {
-                  schedules.set(i, chosenSchedule);
-                  break;
-                }
-              }
               CsvDB.saveSchedules(schedules);
               CsvDB.saveAppointments(appointments);
-            } else {
-              System.out.println(
-                  "\nInvalid choice. Please select a valid session number or press enter to exit.");
-            }
-          } catch (NumberFormatException e) {
-            System.out.println("\nInvalid input. Please enter a valid number.");
-          }
-        }
-      } catch (Exception e) {
-        System.out.println("\nInvalid input format. Please use the correct format (dd/MM/yyyy).");
+            });
+        System.out.println(outcome[0]);
       }
     }
   }
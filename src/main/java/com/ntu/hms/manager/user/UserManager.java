@@ -45,8 +45,6 @@ public class UserManager implements UserManagerInterface {
 
     switch (choice) {
       case 1: // Add Patient
-        List<Patient> patients = CsvDB.readPatients();
-        hospitalID = "P000" + (patients.size() + 1);
         System.out.print("Enter Password: ");
         password = scanner.nextLine();
         System.out.print("Enter Name: ");
@@ -65,6 +63,7 @@ public class UserManager implements UserManagerInterface {
         bloodType = scanner.nextLine();
 
         // Create Patient and add to list
+        hospitalID = CsvDB.nextPatientID();
         Patient newPatient =
             new Patient(
                 hospitalID,
@@ -80,8 +79,6 @@ public class UserManager implements UserManagerInterface {
         break;
 
       case 2: // Add Doctor
-        List<Doctor> doctors = CsvDB.readDoctors();
-        hospitalID = "D000" + (doctors.size() + 1);
         System.out.print("Enter Password: ");
         password = scanner.nextLine();
         System.out.print("Enter Name: ");
@@ -92,12 +89,11 @@ public class UserManager implements UserManagerInterface {
         gender = scanner.nextLine();
 
         // Doctor and add to list
+        hospitalID = CsvDB.nextDoctorID();
         Doctor newDoctor = new Doctor(hospitalID, password, name, age, gender);
         users.add(newDoctor);
         break;
       case 3: // Add Pharmacist
-        List<Pharmacist> pharmacists = CsvDB.readPharmacists();
-        hospitalID = "PH000" + (pharmacists.size() + 1);
         System.out.print("Enter Password: ");
         password = scanner.nextLine();
         System.out.print("Enter Name: ");
@@ -108,12 +104,11 @@ public class UserManager implements UserManagerInterface {
         gender = scanner.nextLine();
 
         // Create Pharmacist and add to list
+        hospitalID = CsvDB.nextPharmacistID();
         Pharmacist newPharmacist = new Pharmacist(hospitalID, password, name, age, gender);
         users.add(newPharmacist);
         break;
       case 4: // Add Administrator
-        List<Administrator> administrators = CsvDB.readAdministrators();
-        hospitalID = "A000" + (administrators.size() + 1);
         System.out.print("Enter Password: ");
         password = scanner.nextLine();
         System.out.print("Enter Name: ");
@@ -124,6 +119,7 @@ public class UserManager implements UserManagerInterface {
         gender = scanner.nextLine();
 
         // Create Administrator and add to list
+        hospitalID = CsvDB.nextAdministratorID();
         Administrator newAdministrator = new Administrator(hospitalID, password, name, age, gender);
         users.add(newAdministrator);
         break;
@@ -1,7 +1,7 @@
 package com.ntu.hms.model;
 
+import com.ntu.hms.CsvDB;
 import com.ntu.hms.enums.AppointmentStatus;
-import com.ntu.hms.enums.ScheduleStatus;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -11,13 +11,13 @@ import java.util.List;
  * This class represents an appointment in a medical scheduling system. It contains information
  * about the appointment ID, patient ID, doctor ID, date, session, and status.
  */
-public class Appointment {
+public class Appointment extends TrackedModel {
   private String appointmentID;
   private String patientID;
   private String doctorID;
   private LocalDate date;
   private int session;
-  private String status;
+  private AppointmentStatus status;
 
   /**
    * Default constructor for creating an instance of the Appointment class. Initializes the object
@@ -41,7 +41,7 @@ public class Appointment {
       String doctorID,
       LocalDate date,
       int session,
-      String status) {
+      AppointmentStatus status) {
     this.appointmentID = appointmentID;
     this.patientID = patientID;
     this.doctorID = doctorID;
@@ -55,16 +55,17 @@ public class Appointment {
    *
    * @param status the new status to be set for the appointment
    */
-  public void setStatus(String status) {
+  public void setStatus(AppointmentStatus status) {
     this.status = status;
+    markDirty();
   }
 
   /**
    * Retrieves the current status of the appointment.
    *
-   * @return the status of the appointment as a String
+   * @return the status of the appointment as an AppointmentStatus
    */
-  public String getStatus() {
+  public AppointmentStatus getStatus() {
     return status;
   }
 
@@ -75,6 +76,7 @@ public class Appointment {
    */
   public void setAppointmentID(String appointmentID) {
     this.appointmentID = appointmentID;
+    markDirty();
   }
 
   /**
@@ -102,6 +104,7 @@ public class Appointment {
    */
   public void setPatientID(String patientID) {
     this.patientID = patientID;
+    markDirty();
   }
 
   /**
@@ -120,6 +123,7 @@ public class Appointment {
    */
   public void setDoctorID(String doctorID) {
     this.doctorID = doctorID;
+    markDirty();
   }
 
   /**
@@ -138,6 +142,7 @@ public class Appointment {
    */
   public void setSession(int session) {
     this.session = session;
+    markDirty();
   }
 
   /**
@@ -156,6 +161,7 @@ public class Appointment {
    */
   public void setDate(LocalDate date) {
     this.date = date;
+    markDirty();
   }
 
   /**
@@ -177,7 +183,7 @@ public class Appointment {
       if (appointment.getDoctorID().equals(chosenSchedule.getDoctorID())
           && appointment.getDate().equals(chosenSchedule.getDate())
           && (appointment.getSession() == sessionIndex + 1)
-          && (appointment.getStatus().equalsIgnoreCase(AppointmentStatus.PENDING.name()))) {
+          && appointment.getStatus() == AppointmentStatus.PENDING) {
         return appointment;
       }
     }
@@ -199,8 +205,8 @@ public class Appointment {
     // Only fetch the confirmed and pending appointments for the patients
     for (Appointment appointment : appointments) {
       if (appointment.getPatientID().equals(patientID)
-          && !(appointment.getStatus().equals(AppointmentStatus.COMPLETED.name()))
-          && !(appointment.getStatus().equals(AppointmentStatus.CANCELLED.name()))) {
+          && appointment.getStatus() != AppointmentStatus.COMPLETED
+          && appointment.getStatus() != AppointmentStatus.CANCELLED) {
         filteredAppt.add(appointment);
       }
     }
@@ -229,19 +235,17 @@ public class Appointment {
   }
 
   /**
-   * Retrieves a list of confirmed appointments for a specific doctor.
+   * Retrieves a list of confirmed appointments for a specific doctor, using the doctor index of the
+   * appointment table.
    *
    * @param doctorID the ID of the doctor whose confirmed appointments are to be retrieved
-   * @param appointments the list of all available appointments to be filtered
    * @return a list of confirmed appointments for the given doctor ID
    */
-  public static ArrayList<Appointment> getConfirmedAppointmentsByDoctorID(
-      String doctorID, List<Appointment> appointments) {
+  public static ArrayList<Appointment> getConfirmedAppointmentsByDoctorID(String doctorID) {
     ArrayList<Appointment> filteredAppointments = new ArrayList<>();
 
-    for (Appointment appointment : appointments) {
-      if (appointment.getDoctorID().equals(doctorID)
-          && appointment.getStatus().equals(ScheduleStatus.CONFIRMED.name())) {
+    for (Appointment appointment : CsvDB.findAppointmentsByDoctorID(doctorID)) {
+      if (appointment.getStatus() == AppointmentStatus.CONFIRMED) {
         filteredAppointments.add(appointment);
       }
     }
@@ -249,22 +253,13 @@ public class Appointment {
   }
 
   /**
-   * Retrieves an appointment from the provided list based on the given appointment ID.
+   * Retrieves an appointment based on the given appointment ID.
    *
    * @param appointmentID the unique ID of the appointment to find
-   * @param appointments the list of appointments to search through
    * @return the appointment that matches the given ID, or null if not found
    */
-  public Appointment getAppointmentByAppointmentID(
-      String appointmentID, ArrayList<Appointment> appointments) {
-    Appointment found = null;
-    for (Appointment appt : appointments) {
-      if (appt.getAppointmentID().equals(appointmentID)) {
-        found = appt;
-        break;
-      }
-    }
-    return found;
+  public static Appointment getAppointmentByAppointmentID(String appointmentID) {
+    return CsvDB.getAppointmentRepository().findById(appointmentID);
   }
 
   /**
@@ -1,18 +1,20 @@
 package com.ntu.hms.model;
 
+import com.ntu.hms.enums.AppointmentOutcomeStatus;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Represents the outcome record of an appointment, including details such as the appointment ID,
  * type of service, consultation notes, prescriptions, and prescription status.
  */
-public class AppointmentOutcomeRecord {
+public class AppointmentOutcomeRecord extends TrackedModel {
   private String appointmentID;
   private String typeOfService;
   private String consultationNotes;
   private List<MedicationItem> prescriptions;
-  private String prescriptionStatus;
+  private AppointmentOutcomeStatus prescriptionStatus;
 
   /** Default constructor for creating an instance of AppointmentOutcomeRecord. */
   public AppointmentOutcomeRecord() {}
@@ -31,7 +33,7 @@ public class AppointmentOutcomeRecord {
       String typeOfService,
       String consultationNotes,
       List<MedicationItem> prescriptions,
-      String prescriptionStatus) {
+      AppointmentOutcomeStatus prescriptionStatus) {
     this.appointmentID = appointmentID;
     this.typeOfService = typeOfService;
     this.consultationNotes = consultationNotes;
@@ -55,6 +57,7 @@ public class AppointmentOutcomeRecord {
    */
   public void setAppointmentID(String appointmentID) {
     this.appointmentID = appointmentID;
+    markDirty();
   }
 
   /**
@@ -73,6 +76,7 @@ public class AppointmentOutcomeRecord {
    */
   public void setTypeOfService(String typeOfService) {
     this.typeOfService = typeOfService;
+    markDirty();
   }
 
   /**
@@ -91,15 +95,17 @@ public class AppointmentOutcomeRecord {
    */
   public void setConsultationNotes(String consultationNotes) {
     this.consultationNotes = consultationNotes;
+    markDirty();
   }
 
   /**
    * Retrieves the list of medications prescribed during the appointment.
    *
-   * @return a list of MedicationItem objects representing the prescriptions.
+   * @return a read-only list of MedicationItem objects representing the prescriptions; use {@link
+   *     #setPrescriptions(ArrayList)} to change them, so the record is saved
    */
   public List<MedicationItem> getPrescriptions() {
-    return this.prescriptions;
+    return prescriptions == null ? null : Collections.unmodifiableList(prescriptions);
   }
 
   /**
@@ -129,14 +135,15 @@ public class AppointmentOutcomeRecord {
    */
   public void setPrescriptions(ArrayList<MedicationItem> prescriptions) {
     this.prescriptions = prescriptions;
+    markDirty();
   }
 
   /**
    * Retrieves the status of the prescriptions associated with the appointment.
    *
-   * @return the prescription status as a String.
+   * @return the prescription status as an AppointmentOutcomeStatus.
    */
-  public String getPrescriptionStatus() {
+  public AppointmentOutcomeStatus getPrescriptionStatus() {
     return this.prescriptionStatus;
   }
 
@@ -145,8 +152,9 @@ public class AppointmentOutcomeRecord {
    *
    * @param prescriptionStatus the status of the prescriptions
    */
-  public void setPrescriptionStatus(String prescriptionStatus) {
+  public void setPrescriptionStatus(AppointmentOutcomeStatus prescriptionStatus) {
     this.prescriptionStatus = prescriptionStatus;
+    markDirty();
   }
 
   public static AppointmentOutcomeRecord findOutcomeByAppointmentID(
@@ -1,7 +1,7 @@
 package com.ntu.hms.model;
 
 /** Represents a medical diagnosis with associated appointment and patient information. */
-public class Diagnosis {
+public class Diagnosis extends TrackedModel {
   private String appointmentId;
   private String patientId;
   private String diagnosis;
@@ -33,6 +33,7 @@ public class Diagnosis {
    */
   public void setPatientId(String patientId) {
     this.patientId = patientId;
+    markDirty();
   }
 
   /**
@@ -51,6 +52,7 @@ public class Diagnosis {
    */
   public void setAppointmentId(String appointmentId) {
     this.appointmentId = appointmentId;
+    markDirty();
   }
 
   /**
@@ -69,6 +71,7 @@ public class Diagnosis {
    */
   public void setDiagnosis(String diagnosis) {
     this.diagnosis = diagnosis;
+    markDirty();
   }
 
   /**
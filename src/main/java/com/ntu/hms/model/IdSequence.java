@@ -0,0 +1,65 @@
+package com.ntu.hms.model;
+
+/**
+ * Represents the sequence the IDs of one type of entity are drawn from, such as appointments or
+ * replenishment requests, holding the next number not yet handed out.
+ */
+public class IdSequence extends TrackedModel {
+  private String name;
+  private int nextValue;
+
+  /**
+   * Default constructor for the IdSequence class. Initializes a new instance of the IdSequence
+   * class with default values.
+   */
+  public IdSequence() {}
+
+  /**
+   * Initializes a new instance of the IdSequence class with the specified name and next value.
+   *
+   * @param name The name of the sequence, such as "Appointment".
+   * @param nextValue The next number of the sequence not yet handed out.
+   */
+  public IdSequence(String name, int nextValue) {
+    this.name = name;
+    this.nextValue = nextValue;
+  }
+
+  /**
+   * Retrieves the name of the sequence.
+   *
+   * @return The name of the sequence.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Retrieves the next number of the sequence not yet handed out.
+   *
+   * @return The next value of the sequence.
+   */
+  public int getNextValue() {
+    return nextValue;
+  }
+
+  /**
+   * Sets the next number of the sequence not yet handed out.
+   *
+   * @param nextValue The next value of the sequence.
+   */
+  public void setNextValue(int nextValue) {
+    this.nextValue = nextValue;
+    markDirty();
+  }
+
+  /**
+   * Returns a string representation of the IdSequence object. The format is "name,nextValue".
+   *
+   * @return A string consisting of the name and next value of the sequence, separated by a comma.
+   */
+  @Override
+  public String toString() {
+    return String.format("%s,%d", getName(), getNextValue());
+  }
+}
@@ -0,0 +1,61 @@
+package com.ntu.hms.model;
+
+/**
+ * Represents one entry of a patient's medical record: the diagnosis and treatment given in an
+ * appointment, together with the outcome record holding its prescriptions, if there is one.
+ */
+public class MedicalRecordEntry {
+  private final Diagnosis diagnosis;
+  private final Treatment treatment;
+  private final AppointmentOutcomeRecord outcome;
+
+  /**
+   * Constructs a new MedicalRecordEntry for the specified diagnosis, treatment and outcome.
+   *
+   * @param diagnosis the diagnosis made in the appointment
+   * @param treatment the treatment given in the same appointment
+   * @param outcome the outcome record of the appointment, or null if there is none
+   */
+  public MedicalRecordEntry(
+      Diagnosis diagnosis, Treatment treatment, AppointmentOutcomeRecord outcome) {
+    this.diagnosis = diagnosis;
+    this.treatment = treatment;
+    this.outcome = outcome;
+  }
+
+  /**
+   * Retrieves the ID of the appointment the entry was recorded in.
+   *
+   * @return the appointment ID
+   */
+  public String getAppointmentID() {
+    return diagnosis.getAppointmentId();
+  }
+
+  /**
+   * Retrieves the diagnosis made in the appointment.
+   *
+   * @return the diagnosis
+   */
+  public Diagnosis getDiagnosis() {
+    return diagnosis;
+  }
+
+  /**
+   * Retrieves the treatment given in the appointment.
+   *
+   * @return the treatment
+   */
+  public Treatment getTreatment() {
+    return treatment;
+  }
+
+  /**
+   * Retrieves the outcome record of the appointment.
+   *
+   * @return the outcome record, or null if there is none
+   */
+  public AppointmentOutcomeRecord getOutcome() {
+    return outcome;
+  }
+}
@@ -1,10 +1,12 @@
 package com.ntu.hms.model;
 
+import com.ntu.hms.enums.MedicationStatus;
+
 /** Represents a medication with its details and inventory status. */
-public class Medication {
+public class Medication extends TrackedModel {
   private String medicationID;
   private String medicationName;
-  private String stockStatus;
+  private MedicationStatus stockStatus;
   private boolean alert;
   private int totalQuantity;
 
@@ -27,7 +29,7 @@ public class Medication {
   public Medication(
       String medicationID,
       String medicationName,
-      String stockStatus,
+      MedicationStatus stockStatus,
       boolean alert,
       int totalQuantity) {
     this.medicationID = medicationID;
@@ -53,6 +55,7 @@ public class Medication {
    */
   public void setMedicationID(String medicationID) {
     this.medicationID = medicationID;
+    markDirty();
   }
 
   /**
@@ -71,14 +74,15 @@ public class Medication {
    */
   public void setMedicationName(String medicationName) {
     this.medicationName = medicationName;
+    markDirty();
   }
 
   /**
    * Retrieves the current stock status of the medication.
    *
-   * @return the stock status as a String.
+   * @return the stock status as a MedicationStatus.
    */
-  public String getStockStatus() {
+  public MedicationStatus getStockStatus() {
     return this.stockStatus;
   }
 
@@ -87,8 +91,9 @@ public class Medication {
    *
    * @param stockStatus The current stock status of the medication (e.g., LOW, MEDIUM, HIGH).
    */
-  public void setStockStatus(String stockStatus) {
+  public void setStockStatus(MedicationStatus stockStatus) {
     this.stockStatus = stockStatus;
+    markDirty();
   }
 
   /**
@@ -108,6 +113,7 @@ public class Medication {
    */
   public void setAlert(boolean alert) {
     this.alert = alert;
+    markDirty();
   }
 
   /**
@@ -126,6 +132,7 @@ public class Medication {
    */
   public void setTotalQuantity(int totalQuantity) {
     this.totalQuantity = totalQuantity;
+    markDirty();
   }
 
   /**
@@ -1,5 +1,7 @@
 package com.ntu.hms.model;
 
+import com.ntu.hms.enums.ReplenishmentStatus;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -7,10 +9,10 @@ import java.util.List;
  * request such as the request ID, the batch of medications to be replenished, the status of the
  * request, and the ID of the pharmacist who created the request.
  */
-public class ReplenishmentRequest {
+public class ReplenishmentRequest extends TrackedModel {
   private String requestID;
   private List<MedicationItem> medicationBatch;
-  private String status;
+  private ReplenishmentStatus status;
   private String pharmacistID;
 
   /** Default constructor required for OpenCSV to instantiate object. */
@@ -25,7 +27,10 @@ public class ReplenishmentRequest {
    * @param pharmacistID The identifier of the pharmacist who created the request.
    */
   public ReplenishmentRequest(
-      String requestID, List<MedicationItem> medicationBatch, String status, String pharmacistID) {
+      String requestID,
+      List<MedicationItem> medicationBatch,
+      ReplenishmentStatus status,
+      String pharmacistID) {
     this.requestID = requestID;
     this.medicationBatch = medicationBatch;
     this.status = status;
@@ -48,16 +53,17 @@ public class ReplenishmentRequest {
    */
   public void setRequestID(String requestID) {
     this.requestID = requestID;
+    markDirty();
   }
 
   /**
    * Retrieves the batch of medications required for the replenishment request.
    *
-   * @return a list of MedicationItem objects that represents the batch of medications to be
-   *     replenished.
+   * @return a read-only list of MedicationItem objects that represents the batch of medications to
+   *     be replenished.
    */
   public List<MedicationItem> getMedicationBatch() {
-    return this.medicationBatch;
+    return medicationBatch == null ? null : Collections.unmodifiableList(medicationBatch);
   }
 
   /**
@@ -65,7 +71,7 @@ public class ReplenishmentRequest {
    *
    * @return the current status of the replenishment request.
    */
-  public String getStatus() {
+  public ReplenishmentStatus getStatus() {
     return this.status;
   }
 
@@ -74,8 +80,9 @@ public class ReplenishmentRequest {
    *
    * @param status the current status of the replenishment request.
    */
-  public void setStatus(String status) {
+  public void setStatus(ReplenishmentStatus status) {
     this.status = status;
+    markDirty();
   }
 
   /**
@@ -1,14 +1,42 @@
 package com.ntu.hms.model;
 
 import com.ntu.hms.enums.ScheduleStatus;
+import com.ntu.hms.util.IdInterner;
 import java.time.LocalDate;
 
-/** Represents a schedule for a doctor, including their ID, date, and session statuses. */
-public class Schedule {
+/**
+ * Represents a schedule for a doctor, including their ID, date, and session statuses.
+ *
+ * <p>Each session is "Available", "Unavailable", or booked by a patient as "P0001-PENDING". Rather
+ * than a String per session, the schedule keeps one bitmask per status, with a bit per session, and
+ * an int reference to the patient ID of each booked session, interned across all schedules. Finding
+ * the sessions with a given status is then a bit operation. Session text that does not follow these
+ * forms is kept as is, so a schedule always converts back to the text it was created from.
+ *
+ * <p>The instances held by the schedule table are shared by every terminal session of a server, so
+ * the methods reading or changing them are synchronized, and the masks are never seen half updated.
+ */
+public class Schedule extends TrackedModel {
+  /** The number of sessions in a day. */
+  public static final int SESSION_COUNT = 8;
+
+  private static final int MAX_SESSION_COUNT = Integer.SIZE;
+  private static final String AVAILABLE = "Available";
+  private static final String UNAVAILABLE = "Unavailable";
+  private static final char STATUS_SEPARATOR = '-';
+  private static final IdInterner PATIENT_IDS = new IdInterner();
+
   private String doctorID;
   private LocalDate date;
-  private String[] session = new String[8];
+  private int sessionCount = SESSION_COUNT;
+  private int availableSessions;
+  private int pendingSessions;
+  private int confirmedSessions;
+  private int cancelledSessions;
+  private int[] patientReferences; // Allocated when a session is first booked
+  private String[] customSessions; // Allocated when a session does not follow the known forms
 
+  /** Constructs a Schedule with {@value #SESSION_COUNT} unavailable sessions. */
   public Schedule() {}
 
   /**
@@ -21,7 +49,7 @@ public class Schedule {
   public Schedule(String doctorID, LocalDate date, String[] session) {
     this.doctorID = doctorID;
     this.date = date;
-    this.session = session;
+    setSession(session);
   }
 
   /**
@@ -29,7 +57,7 @@ public class Schedule {
    *
    * @return the doctor's unique identifier as a String.
    */
-  public String getDoctorID() {
+  public synchronized String getDoctorID() {
     return this.doctorID;
   }
 
@@ -38,8 +66,9 @@ public class Schedule {
    *
    * @param doctorID the unique identifier of the doctor
    */
-  public void setDoctorID(String doctorID) {
+  public synchronized void setDoctorID(String doctorID) {
     this.doctorID = doctorID;
+    markDirty();
   }
 
   /**
@@ -47,7 +76,7 @@ public class Schedule {
    *
    * @return the date of the schedule as a LocalDate.
    */
-  public LocalDate getDate() {
+  public synchronized LocalDate getDate() {
     return this.date;
   }
 
@@ -56,26 +85,172 @@ public class Schedule {
    *
    * @param date The date to be set for the schedule.
    */
-  public void setDate(LocalDate date) {
+  public synchronized void setDate(LocalDate date) {
     this.date = date;
+    markDirty();
   }
 
   /**
-   * Retrieves the session statuses for the schedule.
+   * Retrieves the session statuses for the schedule. The array is built on each call, so changes
+   * made to it are not reflected in the schedule; use {@link #setSession(String[])} or the session
+   * methods instead.
    *
-   * @return an array of Strings representing the session statuses.
+   * @return a new array of Strings representing the session statuses.
    */
-  public String[] getSession() {
-    return this.session;
+  public synchronized String[] getSession() {
+    String[] session = new String[sessionCount];
+    for (int i = 0; i < sessionCount; i++) {
+      session[i] = getSessionInfo(i);
+    }
+    return session;
   }
 
   /**
    * Sets the session statuses for the schedule.
    *
    * @param session An array of Strings representing the session statuses.
+   * @throws IllegalArgumentException if the array holds more than 32 sessions.
+   */
+  public synchronized void setSession(String[] session) {
+    if (session.length > MAX_SESSION_COUNT) {
+      throw new IllegalArgumentException("A schedule holds at most 32 sessions.");
+    }
+
+    sessionCount = session.length;
+    availableSessions = 0;
+    pendingSessions = 0;
+    confirmedSessions = 0;
+    cancelledSessions = 0;
+    patientReferences = null;
+    customSessions = null;
+    markDirty();
+    for (int i = 0; i < session.length; i++) {
+      parseSession(i, session[i]);
+    }
+  }
+
+  /**
+   * Retrieves the number of sessions in the schedule.
+   *
+   * @return the number of sessions.
+   */
+  public synchronized int getSessionCount() {
+    return sessionCount;
+  }
+
+  /**
+   * Retrieves the status text of the session at the given index, as stored in the CSV file, such as
+   * "Available" or "P0001-PENDING".
+   *
+   * @param sessionIndex the index of the session.
+   * @return the status text of the session.
+   * @throws IndexOutOfBoundsException if the index is out of range.
+   */
+  public synchronized String getSessionInfo(int sessionIndex) {
+    int bit = bit(sessionIndex);
+    if (customSessions != null && customSessions[sessionIndex] != null) {
+      return customSessions[sessionIndex];
+    }
+    if ((availableSessions & bit) != 0) {
+      return AVAILABLE;
+    }
+    ScheduleStatus status = getBookedStatus(bit);
+    if (status != null) {
+      return PATIENT_IDS.lookup(patientReferences[sessionIndex]) + STATUS_SEPARATOR + status.name();
+    }
+    return UNAVAILABLE;
+  }
+
+  /**
+   * Checks whether the session at the given index is "Available".
+   *
+   * @param sessionIndex the index of the session.
+   * @return true if the session is available, false otherwise.
+   */
+  public synchronized boolean isSessionAvailable(int sessionIndex) {
+    return (availableSessions & bit(sessionIndex)) != 0;
+  }
+
+  /**
+   * Checks whether the session at the given index is "Unavailable".
+   *
+   * @param sessionIndex the index of the session.
+   * @return true if the session is unavailable, false otherwise.
+   */
+  public synchronized boolean isSessionUnavailable(int sessionIndex) {
+    int bit = bit(sessionIndex);
+    int sessions = availableSessions | pendingSessions | confirmedSessions | cancelledSessions;
+    return (sessions & bit) == 0
+        && (customSessions == null || customSessions[sessionIndex] == null);
+  }
+
+  /**
+   * Checks whether any session of the schedule is "Available".
+   *
+   * @return true if at least one session is available, false otherwise.
+   */
+  public synchronized boolean hasAvailableSession() {
+    return availableSessions != 0;
+  }
+
+  /**
+   * Retrieves the sessions booked with the given status, as a bitmask in which bit {@code i} is set
+   * if session {@code i} has that status.
+   *
+   * @param status the status of the sessions.
+   * @return the bitmask of the sessions with that status.
+   */
+  public synchronized int getSessionsWithStatus(ScheduleStatus status) {
+    switch (status) {
+      case PENDING:
+        return pendingSessions;
+      case CONFIRMED:
+        return confirmedSessions;
+      case CANCELLED:
+        return cancelledSessions;
+      default:
+        throw new IllegalArgumentException("Unknown schedule status: " + status);
+    }
+  }
+
+  /**
+   * Checks whether the session at the given index is booked with the given status.
+   *
+   * @param sessionIndex the index of the session.
+   * @param status the status to check for.
+   * @return true if the session is booked with that status, false otherwise.
    */
-  public void setSession(String[] session) {
-    this.session = session;
+  public synchronized boolean hasSessionStatus(int sessionIndex, ScheduleStatus status) {
+    return (getSessionsWithStatus(status) & bit(sessionIndex)) != 0;
+  }
+
+  /**
+   * Marks the session at the given index as "Available", releasing any booking.
+   *
+   * @param sessionIndex the index of the session.
+   */
+  public synchronized void setSessionAvailable(int sessionIndex) {
+    int bit = clearSession(sessionIndex);
+    availableSessions |= bit;
+  }
+
+  /**
+   * Marks the session at the given index as "Unavailable", releasing any booking.
+   *
+   * @param sessionIndex the index of the session.
+   */
+  public synchronized void setSessionUnavailable(int sessionIndex) {
+    clearSession(sessionIndex);
+  }
+
+  /**
+   * Books the session at the given index for a patient, pending the doctor's confirmation.
+   *
+   * @param sessionIndex the index of the session.
+   * @param patientID the ID of the patient booking the session.
+   */
+  public synchronized void bookSession(int sessionIndex, String patientID) {
+    bookSession(sessionIndex, patientID, ScheduleStatus.PENDING);
   }
 
   /**
@@ -88,11 +263,11 @@ public class Schedule {
    *     "Available"
    */
   public static Schedule createDefaultSchedule(String doctorID, LocalDate date) {
-    String[] defaultSessions = new String[8];
-    for (int i = 0; i < defaultSessions.length; i++) {
-      defaultSessions[i] = "Available"; // Set all sessions as available by default
-    }
-    return new Schedule(doctorID, date, defaultSessions);
+    Schedule schedule = new Schedule();
+    schedule.setDoctorID(doctorID);
+    schedule.setDate(date);
+    schedule.availableSessions = (1 << SESSION_COUNT) - 1; // Set all sessions as available
+    return schedule;
   }
 
   /**
@@ -104,8 +279,14 @@ public class Schedule {
    *     determined.
    */
   // Helper Methods to Handle Session Status and com.ntu.hms.users.Patient ID
-  public String getSessionStatus(int sessionIndex) {
-    String sessionInfo = this.session[sessionIndex];
+  public synchronized String getSessionStatus(int sessionIndex) {
+    int bit = bit(sessionIndex);
+    ScheduleStatus status = getBookedStatus(bit);
+    if (status != null) {
+      return status.name();
+    }
+
+    String sessionInfo = getSessionInfo(sessionIndex);
     if (sessionInfo.equalsIgnoreCase("Available") || sessionInfo.equalsIgnoreCase("Unavailable")) {
       return sessionInfo;
     }
@@ -119,8 +300,12 @@ public class Schedule {
    * @param sessionIndex the index of the session from which to retrieve the patient ID
    * @return the patient ID as a String if available, otherwise returns null
    */
-  public String getPatientIdFromSession(int sessionIndex) {
-    String sessionInfo = this.session[sessionIndex];
+  public synchronized String getPatientIdFromSession(int sessionIndex) {
+    if (getBookedStatus(bit(sessionIndex)) != null) {
+      return PATIENT_IDS.lookup(patientReferences[sessionIndex]);
+    }
+
+    String sessionInfo = getSessionInfo(sessionIndex);
     if (sessionInfo.contains("-")) {
       return sessionInfo.split("-")[0];
     }
@@ -135,12 +320,12 @@ public class Schedule {
    * @param sessionIndex the index of the session to update
    * @param status the new status for the session
    */
-  public void setSessionStatus(int sessionIndex, String status) {
+  public synchronized void setSessionStatus(int sessionIndex, String status) {
     String patientId = getPatientIdFromSession(sessionIndex);
     if (patientId != null) {
-      this.session[sessionIndex] = patientId + "-" + status;
+      parseSession(sessionIndex, patientId + STATUS_SEPARATOR + status);
     } else if (status.equals("Available")) {
-      this.session[sessionIndex] = "Available";
+      setSessionAvailable(sessionIndex);
     }
   }
 
@@ -149,7 +334,7 @@ public class Schedule {
    *
    * @param sessionIndex the index of the session to be accepted.
    */
-  public void acceptAppointment(int sessionIndex) {
+  public synchronized void acceptAppointment(int sessionIndex) {
     setSessionStatus(sessionIndex, ScheduleStatus.CONFIRMED.name());
   }
 
@@ -158,8 +343,88 @@ public class Schedule {
    *
    * @param sessionIndex the index of the session to update
    */
-  public void declineAppointment(int sessionIndex) {
-    // add logic here
-    this.session[sessionIndex] = "Available";
+  public synchronized void declineAppointment(int sessionIndex) {
+    setSessionAvailable(sessionIndex);
+  }
+
+  /** Sets the session at the given index from its status text. */
+  private void parseSession(int sessionIndex, String sessionInfo) {
+    if (AVAILABLE.equals(sessionInfo)) {
+      setSessionAvailable(sessionIndex);
+      return;
+    }
+    if (UNAVAILABLE.equals(sessionInfo)) {
+      setSessionUnavailable(sessionIndex);
+      return;
+    }
+
+    int separator = sessionInfo == null ? -1 : sessionInfo.indexOf(STATUS_SEPARATOR);
+    if (separator > 0 && sessionInfo.indexOf(STATUS_SEPARATOR, separator + 1) < 0) {
+      String statusName = sessionInfo.substring(separator + 1);
+      for (ScheduleStatus status : ScheduleStatus.values()) {
+        if (status.name().equals(statusName)) {
+          bookSession(sessionIndex, sessionInfo.substring(0, separator), status);
+          return;
+        }
+      }
+    }
+
+    clearSession(sessionIndex);
+    if (customSessions == null) {
+      customSessions = new String[sessionCount];
+    }
+    customSessions[sessionIndex] = sessionInfo;
+  }
+
+  private void bookSession(int sessionIndex, String patientID, ScheduleStatus status) {
+    int bit = clearSession(sessionIndex);
+    if (patientReferences == null) {
+      patientReferences = new int[sessionCount];
+    }
+    patientReferences[sessionIndex] = PATIENT_IDS.intern(patientID);
+    switch (status) {
+      case PENDING:
+        pendingSessions |= bit;
+        break;
+      case CONFIRMED:
+        confirmedSessions |= bit;
+        break;
+      default:
+        cancelledSessions |= bit;
+    }
+  }
+
+  /** Clears every status of the session at the given index and returns its bit. */
+  private int clearSession(int sessionIndex) {
+    markDirty();
+    int bit = bit(sessionIndex);
+    availableSessions &= ~bit;
+    pendingSessions &= ~bit;
+    confirmedSessions &= ~bit;
+    cancelledSessions &= ~bit;
+    if (customSessions != null) {
+      customSessions[sessionIndex] = null;
+    }
+    return bit;
+  }
+
+  private ScheduleStatus getBookedStatus(int bit) {
+    if ((pendingSessions & bit) != 0) {
+      return ScheduleStatus.PENDING;
+    }
+    if ((confirmedSessions & bit) != 0) {
+      return ScheduleStatus.CONFIRMED;
+    }
+    if ((cancelledSessions & bit) != 0) {
+      return ScheduleStatus.CANCELLED;
+    }
+    return null;
+  }
+
+  private int bit(int sessionIndex) {
+    if (sessionIndex < 0 || sessionIndex >= sessionCount) {
+      throw new IndexOutOfBoundsException("Session index out of range: " + sessionIndex);
+    }
+    return 1 << sessionIndex;
   }
 }
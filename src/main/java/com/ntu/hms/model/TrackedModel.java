@@ -0,0 +1,61 @@
+package com.ntu.hms.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base class of the models stored in a table, tracking whether a model was changed since it was
+ * last loaded or saved. Setters mark the model as dirty, and the table marks it as clean once it
+ * has been read from disk or its changes have been staged. Saving a list lets the table skip
+ * encoding the models that are neither dirty nor new, so a save that changes nothing costs a pass
+ * over the list rather than a pass over every field of every row.
+ *
+ * <p>The flag is transient and never written to the CSV files. Models holding nested mutable
+ * values, such as lists of {@link MedicationItem}s, must be marked dirty by hand, or have the value
+ * set again, when only the nested value is changed. Since a model changed by one terminal session
+ * of a server may be saved by another, the flag is kept as a count of changes: the table takes the
+ * count before encoding a model and marks it clean up to that count, so a change made while the
+ * model is being saved keeps it dirty.
+ */
+public abstract class TrackedModel {
+  private final transient AtomicInteger changeCount = new AtomicInteger(1); // Not persisted yet
+  private transient volatile int cleanChangeCount;
+
+  /**
+   * Checks whether the model was changed since it was last loaded or saved.
+   *
+   * @return true if the model is dirty, false otherwise
+   */
+  public boolean isDirty() {
+    return changeCount.get() != cleanChangeCount;
+  }
+
+  /** Marks the model as changed, so the next save of its table persists it. */
+  public void markDirty() {
+    changeCount.incrementAndGet();
+  }
+
+  /**
+   * Retrieves the number of changes made to the model so far, to be passed to {@link
+   * #markClean(int)} once the model as it is now has been saved.
+   *
+   * @return the change count of the model
+   */
+  public int getChangeCount() {
+    return changeCount.get();
+  }
+
+  /** Marks the model as persisted. Called by the table once the model has been loaded. */
+  public void markClean() {
+    cleanChangeCount = changeCount.get();
+  }
+
+  /**
+   * Marks the model as persisted up to the specified change. Called by the table once the model has
+   * been saved; a change made since the count was taken keeps the model dirty.
+   *
+   * @param savedChangeCount the change count of the model taken before it was encoded
+   */
+  public void markClean(int savedChangeCount) {
+    cleanChangeCount = savedChangeCount;
+  }
+}
@@ -1,7 +1,7 @@
 package com.ntu.hms.model;
 
 /** Represents a treatment for a patient within a medical appointment system. */
-public class Treatment {
+public class Treatment extends TrackedModel {
   String appointmentID;
   String patientID;
   String treatment;
@@ -33,6 +33,7 @@ public class Treatment {
    */
   public void setPatientID(String patientID) {
     this.patientID = patientID;
+    markDirty();
   }
 
   /**
@@ -51,6 +52,7 @@ public class Treatment {
    */
   public void setAppointmentID(String appointmentID) {
     this.appointmentID = appointmentID;
+    markDirty();
   }
 
   /**
@@ -69,6 +71,7 @@ public class Treatment {
    */
   public void setTreatment(String treatment) {
     this.treatment = treatment;
+    markDirty();
   }
 
   /**
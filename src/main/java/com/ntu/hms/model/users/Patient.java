@@ -87,6 +87,7 @@ public class Patient extends User implements InfoUpdater {
    */
   public void setDateOfBirth(String dateOfBirth) {
     this.dateOfBirth = dateOfBirth;
+    markDirty();
   }
 
   /**
@@ -105,6 +106,7 @@ public class Patient extends User implements InfoUpdater {
    */
   public void setPhoneNumber(String phoneNumber) {
     this.phoneNumber = phoneNumber;
+    markDirty();
   }
 
   /**
@@ -123,6 +125,7 @@ public class Patient extends User implements InfoUpdater {
    */
   public void setEmail(String email) {
     this.email = email;
+    markDirty();
   }
 
   /**
@@ -141,6 +144,7 @@ public class Patient extends User implements InfoUpdater {
    */
   public void setBloodType(String bloodType) {
     this.bloodType = bloodType;
+    markDirty();
   }
 
   /**
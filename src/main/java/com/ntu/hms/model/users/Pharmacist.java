@@ -1,7 +1,7 @@
 package com.ntu.hms.model.users;
 
 import static com.ntu.hms.MenuDisplayer.displayPharmacistMenu;
-import static com.ntu.hms.enums.ReplenishmentStatus.PENDING;
+import static com.ntu.hms.enums.AppointmentOutcomeStatus.PENDING;
 
 import com.ntu.hms.CsvDB;
 import com.ntu.hms.PharmacistInterface;
@@ -12,6 +12,7 @@ import com.ntu.hms.manager.inventory.InventoryManager;
 import com.ntu.hms.model.AppointmentOutcomeRecord;
 import com.ntu.hms.model.Medication;
 import com.ntu.hms.model.MedicationItem;
+import com.ntu.hms.storage.Cursor;
 import com.ntu.hms.util.ScannerWrapper;
 import java.util.ArrayList;
 import java.util.List;
@@ -83,9 +84,6 @@ public class Pharmacist extends User implements PharmacistInterface {
    */
   @Override
   public void prescribeAndUpdate() {
-    List<AppointmentOutcomeRecord> appointmentOutcomeRecords =
-        CsvDB.readAppointmentOutcomeRecords();
-    List<Medication> medications = CsvDB.readMedications();
     boolean continueDispensing = true;
 
     while (continueDispensing) {
@@ -93,16 +91,20 @@ public class Pharmacist extends User implements PharmacistInterface {
       System.out.println("\n=== Pending Appointment Outcome Records ===");
       ArrayList<AppointmentOutcomeRecord> pendingRecords = new ArrayList<>();
       int index = 1;
-      for (AppointmentOutcomeRecord record : appointmentOutcomeRecords) {
-        if (record.getPrescriptionStatus().equalsIgnoreCase(PENDING.name())
-            && record.getPrescriptions() != null
-            && !record.getPrescriptions().isEmpty()) {
-          System.out.printf(
-              "%d. Appointment ID: %s, Prescription: %s\n",
-              index, record.getAppointmentID(), record.getPrescriptions());
-          pendingRecords.add(record);
-          index++;
-        }
+      Cursor<AppointmentOutcomeRecord> records =
+          CsvDB.getAppointmentOutcomeRecordRepository()
+              .scan(
+                  record ->
+                      record.getPrescriptionStatus() == PENDING
+                          && record.getPrescriptions() != null
+                          && !record.getPrescriptions().isEmpty());
+      while (records.hasNext()) {
+        AppointmentOutcomeRecord record = records.next();
+        System.out.printf(
+            "%d. Appointment ID: %s, Prescription: %s\n",
+            index, record.getAppointmentID(), record.getPrescriptions());
+        pendingRecords.add(record);
+        index++;
       }
 
       // If no pending records are available, inform the user and exit
@@ -133,66 +135,82 @@ public class Pharmacist extends User implements PharmacistInterface {
         }
 
         // Get the selected record
-        AppointmentOutcomeRecord selectedRecord = pendingRecords.get(choice - 1);
-        List<MedicationItem> prescribedItems = selectedRecord.getPrescriptions();
-        boolean sufficientStock = true;
-
-        // Check if there is sufficient stock for all prescribed medications for this
-        // appointment outcome
-        for (MedicationItem item : prescribedItems) {
-          for (Medication medication : medications) {
-            if (medication.getMedicationID().equals(item.getMedicationID())) {
-              if (medication.getTotalQuantity() < item.getQuantity()) {
-                System.out.printf(
-                    "Insufficient stock for Medication ID: %s. Available: %d, Required: %d\n",
-                    medication.getMedicationID(),
-                    medication.getTotalQuantity(),
-                    item.getQuantity());
-                sufficientStock = false;
-                break;
+        String appointmentID = pendingRecords.get(choice - 1).getAppointmentID();
+        String[] shortage = new String[1];
+        boolean[] pending = new boolean[1];
+
+        // Check the stock and take the medications out of it in one transaction, so no other
+        // terminal can dispense the same units, or the same record, in between
+        CsvDB.transaction(
+            () -> {
+              List<AppointmentOutcomeRecord> appointmentOutcomeRecords =
+                  CsvDB.readAppointmentOutcomeRecords();
+              List<Medication> medications = CsvDB.readMedications();
+              AppointmentOutcomeRecord selectedRecord =
+                  CsvDB.getAppointmentOutcomeRecordRepository().findById(appointmentID);
+              pending[0] =
+                  selectedRecord != null && selectedRecord.getPrescriptionStatus() == PENDING;
+              if (!pending[0]) {
+                return;
               }
-            }
-          }
-          if (!sufficientStock) {
-            break;
-          }
-        }
+              List<MedicationItem> prescribedItems = selectedRecord.getPrescriptions();
 
-        // If sufficient stock for this appointment outcome, proceed with dispensing
-        if (sufficientStock) {
-          selectedRecord.setPrescriptionStatus(AppointmentOutcomeStatus.DISPENSED.name());
-          // Update inventory for each prescribed medication
-          for (MedicationItem item : prescribedItems) {
-            for (Medication medication : medications) {
-              if (medication.getMedicationID().equals(item.getMedicationID())) {
-                int newQuantity = medication.getTotalQuantity() - item.getQuantity();
-                boolean alert = false;
-                String stockStatus = MedicationStatus.HIGH.name();
-                if (newQuantity < 10) {
-                  stockStatus = MedicationStatus.LOW.name();
-                  alert = true;
-                } else if (newQuantity <= 50) {
-                  stockStatus = MedicationStatus.MEDIUM.name();
+              // Check if there is sufficient stock for all prescribed medications for this
+              // appointment outcome
+              for (MedicationItem item : prescribedItems) {
+                for (Medication medication : medications) {
+                  if (medication.getMedicationID().equals(item.getMedicationID())
+                      && medication.getTotalQuantity() < item.getQuantity()) {
+                    shortage[0] =
+                        String.format(
+                            "Insufficient stock for Medication ID: %s. Available: %d, Required: %d",
+                            medication.getMedicationID(),
+                            medication.getTotalQuantity(),
+                            item.getQuantity());
+                    return;
+                  }
                 }
-                inventoryManager.updateInventory(medication, stockStatus, alert, newQuantity);
               }
-            }
-          }
+
+              // Sufficient stock for this appointment outcome, so proceed with dispensing
+              selectedRecord.setPrescriptionStatus(AppointmentOutcomeStatus.DISPENSED);
+              // Update inventory for each prescribed medication
+              for (MedicationItem item : prescribedItems) {
+                for (Medication medication : medications) {
+                  if (medication.getMedicationID().equals(item.getMedicationID())) {
+                    int newQuantity = medication.getTotalQuantity() - item.getQuantity();
+                    boolean alert = false;
+                    MedicationStatus stockStatus = MedicationStatus.HIGH;
+                    if (newQuantity < 10) {
+                      stockStatus = MedicationStatus.LOW;
+                      alert = true;
+                    } else if (newQuantity <= 50) {
+                      stockStatus = MedicationStatus.MEDIUM;
+                    }
+                    inventoryManager.updateInventory(medication, stockStatus, alert, newQuantity);
+                  }
+                }
+              }
+
+              // Save the updated appointment outcome records and inventory together
+              CsvDB.saveAppointmentOutcomeRecords(appointmentOutcomeRecords);
+              CsvDB.saveMedications(medications);
+            });
+
+        if (!pending[0]) {
           System.out.println(
-              "Appointment Outcome ID: "
-                  + selectedRecord.getAppointmentID()
-                  + " has been dispensed successfully.");
-        } else {
+              "Appointment Outcome ID: " + appointmentID + " was just dispensed by someone else.");
+        } else if (shortage[0] != null) {
+          System.out.println(shortage[0]);
           System.out.println(
               "Appointment Outcome ID: "
-                  + selectedRecord.getAppointmentID()
+                  + appointmentID
                   + " could not be dispensed due to insufficient stock.");
+        } else {
+          System.out.println(
+              "Appointment Outcome ID: " + appointmentID + " has been dispensed successfully.");
         }
 
-        // Save the updated appointment outcome records and inventory
-        CsvDB.saveAppointmentOutcomeRecords(appointmentOutcomeRecords);
-        CsvDB.saveMedications(medications);
-
       } catch (NumberFormatException e) {
         System.out.println("Invalid input. Please enter a valid number.");
       }
@@ -1,11 +1,13 @@
 package com.ntu.hms.model.users;
 
+import com.ntu.hms.model.TrackedModel;
+
 /**
  * Represents an abstract user in the hospital management system with basic attributes such as
  * hospital ID, password, name, age, and gender. Subclasses of User must implement the displayMenu
  * method to provide specific menu options.
  */
-public abstract class User {
+public abstract class User extends TrackedModel {
   private String hospitalID;
   private String password;
   private String name;
@@ -51,6 +53,7 @@ public abstract class User {
    */
   public void setHospitalID(String hospitalID) {
     this.hospitalID = hospitalID;
+    markDirty();
   }
 
   /**
@@ -69,6 +72,7 @@ public abstract class User {
    */
   public void setPassword(String password) {
     this.password = password;
+    markDirty();
   }
 
   /**
@@ -87,6 +91,7 @@ public abstract class User {
    */
   public void setName(String name) {
     this.name = name;
+    markDirty();
   }
 
   /**
@@ -105,6 +110,7 @@ public abstract class User {
    */
   public void setAge(int age) {
     this.age = age;
+    markDirty();
   }
 
   /**
@@ -123,6 +129,7 @@ public abstract class User {
    */
   public void setGender(String Gender) {
     this.gender = Gender;
+    markDirty();
   }
 
   /**
@@ -0,0 +1,57 @@
+package com.ntu.hms.server;
+
+import com.ntu.hms.util.ScannerWrapper;
+import java.util.Scanner;
+
+/**
+ * The ScannerWrapper shared by the managers and models, which reads from the terminal of the {@link
+ * TerminalSession} served by the calling thread, and from the console otherwise. Since every
+ * component holds the same instance, the existing flows serve many terminals at once without being
+ * built once per session.
+ */
+public class SessionScannerWrapper extends ScannerWrapper {
+
+  /**
+   * Constructs a new SessionScannerWrapper reading from the provided console Scanner outside of a
+   * session.
+   *
+   * @param consoleScanner the Scanner reading the console
+   */
+  public SessionScannerWrapper(Scanner consoleScanner) {
+    super(consoleScanner);
+  }
+
+  /**
+   * Checks whether the calling thread serves a terminal session, in which case this scanner reads
+   * the terminal rather than the console.
+   *
+   * @return true if the calling thread runs a terminal session, false otherwise
+   */
+  public boolean isServingSession() {
+    return TerminalSession.current() != null;
+  }
+
+  @Override
+  public String next() {
+    TerminalSession session = TerminalSession.current();
+    return session == null ? super.next() : session.getScanner().next();
+  }
+
+  @Override
+  public String nextLine() {
+    TerminalSession session = TerminalSession.current();
+    return session == null ? super.nextLine() : session.getScanner().nextLine();
+  }
+
+  @Override
+  public int nextInt() {
+    TerminalSession session = TerminalSession.current();
+    return session == null ? super.nextInt() : session.getScanner().nextInt();
+  }
+
+  @Override
+  public boolean hasNextInt() {
+    TerminalSession session = TerminalSession.current();
+    return session == null ? super.hasNextInt() : session.getScanner().hasNextInt();
+  }
+}
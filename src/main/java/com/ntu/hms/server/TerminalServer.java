@@ -0,0 +1,359 @@
+package com.ntu.hms.server;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves many terminals at once over a TCP socket on the loopback interface, so one application
+ * serves a whole ward against a single copy of the tables. Every accepted connection becomes a
+ * {@link TerminalSession} running the application's login loop on its own thread; a terminal such
+ * as {@code nc localhost 2002} is all a clerk needs.
+ *
+ * <p>The managers and models are shared by every session. They read their input through the shared
+ * {@link SessionScannerWrapper}, and {@code System.out} is replaced by a stream handing its calls
+ * to the stream of the calling thread's session, so the existing flows need no change. Output
+ * written outside of a session still reaches the console.
+ */
+public final class TerminalServer implements AutoCloseable {
+  /** The port served when none is given. */
+  public static final int DEFAULT_PORT = 2002;
+
+  private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+  private static int openServers;
+  private static PrintStream console;
+
+  private final ServerSocket serverSocket;
+  private final Runnable flow;
+  private final Set<TerminalSession> sessions = ConcurrentHashMap.newKeySet();
+  private final ExecutorService executor;
+  private final Thread acceptor;
+  private final AtomicBoolean closed = new AtomicBoolean();
+
+  private TerminalServer(ServerSocket serverSocket, Runnable flow) {
+    this.serverSocket = serverSocket;
+    this.flow = flow;
+    AtomicInteger sessionCount = new AtomicInteger();
+    this.executor =
+        Executors.newCachedThreadPool(
+            runnable -> {
+              Thread thread =
+                  new Thread(runnable, "hms-terminal-session-" + sessionCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.acceptor = new Thread(this::acceptSessions, "hms-terminal-acceptor");
+    this.acceptor.setDaemon(true);
+  }
+
+  /**
+   * Starts serving terminals on the specified port of the loopback interface. {@code System.out} is
+   * routed to the sessions until the last open server is closed.
+   *
+   * @param port the port to listen on, or 0 for any free port
+   * @param flow the application flow run for every terminal, returning when the user exits
+   * @return the running server
+   * @throws UncheckedIOException if the port cannot be bound
+   */
+  public static TerminalServer start(int port, Runnable flow) {
+    ServerSocket serverSocket;
+    try {
+      serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error listening on port " + port, e);
+    }
+    routeStandardOutput();
+    TerminalServer server = new TerminalServer(serverSocket, flow);
+    server.acceptor.start();
+    return server;
+  }
+
+  /**
+   * Retrieves the port the server listens on.
+   *
+   * @return the local port of the server
+   */
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  /**
+   * Waits until the server is closed.
+   *
+   * @throws InterruptedException if the calling thread is interrupted while waiting
+   */
+  public void join() throws InterruptedException {
+    acceptor.join();
+  }
+
+  /**
+   * Stops accepting terminals and disconnects the open ones, then waits for their sessions to end,
+   * so no session is still changing the tables once this returns. A session ends at its next read;
+   * the changes it already saved are kept. {@code System.out} is given back to the console once no
+   * other server is open.
+   */
+  @Override
+  public void close() {
+    if (!closed.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      serverSocket.close();
+    } catch (IOException e) {
+      // The acceptor stops either way
+    }
+    sessions.forEach(TerminalSession::close);
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        System.err.println("Terminal sessions still running after the server was closed.");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    restoreStandardOutput();
+  }
+
+  /** Accepts terminals until the server socket is closed. */
+  private void acceptSessions() {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket socket = serverSocket.accept();
+        TerminalSession session = new TerminalSession(socket, flow);
+        sessions.add(session);
+        try {
+          executor.execute(
+              () -> {
+                try {
+                  session.run();
+                } finally {
+                  sessions.remove(session);
+                }
+              });
+        } catch (RejectedExecutionException e) {
+          // Accepted while the server was being closed
+          sessions.remove(session);
+          session.close();
+        }
+      } catch (SocketException e) {
+        // The server socket was closed
+      } catch (IOException e) {
+        System.err.println("Error accepting a terminal: " + e.getMessage());
+      }
+    }
+  }
+
+  /** Replaces {@code System.out} with a stream writing to the session of the calling thread. */
+  private static synchronized void routeStandardOutput() {
+    if (openServers++ == 0) {
+      console = System.out;
+      System.setOut(new SessionPrintStream(console));
+    }
+  }
+
+  /** Gives {@code System.out} back to the console when the last open server is closed. */
+  private static synchronized void restoreStandardOutput() {
+    if (--openServers == 0) {
+      if (System.out instanceof SessionPrintStream) {
+        System.setOut(console);
+      }
+      console = null;
+    }
+  }
+
+  /**
+   * The {@code System.out} of a server, handing every call to the stream of the current session or
+   * to the console. The stream holds no lock of its own, so a terminal that stops reading only
+   * stalls its own session rather than every session printing at the time.
+   */
+  private static final class SessionPrintStream extends PrintStream {
+    private final PrintStream console;
+
+    private SessionPrintStream(PrintStream console) {
+      super(console, true);
+      this.console = console;
+    }
+
+    private PrintStream target() {
+      TerminalSession session = TerminalSession.current();
+      return session == null ? console : session.getPrintStream();
+    }
+
+    @Override
+    public void flush() {
+      target().flush();
+    }
+
+    /** Flushes the target stream; the streams of the sessions and the console stay open. */
+    @Override
+    public void close() {
+      target().flush();
+    }
+
+    @Override
+    public boolean checkError() {
+      return target().checkError();
+    }
+
+    @Override
+    public void write(int b) {
+      target().write(b);
+    }
+
+    @Override
+    public void write(byte[] buf, int off, int len) {
+      target().write(buf, off, len);
+    }
+
+    @Override
+    public void print(boolean b) {
+      target().print(b);
+    }
+
+    @Override
+    public void print(char c) {
+      target().print(c);
+    }
+
+    @Override
+    public void print(int i) {
+      target().print(i);
+    }
+
+    @Override
+    public void print(long l) {
+      target().print(l);
+    }
+
+    @Override
+    public void print(float f) {
+      target().print(f);
+    }
+
+    @Override
+    public void print(double d) {
+      target().print(d);
+    }
+
+    @Override
+    public void print(char[] s) {
+      target().print(s);
+    }
+
+    @Override
+    public void print(String s) {
+      target().print(s);
+    }
+
+    @Override
+    public void print(Object obj) {
+      target().print(obj);
+    }
+
+    @Override
+    public void println() {
+      target().println();
+    }
+
+    @Override
+    public void println(boolean x) {
+      target().println(x);
+    }
+
+    @Override
+    public void println(char x) {
+      target().println(x);
+    }
+
+    @Override
+    public void println(int x) {
+      target().println(x);
+    }
+
+    @Override
+    public void println(long x) {
+      target().println(x);
+    }
+
+    @Override
+    public void println(float x) {
+      target().println(x);
+    }
+
+    @Override
+    public void println(double x) {
+      target().println(x);
+    }
+
+    @Override
+    public void println(char[] x) {
+      target().println(x);
+    }
+
+    @Override
+    public void println(String x) {
+      target().println(x);
+    }
+
+    @Override
+    public void println(Object x) {
+      target().println(x);
+    }
+
+    @Override
+    public PrintStream printf(String format, Object... args) {
+      target().printf(format, args);
+      return this;
+    }
+
+    @Override
+    public PrintStream printf(Locale l, String format, Object... args) {
+      target().printf(l, format, args);
+      return this;
+    }
+
+    @Override
+    public PrintStream format(String format, Object... args) {
+      target().format(format, args);
+      return this;
+    }
+
+    @Override
+    public PrintStream format(Locale l, String format, Object... args) {
+      target().format(l, format, args);
+      return this;
+    }
+
+    @Override
+    public PrintStream append(CharSequence csq) {
+      target().append(csq);
+      return this;
+    }
+
+    @Override
+    public PrintStream append(CharSequence csq, int start, int end) {
+      target().append(csq, start, end);
+      return this;
+    }
+
+    @Override
+    public PrintStream append(char c) {
+      target().append(c);
+      return this;
+    }
+  }
+}
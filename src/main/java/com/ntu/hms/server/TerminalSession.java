@@ -0,0 +1,113 @@
+package com.ntu.hms.server;
+
+import com.ntu.hms.storage.CsvTable;
+import com.ntu.hms.util.ScannerWrapper;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.Socket;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+/**
+ * One terminal connected to a {@link TerminalServer}. The session reads its input from the socket
+ * through its own {@link ScannerWrapper} and writes its output back to it, and runs the
+ * application's login loop on its own thread. While it runs, the session is bound to that thread,
+ * so the shared {@link SessionScannerWrapper} and {@code System.out} reach this terminal rather
+ * than the server's console.
+ */
+final class TerminalSession implements Runnable {
+  private static final ThreadLocal<TerminalSession> CURRENT = new ThreadLocal<>();
+
+  private final Socket socket;
+  private final Runnable flow;
+  private final ScannerWrapper scanner;
+  private final OutputStream output;
+  private final PrintStream printStream;
+
+  /**
+   * Constructs a TerminalSession over an accepted connection.
+   *
+   * @param socket the connection to the terminal
+   * @param flow the application flow run for the terminal, returning when the user exits
+   * @throws IOException if the streams of the connection cannot be opened
+   */
+  TerminalSession(Socket socket, Runnable flow) throws IOException {
+    this.socket = socket;
+    this.flow = flow;
+    this.scanner = new ScannerWrapper(new Scanner(socket.getInputStream()));
+    this.output = new BufferedOutputStream(socket.getOutputStream());
+    this.printStream = new PrintStream(output, true);
+  }
+
+  /**
+   * Retrieves the session bound to the calling thread.
+   *
+   * @return the current session, or null if the thread is not serving a terminal
+   */
+  static TerminalSession current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Retrieves the scanner reading the input of the terminal. Whatever was written to the terminal
+   * is sent first, so a prompt is seen before the session waits for its answer.
+   *
+   * @return the scanner of the session
+   */
+  ScannerWrapper getScanner() {
+    flushOutput();
+    return scanner;
+  }
+
+  /**
+   * Retrieves the stream printing to the terminal. Every session has its own, so printing to one
+   * terminal never waits for another.
+   *
+   * @return the print stream of the session
+   */
+  PrintStream getPrintStream() {
+    return printStream;
+  }
+
+  /**
+   * Runs the application flow for the terminal until the user exits or disconnects, then closes the
+   * connection.
+   */
+  @Override
+  public void run() {
+    CURRENT.set(this);
+    try {
+      flow.run();
+    } catch (NoSuchElementException | IllegalStateException e) {
+      // The terminal disconnected, or the server closed it, while input was awaited
+    } catch (RuntimeException e) {
+      System.err.println("Terminal session " + socket.getRemoteSocketAddress() + " failed: " + e);
+    } finally {
+      CURRENT.remove();
+      // The thread may serve another terminal next, whose lists must not be checked against the
+      // versions this one read
+      CsvTable.forgetReads();
+      flushOutput();
+      close();
+    }
+  }
+
+  /** Closes the connection, ending the session at its next read. */
+  void close() {
+    try {
+      socket.close();
+    } catch (IOException e) {
+      // The connection is gone either way
+    }
+  }
+
+  private void flushOutput() {
+    try {
+      output.flush();
+    } catch (IOException e) {
+      // A terminal that stopped reading ends the session at its next read
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package com.ntu.hms.storage;
+
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs an archiving pass on a background daemon thread when the application starts and then at a
+ * fixed interval, so the tables that only grow keep a small working set. The pass receives the
+ * retention horizon, the date before which finished records may be moved to a {@link TableArchive};
+ * what it archives is up to the caller.
+ *
+ * <p>Archiving is off unless the {@code csvdb.archiveRetentionDays} system property is positive.
+ * The interval defaults to {@value #DEFAULT_INTERVAL_MINUTES} minutes and can be changed with the
+ * {@code csvdb.archiveIntervalMinutes} system property.
+ */
+public final class ArchiveCompactor {
+  /** The default number of minutes between two archiving passes. */
+  public static final long DEFAULT_INTERVAL_MINUTES = 60;
+
+  private static final long RETENTION_DAYS = Long.getLong("csvdb.archiveRetentionDays", 0);
+  private static final long INTERVAL_MINUTES =
+      Long.getLong("csvdb.archiveIntervalMinutes", DEFAULT_INTERVAL_MINUTES);
+
+  private static ScheduledExecutorService executor;
+
+  private ArchiveCompactor() {}
+
+  /**
+   * Checks whether archiving is enabled.
+   *
+   * @return true if the {@code csvdb.archiveRetentionDays} system property is positive
+   */
+  public static boolean isEnabled() {
+    return RETENTION_DAYS > 0;
+  }
+
+  /**
+   * Starts running the specified pass in the background, unless archiving is disabled or the pass
+   * is already running. A failed pass is reported and retried at the next interval.
+   *
+   * @param pass the archiving pass, given the retention horizon
+   */
+  public static synchronized void start(Consumer<LocalDate> pass) {
+    if (!isEnabled() || executor != null) {
+      return;
+    }
+    executor =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "csvdb-archive-compactor");
+              thread.setDaemon(true);
+              return thread;
+            });
+    executor.scheduleWithFixedDelay(
+        () -> {
+          try {
+            pass.accept(LocalDate.now().minusDays(RETENTION_DAYS));
+          } catch (RuntimeException e) {
+            System.err.println("Failed to archive finished records: " + e.getMessage());
+          }
+        },
+        0,
+        INTERVAL_MINUTES,
+        TimeUnit.MINUTES);
+  }
+
+  /**
+   * Stops the background passes, waiting for the one in progress, if any, to finish. Does nothing
+   * if the passes were not started.
+   */
+  public static void stop() {
+    ScheduledExecutorService current;
+    synchronized (ArchiveCompactor.class) {
+      current = executor;
+      executor = null;
+    }
+    if (current == null) {
+      return;
+    }
+    current.shutdown();
+    try {
+      current.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
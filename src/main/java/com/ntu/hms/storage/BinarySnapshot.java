@@ -0,0 +1,173 @@
+package com.ntu.hms.storage;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import com.ntu.hms.codec.BinaryCodec;
+import com.ntu.hms.codec.SnapshotInput;
+import com.ntu.hms.codec.SnapshotOutput;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A binary copy of the CSV snapshot of a {@link CsvTable}, stored next to it with the ".bin"
+ * extension. Reading it skips the text parsing of the CSV file, dates in particular. The CSV file
+ * remains the canonical copy: the binary snapshot records the size and modification time of the CSV
+ * file it was written from, and is ignored once the CSV file no longer matches them, for instance
+ * after a background compaction or an edit by hand.
+ *
+ * <p>The file starts with a fixed header: a magic number, the format version, the hash of the table
+ * header, the size and modification time of the CSV file and the number of records. The records
+ * follow, each prefixed with its length, as written by {@link SnapshotOutput}, and the file ends
+ * with the CRC-32 of everything before it.
+ *
+ * <p>Binary snapshots are only used when the {@code csvdb.binarySnapshots} system property is set
+ * to true.
+ *
+ * @param <T> the model class stored in the table
+ */
+final class BinarySnapshot<T> {
+  /** Whether the tables read and write binary snapshots. */
+  static final boolean ENABLED = Boolean.getBoolean("csvdb.binarySnapshots");
+
+  private static final int MAGIC = 0x484D5342; // "HMSB"
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 32;
+  private static final int TRAILER_SIZE = 4;
+
+  private final Path path;
+  private final Path csvPath;
+  private final int headerHash;
+  private final BinaryCodec<T> codec;
+
+  /**
+   * Constructs a BinarySnapshot for the specified CSV file.
+   *
+   * @param csvPath the path of the CSV snapshot of the table
+   * @param header the header row of the CSV file
+   * @param codec the binary codec of the model class
+   */
+  BinarySnapshot(Path csvPath, String header, BinaryCodec<T> codec) {
+    String fileName = csvPath.getFileName().toString();
+    this.path = csvPath.resolveSibling(fileName.replaceFirst("\\.csv$", "") + ".bin");
+    this.csvPath = csvPath;
+    this.headerHash = header.hashCode();
+    this.codec = codec;
+  }
+
+  /**
+   * Reads the models held by the binary snapshot, provided it matches the CSV file.
+   *
+   * @return the models in table order, or null if there is no binary snapshot matching the CSV file
+   * @throws IOException if the binary snapshot cannot be read or is corrupt
+   */
+  List<T> read() throws IOException {
+    if (!Files.exists(path) || !Files.exists(csvPath)) {
+      return null;
+    }
+
+    byte[] data = Files.readAllBytes(path);
+    if (data.length < HEADER_SIZE + TRAILER_SIZE) {
+      throw new IOException("Truncated binary snapshot " + path);
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(data);
+    if (!matches(buffer)) {
+      return null;
+    }
+    int count = buffer.getInt();
+
+    int end = data.length - TRAILER_SIZE;
+    CRC32 crc = new CRC32();
+    crc.update(data, 0, end);
+    if ((int) crc.getValue() != buffer.getInt(end)) {
+      throw new IOException("Checksum mismatch in binary snapshot " + path);
+    }
+
+    SnapshotInput input = new SnapshotInput(data, HEADER_SIZE, end);
+    List<T> models = new ArrayList<>(Math.min(count, end - HEADER_SIZE));
+    for (int i = 0; i < count; i++) {
+      input.beginRecord();
+      models.add(codec.read(input));
+      input.endRecord();
+    }
+    return models;
+  }
+
+  /**
+   * Checks whether the binary snapshot exists and matches the CSV file.
+   *
+   * @return true if the binary snapshot is current, false if it must be written again
+   * @throws IOException if the binary snapshot cannot be read
+   */
+  boolean isCurrent() throws IOException {
+    if (!Files.exists(path) || !Files.exists(csvPath)) {
+      return false;
+    }
+    try (FileChannel channel = FileChannel.open(path, READ)) {
+      ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+      while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+        // Keep reading until the header is complete or the file ends
+      }
+      buffer.flip();
+      return buffer.remaining() == HEADER_SIZE && matches(buffer);
+    }
+  }
+
+  /**
+   * Writes the models as the new binary snapshot, stamped with the current size and modification
+   * time of the CSV file. The models must be those held by the CSV file. The snapshot is written to
+   * a temporary file, forced to disk and atomically renamed over the previous one.
+   *
+   * @param models the models held by the CSV file, in table order
+   * @throws IOException if the binary snapshot cannot be written
+   */
+  void write(Collection<? extends T> models) throws IOException {
+    Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporaryPath, CREATE, WRITE, TRUNCATE_EXISTING)) {
+      CheckedOutputStream checked =
+          new CheckedOutputStream(
+              new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), new CRC32());
+      DataOutputStream stream = new DataOutputStream(checked);
+      stream.writeInt(MAGIC);
+      stream.writeInt(VERSION);
+      stream.writeInt(headerHash);
+      stream.writeLong(Files.size(csvPath));
+      stream.writeLong(Files.getLastModifiedTime(csvPath).toMillis());
+      stream.writeInt(models.size());
+
+      SnapshotOutput output = new SnapshotOutput();
+      for (T model : models) {
+        codec.write(model, output);
+        output.writeRecord(stream);
+      }
+      stream.writeInt((int) checked.getChecksum().getValue());
+      stream.flush();
+      channel.force(true);
+    }
+    Files.move(temporaryPath, path, ATOMIC_MOVE, REPLACE_EXISTING);
+  }
+
+  /** Reads the header up to the record count, checking it against the table and the CSV file. */
+  private boolean matches(ByteBuffer buffer) throws IOException {
+    return buffer.getInt() == MAGIC
+        && buffer.getInt() == VERSION
+        && buffer.getInt() == headerHash
+        && buffer.getLong() == Files.size(csvPath)
+        && buffer.getLong() == Files.getLastModifiedTime(csvPath).toMillis();
+  }
+}
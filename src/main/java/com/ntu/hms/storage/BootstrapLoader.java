@@ -0,0 +1,159 @@
+package com.ntu.hms.storage;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads a set of {@link CsvTable}s concurrently on background daemon threads, so the application
+ * can start before every table is resident. Each table rebuilds its indexes as part of its own
+ * load, so they are ready as soon as the table is. Callers that need some of the tables wait for
+ * just those with {@link #await(CsvTable[])}; a table accessed before its load has finished simply
+ * blocks on the table's lock until it has.
+ *
+ * <p>The load time and row count of every table are kept in a {@link TableLoad}. They are also
+ * printed to the standard error as each table finishes when the {@code csvdb.logLoadTimes} system
+ * property is set to true.
+ */
+public final class BootstrapLoader {
+  private static final boolean LOG_LOAD_TIMES = Boolean.getBoolean("csvdb.logLoadTimes");
+  private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+  private final Map<CsvTable<?>, CompletableFuture<TableLoad>> loads = new IdentityHashMap<>();
+  private final List<CompletableFuture<TableLoad>> ordered = new ArrayList<>();
+
+  private BootstrapLoader() {}
+
+  /**
+   * Starts loading the specified tables in the background. The tables are submitted in order, so
+   * those listed first are loaded first when there are fewer threads than tables.
+   *
+   * @param tables the tables to be loaded
+   * @return a loader tracking the loads of the tables
+   */
+  public static BootstrapLoader start(List<? extends CsvTable<?>> tables) {
+    int threads = Math.max(1, Math.min(tables.size(), Runtime.getRuntime().availableProcessors()));
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            threads,
+            runnable -> {
+              Thread thread =
+                  new Thread(runnable, "csvdb-loader-" + THREAD_COUNT.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+
+    BootstrapLoader loader = new BootstrapLoader();
+    for (CsvTable<?> table : tables) {
+      CompletableFuture<TableLoad> load =
+          CompletableFuture.supplyAsync(() -> load(table), executor);
+      loader.loads.put(table, load);
+      loader.ordered.add(load);
+    }
+    // The queued loads still run; the threads end once they are done
+    executor.shutdown();
+    return loader;
+  }
+
+  /**
+   * Waits until the specified tables are loaded. Tables not started by this loader are ignored.
+   *
+   * @param tables the tables to wait for
+   * @throws RuntimeException the exception that failed the load of one of the tables
+   */
+  public void await(CsvTable<?>... tables) {
+    for (CsvTable<?> table : tables) {
+      CompletableFuture<TableLoad> load = loads.get(table);
+      if (load != null) {
+        join(load);
+      }
+    }
+  }
+
+  /**
+   * Waits until every table is loaded.
+   *
+   * @return the load of every table, in the order the tables were started
+   * @throws RuntimeException the exception that failed the load of one of the tables
+   */
+  public List<TableLoad> awaitAll() {
+    List<TableLoad> results = new ArrayList<>();
+    for (CompletableFuture<TableLoad> load : ordered) {
+      results.add(join(load));
+    }
+    return results;
+  }
+
+  private static TableLoad load(CsvTable<?> table) {
+    long start = System.nanoTime();
+    int rowCount = table.count(); // Counting the rows loads the table and builds its indexes
+    TableLoad load = new TableLoad(table.getCsvPath(), rowCount, System.nanoTime() - start);
+    if (LOG_LOAD_TIMES) {
+      System.err.println(load);
+    }
+    return load;
+  }
+
+  private static TableLoad join(CompletableFuture<TableLoad> load) {
+    try {
+      return load.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /** The outcome of loading one table: its row count and how long the load took. */
+  public static final class TableLoad {
+    private final String csvPath;
+    private final int rowCount;
+    private final long loadTimeNanos;
+
+    private TableLoad(String csvPath, int rowCount, long loadTimeNanos) {
+      this.csvPath = csvPath;
+      this.rowCount = rowCount;
+      this.loadTimeNanos = loadTimeNanos;
+    }
+
+    /**
+     * Retrieves the classpath-relative path of the CSV file of the table.
+     *
+     * @return the path of the CSV file
+     */
+    public String getCsvPath() {
+      return csvPath;
+    }
+
+    /**
+     * Retrieves the number of rows loaded into the table.
+     *
+     * @return the number of rows
+     */
+    public int getRowCount() {
+      return rowCount;
+    }
+
+    /**
+     * Retrieves the time taken to load the table, including building its indexes.
+     *
+     * @return the load time in nanoseconds
+     */
+    public long getLoadTimeNanos() {
+      return loadTimeNanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "Loaded %s: %d rows in %.3f ms", csvPath, rowCount, loadTimeNanos / 1_000_000.0);
+    }
+  }
+}
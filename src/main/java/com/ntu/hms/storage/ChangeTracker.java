@@ -0,0 +1,70 @@
+package com.ntu.hms.storage;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * An index over a {@link CsvTable} that answers no lookups, but reports which keys each save
+ * touches, so that views derived from the table, such as a projection per patient, can be refreshed
+ * for just those keys. The tracker files the key of every model under its primary key and, for
+ * every model a save inserts, updates or deletes, reports both the key the model was last saved
+ * under and its current one. A reload of the table is reported as a reset, since every view may be
+ * out of date.
+ *
+ * <p>The listeners are called while the table's lock is held, so they should only mark their views
+ * as stale and leave the rebuilding to the next read.
+ *
+ * @param <K> the type of the key reported to the listener
+ * @param <T> the model class stored in the table
+ */
+public final class ChangeTracker<K, T> extends TableIndex<T> {
+  private final Function<? super T, ? extends K> keyFunction;
+  private final Consumer<? super K> changeListener;
+  private final Runnable resetListener;
+  private final Map<String, K> keys = new HashMap<>();
+
+  /**
+   * Constructs a ChangeTracker reporting the specified keys.
+   *
+   * @param keyFunction the function returning the key of a model, or null if it has none
+   * @param changeListener the listener called with every key a save touches
+   * @param resetListener the listener called when the table is reloaded
+   */
+  public ChangeTracker(
+      Function<? super T, ? extends K> keyFunction,
+      Consumer<? super K> changeListener,
+      Runnable resetListener) {
+    this.keyFunction = keyFunction;
+    this.changeListener = changeListener;
+    this.resetListener = resetListener;
+  }
+
+  @Override
+  void clear() {
+    keys.clear();
+    resetListener.run();
+  }
+
+  @Override
+  void put(String primaryKey, T model) {
+    K key = keyFunction.apply(model);
+    K previous = key == null ? keys.remove(primaryKey) : keys.put(primaryKey, key);
+    if (previous != null && !Objects.equals(previous, key)) {
+      changeListener.accept(previous);
+    }
+    if (key != null) {
+      changeListener.accept(key);
+    }
+  }
+
+  @Override
+  void remove(String primaryKey) {
+    K previous = keys.remove(primaryKey);
+    if (previous != null) {
+      changeListener.accept(previous);
+    }
+  }
+}
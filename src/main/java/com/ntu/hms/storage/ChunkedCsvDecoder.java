@@ -0,0 +1,194 @@
+package com.ntu.hms.storage;
+
+import com.ntu.hms.codec.CsvCodec;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Decodes the rows of a large CSV file in parallel. The file, less its header line, is cut into
+ * chunks of about {@link #CHUNK_SIZE} bytes at line boundaries; each chunk is read by its own
+ * {@link MappedCsvScanner} in a fork-join task, and the decoded chunks are returned in file order.
+ * A file too small to make two chunks is decoded on the calling thread.
+ *
+ * <p>Only the codec runs in parallel, so it must not depend on shared mutable state. Anything that
+ * does, such as injecting the managers into the decoded models, is left to the caller, which can
+ * then handle the chunks one after another.
+ */
+public final class ChunkedCsvDecoder {
+  /** The target size in bytes of a chunk. */
+  public static final int CHUNK_SIZE = 1 << 22;
+
+  private static final int CHUNKS_PER_THREAD = 4;
+  private static final int PROBE_SIZE = 4096;
+
+  private ChunkedCsvDecoder() {}
+
+  /**
+   * Decodes the rows of a CSV file after its header line, on the common fork-join pool.
+   *
+   * @param path the path of the CSV file
+   * @param codec the codec of the rows
+   * @param <T> the model class stored in the file
+   * @return the decoded chunks, in file order
+   * @throws IOException if the file cannot be read
+   */
+  public static <T> List<Chunk<T>> decode(Path path, CsvCodec<T> codec) throws IOException {
+    return decode(path, codec, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Decodes the rows of a CSV file after its header line, on the specified fork-join pool.
+   *
+   * @param path the path of the CSV file
+   * @param codec the codec of the rows
+   * @param pool the pool the chunks are decoded on
+   * @param <T> the model class stored in the file
+   * @return the decoded chunks, in file order
+   * @throws IOException if the file cannot be read
+   */
+  public static <T> List<Chunk<T>> decode(Path path, CsvCodec<T> codec, ForkJoinPool pool)
+      throws IOException {
+    long[] boundaries = split(path, pool.getParallelism() * CHUNKS_PER_THREAD);
+    if (boundaries.length == 2) {
+      return Collections.singletonList(decodeChunk(path, codec, boundaries[0], boundaries[1]));
+    }
+
+    try {
+      return pool.invoke(new DecodeTask<>(path, codec, boundaries, 0, boundaries.length - 1));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Computes the offsets at which the chunks of a file start, followed by the size of the file. The
+   * first chunk starts after the header line, and every other one just after a line feed.
+   */
+  private static long[] split(Path path, int maxChunks) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long start = nextLine(channel, 0, size);
+      int chunks = (int) Math.max(1, Math.min(maxChunks, (size - start) / CHUNK_SIZE));
+
+      long[] boundaries = new long[chunks + 1];
+      boundaries[0] = start;
+      int count = 1;
+      for (int i = 1; i < chunks; i++) {
+        long boundary = nextLine(channel, start + (size - start) * i / chunks, size);
+        if (boundary > boundaries[count - 1] && boundary < size) {
+          boundaries[count++] = boundary;
+        }
+      }
+      boundaries[count++] = size;
+      return Arrays.copyOf(boundaries, count);
+    }
+  }
+
+  /** Finds the offset just past the first line feed at or after a position, or the file size. */
+  private static long nextLine(FileChannel channel, long position, long size) throws IOException {
+    ByteBuffer probe = ByteBuffer.allocate(PROBE_SIZE);
+    while (position < size) {
+      probe.clear();
+      int read = channel.read(probe, position);
+      if (read <= 0) {
+        break;
+      }
+      for (int i = 0; i < read; i++) {
+        if (probe.get(i) == '\n') {
+          return position + i + 1;
+        }
+      }
+      position += read;
+    }
+    return size;
+  }
+
+  private static <T> Chunk<T> decodeChunk(Path path, CsvCodec<T> codec, long start, long end)
+      throws IOException {
+    Chunk<T> chunk = new Chunk<>();
+    try (MappedCsvScanner scanner = MappedCsvScanner.open(path, start, end)) {
+      while (scanner.next()) {
+        chunk.models.add(codec.decode(scanner.getColumns()));
+        chunk.rows.add(scanner.getRow());
+      }
+    }
+    return chunk;
+  }
+
+  /**
+   * The rows of one chunk of a file, together with the models decoded from them.
+   *
+   * @param <T> the model class stored in the file
+   */
+  public static final class Chunk<T> {
+    private final List<String> rows = new ArrayList<>();
+    private final List<T> models = new ArrayList<>();
+
+    private Chunk() {}
+
+    /**
+     * Retrieves the rows of the chunk, without their line separators.
+     *
+     * @return the rows, in file order
+     */
+    public List<String> getRows() {
+      return rows;
+    }
+
+    /**
+     * Retrieves the models decoded from the rows of the chunk.
+     *
+     * @return the models, in the order of their rows
+     */
+    public List<T> getModels() {
+      return models;
+    }
+  }
+
+  /** Decodes a range of chunks, splitting it in two until a single chunk is left. */
+  private static final class DecodeTask<T> extends RecursiveTask<List<Chunk<T>>> {
+    private final Path path;
+    private final CsvCodec<T> codec;
+    private final long[] boundaries;
+    private final int from;
+    private final int to;
+
+    private DecodeTask(Path path, CsvCodec<T> codec, long[] boundaries, int from, int to) {
+      this.path = path;
+      this.codec = codec;
+      this.boundaries = boundaries;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected List<Chunk<T>> compute() {
+      if (to - from == 1) {
+        try {
+          return Collections.singletonList(
+              decodeChunk(path, codec, boundaries[from], boundaries[to]));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+
+      int middle = (from + to) >>> 1;
+      DecodeTask<T> left = new DecodeTask<>(path, codec, boundaries, from, middle);
+      left.fork();
+      List<Chunk<T>> right = new DecodeTask<>(path, codec, boundaries, middle, to).compute();
+      List<Chunk<T>> chunks = new ArrayList<>(left.join());
+      chunks.addAll(right);
+      return chunks;
+    }
+  }
+}
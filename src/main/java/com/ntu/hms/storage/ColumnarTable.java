@@ -0,0 +1,331 @@
+package com.ntu.hms.storage;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * A column-oriented copy of a {@link CsvTable}, for reports that aggregate a few fields over every
+ * row. Each column is stored in its own file, as an array of ints: integer columns hold their
+ * values, date columns their epoch day, and dictionary columns the index of their value in a
+ * dictionary stored at the start of the file. A report reads only the files of the columns it
+ * needs, and never builds a model instance.
+ *
+ * <p>The column files live in a "columns" folder next to the CSV file and are derived from the
+ * table, which remains the system of record. They are stamped with the state of the table on disk
+ * and rewritten, from the models of the table, the first time a column is read after the table was
+ * committed or compacted. Models changed without being saved are only picked up by the next
+ * rewrite.
+ *
+ * @param <T> the model class stored in the table
+ */
+public final class ColumnarTable<T> {
+  private static final int MAGIC = 0x484D5343; // "HMSC"
+  private static final int VERSION = 1;
+  private static final byte INT_COLUMN = 0;
+  private static final byte DICTIONARY_COLUMN = 1;
+  private static final int HEADER_SIZE = 37;
+
+  private final CsvTable<T> table;
+  private final Path directory;
+  private final Map<String, Column<T>> columns = new LinkedHashMap<>();
+  private final Map<String, Object> cache = new HashMap<>();
+  private long[] cachedState;
+
+  /**
+   * Constructs a ColumnarTable over the specified table, with no columns yet.
+   *
+   * @param table the table the columns are derived from
+   */
+  public ColumnarTable(CsvTable<T> table) {
+    this.table = table;
+    String fileName = table.getSnapshotPath().getFileName().toString();
+    this.directory =
+        table
+            .getSnapshotPath()
+            .resolveSibling("columns")
+            .resolve(fileName.replaceFirst("\\.csv$", ""));
+  }
+
+  /**
+   * Adds an integer column.
+   *
+   * @param name the name of the column, which is also the name of its file
+   * @param valueFunction the function returning the value of the column for a model
+   * @return this ColumnarTable, for chaining
+   */
+  public synchronized ColumnarTable<T> addIntColumn(
+      String name, ToIntFunction<? super T> valueFunction) {
+    columns.put(name, new Column<>(INT_COLUMN, valueFunction, null));
+    return this;
+  }
+
+  /**
+   * Adds a date column, stored as the epoch day of each date. A missing date is stored as {@link
+   * Integer#MIN_VALUE}.
+   *
+   * @param name the name of the column, which is also the name of its file
+   * @param dateFunction the function returning the date of a model
+   * @return this ColumnarTable, for chaining
+   */
+  public synchronized ColumnarTable<T> addDateColumn(
+      String name, Function<? super T, LocalDate> dateFunction) {
+    return addIntColumn(
+        name,
+        model -> {
+          LocalDate date = dateFunction.apply(model);
+          return date == null ? Integer.MIN_VALUE : (int) date.toEpochDay();
+        });
+  }
+
+  /**
+   * Adds a dictionary-encoded column, for values repeated across rows such as identifiers and enum
+   * constants. Enum constants are stored by name, other values by their string form. A missing
+   * value is stored as the code -1.
+   *
+   * @param name the name of the column, which is also the name of its file
+   * @param valueFunction the function returning the value of the column for a model
+   * @return this ColumnarTable, for chaining
+   */
+  public synchronized ColumnarTable<T> addDictionaryColumn(
+      String name, Function<? super T, ?> valueFunction) {
+    columns.put(name, new Column<>(DICTIONARY_COLUMN, null, valueFunction));
+    return this;
+  }
+
+  /**
+   * Reads an integer or date column.
+   *
+   * @param name the name of the column
+   * @return the values of the column, in table order; the array must not be changed
+   * @throws IllegalArgumentException if there is no integer or date column with that name
+   * @throws UncheckedIOException if the column files cannot be read or written
+   */
+  public synchronized int[] readInts(String name) {
+    requireColumn(name, INT_COLUMN);
+    return (int[]) read(name);
+  }
+
+  /**
+   * Reads a dictionary-encoded column.
+   *
+   * @param name the name of the column
+   * @return the codes and dictionary of the column
+   * @throws IllegalArgumentException if there is no dictionary column with that name
+   * @throws UncheckedIOException if the column files cannot be read or written
+   */
+  public synchronized DictionaryColumn readDictionary(String name) {
+    requireColumn(name, DICTIONARY_COLUMN);
+    return (DictionaryColumn) read(name);
+  }
+
+  private void requireColumn(String name, byte kind) {
+    Column<T> column = columns.get(name);
+    if (column == null || column.kind != kind) {
+      throw new IllegalArgumentException("No such column in " + directory + ": " + name);
+    }
+  }
+
+  /** Reads a column, first rewriting every column file if the table has changed since. */
+  private Object read(String name) {
+    try {
+      long[] state = table.getPersistedState();
+      if (!Arrays.equals(state, cachedState)) {
+        cache.clear();
+        cachedState = state;
+      }
+      Object values = cache.get(name);
+      if (values == null) {
+        values = readFile(name, state);
+        if (values == null) {
+          writeFiles(state);
+          values = readFile(name, state);
+          if (values == null) {
+            throw new IOException("Column file was not written");
+          }
+        }
+        cache.put(name, values);
+      }
+      return values;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error reading column " + name + " of " + directory, e);
+    }
+  }
+
+  /** Reads the file of a column, or returns null if it is missing or out of date. */
+  private Object readFile(String name, long[] state) throws IOException {
+    Path path = directory.resolve(name + ".col");
+    if (!Files.exists(path)) {
+      return null;
+    }
+
+    try {
+      return decode(ByteBuffer.wrap(Files.readAllBytes(path)), state);
+    } catch (BufferUnderflowException e) {
+      return null; // A truncated file is written again, like an out of date one
+    }
+  }
+
+  private static Object decode(ByteBuffer buffer, long[] state) {
+    if (buffer.remaining() < HEADER_SIZE
+        || buffer.getInt() != MAGIC
+        || buffer.getInt() != VERSION
+        || buffer.getLong() != state[0]
+        || buffer.getLong() != state[1]
+        || buffer.getLong() != state[2]) {
+      return null;
+    }
+    byte kind = buffer.get();
+    int rowCount = buffer.getInt();
+
+    String[] dictionary = null;
+    if (kind == DICTIONARY_COLUMN) {
+      dictionary = new String[buffer.getInt()];
+      for (int i = 0; i < dictionary.length; i++) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        dictionary[i] = new String(bytes, UTF_8);
+      }
+    }
+    int[] values = new int[rowCount];
+    buffer.asIntBuffer().get(values);
+    return dictionary == null ? values : new DictionaryColumn(values, dictionary);
+  }
+
+  /** Rewrites the file of every column from the models of the table, stamped with its state. */
+  private void writeFiles(long[] state) throws IOException {
+    List<T> models = table.read();
+    Files.createDirectories(directory);
+    for (Map.Entry<String, Column<T>> entry : columns.entrySet()) {
+      Column<T> column = entry.getValue();
+      int[] values = new int[models.size()];
+      List<String> dictionary = new ArrayList<>();
+      if (column.kind == INT_COLUMN) {
+        for (int i = 0; i < values.length; i++) {
+          values[i] = column.intFunction.applyAsInt(models.get(i));
+        }
+      } else {
+        Map<String, Integer> codes = new HashMap<>();
+        for (int i = 0; i < values.length; i++) {
+          Object value = column.valueFunction.apply(models.get(i));
+          if (value == null) {
+            values[i] = -1;
+            continue;
+          }
+          String key = value instanceof Enum ? ((Enum<?>) value).name() : value.toString();
+          Integer code = codes.get(key);
+          if (code == null) {
+            code = dictionary.size();
+            codes.put(key, code);
+            dictionary.add(key);
+          }
+          values[i] = code;
+        }
+      }
+      writeFile(entry.getKey(), column.kind, state, values, dictionary);
+    }
+  }
+
+  private void writeFile(
+      String name, byte kind, long[] state, int[] values, List<String> dictionary)
+      throws IOException {
+    Path path = directory.resolve(name + ".col");
+    Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+    try (DataOutputStream stream =
+        new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(temporaryPath), 1 << 16))) {
+      stream.writeInt(MAGIC);
+      stream.writeInt(VERSION);
+      for (long value : state) {
+        stream.writeLong(value);
+      }
+      stream.writeByte(kind);
+      stream.writeInt(values.length);
+      if (kind == DICTIONARY_COLUMN) {
+        stream.writeInt(dictionary.size());
+        for (String value : dictionary) {
+          byte[] bytes = value.getBytes(UTF_8);
+          stream.writeInt(bytes.length);
+          stream.write(bytes);
+        }
+      }
+      for (int value : values) {
+        stream.writeInt(value);
+      }
+    }
+    // The files can always be derived again, so they are not forced to disk
+    Files.move(temporaryPath, path, ATOMIC_MOVE, REPLACE_EXISTING);
+  }
+
+  /** The codes of a dictionary-encoded column, together with the values they stand for. */
+  public static final class DictionaryColumn {
+    private final int[] codes;
+    private final String[] dictionary;
+
+    private DictionaryColumn(int[] codes, String[] dictionary) {
+      this.codes = codes;
+      this.dictionary = dictionary;
+    }
+
+    /**
+     * Retrieves the code of every row, which is an index into the dictionary, or -1 for a missing
+     * value.
+     *
+     * @return the codes, in table order; the array must not be changed
+     */
+    public int[] getCodes() {
+      return codes;
+    }
+
+    /**
+     * Retrieves the number of distinct values in the column.
+     *
+     * @return the size of the dictionary
+     */
+    public int getDictionarySize() {
+      return dictionary.length;
+    }
+
+    /**
+     * Retrieves the value a code stands for.
+     *
+     * @param code a code of the column
+     * @return the value, or null for the code -1
+     */
+    public String getValue(int code) {
+      return code < 0 ? null : dictionary[code];
+    }
+  }
+
+  /** The definition of a column: its kind and the function extracting it from a model. */
+  private static final class Column<T> {
+    private final byte kind;
+    private final ToIntFunction<? super T> intFunction;
+    private final Function<? super T, ?> valueFunction;
+
+    private Column(
+        byte kind, ToIntFunction<? super T> intFunction, Function<? super T, ?> valueFunction) {
+      this.kind = kind;
+      this.intFunction = intFunction;
+      this.valueFunction = valueFunction;
+    }
+  }
+}
@@ -0,0 +1,15 @@
+package com.ntu.hms.storage;
+
+/** Thrown when a transaction cannot be made durable. */
+public class CommitFailedException extends RuntimeException {
+
+  /**
+   * Constructs a CommitFailedException with the specified message and cause.
+   *
+   * @param message the detail message
+   * @param cause the error that prevented the commit
+   */
+  public CommitFailedException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,126 @@
+package com.ntu.hms.storage;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The journal of committed transactions of the {@link CsvStorageEngine}, shared by every table. A
+ * transaction is committed once its ID has been appended to the journal and forced to disk, after
+ * the records it wrote to each table's {@link MutationLog} are already durable.
+ *
+ * <p>Transaction IDs start above both the largest committed ID and the current time in
+ * microseconds, so an ID left behind in a log by an interrupted commit is never reused.
+ */
+public class CommitJournal {
+  private final Path journalPath;
+  private final Set<Long> committed = new HashSet<>();
+  private long nextTxid;
+  private boolean loaded;
+
+  /**
+   * Constructs a CommitJournal stored at the specified path.
+   *
+   * @param journalPath the path of the journal file
+   */
+  public CommitJournal(Path journalPath) {
+    this.journalPath = journalPath;
+  }
+
+  /**
+   * Allocates the ID of a new transaction.
+   *
+   * @return a transaction ID greater than every ID allocated or committed before
+   * @throws IOException if the journal cannot be read
+   */
+  public synchronized long nextTxid() throws IOException {
+    load();
+    return nextTxid++;
+  }
+
+  /**
+   * Checks whether the transaction with the specified ID was committed.
+   *
+   * @param txid the ID of the transaction
+   * @return true if the transaction was committed, false otherwise
+   */
+  public synchronized boolean isCommitted(long txid) {
+    try {
+      load();
+    } catch (IOException e) {
+      throw new IllegalStateException("Error reading commit journal " + journalPath, e);
+    }
+    return committed.contains(txid);
+  }
+
+  /**
+   * Commits a batch of transactions with a single append and a single force to disk.
+   *
+   * @param txids the IDs of the transactions to be committed
+   * @throws IOException if the journal cannot be written
+   */
+  public synchronized void commit(List<Long> txids) throws IOException {
+    load();
+    StringBuilder content = new StringBuilder();
+    for (long txid : txids) {
+      content.append(txid).append('\n');
+    }
+
+    try (FileChannel channel = FileChannel.open(journalPath, CREATE, WRITE, APPEND)) {
+      ByteBuffer buffer = ByteBuffer.wrap(content.toString().getBytes(UTF_8));
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(false);
+    }
+    committed.addAll(txids);
+  }
+
+  /**
+   * Removes the journal. This is only safe once every mutation log has been compacted. The journal
+   * is read again on its next use, so a journal put back in its place, as by restoring a backup, is
+   * honoured; transaction IDs keep increasing.
+   *
+   * @throws IOException if the journal cannot be deleted
+   */
+  public synchronized void truncate() throws IOException {
+    Files.deleteIfExists(journalPath);
+    committed.clear();
+    loaded = false;
+  }
+
+  private void load() throws IOException {
+    if (loaded) {
+      return;
+    }
+
+    long maxTxid = 0;
+    if (Files.exists(journalPath)) {
+      String content = new String(Files.readAllBytes(journalPath), UTF_8);
+      int end = content.lastIndexOf('\n');
+      if (end > 0) {
+        for (String line : content.substring(0, end).split("\n")) {
+          try {
+            long txid = Long.parseLong(line.trim());
+            committed.add(txid);
+            maxTxid = Math.max(maxTxid, txid);
+          } catch (NumberFormatException e) {
+            // Skip a line damaged by an interrupted append
+          }
+        }
+      }
+    }
+    nextTxid = Math.max(nextTxid, Math.max(maxTxid + 1, System.currentTimeMillis() * 1000));
+    loaded = true;
+  }
+}
@@ -0,0 +1,78 @@
+package com.ntu.hms.storage;
+
+import java.util.Arrays;
+
+/**
+ * Latency statistics of the commits performed by the {@link GroupCommitter}. The latency of a
+ * commit is measured from the moment its transaction is queued until it is durable. Percentiles are
+ * computed over the most recent {@link #SAMPLE_SIZE} commits.
+ */
+public class CommitStatistics {
+  /** The number of recent commit latencies kept for percentile calculations. */
+  public static final int SAMPLE_SIZE = 4096;
+
+  private final long[] samples = new long[SAMPLE_SIZE];
+  private long transactionCount;
+  private long batchCount;
+
+  /**
+   * Records the latency of a committed transaction.
+   *
+   * @param latencyNanos the commit latency in nanoseconds
+   */
+  synchronized void recordTransaction(long latencyNanos) {
+    samples[(int) (transactionCount % SAMPLE_SIZE)] = latencyNanos;
+    transactionCount++;
+  }
+
+  /** Records a batch of transactions committed with a single fsync. */
+  synchronized void recordBatch() {
+    batchCount++;
+  }
+
+  /**
+   * Retrieves the number of transactions committed.
+   *
+   * @return the number of committed transactions
+   */
+  public synchronized long getTransactionCount() {
+    return transactionCount;
+  }
+
+  /**
+   * Retrieves the number of batches committed, each costing one fsync of the commit journal.
+   *
+   * @return the number of committed batches
+   */
+  public synchronized long getBatchCount() {
+    return batchCount;
+  }
+
+  /**
+   * Computes a percentile of the recent commit latencies.
+   *
+   * @param percentile the percentile to compute, between 0 and 100
+   * @return the latency at the percentile in nanoseconds, or 0 if nothing was committed yet
+   */
+  public synchronized long getLatencyPercentileNanos(double percentile) {
+    int count = (int) Math.min(transactionCount, SAMPLE_SIZE);
+    if (count == 0) {
+      return 0;
+    }
+
+    long[] sorted = Arrays.copyOf(samples, count);
+    Arrays.sort(sorted);
+    int index = (int) Math.ceil(percentile / 100 * count) - 1;
+    return sorted[Math.max(0, Math.min(index, count - 1))];
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "Commits: %d transactions in %d batches, p50 %.3f ms, p99 %.3f ms",
+        getTransactionCount(),
+        getBatchCount(),
+        getLatencyPercentileNanos(50) / 1_000_000.0,
+        getLatencyPercentileNanos(99) / 1_000_000.0);
+  }
+}
@@ -0,0 +1,51 @@
+package com.ntu.hms.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * The default {@link StorageEngine}: every table is a CSV file under target/classes, seeded from
+ * the classpath, with a {@link MutationLog} next to it, and commits are recorded in a {@link
+ * CommitJournal} in the same folder. The files stay readable and editable by hand.
+ */
+public final class CsvStorageEngine implements StorageEngine {
+  /** The name of the engine. */
+  public static final String NAME = "csv";
+
+  private static final Path JOURNAL_PATH = Paths.get("target", "classes", "csvdb", "commit.log");
+
+  private final CommitJournal journal = new CommitJournal(JOURNAL_PATH);
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public <T> TableStorage<T> openTable(String csvPath, String header, Class<T> modelClass) {
+    return new CsvTableStorage<>(csvPath, header, modelClass);
+  }
+
+  @Override
+  public long nextTxid() throws IOException {
+    return journal.nextTxid();
+  }
+
+  @Override
+  public boolean isCommitted(long txid) {
+    return journal.isCommitted(txid);
+  }
+
+  @Override
+  public void commit(List<Long> txids) throws IOException {
+    journal.commit(txids);
+  }
+
+  /** Removes the commit journal, whose records are lost with the mutation logs. */
+  @Override
+  public void checkpoint() throws IOException {
+    journal.truncate();
+  }
+}
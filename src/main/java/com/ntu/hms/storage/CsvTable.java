@@ -0,0 +1,597 @@
+package com.ntu.hms.storage;
+
+import com.ntu.hms.codec.CsvCodec;
+import com.ntu.hms.codec.ModelMetadata;
+import com.ntu.hms.codec.ModelMetadataRegistry;
+import com.ntu.hms.model.TrackedModel;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A table made of a snapshot and a log of mutations, held resident in memory. The table is loaded
+ * once; afterwards it keeps the live model instances, which are authoritative and returned by every
+ * read, together with the encoded rows last persisted, keyed by the primary key of each model.
+ * Saving a list only appends the rows that were inserted, updated or deleted instead of rewriting
+ * the whole snapshot. Once the log grows past {@link #COMPACTION_THRESHOLD} records, it is
+ * compacted back into the snapshot by the {@link LogCompactor}. Changes are made durable by the
+ * {@link GroupCommitter}.
+ *
+ * <p>The snapshot and log are kept by the {@link TableStorage} the table opens from the current
+ * {@link StorageEngine} on first use. With the default {@link CsvStorageEngine}, they are a CSV
+ * file and a {@link MutationLog} next to it.
+ *
+ * <p>The live models are held in a hash map keyed by primary key, which serves as the table's
+ * unique index for {@link Repository} lookups. The map is replaced, never changed, by a save, so
+ * {@link Cursor}s can scan it without holding the table's lock. Further {@link TableIndex}es can be
+ * added with {@link #addIndex(TableIndex)}; they are rebuilt on load and updated with the changes
+ * of every save.
+ *
+ * <p>Several threads may each read the table, change their list and save it, as the terminal
+ * sessions of a server do. Every row therefore remembers the version of the table it was last
+ * inserted, updated or deleted at, and every list returned by {@link #read()} the version it was
+ * read at, moved forward each time the list itself is saved. A list built some other way, such as
+ * by filtering or merging read lists, is taken to have been read at the saving thread's first read
+ * of the table since it last saved it, or at the last load if the thread has not read the table
+ * since. Rows inserted by another thread since are kept rather than deleted for missing from a list
+ * read before they existed, and rows deleted by another thread since, such as those moved to a
+ * {@link TableArchive}, are left out rather than inserted back, unless the saving thread changed
+ * them. A save that would update or delete a row another thread wrote since, or insert a changed
+ * row another thread deleted since, fails with a {@link WriteConflictException} before changing
+ * anything, and its transaction is rolled back, rather than losing the other thread's change.
+ *
+ * @param <T> the model class stored in the table
+ */
+public class CsvTable<T> implements Repository<T> {
+  /** The number of log records after which the table is compacted in the background. */
+  public static final int COMPACTION_THRESHOLD = 256;
+
+  /** The size in bytes from which a snapshot is read through a {@link MappedCsvScanner}. */
+  public static final long MAPPED_READ_THRESHOLD = 1 << 20;
+
+  private static final String DUPLICATE_KEY_SEPARATOR = "#";
+
+  // For each table, the version of the calling thread's first read since it last saved the table,
+  // the version lists not returned by read() are checked against
+  private static final ThreadLocal<Map<CsvTable<?>, Long>> FIRST_READ_VERSIONS =
+      ThreadLocal.withInitial(HashMap::new);
+
+  private final String csvPath;
+  private final String header;
+  private final Class<T> modelClass;
+  private final Function<? super T, String> keyFunction;
+  private final Path snapshotPath;
+  private final List<TableIndex<T>> indexes = new ArrayList<>();
+  private TableStorage<T> storage;
+
+  private Map<String, String> rows;
+  private Map<String, T> models;
+
+  // Incremented by every load and every save changing rows. Since the load, the version each row
+  // was last written at, deletions included, and the version each row was inserted at; the rows
+  // not written since have the version of the load
+  private long version;
+  private long loadVersion;
+  private final Map<String, Long> writtenVersions = new HashMap<>();
+  private final Map<String, Long> insertedVersions = new HashMap<>();
+
+  /**
+   * Constructs a CsvTable for the specified CSV file.
+   *
+   * @param csvPath the classpath-relative path of the CSV file, such as "csvdb/Appointment.csv"
+   * @param header the header row of the CSV file
+   * @param modelClass the model class stored in the table
+   * @param keyFunction the function returning the primary key of a model
+   */
+  public CsvTable(
+      String csvPath, String header, Class<T> modelClass, Function<? super T, String> keyFunction) {
+    this.csvPath = csvPath;
+    this.header = header;
+    this.modelClass = modelClass;
+    this.keyFunction = keyFunction;
+    this.snapshotPath = snapshotPathOf(csvPath);
+  }
+
+  /**
+   * Reads every row of the table, loading the snapshot and replaying the log on first use. The
+   * returned list is a new list, but the models in it are the instances held by the table, so
+   * changes made to them are visible to later reads and are persisted by the next save. The list
+   * remembers the version of the table it was read at, so saving it only ever conflicts with the
+   * saves made since, whatever else the thread reads in between.
+   *
+   * @return a list of the models held by the table, in table order
+   */
+  public synchronized List<T> read() {
+    GroupCommitter.touch(this);
+    load();
+    FIRST_READ_VERSIONS.get().putIfAbsent(this, version);
+    return new ReadList<>(models.values(), version);
+  }
+
+  /**
+   * Forgets the reads the calling thread made of every table, so the lists it builds from now on
+   * are not checked against the versions it read earlier. A thread serving one session after
+   * another calls this when a session ends.
+   */
+  public static void forgetReads() {
+    FIRST_READ_VERSIONS.remove();
+  }
+
+  /**
+   * Adds an index to the table. The index is populated immediately if the table is already loaded,
+   * and otherwise on load.
+   *
+   * @param index the index to be added
+   * @param <I> the type of the index
+   * @return the index, for chaining
+   * @throws IllegalStateException if the index is already attached to a table
+   */
+  public synchronized <I extends TableIndex<T>> I addIndex(I index) {
+    index.attach(this);
+    indexes.add(index);
+    if (models != null) {
+      models.forEach(index::put);
+    }
+    return index;
+  }
+
+  @Override
+  public synchronized T findById(String id) {
+    load();
+    return models.get(id);
+  }
+
+  @Override
+  public synchronized boolean existsById(String id) {
+    load();
+    return models.containsKey(id);
+  }
+
+  @Override
+  public List<T> findAll() {
+    return read();
+  }
+
+  @Override
+  public synchronized Cursor<T> scan(Predicate<? super T> filter) {
+    load();
+    return new Cursor<>(models.values().spliterator(), filter);
+  }
+
+  @Override
+  public synchronized int count() {
+    load();
+    return models.size();
+  }
+
+  /**
+   * Saves the specified models as the new content of the table. Only the differences with the rows
+   * last persisted are appended to the log; saving an unchanged list does not touch the disk.
+   * Models tracking their changes through {@link TrackedModel} are only encoded when they are dirty
+   * or new to the table, and a list holding the current models, none of them dirty, is not even
+   * diffed. The changes join the transaction opened by {@link GroupCommitter#transaction(Runnable)}
+   * if there is one, and are committed on their own otherwise.
+   *
+   * @param models the complete content of the table
+   * @throws CommitFailedException if the changes could not be committed
+   * @throws WriteConflictException if another thread wrote a changed row since the calling thread
+   *     last read or saved the table
+   */
+  public void save(List<? extends T> models) {
+    GroupCommitter.transaction(() -> stage(models));
+  }
+
+  /**
+   * Writes the current rows into the snapshot and empties the log. Does nothing if the log is
+   * empty. This must be called from {@link GroupCommitter#exclusive(Runnable)}.
+   *
+   * @throws UncheckedIOException if the snapshot cannot be written
+   */
+  public synchronized void compact() {
+    if (rows == null && storage().hasLog()) {
+      load();
+    }
+    if (rows == null || storage().getLogRecordCount() == 0) {
+      return;
+    }
+
+    try {
+      storage().compact(rows);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error writing snapshot of " + csvPath, e);
+    }
+  }
+
+  /**
+   * Compacts the table, lets its storage write whatever it keeps besides the snapshot, such as a
+   * binary snapshot, and forgets its rows, so the next access reloads them from storage. This must
+   * be called from {@link GroupCommitter#exclusive(Runnable)}.
+   *
+   * @throws UncheckedIOException if the snapshot cannot be written
+   */
+  public synchronized void close() {
+    compact();
+    storage().close(rows);
+    invalidate();
+  }
+
+  /**
+   * Retrieves the classpath-relative path of the CSV file backing this table.
+   *
+   * @return the path of the CSV file
+   */
+  public String getCsvPath() {
+    return csvPath;
+  }
+
+  /**
+   * Retrieves the header row of the CSV file backing this table.
+   *
+   * @return the header row
+   */
+  public String getHeader() {
+    return header;
+  }
+
+  /**
+   * Retrieves the model class stored in this table.
+   *
+   * @return the model class
+   */
+  public Class<T> getModelClass() {
+    return modelClass;
+  }
+
+  /**
+   * Retrieves the primary key of a model of this table.
+   *
+   * @param model the model
+   * @return the primary key of the model
+   */
+  public String keyOf(T model) {
+    return keyFunction.apply(model);
+  }
+
+  /**
+   * Computes the differences between the models and the current rows, stages them in the current
+   * transaction and applies them to the rows.
+   */
+  private synchronized void stage(List<? extends T> savedModels) {
+    GroupCommitter.touch(this);
+    CsvCodec<T> codec = ModelMetadataRegistry.forClass(modelClass).getCodec();
+    load();
+    if (isUnchanged(savedModels)) {
+      if (savedModels instanceof ReadList) {
+        ((ReadList<?>) savedModels).version = version;
+      }
+      return;
+    }
+    Map<String, String> current = rows;
+    long readVersion = readVersionOf(savedModels);
+
+    Map<String, String> updated = new LinkedHashMap<>();
+    Map<String, T> updatedModels = new LinkedHashMap<>();
+    int[] changeCounts = new int[savedModels.size()];
+    int saved = 0;
+    for (T model : savedModels) {
+      // Taken before the model is encoded, so a change made by another thread meanwhile keeps the
+      // model dirty once it is marked clean
+      changeCounts[saved++] = changeCountOf(model);
+      String key = uniqueKey(model, updatedModels);
+      // A clean model already stored under the key still matches its row, so it is not encoded
+      updated.put(
+          key, isClean(model) && models.get(key) == model ? current.get(key) : codec.encode(model));
+      updatedModels.put(key, model);
+    }
+    for (String key : current.keySet()) {
+      Long insertedVersion = insertedVersions.get(key);
+      if (!updated.containsKey(key) && insertedVersion != null && insertedVersion > readVersion) {
+        // Inserted by another thread since the list was read, so not deleted
+        updated.put(key, current.get(key));
+        updatedModels.put(key, models.get(key));
+      }
+    }
+    for (Iterator<String> keys = updated.keySet().iterator(); keys.hasNext(); ) {
+      String key = keys.next();
+      if (!current.containsKey(key)
+          && isClean(updatedModels.get(key))
+          && writtenVersions.getOrDefault(key, 0L) > readVersion) {
+        // Deleted or archived by another thread since the list was read, and left unchanged in
+        // it, so not brought back
+        keys.remove();
+        updatedModels.remove(key);
+      }
+    }
+    checkConflicts(updated, readVersion);
+
+    long writeVersion = version + 1;
+    List<String> records = new ArrayList<>();
+    for (String key : current.keySet()) {
+      if (!updated.containsKey(key)) {
+        records.add(MutationLog.record(MutationLog.DELETE, key, null));
+        insertedVersions.remove(key);
+        writtenVersions.put(key, writeVersion);
+        indexes.forEach(index -> index.remove(key));
+      }
+    }
+    for (Map.Entry<String, String> entry : updated.entrySet()) {
+      String key = entry.getKey();
+      String previous = current.get(key);
+      if (previous == null) {
+        records.add(MutationLog.record(MutationLog.INSERT, key, entry.getValue()));
+        insertedVersions.put(key, writeVersion);
+        writtenVersions.put(key, writeVersion);
+      } else if (!previous.equals(entry.getValue())) {
+        records.add(MutationLog.record(MutationLog.UPDATE, key, entry.getValue()));
+        writtenVersions.put(key, writeVersion);
+      } else if (models.get(key) == updatedModels.get(key)) {
+        continue;
+      }
+      T model = updatedModels.get(key);
+      indexes.forEach(index -> index.put(key, model));
+    }
+    if (!records.isEmpty()) {
+      version = writeVersion;
+      GroupCommitter.stage(this, records);
+    }
+
+    // Apply the changes the same way replaying the log would, so the order stays consistent
+    current.keySet().retainAll(updated.keySet());
+    current.putAll(updated);
+    // The models are copied rather than changed in place, since open cursors may still read them
+    Map<String, T> savedModelMap = new LinkedHashMap<>(models);
+    savedModelMap.keySet().retainAll(updatedModels.keySet());
+    savedModelMap.putAll(updatedModels);
+    models = savedModelMap;
+    saved = 0;
+    for (T model : savedModels) {
+      markClean(model, changeCounts[saved++]);
+    }
+    if (savedModels instanceof ReadList) {
+      ((ReadList<?>) savedModels).version = version;
+    }
+    // The lists the thread built before this save may predate it, so they are checked against the
+    // version of its next read
+    FIRST_READ_VERSIONS.get().remove(this);
+  }
+
+  /**
+   * Retrieves the version of the table the specified list was read at: its own if it was returned
+   * by {@link #read()}, and otherwise the earliest the calling thread may have read it at.
+   */
+  private long readVersionOf(List<? extends T> savedModels) {
+    if (savedModels instanceof ReadList) {
+      return ((ReadList<?>) savedModels).version;
+    }
+    Long firstReadVersion = FIRST_READ_VERSIONS.get().get(this);
+    return firstReadVersion != null ? firstReadVersion : loadVersion;
+  }
+
+  /**
+   * Throws if the new rows would update or delete a row written since the specified version, or
+   * insert a row deleted since then, which would undo another thread's change.
+   */
+  private void checkConflicts(Map<String, String> updated, long readVersion) {
+    for (String key : rows.keySet()) {
+      if (!updated.containsKey(key)
+          && writtenVersions.getOrDefault(key, loadVersion) > readVersion) {
+        throw conflict("delete", key);
+      }
+    }
+    for (Map.Entry<String, String> entry : updated.entrySet()) {
+      String key = entry.getKey();
+      String previous = rows.get(key);
+      if (previous == null) {
+        Long deletedVersion = writtenVersions.get(key);
+        if (deletedVersion != null && deletedVersion > readVersion) {
+          throw conflict("insert", key);
+        }
+      } else if (!previous.equals(entry.getValue())
+          && writtenVersions.getOrDefault(key, loadVersion) > readVersion) {
+        throw conflict("update", key);
+      }
+    }
+  }
+
+  private WriteConflictException conflict(String operation, String key) {
+    return new WriteConflictException(
+        "Cannot "
+            + operation
+            + " row "
+            + key
+            + " of "
+            + csvPath
+            + ": it was changed by another thread since it was read");
+  }
+
+  /**
+   * Checks whether the models are the current ones, in the same order, and none of them is dirty,
+   * in which case saving them changes nothing and is skipped without computing a single key.
+   */
+  private boolean isUnchanged(List<? extends T> savedModels) {
+    if (savedModels.size() != models.size()) {
+      return false;
+    }
+    Iterator<T> currentModels = models.values().iterator();
+    for (T model : savedModels) {
+      if (model != currentModels.next() || !isClean(model)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isClean(Object model) {
+    return model instanceof TrackedModel && !((TrackedModel) model).isDirty();
+  }
+
+  private static void markClean(Object model) {
+    if (model instanceof TrackedModel) {
+      ((TrackedModel) model).markClean();
+    }
+  }
+
+  private static int changeCountOf(Object model) {
+    return model instanceof TrackedModel ? ((TrackedModel) model).getChangeCount() : 0;
+  }
+
+  private static void markClean(Object model, int changeCount) {
+    if (model instanceof TrackedModel) {
+      ((TrackedModel) model).markClean(changeCount);
+    }
+  }
+
+  /** Appends the records of a batch of transactions to the log. Called by the group committer. */
+  synchronized void appendToLog(Map<Long, List<String>> recordsByTxid) throws IOException {
+    storage().appendToLog(recordsByTxid);
+  }
+
+  /** Queues the table for compaction once its log has grown past the threshold. */
+  synchronized void compactIfNeeded() {
+    if (storage().getLogRecordCount() >= COMPACTION_THRESHOLD) {
+      LogCompactor.submit(this);
+    }
+  }
+
+  /**
+   * Describes the state of the table in storage. It changes with every commit and compaction of the
+   * table, so files derived from the table can tell whether they are out of date.
+   */
+  synchronized long[] getPersistedState() throws IOException {
+    return storage().getPersistedState();
+  }
+
+  /**
+   * Retrieves the path of the CSV snapshot under target/classes, which files derived from it use.
+   */
+  Path getSnapshotPath() {
+    return snapshotPath;
+  }
+
+  /** Retrieves the path under target/classes of the CSV file at a classpath-relative path. */
+  static Path snapshotPathOf(String csvPath) {
+    return Paths.get("target", "classes", csvPath);
+  }
+
+  /** Loads the table if needed. Called by the indexes while holding the table's lock. */
+  void ensureLoaded() {
+    load();
+  }
+
+  /**
+   * Forgets the rows after a failed commit or a rolled back transaction, so the next access reloads
+   * them from disk.
+   */
+  synchronized void invalidate() {
+    rows = null;
+    models = null;
+  }
+
+  /**
+   * Loads the table on first use: reads the snapshot from storage, replays the log on top of it,
+   * decodes the rows the log changed and rebuilds the secondary indexes.
+   */
+  private void load() {
+    if (rows != null) {
+      return;
+    }
+
+    Map<String, String> loadedRows = new LinkedHashMap<>();
+    Map<String, T> snapshotModels = new LinkedHashMap<>();
+    ModelMetadata<T> metadata = ModelMetadataRegistry.forClass(modelClass);
+    CsvCodec<T> codec = metadata.getCodec();
+    try {
+      storage()
+          .readSnapshot(
+              (row, snapshotModel) -> {
+                T model = snapshotModel;
+                if (model == null) {
+                  model = metadata.decode(row);
+                } else {
+                  metadata.inject(model);
+                }
+                String key = uniqueKey(model, snapshotModels);
+                loadedRows.put(key, row == null ? codec.encode(model) : row);
+                snapshotModels.put(key, model);
+              });
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error reading snapshot of " + csvPath, e);
+    }
+
+    // Without a log, the models read from the snapshot are the whole table
+    Map<String, T> loadedModels = snapshotModels;
+    if (storage().hasLog()) {
+      Map<String, String> snapshotRows = new HashMap<>(loadedRows);
+      try {
+        storage().replayLog(loadedRows, GroupCommitter::isCommitted);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Error reading mutation log for " + csvPath, e);
+      }
+
+      loadedModels = new LinkedHashMap<>();
+      for (Map.Entry<String, String> entry : loadedRows.entrySet()) {
+        String key = entry.getKey();
+        boolean unchanged = entry.getValue().equals(snapshotRows.get(key));
+        loadedModels.put(
+            key, unchanged ? snapshotModels.get(key) : metadata.decode(entry.getValue()));
+      }
+    }
+
+    for (TableIndex<T> index : indexes) {
+      index.clear();
+      loadedModels.forEach(index::put);
+    }
+    loadedModels.values().forEach(CsvTable::markClean);
+    // The models loaded are new instances, so no thread has read them yet
+    loadVersion = ++version;
+    writtenVersions.clear();
+    insertedVersions.clear();
+    rows = loadedRows;
+    models = loadedModels;
+  }
+
+  /** Opens the storage of the table from the current engine on first use. */
+  private TableStorage<T> storage() {
+    if (storage == null) {
+      storage = StorageEngines.current().openTable(csvPath, header, modelClass);
+    }
+    return storage;
+  }
+
+  /**
+   * Retrieves the key a model is stored under: its primary key, suffixed with its occurrence number
+   * if earlier models already have the same primary key. The keys of the earlier models are those
+   * of the map the model is being added to, so no separate count is kept per key.
+   */
+  private String uniqueKey(T model, Map<String, ?> keys) {
+    String key = keyFunction.apply(model);
+    if (!keys.containsKey(key)) {
+      return key;
+    }
+    int count = 2;
+    while (keys.containsKey(key + DUPLICATE_KEY_SEPARATOR + count)) {
+      count++;
+    }
+    return key + DUPLICATE_KEY_SEPARATOR + count;
+  }
+
+  /** A list returned by {@link #read()}, remembering the version of the table it was read at. */
+  private static final class ReadList<T> extends ArrayList<T> {
+    private long version;
+
+    private ReadList(Collection<? extends T> models, long version) {
+      super(models);
+      this.version = version;
+    }
+  }
+}
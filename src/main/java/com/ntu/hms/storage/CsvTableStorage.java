@@ -0,0 +1,228 @@
+package com.ntu.hms.storage;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import com.ntu.hms.codec.BinaryCodec;
+import com.ntu.hms.codec.CsvCodec;
+import com.ntu.hms.codec.CsvCodecs;
+import com.ntu.hms.codec.CsvValues;
+import com.ntu.hms.codec.ModelMetadataRegistry;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * The storage of a table in the {@link CsvStorageEngine}: a CSV snapshot under target/classes,
+ * seeded from the classpath, and a {@link MutationLog} next to it. Snapshots of at least {@link
+ * CsvTable#MAPPED_READ_THRESHOLD} bytes are memory-mapped and decoded by the {@link
+ * ChunkedCsvDecoder}, in parallel once they span several chunks; smaller ones, and snapshots only
+ * found on the classpath, are read line by line. When binary snapshots are enabled, closing the
+ * table also writes a {@link BinarySnapshot} of the CSV file, which is read in its place as long as
+ * the two still match.
+ *
+ * @param <T> the model class stored in the table
+ */
+final class CsvTableStorage<T> implements TableStorage<T> {
+  private final String csvPath;
+  private final String header;
+  private final Class<T> modelClass;
+  private final Path snapshotPath;
+  private final MutationLog log;
+  private final BinarySnapshot<T> binarySnapshot;
+
+  CsvTableStorage(String csvPath, String header, Class<T> modelClass) {
+    this(csvPath, header, modelClass, BinarySnapshot.ENABLED);
+  }
+
+  /**
+   * Constructs the storage of a table, reading and writing a binary snapshot only if specified,
+   * whatever the {@code csvdb.binarySnapshots} system property says.
+   */
+  CsvTableStorage(String csvPath, String header, Class<T> modelClass, boolean binarySnapshots) {
+    this.csvPath = csvPath;
+    this.header = header;
+    this.modelClass = modelClass;
+    this.snapshotPath = CsvTable.snapshotPathOf(csvPath);
+    this.log = new MutationLog(snapshotPath);
+    BinaryCodec<T> binaryCodec = CsvCodecs.binaryForClass(modelClass);
+    this.binarySnapshot =
+        binarySnapshots && binaryCodec != null
+            ? new BinarySnapshot<>(snapshotPath, header, binaryCodec)
+            : null;
+  }
+
+  @Override
+  public void readSnapshot(BiConsumer<String, T> consumer) throws IOException {
+    List<T> binaryModels = readBinarySnapshot();
+    if (binaryModels != null) {
+      // The binary snapshot holds no rows, so they are encoded again by the table
+      for (T model : binaryModels) {
+        consumer.accept(null, model);
+      }
+    } else if (Files.exists(snapshotPath)
+        && Files.size(snapshotPath) >= CsvTable.MAPPED_READ_THRESHOLD) {
+      CsvCodec<T> codec = ModelMetadataRegistry.forClass(modelClass).getCodec();
+      for (ChunkedCsvDecoder.Chunk<T> chunk : ChunkedCsvDecoder.decode(snapshotPath, codec)) {
+        List<String> chunkRows = chunk.getRows();
+        List<T> chunkModels = chunk.getModels();
+        for (int i = 0; i < chunkRows.size(); i++) {
+          consumer.accept(chunkRows.get(i), chunkModels.get(i));
+        }
+      }
+    } else {
+      try (BufferedReader reader = openCsv(snapshotPath, csvPath)) {
+        reader.readLine(); // Skip the header line
+        String row;
+        while ((row = reader.readLine()) != null) {
+          if (!row.isEmpty()) {
+            consumer.accept(row, null);
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public boolean hasLog() {
+    return log.exists();
+  }
+
+  @Override
+  public void replayLog(Map<String, String> rows, LongPredicate committed) throws IOException {
+    log.replay(rows, committed);
+  }
+
+  @Override
+  public void appendToLog(Map<Long, List<String>> recordsByTxid) throws IOException {
+    log.append(recordsByTxid);
+  }
+
+  @Override
+  public int getLogRecordCount() {
+    return log.getRecordCount();
+  }
+
+  /**
+   * Writes the rows into the snapshot and truncates the log. The snapshot is written to a temporary
+   * file, forced to disk and atomically renamed over the previous one, so a crash leaves either the
+   * old or the new snapshot in place.
+   */
+  @Override
+  public void compact(Map<String, String> rows) throws IOException {
+    Path temporaryPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporaryPath, CREATE, WRITE, TRUNCATE_EXISTING);
+        BufferedWriter writer =
+            new BufferedWriter(Channels.newWriter(channel, UTF_8.newEncoder(), -1))) {
+      writer.write(header);
+      writer.write("\n");
+      for (String row : rows.values()) {
+        writer.write(row);
+        writer.write("\n");
+      }
+      writer.flush();
+      channel.force(true);
+    }
+    Files.move(temporaryPath, snapshotPath, ATOMIC_MOVE, REPLACE_EXISTING);
+    forceDirectory(snapshotPath.getParent());
+    log.truncate();
+  }
+
+  /** Brings the binary snapshot up to date if binary snapshots are enabled. */
+  @Override
+  public void close(Map<String, String> rows) {
+    writeBinarySnapshot(rows);
+  }
+
+  /** Describes the size and modification time of the snapshot and the size of the log. */
+  @Override
+  public long[] getPersistedState() throws IOException {
+    boolean exists = Files.exists(snapshotPath);
+    return new long[] {
+      exists ? Files.size(snapshotPath) : -1,
+      exists ? Files.getLastModifiedTime(snapshotPath).toMillis() : -1,
+      log.size()
+    };
+  }
+
+  /**
+   * Opens a CSV file for reading, from target/classes if it was written there and from the
+   * classpath otherwise.
+   *
+   * @param path the path of the CSV file under target/classes
+   * @param csvPath the classpath-relative path of the CSV file
+   * @return a reader positioned at the header line
+   * @throws IOException if the file cannot be opened
+   */
+  static BufferedReader openCsv(Path path, String csvPath) throws IOException {
+    if (Files.exists(path)) {
+      return Files.newBufferedReader(path, UTF_8);
+    }
+
+    InputStream inputStream = CsvTableStorage.class.getClassLoader().getResourceAsStream(csvPath);
+    return new BufferedReader(new InputStreamReader(Objects.requireNonNull(inputStream), UTF_8));
+  }
+
+  /** Reads the models of the binary snapshot, or returns null if there is no usable one. */
+  private List<T> readBinarySnapshot() {
+    if (binarySnapshot == null) {
+      return null;
+    }
+    try {
+      return binarySnapshot.read();
+    } catch (IOException | RuntimeException e) {
+      System.err.println("Ignoring binary snapshot of " + csvPath + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Writes the binary snapshot from the rows, unless it already matches the CSV file. The rows are
+   * decoded again rather than taken from the live models, which may hold unsaved changes. A failure
+   * only costs the next load its shortcut, so it is reported without failing the close.
+   */
+  private void writeBinarySnapshot(Map<String, String> rows) {
+    if (binarySnapshot == null || rows == null) {
+      return;
+    }
+    try {
+      if (!Files.exists(snapshotPath) || binarySnapshot.isCurrent()) {
+        return;
+      }
+      CsvCodec<T> codec = ModelMetadataRegistry.forClass(modelClass).getCodec();
+      List<T> snapshotModels = new ArrayList<>(rows.size());
+      for (String row : rows.values()) {
+        snapshotModels.add(codec.decode(CsvValues.split(row)));
+      }
+      binarySnapshot.write(snapshotModels);
+    } catch (IOException | RuntimeException e) {
+      System.err.println("Failed to write binary snapshot of " + csvPath + ": " + e.getMessage());
+    }
+  }
+
+  /** Forces a directory to disk, so the renames made in it survive a crash. */
+  static void forceDirectory(Path directory) {
+    try (FileChannel channel = FileChannel.open(directory, READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      // Not every platform allows a directory to be opened; the rename is still atomic
+    }
+  }
+}
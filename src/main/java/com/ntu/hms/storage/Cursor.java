@@ -0,0 +1,140 @@
+package com.ntu.hms.storage;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A lazy, forward-only cursor over the models of a table that match a filter. The filter is pushed
+ * down to the cursor and applied as it advances, so models that do not match are skipped without
+ * being collected, and a caller that stops early never visits the rest of the table.
+ *
+ * <p>A cursor reads the table as it was when the cursor was opened: models inserted or deleted by
+ * later saves are not seen, while changes made to the live model instances are. A cursor is
+ * consumed either by iterating it or through {@link #stream()}, not both.
+ *
+ * @param <T> the model class stored in the table
+ */
+public final class Cursor<T> implements Iterator<T> {
+  private final Filtered<T> source;
+  private T next;
+  private boolean started;
+
+  /**
+   * Constructs a Cursor over the specified models.
+   *
+   * @param models a spliterator over the models of the table, which must not change afterwards
+   * @param filter the predicate the returned models must satisfy
+   */
+  Cursor(Spliterator<T> models, Predicate<? super T> filter) {
+    this.source = new Filtered<>(models, filter);
+  }
+
+  @Override
+  public boolean hasNext() {
+    started = true;
+    while (next == null) {
+      if (!source.tryAdvance(model -> next = model)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    T model = next;
+    next = null;
+    return model;
+  }
+
+  /**
+   * Retrieves a spliterator over the models left in the cursor. The spliterator can be split, so
+   * the models can be filtered in parallel.
+   *
+   * @return a spliterator over the matching models, in table order
+   * @throws IllegalStateException if the cursor has already been iterated
+   */
+  public Spliterator<T> spliterator() {
+    if (started) {
+      throw new IllegalStateException("The cursor has already been iterated.");
+    }
+    started = true;
+    return source;
+  }
+
+  /**
+   * Retrieves a sequential stream over the models left in the cursor.
+   *
+   * @return a stream of the matching models, in table order
+   * @throws IllegalStateException if the cursor has already been iterated
+   */
+  public Stream<T> stream() {
+    return StreamSupport.stream(spliterator(), false);
+  }
+
+  /** A spliterator returning the models of another spliterator that match a filter. */
+  private static final class Filtered<T> implements Spliterator<T> {
+    private final Spliterator<T> models;
+    private final Predicate<? super T> filter;
+    private T current;
+
+    private Filtered(Spliterator<T> models, Predicate<? super T> filter) {
+      this.models = models;
+      this.filter = filter;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      while (models.tryAdvance(this::offer)) {
+        if (current != null) {
+          T model = current;
+          current = null;
+          action.accept(model);
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+      models.forEachRemaining(
+          model -> {
+            if (filter.test(model)) {
+              action.accept(model);
+            }
+          });
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+      Spliterator<T> prefix = models.trySplit();
+      return prefix == null ? null : new Filtered<>(prefix, filter);
+    }
+
+    @Override
+    public long estimateSize() {
+      return models.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+      // The filter may drop models, so the size is only an upper bound
+      return (models.characteristics() & ~(SIZED | SUBSIZED)) | NONNULL | IMMUTABLE;
+    }
+
+    private void offer(T model) {
+      if (filter.test(model)) {
+        current = model;
+      }
+    }
+  }
+}
@@ -0,0 +1,379 @@
+package com.ntu.hms.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Commits the changes staged by {@link CsvTable}s. Every save runs in a transaction, either the one
+ * opened by {@link #transaction(Runnable)} or one of its own. Transactions queued within the
+ * group-commit window are written by a background thread as one batch: the records of each table
+ * are appended and forced to disk once per batch, then the transaction IDs of the whole batch are
+ * committed through the {@link StorageEngine}, which the {@link CsvStorageEngine} does by appending
+ * them to its {@link CommitJournal} with a single force. The caller returns once its transaction is
+ * durable. Successive updates of the same row within a batch are coalesced into a single log
+ * record.
+ *
+ * <p>The window defaults to {@value #DEFAULT_WINDOW_MILLIS} ms and can be changed with the {@code
+ * csvdb.groupCommitWindowMillis} system property.
+ *
+ * <p>Setting the {@code csvdb.writeBehindMillis} system property to a positive bound switches to
+ * write-behind: the changes are applied to the tables in memory and the caller returns at once,
+ * while the committer batches every transaction queued within the bound of the first one and
+ * persists them together. Ten updates of a medication in a row thus cost a single log append. A
+ * failed write-behind commit is reported by the next {@link #flush()}. The queued transactions are
+ * flushed by {@link #checkpoint(List)} when the application exits, and by a shutdown hook when the
+ * JVM is stopped otherwise.
+ */
+public final class GroupCommitter {
+  /**
+   * The default time, in milliseconds, the committer waits for more transactions to batch. With no
+   * wait, a batch holds the transactions queued while the previous batch was being forced to disk.
+   */
+  public static final long DEFAULT_WINDOW_MILLIS = 0;
+
+  private static final long WRITE_BEHIND_MILLIS = Long.getLong("csvdb.writeBehindMillis", 0);
+  private static final long WINDOW_NANOS =
+      TimeUnit.MILLISECONDS.toNanos(
+          WRITE_BEHIND_MILLIS > 0
+              ? WRITE_BEHIND_MILLIS
+              : Long.getLong("csvdb.groupCommitWindowMillis", DEFAULT_WINDOW_MILLIS));
+  private static final CommitStatistics STATISTICS = new CommitStatistics();
+  private static final BlockingQueue<Transaction> QUEUE = new LinkedBlockingQueue<>();
+  private static final ReentrantLock STAGING_LOCK = new ReentrantLock();
+  private static final ThreadLocal<Transaction> CURRENT = new ThreadLocal<>();
+  // Queued to make the committer write its current batch without waiting for the window to end
+  private static final Transaction FLUSH = new Transaction(-1);
+  private static Transaction lastQueued;
+  private static volatile Throwable writeBehindFailure;
+
+  static {
+    Thread committer = new Thread(GroupCommitter::run, "csvdb-group-commit");
+    committer.setDaemon(true);
+    committer.start();
+    if (isWriteBehind()) {
+      Runtime.getRuntime()
+          .addShutdownHook(new Thread(GroupCommitter::flushOnShutdown, "csvdb-flush"));
+    }
+  }
+
+  private GroupCommitter() {}
+
+  /**
+   * Runs the specified body in a transaction. All the saves performed by the body are committed
+   * together once it returns, so either all or none of them survive a crash. Nested calls join the
+   * outermost transaction. In write-behind mode, the call returns as soon as the transaction is
+   * queued.
+   *
+   * <p>If the body throws, the transaction is rolled back: none of its saves is committed, and the
+   * tables it read or saved are reloaded from storage on their next access, dropping whatever the
+   * body changed in their models.
+   *
+   * @param body the body of the transaction
+   * @throws CommitFailedException if the transaction could not be committed
+   * @throws WriteConflictException if a save of the body conflicted with another thread's
+   */
+  public static void transaction(Runnable body) {
+    Transaction transaction;
+    STAGING_LOCK.lock();
+    try {
+      if (CURRENT.get() != null) {
+        body.run();
+        return;
+      }
+
+      transaction = new Transaction(StorageEngines.current().nextTxid());
+      CURRENT.set(transaction);
+      boolean completed = false;
+      try {
+        body.run();
+        completed = true;
+      } finally {
+        CURRENT.remove();
+        if (!completed) {
+          rollback(transaction);
+        } else if (!transaction.isEmpty()) {
+          transaction.markQueued();
+          lastQueued = transaction;
+          QUEUE.add(transaction);
+        }
+      }
+    } catch (IOException e) {
+      throw new CommitFailedException("Error allocating a transaction ID", e);
+    } finally {
+      STAGING_LOCK.unlock();
+    }
+
+    if (!transaction.isEmpty() && !isWriteBehind()) {
+      transaction.await();
+    }
+  }
+
+  /**
+   * Waits until every queued transaction is durable, cutting short the window of the batch being
+   * collected.
+   *
+   * @throws CommitFailedException if a transaction written behind could not be committed since the
+   *     last flush
+   */
+  public static void flush() {
+    Transaction transaction;
+    STAGING_LOCK.lock();
+    try {
+      transaction = lastQueued;
+    } finally {
+      STAGING_LOCK.unlock();
+    }
+
+    if (transaction != null) {
+      QUEUE.add(FLUSH);
+      try {
+        transaction.await();
+      } catch (CommitFailedException e) {
+        // Write-behind failures are recorded below; others were thrown to their owner
+      }
+    }
+    Throwable failure = writeBehindFailure;
+    if (failure != null) {
+      writeBehindFailure = null;
+      throw new CommitFailedException("Changes written behind could not be committed", failure);
+    }
+  }
+
+  /**
+   * Checks whether transactions are written behind rather than awaited by their caller.
+   *
+   * @return true if the {@code csvdb.writeBehindMillis} system property is positive
+   */
+  public static boolean isWriteBehind() {
+    return WRITE_BEHIND_MILLIS > 0;
+  }
+
+  /**
+   * Runs the specified action while no transaction can be staged, once every queued transaction is
+   * durable. This is used to compact mutation logs without racing with commits.
+   *
+   * @param action the action to be run
+   */
+  public static void exclusive(Runnable action) {
+    STAGING_LOCK.lock();
+    try {
+      awaitQueued();
+      action.run();
+    } finally {
+      STAGING_LOCK.unlock();
+    }
+  }
+
+  /**
+   * Records that the current thread's transaction, if any, read or is saving the specified table,
+   * so the table is reloaded if the transaction is rolled back.
+   *
+   * @param table the table read or saved
+   */
+  static void touch(CsvTable<?> table) {
+    Transaction transaction = CURRENT.get();
+    if (transaction != null) {
+      transaction.touch(table);
+    }
+  }
+
+  /**
+   * Stages log records in the transaction of the current thread.
+   *
+   * @param table the table the records belong to
+   * @param records the records to be staged
+   * @throws IllegalStateException if the current thread is not in a transaction
+   */
+  static void stage(CsvTable<?> table, List<String> records) {
+    Transaction transaction = CURRENT.get();
+    if (transaction == null) {
+      throw new IllegalStateException("Changes must be staged inside a transaction.");
+    }
+    transaction.stage(table, records);
+  }
+
+  /**
+   * Checks whether the transaction with the specified ID was committed.
+   *
+   * @param txid the ID of the transaction
+   * @return true if the transaction was committed, false otherwise
+   */
+  static boolean isCommitted(long txid) {
+    return StorageEngines.current().isCommitted(txid);
+  }
+
+  /**
+   * Compacts and closes the specified tables once every queued transaction is durable, then lets
+   * the storage engine discard its commit records. The tables must include every table with a log,
+   * since the commit records of their transactions are lost.
+   *
+   * @param tables every table of the database
+   * @throws UncheckedIOException if a snapshot or the commit records cannot be written
+   */
+  public static void checkpoint(List<? extends CsvTable<?>> tables) {
+    exclusive(
+        () -> {
+          tables.forEach(CsvTable::close);
+          try {
+            StorageEngines.current().checkpoint();
+          } catch (IOException e) {
+            throw new UncheckedIOException("Error discarding commit records", e);
+          }
+        });
+  }
+
+  /**
+   * Retrieves the commit latency statistics.
+   *
+   * @return the statistics of the commits performed so far
+   */
+  public static CommitStatistics getStatistics() {
+    return STATISTICS;
+  }
+
+  private static void run() {
+    while (true) {
+      List<Transaction> batch = new ArrayList<>();
+      try {
+        Transaction first = QUEUE.take();
+        if (first == FLUSH) {
+          continue;
+        }
+        batch.add(first);
+        long deadline = first.getQueuedAtNanos() + WINDOW_NANOS;
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+          Transaction transaction = QUEUE.poll(remaining, TimeUnit.NANOSECONDS);
+          if (transaction == null || transaction == FLUSH) {
+            break;
+          }
+          batch.add(transaction);
+        }
+        QUEUE.drainTo(batch);
+        batch.removeIf(transaction -> transaction == FLUSH);
+      } catch (InterruptedException e) {
+        // The committer is a daemon thread; keep serving the transactions already taken
+      }
+      commit(batch);
+    }
+  }
+
+  /**
+   * Discards a transaction whose body threw. Its records are never queued, and the tables it
+   * touched are invalidated once the transactions queued before it are durable, so reloading them
+   * brings back every committed change and none of the discarded ones.
+   */
+  private static void rollback(Transaction transaction) {
+    awaitQueued();
+    transaction.getTables().forEach(CsvTable::invalidate);
+  }
+
+  /** Waits until every queued transaction is durable. Called while holding the staging lock. */
+  private static void awaitQueued() {
+    if (lastQueued != null) {
+      QUEUE.add(FLUSH);
+      try {
+        lastQueued.await();
+      } catch (CommitFailedException e) {
+        // The failure was already reported to the thread that owned the transaction
+      }
+      lastQueued = null;
+    }
+  }
+
+  private static void commit(List<Transaction> batch) {
+    Throwable failure = null;
+    List<Long> txids = new ArrayList<>(batch.size());
+    Map<CsvTable<?>, Map<Long, List<String>>> recordsByTable = new LinkedHashMap<>();
+    for (Transaction transaction : batch) {
+      for (Map.Entry<CsvTable<?>, List<String>> entry : transaction.getRecords().entrySet()) {
+        recordsByTable
+            .computeIfAbsent(entry.getKey(), table -> new LinkedHashMap<>())
+            .put(transaction.getTxid(), entry.getValue());
+      }
+      txids.add(transaction.getTxid());
+    }
+
+    try {
+      for (Map.Entry<CsvTable<?>, Map<Long, List<String>>> entry : recordsByTable.entrySet()) {
+        entry.getKey().appendToLog(coalesce(entry.getValue()));
+      }
+      StorageEngines.current().commit(txids);
+    } catch (IOException | RuntimeException e) {
+      failure = e;
+    }
+
+    if (failure != null && isWriteBehind()) {
+      writeBehindFailure = failure;
+      System.err.println("Error writing changes behind: " + failure);
+    }
+    long now = System.nanoTime();
+    for (Transaction transaction : batch) {
+      if (failure != null) {
+        transaction.getTables().forEach(CsvTable::invalidate);
+      } else {
+        STATISTICS.recordTransaction(now - transaction.getQueuedAtNanos());
+        transaction.getRecords().keySet().forEach(CsvTable::compactIfNeeded);
+      }
+      transaction.complete(failure);
+    }
+    STATISTICS.recordBatch();
+  }
+
+  /**
+   * Coalesces the records of a table across the transactions of a batch. An update of a row that an
+   * earlier record of the batch inserted or updated replaces the row of that record instead of
+   * being appended. Since the whole batch is committed with a single journal append, the coalesced
+   * records are all written under the ID of the last transaction.
+   */
+  static Map<Long, List<String>> coalesce(Map<Long, List<String>> recordsByTxid) {
+    if (recordsByTxid.size() == 1) {
+      return recordsByTxid;
+    }
+
+    List<String> records = new ArrayList<>();
+    Map<String, Integer> lastWrites = new HashMap<>();
+    long lastTxid = 0;
+    for (Map.Entry<Long, List<String>> entry : recordsByTxid.entrySet()) {
+      lastTxid = entry.getKey();
+      for (String record : entry.getValue()) {
+        char operation = MutationLog.getOperation(record);
+        String key = MutationLog.getKey(record);
+        Integer index = lastWrites.get(key);
+        if (operation == MutationLog.UPDATE && index != null) {
+          String previous = records.get(index);
+          records.set(
+              index,
+              MutationLog.record(
+                  MutationLog.getOperation(previous), key, MutationLog.getRow(record)));
+          continue;
+        }
+        if (operation == MutationLog.DELETE) {
+          lastWrites.remove(key);
+        } else {
+          lastWrites.put(key, records.size());
+        }
+        records.add(record);
+      }
+    }
+    return Collections.singletonMap(lastTxid, records);
+  }
+
+  private static void flushOnShutdown() {
+    try {
+      flush();
+    } catch (CommitFailedException e) {
+      System.err.println(e.getMessage() + ": " + e.getCause());
+    }
+  }
+}
@@ -0,0 +1,158 @@
+package com.ntu.hms.storage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * A composite index over the models of a {@link CsvTable}, grouping the models by one key and
+ * sorting each group by a second key, such as a doctor's schedules by date. A group is held in a
+ * {@link NavigableMap}, so the index answers both point lookups and range slices of a group in time
+ * proportional to the number of models returned. The pair of keys is expected to be unique; if two
+ * models share it, the one saved last is returned.
+ *
+ * <p>As with {@link SecondaryIndex}, models changed without being saved are skipped by lookups
+ * until the next save files them under their new keys.
+ *
+ * @param <G> the type of the grouping key
+ * @param <K> the type of the sort key within a group
+ * @param <T> the model class stored in the table
+ */
+public final class GroupedIndex<G, K extends Comparable<? super K>, T> extends TableIndex<T> {
+  private final Function<? super T, ? extends G> groupFunction;
+  private final Function<? super T, ? extends K> keyFunction;
+  private final Map<G, NavigableMap<K, T>> groups = new HashMap<>();
+  private final Map<String, Entry<G, K>> entries = new HashMap<>();
+
+  /**
+   * Constructs a GroupedIndex with the specified keys.
+   *
+   * @param groupFunction the function returning the grouping key of a model
+   * @param keyFunction the function returning the sort key of a model within its group
+   */
+  public GroupedIndex(
+      Function<? super T, ? extends G> groupFunction,
+      Function<? super T, ? extends K> keyFunction) {
+    this.groupFunction = groupFunction;
+    this.keyFunction = keyFunction;
+  }
+
+  /**
+   * Finds the model with the specified keys.
+   *
+   * @param group the grouping key
+   * @param key the sort key within the group
+   * @return the matching model, or null if there is none
+   * @throws IllegalStateException if the index is not attached to a table
+   */
+  public T find(G group, K key) {
+    CsvTable<T> owner = getTable();
+    synchronized (owner) {
+      owner.ensureLoaded();
+      NavigableMap<K, T> models = groups.get(group);
+      T model = models == null || key == null ? null : models.get(key);
+      return model != null && matches(model, group, key) ? model : null;
+    }
+  }
+
+  /**
+   * Finds the models of a group whose sort key lies within the specified range, inclusive. Either
+   * bound may be null to leave that end of the range open.
+   *
+   * @param group the grouping key
+   * @param fromKey the low end of the range, or null
+   * @param toKey the high end of the range, or null
+   * @return a new list of the matching models, in sort key order
+   * @throws IllegalStateException if the index is not attached to a table
+   */
+  public List<T> findRange(G group, K fromKey, K toKey) {
+    CsvTable<T> owner = getTable();
+    synchronized (owner) {
+      owner.ensureLoaded();
+      NavigableMap<K, T> range = groups.get(group);
+      List<T> result = new ArrayList<>();
+      if (range == null) {
+        return result;
+      }
+      if (fromKey != null) {
+        range = range.tailMap(fromKey, true);
+      }
+      if (toKey != null) {
+        range = range.headMap(toKey, true);
+      }
+      for (Map.Entry<K, T> entry : range.entrySet()) {
+        if (matches(entry.getValue(), group, entry.getKey())) {
+          result.add(entry.getValue());
+        }
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Finds every model of a group.
+   *
+   * @param group the grouping key
+   * @return a new list of the models of the group, in sort key order
+   * @throws IllegalStateException if the index is not attached to a table
+   */
+  public List<T> findGroup(G group) {
+    return findRange(group, null, null);
+  }
+
+  @Override
+  void clear() {
+    groups.clear();
+    entries.clear();
+  }
+
+  @Override
+  void put(String primaryKey, T model) {
+    remove(primaryKey);
+    G group = groupFunction.apply(model);
+    K key = keyFunction.apply(model);
+    if (group != null && key != null) {
+      groups.computeIfAbsent(group, ignored -> new TreeMap<>()).put(key, model);
+      entries.put(primaryKey, new Entry<>(group, key, model));
+    }
+  }
+
+  @Override
+  void remove(String primaryKey) {
+    Entry<G, K> entry = entries.remove(primaryKey);
+    if (entry == null) {
+      return;
+    }
+    NavigableMap<K, T> models = groups.get(entry.group);
+    // Only unfile the model if another one has not taken its keys since
+    if (models.get(entry.key) == entry.model) {
+      models.remove(entry.key);
+      if (models.isEmpty()) {
+        groups.remove(entry.group);
+      }
+    }
+  }
+
+  private boolean matches(T model, G group, K key) {
+    return Objects.equals(groupFunction.apply(model), group)
+        && Objects.equals(keyFunction.apply(model), key);
+  }
+
+  /** The keys a model is filed under. */
+  private static final class Entry<G, K> {
+    private final G group;
+    private final K key;
+    private final Object model;
+
+    private Entry(G group, K key, Object model) {
+      this.group = group;
+      this.key = key;
+      this.model = model;
+    }
+  }
+}
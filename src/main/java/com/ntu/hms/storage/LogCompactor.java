@@ -0,0 +1,43 @@
+package com.ntu.hms.storage;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Compacts the mutation logs of {@link CsvTable}s on a background daemon thread, so the caller that
+ * pushed a log over its threshold does not pay for rewriting the snapshot. A table is queued at
+ * most once at a time.
+ */
+public final class LogCompactor {
+  private static final ExecutorService EXECUTOR =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "csvdb-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+          });
+  private static final Set<CsvTable<?>> PENDING = ConcurrentHashMap.newKeySet();
+
+  private LogCompactor() {}
+
+  /**
+   * Queues the specified table for compaction, unless it is already queued.
+   *
+   * @param table the table to be compacted
+   */
+  public static void submit(CsvTable<?> table) {
+    if (PENDING.add(table)) {
+      EXECUTOR.execute(
+          () -> {
+            PENDING.remove(table);
+            try {
+              GroupCommitter.exclusive(table::compact);
+            } catch (RuntimeException e) {
+              System.err.println("Failed to compact " + table.getCsvPath() + ": " + e.getMessage());
+            }
+          });
+    }
+  }
+}
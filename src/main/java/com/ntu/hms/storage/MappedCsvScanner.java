@@ -0,0 +1,342 @@
+package com.ntu.hms.storage;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.ntu.hms.codec.CsvValues;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * A forward-only scanner over the rows of a CSV file, reading the file through a memory mapping
+ * instead of a {@link java.io.Reader}. Rows and delimiters are found directly in the mapped bytes,
+ * and nothing is decoded until a column is asked for, so a scan that only needs a few columns of
+ * each row, such as the doctor ID and date of a schedule, never builds strings for the others.
+ *
+ * <p>Columns are separated by every comma, as with {@link CsvValues#split(String)}; empty rows are
+ * skipped and a carriage return before a line feed is dropped. Large files are mapped one region at
+ * a time, and a row must fit within a region.
+ *
+ * <p>The values returned for a column are only valid for the current row. The scanner is not
+ * thread-safe.
+ */
+public final class MappedCsvScanner implements Closeable {
+  private static final int DEFAULT_REGION_SIZE = 1 << 28;
+  private static final byte DELIMITER = ',';
+  private static final byte LINE_FEED = '\n';
+  private static final byte CARRIAGE_RETURN = '\r';
+
+  private final FileChannel channel;
+  private final long end;
+  private final int regionSize;
+  private MappedByteBuffer region;
+  private ByteBuffer view;
+  private long regionStart;
+  private int regionLimit;
+  private int position;
+  private int rowStart;
+  private int rowEnd;
+  private int[] delimiters = new int[16];
+  private int columnCount;
+  private byte[] scratch = new byte[256];
+
+  MappedCsvScanner(FileChannel channel, long start, long end, int regionSize) throws IOException {
+    this.channel = channel;
+    this.end = end;
+    this.regionSize = regionSize;
+    map(start);
+  }
+
+  /**
+   * Opens a scanner over the specified CSV file, positioned before its first row.
+   *
+   * @param path the path of the CSV file
+   * @return a new scanner, which must be closed
+   * @throws IOException if the file cannot be opened or mapped
+   */
+  public static MappedCsvScanner open(Path path) throws IOException {
+    return open(path, 0, Long.MAX_VALUE);
+  }
+
+  /**
+   * Opens a scanner over a range of the specified CSV file, positioned before the first row of the
+   * range. The range should start at the beginning of a line and end just after a line separator or
+   * at the end of the file, so that no row is cut in two.
+   *
+   * @param path the path of the CSV file
+   * @param start the offset of the first byte of the range
+   * @param end the offset just past the last byte of the range, capped at the size of the file
+   * @return a new scanner, which must be closed
+   * @throws IOException if the file cannot be opened or mapped
+   */
+  public static MappedCsvScanner open(Path path, long start, long end) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      return new MappedCsvScanner(
+          channel, start, Math.min(end, channel.size()), DEFAULT_REGION_SIZE);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Advances to the next non-empty row, finding its delimiters without decoding it.
+   *
+   * @return true if the scanner is on a new row, false if the end of the file was reached
+   * @throws IOException if the next region of the file cannot be mapped, or a row does not fit in a
+   *     region
+   */
+  public boolean next() throws IOException {
+    while (true) {
+      if (regionStart + position >= end) {
+        return false;
+      }
+
+      int start = position;
+      int count = 0;
+      int index = start;
+      while (index < regionLimit) {
+        byte value = region.get(index);
+        if (value == LINE_FEED) {
+          break;
+        }
+        if (value == DELIMITER) {
+          if (count == delimiters.length) {
+            delimiters = Arrays.copyOf(delimiters, count * 2);
+          }
+          delimiters[count++] = index;
+        }
+        index++;
+      }
+
+      if (index == regionLimit && regionStart + regionLimit < end) {
+        // The row continues past the region; map the next region from the start of the row
+        if (start == 0) {
+          throw new IOException("A CSV row is longer than " + regionSize + " bytes");
+        }
+        map(regionStart + start);
+        continue;
+      }
+
+      position = index < regionLimit ? index + 1 : index;
+      int rowLimit = index;
+      if (rowLimit > start && region.get(rowLimit - 1) == CARRIAGE_RETURN) {
+        rowLimit--;
+      }
+      if (rowLimit == start) {
+        continue;
+      }
+
+      rowStart = start;
+      rowEnd = rowLimit;
+      columnCount = count + 1;
+      return true;
+    }
+  }
+
+  /**
+   * Retrieves the number of columns of the current row.
+   *
+   * @return the number of columns
+   */
+  public int getColumnCount() {
+    return columnCount;
+  }
+
+  /**
+   * Decodes the whole current row, without the line separator.
+   *
+   * @return the current row
+   */
+  public String getRow() {
+    return decode(rowStart, rowEnd);
+  }
+
+  /**
+   * Decodes every column of the current row.
+   *
+   * @return the columns of the row, as {@link CsvValues#split(String)} would return them
+   */
+  public String[] getColumns() {
+    // Copy the row out of the mapping once, then decode each column from the copy
+    byte[] row = copy(rowStart, rowEnd);
+    String[] columns = new String[columnCount];
+    int start = 0;
+    for (int column = 0; column < columnCount; column++) {
+      int end = column == columnCount - 1 ? rowEnd - rowStart : delimiters[column] - rowStart;
+      columns[column] = new String(row, start, end - start, UTF_8);
+      start = end + 1;
+    }
+    return columns;
+  }
+
+  /**
+   * Decodes a column of the current row.
+   *
+   * @param column the index of the column
+   * @return the raw value of the column
+   * @throws IndexOutOfBoundsException if the row has no such column
+   */
+  public String getString(int column) {
+    return decode(columnStart(column), columnEnd(column));
+  }
+
+  /**
+   * Checks whether a column of the current row holds exactly the specified value. ASCII values are
+   * compared against the mapped bytes without decoding the column.
+   *
+   * @param column the index of the column
+   * @param value the value to compare against
+   * @return true if the raw value of the column equals the value, false otherwise
+   * @throws IndexOutOfBoundsException if the row has no such column
+   */
+  public boolean columnEquals(int column, String value) {
+    int start = columnStart(column);
+    int length = columnEnd(column) - start;
+    if (length != value.length()) {
+      return !isAscii(value) && getString(column).equals(value);
+    }
+    for (int i = 0; i < length; i++) {
+      char expected = value.charAt(i);
+      if (expected > 0x7F) {
+        return getString(column).equals(value);
+      }
+      if (region.get(start + i) != expected) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Parses an integer column of the current row.
+   *
+   * @param column the index of the column
+   * @return the integer held by the column
+   * @throws NumberFormatException if the column does not hold an integer
+   * @throws IndexOutOfBoundsException if the row has no such column
+   */
+  public int getInt(int column) {
+    int start = columnStart(column);
+    int end = columnEnd(column);
+    boolean negative = end > start && region.get(start) == '-';
+    int index = negative ? start + 1 : start;
+    if (index == end || end - index > 9) {
+      return CsvValues.parseInt(getString(column));
+    }
+    int value = 0;
+    for (; index < end; index++) {
+      int digit = region.get(index) - '0';
+      if (digit < 0 || digit > 9) {
+        return CsvValues.parseInt(getString(column));
+      }
+      value = value * 10 + digit;
+    }
+    return negative ? -value : value;
+  }
+
+  /**
+   * Parses a date column of the current row in the dd/MM/yyyy format. Columns in exactly that shape
+   * are read from the mapped bytes; anything else is parsed by {@link CsvValues#parseDate(String)}.
+   *
+   * @param column the index of the column
+   * @return the date held by the column
+   * @throws java.time.format.DateTimeParseException if the column does not hold a date
+   * @throws IndexOutOfBoundsException if the row has no such column
+   */
+  public LocalDate getDate(int column) {
+    int start = columnStart(column);
+    if (columnEnd(column) - start == 10
+        && region.get(start + 2) == '/'
+        && region.get(start + 5) == '/') {
+      int day = digits(start, 2);
+      int month = digits(start + 3, 2);
+      int year = digits(start + 6, 4);
+      if (day >= 0 && month >= 0 && year >= 0) {
+        try {
+          return LocalDate.of(year, month, day);
+        } catch (DateTimeException e) {
+          // Let the formatter resolve or reject the date the way the codecs would
+        }
+      }
+    }
+    return CsvValues.parseDate(getString(column));
+  }
+
+  /** Releases the file. The mapping itself is released once it is no longer referenced. */
+  @Override
+  public void close() throws IOException {
+    region = null;
+    view = null;
+    channel.close();
+  }
+
+  private void map(long start) throws IOException {
+    long length = Math.max(0, Math.min(regionSize, end - start));
+    region = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+    view = region.duplicate();
+    regionStart = start;
+    regionLimit = (int) length;
+    position = 0;
+  }
+
+  private int columnStart(int column) {
+    checkColumn(column);
+    return column == 0 ? rowStart : delimiters[column - 1] + 1;
+  }
+
+  private int columnEnd(int column) {
+    checkColumn(column);
+    return column == columnCount - 1 ? rowEnd : delimiters[column];
+  }
+
+  private void checkColumn(int column) {
+    if (column < 0 || column >= columnCount) {
+      throw new IndexOutOfBoundsException("Column " + column + " of " + columnCount);
+    }
+  }
+
+  private String decode(int start, int end) {
+    return new String(copy(start, end), 0, end - start, UTF_8);
+  }
+
+  /** Copies a range of the mapping into the scratch buffer, which is returned. */
+  private byte[] copy(int start, int end) {
+    int length = end - start;
+    if (length > scratch.length) {
+      scratch = new byte[Math.max(length, scratch.length * 2)];
+    }
+    view.position(start);
+    view.get(scratch, 0, length);
+    return scratch;
+  }
+
+  private int digits(int start, int count) {
+    int value = 0;
+    for (int index = start; index < start + count; index++) {
+      int digit = region.get(index) - '0';
+      if (digit < 0 || digit > 9) {
+        return -1;
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  private static boolean isAscii(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) > 0x7F) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
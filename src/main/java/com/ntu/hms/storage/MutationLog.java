@@ -0,0 +1,234 @@
+package com.ntu.hms.storage;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+/**
+ * An append-only log of the mutations applied to a CSV table since its snapshot was last written.
+ * Each record is a single line holding the ID of the transaction that wrote it, an operation, the
+ * key of the row and, for inserts and updates, the encoded row:
+ *
+ * <pre>
+ * 1731650000000001	I	A0003	A0003,P0001,D0001,20/11/2024,2,PENDING
+ * 1731650000000002	U	A0003	A0003,P0001,D0001,20/11/2024,2,CONFIRMED
+ * 1731650000000003	D	A0003
+ * </pre>
+ *
+ * <p>A record is only replayed once its transaction appears in the {@link CommitJournal}, so a
+ * transaction spanning several tables is applied to all of them or to none.
+ *
+ * <p>The first line of the log identifies the snapshot it applies to by the snapshot's size and
+ * modification time. A log whose snapshot has since been replaced is discarded instead of replayed.
+ */
+public class MutationLog {
+  static final char INSERT = 'I';
+  static final char UPDATE = 'U';
+  static final char DELETE = 'D';
+
+  private static final String FIELD_DELIMITER = "\t";
+  private static final String SNAPSHOT_PREFIX = "#snapshot" + FIELD_DELIMITER;
+
+  private final Path logPath;
+  private final Path snapshotPath;
+  private int recordCount;
+
+  /**
+   * Constructs a MutationLog stored next to the specified snapshot.
+   *
+   * @param snapshotPath the path of the CSV snapshot the log applies to
+   */
+  public MutationLog(Path snapshotPath) {
+    String fileName = snapshotPath.getFileName().toString();
+    this.snapshotPath = snapshotPath;
+    this.logPath = snapshotPath.resolveSibling(fileName.replaceFirst("\\.csv$", "") + ".log");
+  }
+
+  /**
+   * Replays the committed records of the log on top of the rows read from the snapshot. Records
+   * after the last complete line, left behind by an interrupted append, are ignored.
+   *
+   * @param rows the snapshot rows keyed by row key, in file order; updated in place
+   * @param committed tests whether the transaction with a given ID was committed
+   * @throws IOException if the log cannot be read
+   */
+  public synchronized void replay(Map<String, String> rows, LongPredicate committed)
+      throws IOException {
+    recordCount = 0;
+    if (!Files.exists(logPath)) {
+      return;
+    }
+
+    String content = new String(Files.readAllBytes(logPath), UTF_8);
+    int end = content.lastIndexOf('\n');
+    String[] lines = end < 0 ? new String[0] : content.substring(0, end).split("\n");
+    if (lines.length == 0 || !lines[0].equals(snapshotIdentity())) {
+      Files.delete(logPath);
+      return;
+    }
+
+    for (int i = 1; i < lines.length; i++) {
+      String[] record = lines[i].split(FIELD_DELIMITER, 4);
+      recordCount++;
+      if (record.length < 3 || record[1].length() != 1 || !isCommitted(record[0], committed)) {
+        continue;
+      }
+
+      char operation = record[1].charAt(0);
+      if (operation == DELETE) {
+        rows.remove(record[2]);
+      } else if ((operation == INSERT || operation == UPDATE) && record.length == 4) {
+        rows.put(record[2], record[3]);
+      }
+    }
+  }
+
+  /**
+   * Appends the records of a batch of transactions to the log, creating it if necessary, and forces
+   * them to disk with a single call.
+   *
+   * @param recordsByTxid the records to be appended, as produced by {@link #record(char, String,
+   *     String)}, keyed by the ID of the transaction that wrote them, in commit order
+   * @throws IOException if the log cannot be written
+   */
+  public synchronized void append(Map<Long, List<String>> recordsByTxid) throws IOException {
+    StringBuilder content = new StringBuilder();
+    if (!Files.exists(logPath)) {
+      content.append(snapshotIdentity()).append('\n');
+    }
+    int count = 0;
+    for (Map.Entry<Long, List<String>> entry : recordsByTxid.entrySet()) {
+      for (String record : entry.getValue()) {
+        content.append(entry.getKey()).append(FIELD_DELIMITER).append(record).append('\n');
+        count++;
+      }
+    }
+
+    try (FileChannel channel = FileChannel.open(logPath, CREATE, WRITE, APPEND)) {
+      ByteBuffer buffer = ByteBuffer.wrap(content.toString().getBytes(UTF_8));
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(false);
+    }
+    recordCount += count;
+  }
+
+  /**
+   * Removes the log once its records have been written into the snapshot.
+   *
+   * @throws IOException if the log cannot be deleted
+   */
+  public synchronized void truncate() throws IOException {
+    Files.deleteIfExists(logPath);
+    recordCount = 0;
+  }
+
+  /**
+   * Checks whether the log file exists on disk.
+   *
+   * @return true if the log has records that are not yet in the snapshot, false otherwise
+   */
+  public boolean exists() {
+    return Files.exists(logPath);
+  }
+
+  /**
+   * Retrieves the size of the log file, which grows with every append.
+   *
+   * @return the size of the log in bytes, or 0 if there is no log
+   * @throws IOException if the size cannot be read
+   */
+  public long size() throws IOException {
+    return Files.exists(logPath) ? Files.size(logPath) : 0;
+  }
+
+  /**
+   * Retrieves the number of records in the log.
+   *
+   * @return the number of records replayed or appended since the log was last truncated
+   */
+  public synchronized int getRecordCount() {
+    return recordCount;
+  }
+
+  /**
+   * Formats a single log record, without its transaction ID.
+   *
+   * @param operation the operation, one of {@link #INSERT}, {@link #UPDATE} or {@link #DELETE}
+   * @param key the key of the affected row
+   * @param row the encoded row, or null for a delete
+   * @return the formatted record
+   */
+  static String record(char operation, String key, String row) {
+    String record = operation + FIELD_DELIMITER + key;
+    return row == null ? record : record + FIELD_DELIMITER + row;
+  }
+
+  /**
+   * Applies a record formatted by {@link #record(char, String, String)} to rows, as replaying the
+   * log would.
+   *
+   * @param rows the rows keyed by row key, in table order; updated in place
+   * @param record the record to be applied
+   */
+  static void apply(Map<String, String> rows, String record) {
+    char operation = getOperation(record);
+    String row = getRow(record);
+    if (operation == DELETE) {
+      rows.remove(getKey(record));
+    } else if ((operation == INSERT || operation == UPDATE) && row != null) {
+      rows.put(getKey(record), row);
+    }
+  }
+
+  /** Retrieves the operation of a record formatted by {@link #record(char, String, String)}. */
+  static char getOperation(String record) {
+    return record.charAt(0);
+  }
+
+  /** Retrieves the key of a record formatted by {@link #record(char, String, String)}. */
+  static String getKey(String record) {
+    int start = record.indexOf(FIELD_DELIMITER) + 1;
+    int end = record.indexOf(FIELD_DELIMITER, start);
+    return end < 0 ? record.substring(start) : record.substring(start, end);
+  }
+
+  /** Retrieves the row of a record, or null for a delete. */
+  static String getRow(String record) {
+    int start = record.indexOf(FIELD_DELIMITER) + 1;
+    int end = record.indexOf(FIELD_DELIMITER, start);
+    return end < 0 ? null : record.substring(end + 1);
+  }
+
+  private static boolean isCommitted(String txid, LongPredicate committed) {
+    try {
+      return committed.test(Long.parseLong(txid));
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  private String snapshotIdentity() throws IOException {
+    if (!Files.exists(snapshotPath)) {
+      return SNAPSHOT_PREFIX + "none";
+    }
+
+    BasicFileAttributes attributes = Files.readAttributes(snapshotPath, BasicFileAttributes.class);
+    return SNAPSHOT_PREFIX
+        + attributes.size()
+        + FIELD_DELIMITER
+        + attributes.lastModifiedTime().toMillis();
+  }
+}
@@ -0,0 +1,88 @@
+package com.ntu.hms.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Read access to the models of a table by primary key. Lookups are served from a hash index that
+ * the table keeps in sync with every insert, update and delete, so they run in constant time.
+ *
+ * <p>Other lookups scan the table through a {@link Cursor}, which applies the filter as it advances
+ * and stops as soon as the caller does, so they allocate only the models they return.
+ *
+ * @param <T> the model class stored in the table
+ */
+public interface Repository<T> {
+
+  /**
+   * Retrieves the model with the specified primary key.
+   *
+   * @param id the primary key of the model
+   * @return the model with the matching key, or null if no match is found
+   */
+  T findById(String id);
+
+  /**
+   * Checks whether a model with the specified primary key exists.
+   *
+   * @param id the primary key of the model
+   * @return true if a model with the matching key exists, false otherwise
+   */
+  boolean existsById(String id);
+
+  /**
+   * Retrieves every model of the table.
+   *
+   * @return a new list of the models, in table order
+   */
+  List<T> findAll();
+
+  /**
+   * Retrieves the number of models in the table.
+   *
+   * @return the number of models
+   */
+  int count();
+
+  /**
+   * Opens a cursor over the models matching the specified filter.
+   *
+   * @param filter the predicate the returned models must satisfy
+   * @return a new cursor over the matching models, in table order
+   */
+  Cursor<T> scan(Predicate<? super T> filter);
+
+  /**
+   * Retrieves a sequential stream over every model of the table, read lazily through a cursor.
+   *
+   * @return a stream of the models, in table order
+   */
+  default Stream<T> stream() {
+    return scan(model -> true).stream();
+  }
+
+  /**
+   * Retrieves the first model matching the specified filter, stopping the scan there.
+   *
+   * @param filter the predicate the model must satisfy
+   * @return the first matching model in table order, or null if no match is found
+   */
+  default T findFirst(Predicate<? super T> filter) {
+    Cursor<T> cursor = scan(filter);
+    return cursor.hasNext() ? cursor.next() : null;
+  }
+
+  /**
+   * Retrieves every model matching the specified filter.
+   *
+   * @param filter the predicate the models must satisfy
+   * @return a new list of the matching models, in table order
+   */
+  default List<T> findAll(Predicate<? super T> filter) {
+    List<T> result = new ArrayList<>();
+    scan(filter).forEachRemaining(result::add);
+    return result;
+  }
+}
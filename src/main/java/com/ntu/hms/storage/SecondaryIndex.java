@@ -0,0 +1,201 @@
+package com.ntu.hms.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A non-unique index over the models of a {@link CsvTable}, mapping a key derived from each model
+ * to the models that share it. The index is attached to its table with {@link
+ * CsvTable#addIndex(TableIndex)}, rebuilt whenever the table is loaded and updated with the rows
+ * inserted, updated or deleted by each save, so a lookup costs time proportional to the number of
+ * models it returns rather than to the size of the table.
+ *
+ * <p>Models are returned in table order within a key. Indexes created with {@link #sorted} also
+ * answer range queries, returning the models in key order. Models whose key is null are not
+ * indexed.
+ *
+ * <p>Since the table holds live models, a model changed without being saved may still be filed
+ * under its previous key; lookups skip such models, and the index catches up on the next save.
+ *
+ * @param <K> the type of the index key
+ * @param <T> the model class stored in the table
+ */
+public final class SecondaryIndex<K, T> extends TableIndex<T> {
+  private final Function<? super T, ? extends K> keyFunction;
+  private final Map<K, NavigableMap<Long, T>> buckets;
+  private final Map<String, Entry<K>> entries = new HashMap<>();
+  private long nextOrdinal;
+
+  private SecondaryIndex(
+      Function<? super T, ? extends K> keyFunction, Supplier<Map<K, NavigableMap<Long, T>>> maps) {
+    this.keyFunction = keyFunction;
+    this.buckets = maps.get();
+  }
+
+  /**
+   * Creates a hash index, answering lookups by exact key.
+   *
+   * @param keyFunction the function returning the key of a model
+   * @param <K> the type of the index key
+   * @param <T> the model class stored in the table
+   * @return a new, unattached index
+   */
+  public static <K, T> SecondaryIndex<K, T> hashed(Function<? super T, ? extends K> keyFunction) {
+    return new SecondaryIndex<>(keyFunction, HashMap::new);
+  }
+
+  /**
+   * Creates a sorted index, answering lookups by exact key and by key range.
+   *
+   * @param keyFunction the function returning the key of a model
+   * @param <K> the type of the index key
+   * @param <T> the model class stored in the table
+   * @return a new, unattached index
+   */
+  public static <K extends Comparable<? super K>, T> SecondaryIndex<K, T> sorted(
+      Function<? super T, ? extends K> keyFunction) {
+    return new SecondaryIndex<>(keyFunction, TreeMap::new);
+  }
+
+  /**
+   * Creates an index keyed by the constants of an enum, backed by an {@link EnumMap}.
+   *
+   * @param keyType the enum class of the key
+   * @param keyFunction the function returning the key of a model
+   * @param <K> the type of the index key
+   * @param <T> the model class stored in the table
+   * @return a new, unattached index
+   */
+  public static <K extends Enum<K>, T> SecondaryIndex<K, T> enumerated(
+      Class<K> keyType, Function<? super T, ? extends K> keyFunction) {
+    return new SecondaryIndex<>(keyFunction, () -> new EnumMap<>(keyType));
+  }
+
+  /**
+   * Finds the models filed under the specified key.
+   *
+   * @param key the key to look up
+   * @return a new list of the matching models, in table order
+   * @throws IllegalStateException if the index is not attached to a table
+   */
+  public List<T> find(K key) {
+    CsvTable<T> owner = getTable();
+    synchronized (owner) {
+      owner.ensureLoaded();
+      NavigableMap<Long, T> bucket = key == null ? null : buckets.get(key);
+      List<T> result = new ArrayList<>();
+      if (bucket != null) {
+        collect(key, bucket.values(), result);
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Finds the models whose key lies within the specified range. Either bound may be null to leave
+   * that end of the range open.
+   *
+   * @param fromKey the low end of the range, or null
+   * @param fromInclusive whether models keyed by {@code fromKey} are included
+   * @param toKey the high end of the range, or null
+   * @param toInclusive whether models keyed by {@code toKey} are included
+   * @return a new list of the matching models, in key order and then in table order
+   * @throws IllegalStateException if the index is not attached to a table
+   * @throws UnsupportedOperationException if the index was not created with {@link #sorted}
+   */
+  public List<T> findRange(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+    if (!(buckets instanceof NavigableMap)) {
+      throw new UnsupportedOperationException("Range queries require a sorted index.");
+    }
+    @SuppressWarnings("unchecked")
+    NavigableMap<K, NavigableMap<Long, T>> sortedBuckets =
+        (NavigableMap<K, NavigableMap<Long, T>>) buckets;
+
+    CsvTable<T> owner = getTable();
+    synchronized (owner) {
+      owner.ensureLoaded();
+      NavigableMap<K, NavigableMap<Long, T>> range = sortedBuckets;
+      if (fromKey != null) {
+        range = range.tailMap(fromKey, fromInclusive);
+      }
+      if (toKey != null) {
+        range = range.headMap(toKey, toInclusive);
+      }
+      List<T> result = new ArrayList<>();
+      for (Map.Entry<K, NavigableMap<Long, T>> bucket : range.entrySet()) {
+        collect(bucket.getKey(), bucket.getValue().values(), result);
+      }
+      return result;
+    }
+  }
+
+  @Override
+  void clear() {
+    buckets.clear();
+    entries.clear();
+    nextOrdinal = 0;
+  }
+
+  @Override
+  void put(String primaryKey, T model) {
+    Entry<K> entry = entries.get(primaryKey);
+    if (entry == null) {
+      entry = new Entry<>(nextOrdinal++);
+      entries.put(primaryKey, entry);
+    } else {
+      unfile(entry);
+    }
+
+    entry.key = keyFunction.apply(model);
+    if (entry.key != null) {
+      buckets.computeIfAbsent(entry.key, key -> new TreeMap<>()).put(entry.ordinal, model);
+    }
+  }
+
+  @Override
+  void remove(String primaryKey) {
+    Entry<K> entry = entries.remove(primaryKey);
+    if (entry != null) {
+      unfile(entry);
+    }
+  }
+
+  private void unfile(Entry<K> entry) {
+    if (entry.key == null) {
+      return;
+    }
+    NavigableMap<Long, T> bucket = buckets.get(entry.key);
+    bucket.remove(entry.ordinal);
+    if (bucket.isEmpty()) {
+      buckets.remove(entry.key);
+    }
+  }
+
+  private void collect(K key, Collection<T> models, List<T> result) {
+    for (T model : models) {
+      // Skip models changed in memory since they were last saved
+      if (Objects.equals(keyFunction.apply(model), key)) {
+        result.add(model);
+      }
+    }
+  }
+
+  /** The key a model is filed under and its position in the table. */
+  private static final class Entry<K> {
+    private final long ordinal;
+    private K key;
+
+    private Entry(long ordinal) {
+      this.ordinal = ordinal;
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package com.ntu.hms.storage;
+
+import com.ntu.hms.model.IdSequence;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+/**
+ * Hands out the numbers of the IDs of new entities from sequences persisted in a {@link CsvTable},
+ * one row per entity type, so a new ID costs neither a read of the entity's table nor a count of
+ * its rows, and stays unique after rows are deleted or archived. Numbers only ever increase.
+ *
+ * <p>Numbers are reserved in blocks: the first number drawn from a sequence saves the end of a
+ * whole block, and the rest of the block is then handed out from memory, so only one number in
+ * {@value #DEFAULT_BLOCK_SIZE} touches the disk. The block size can be changed with the {@code
+ * csvdb.idBlockSize} system property. A block is saved before any of its numbers is handed out, and
+ * in the caller's transaction if there is one, so a number is never handed out twice, even after a
+ * crash. A crash only skips the rest of the block; {@link #release()} saves the exact next value of
+ * every sequence on a clean shutdown, so no number is skipped then.
+ *
+ * <p>A sequence without a row, such as one whose entities were created before sequences existed,
+ * starts after the highest number already in use, computed once by the caller.
+ */
+public final class SequenceAllocator {
+  /** The default number of sequence numbers reserved by each save. */
+  public static final int DEFAULT_BLOCK_SIZE = 32;
+
+  private static final int BLOCK_SIZE =
+      Math.max(1, Integer.getInteger("csvdb.idBlockSize", DEFAULT_BLOCK_SIZE));
+
+  private final CsvTable<IdSequence> table;
+  private final Map<String, Block> blocks = new HashMap<>();
+
+  /**
+   * Constructs a SequenceAllocator over the specified table.
+   *
+   * @param table the table the sequences are persisted in
+   */
+  public SequenceAllocator(CsvTable<IdSequence> table) {
+    this.table = table;
+  }
+
+  /**
+   * Draws the next number of a sequence, reserving a new block first if the current one is used up.
+   *
+   * @param name the name of the sequence, such as "Appointment"
+   * @param firstUnused the function returning the lowest number not yet in use, called only if the
+   *     sequence has no row yet
+   * @return the next number of the sequence
+   * @throws CommitFailedException if a new block could not be saved
+   */
+  public int next(String name, IntSupplier firstUnused) {
+    int[] number = new int[1];
+    while (!tryNext(name, number)) {
+      // The transaction is entered before this allocator's lock is taken, the order in which the
+      // callers drawing a number inside a transaction already take them
+      GroupCommitter.transaction(() -> reserve(name, firstUnused));
+    }
+    return number[0];
+  }
+
+  /**
+   * Saves the exact next value of every sequence drawn from and drops the blocks, so the numbers
+   * reserved but not handed out are handed out again after a restart. This is called when the
+   * application exits.
+   *
+   * @throws CommitFailedException if the sequences could not be saved
+   */
+  public void release() {
+    GroupCommitter.transaction(
+        () -> {
+          synchronized (this) {
+            blocks.forEach((name, block) -> persist(name, block.next));
+            blocks.clear();
+          }
+        });
+  }
+
+  /** Hands out the next number of the current block of a sequence, if it has one left. */
+  private synchronized boolean tryNext(String name, int[] number) {
+    Block block = blocks.get(name);
+    if (block == null || block.next == block.limit) {
+      return false;
+    }
+    number[0] = block.next++;
+    return true;
+  }
+
+  /** Saves the end of a new block of a sequence, unless another thread already did. */
+  private synchronized void reserve(String name, IntSupplier firstUnused) {
+    Block block = blocks.get(name);
+    if (block != null && block.next < block.limit) {
+      return;
+    }
+    int start;
+    if (block != null) {
+      start = block.limit;
+    } else {
+      IdSequence sequence = table.findById(name);
+      start = sequence != null ? sequence.getNextValue() : firstUnused.getAsInt();
+    }
+    persist(name, start + BLOCK_SIZE);
+    blocks.put(name, new Block(start, start + BLOCK_SIZE));
+  }
+
+  /** Saves the next value of a sequence, adding its row if it has none. */
+  private void persist(String name, int nextValue) {
+    List<IdSequence> sequences = table.read();
+    IdSequence sequence = table.findById(name);
+    if (sequence == null) {
+      sequences.add(new IdSequence(name, nextValue));
+    } else {
+      sequence.setNextValue(nextValue);
+    }
+    table.save(sequences);
+  }
+
+  /** The numbers of a sequence reserved by the last save, from next up to limit, exclusive. */
+  private static final class Block {
+    private int next;
+    private final int limit;
+
+    private Block(int next, int limit) {
+      this.next = next;
+      this.limit = limit;
+    }
+  }
+}
@@ -0,0 +1,426 @@
+package com.ntu.hms.storage;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * An embedded {@link StorageEngine} keeping every table in a single log-structured file. The file
+ * starts with the snapshot of each compacted table, followed by the log records of every table and
+ * the commit records of their transactions, all appended as they happen:
+ *
+ * <pre>
+ * #hms-db	1
+ * T	csvdb/Medication.csv
+ * S	csvdb/Medication.csv	M0001,Paracetamol,HIGH,false,100
+ * R	1731650000000001	csvdb/Medication.csv	U\tM0001\tM0001,Paracetamol,HIGH,false,90
+ * C	1731650000000001
+ * </pre>
+ *
+ * <p>Backslashes, tabs and line breaks within a field are written as {@code \\}, {@code \t}, {@code
+ * \n} and {@code \r}, so a quoted CSV cell spanning lines, or the tab-delimited log record of a
+ * row, stays within its field and line.
+ *
+ * <p>A table without a snapshot in the file is seeded from its CSV file, which the engine never
+ * writes. Compacting a table rewrites the whole file, with the new snapshot of the table and the
+ * records of the other tables carried over, to a temporary file that is atomically renamed over the
+ * previous one. The content of the file is mirrored in memory, so it is only read once.
+ */
+public final class SingleFileStorageEngine implements StorageEngine {
+  /** The name of the engine. */
+  public static final String NAME = "file";
+
+  /** The default location of the database file. */
+  public static final Path DEFAULT_PATH = Paths.get("target", "classes", "csvdb", "hms.db");
+
+  private static final String HEADER = "#hms-db\t1";
+  private static final String FIELD_DELIMITER = "\t";
+  private static final String TABLE = "T";
+  private static final String SNAPSHOT_ROW = "S";
+  private static final String LOG_RECORD = "R";
+  private static final String COMMIT = "C";
+
+  private final Path path;
+  private final Map<String, List<String>> snapshots = new LinkedHashMap<>();
+  private final Map<String, List<LogEntry>> logs = new LinkedHashMap<>();
+  private final Set<Long> committed = new HashSet<>();
+  private long nextTxid;
+  private boolean loaded;
+
+  /** Constructs a SingleFileStorageEngine stored at {@link #DEFAULT_PATH}. */
+  public SingleFileStorageEngine() {
+    this(DEFAULT_PATH);
+  }
+
+  /**
+   * Constructs a SingleFileStorageEngine stored at the specified path.
+   *
+   * @param path the path of the database file
+   */
+  public SingleFileStorageEngine(Path path) {
+    this.path = path;
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public <T> TableStorage<T> openTable(String csvPath, String header, Class<T> modelClass) {
+    return new FileTableStorage<>(csvPath);
+  }
+
+  @Override
+  public synchronized long nextTxid() throws IOException {
+    load();
+    return nextTxid++;
+  }
+
+  @Override
+  public synchronized boolean isCommitted(long txid) {
+    try {
+      load();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error reading database file " + path, e);
+    }
+    return committed.contains(txid);
+  }
+
+  @Override
+  public synchronized void commit(List<Long> txids) throws IOException {
+    load();
+    StringBuilder content = new StringBuilder();
+    for (long txid : txids) {
+      content.append(line(COMMIT, Long.toString(txid)));
+    }
+    append(content);
+    committed.addAll(txids);
+  }
+
+  /** Rewrites the file without the commit records no log record refers to any more. */
+  @Override
+  public synchronized void checkpoint() throws IOException {
+    load();
+    if (!committed.isEmpty()) {
+      rewrite();
+    }
+  }
+
+  private synchronized void appendToLog(String table, Map<Long, List<String>> recordsByTxid)
+      throws IOException {
+    load();
+    StringBuilder content = new StringBuilder();
+    List<LogEntry> log = logs.computeIfAbsent(table, key -> new ArrayList<>());
+    for (Map.Entry<Long, List<String>> entry : recordsByTxid.entrySet()) {
+      for (String record : entry.getValue()) {
+        content.append(line(LOG_RECORD, Long.toString(entry.getKey()), table, record));
+        log.add(new LogEntry(entry.getKey(), record));
+      }
+    }
+    append(content);
+  }
+
+  private synchronized void compact(String table, Map<String, String> rows) throws IOException {
+    load();
+    snapshots.put(table, new ArrayList<>(rows.values()));
+    logs.remove(table);
+    rewrite();
+  }
+
+  private synchronized List<String> getSnapshot(String table) throws IOException {
+    load();
+    return snapshots.get(table);
+  }
+
+  private synchronized List<LogEntry> getLog(String table) throws IOException {
+    load();
+    List<LogEntry> log = logs.get(table);
+    return log == null ? new ArrayList<>() : new ArrayList<>(log);
+  }
+
+  private synchronized int getLogSize(String table) throws IOException {
+    load();
+    List<LogEntry> log = logs.get(table);
+    return log == null ? 0 : log.size();
+  }
+
+  private synchronized long[] getPersistedState(String table) throws IOException {
+    load();
+    boolean exists = Files.exists(path);
+    List<LogEntry> log = logs.get(table);
+    return new long[] {
+      exists ? Files.size(path) : -1,
+      exists ? Files.getLastModifiedTime(path).toMillis() : -1,
+      log == null ? 0 : log.size()
+    };
+  }
+
+  private void append(CharSequence content) throws IOException {
+    Files.createDirectories(path.getParent());
+    boolean created = !Files.exists(path) || Files.size(path) == 0;
+    try (FileChannel channel = FileChannel.open(path, CREATE, WRITE, APPEND)) {
+      String text = created ? HEADER + "\n" + content : content.toString();
+      ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(UTF_8));
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(false);
+    }
+  }
+
+  /** Writes the mirrored content into a new file, dropping the commit records no longer needed. */
+  private void rewrite() throws IOException {
+    Set<Long> referenced = new HashSet<>();
+    logs.values().forEach(log -> log.forEach(entry -> referenced.add(entry.txid)));
+    committed.retainAll(referenced);
+
+    Files.createDirectories(path.getParent());
+    Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporaryPath, CREATE, WRITE, TRUNCATE_EXISTING);
+        BufferedWriter writer =
+            new BufferedWriter(Channels.newWriter(channel, UTF_8.newEncoder(), -1))) {
+      writer.write(HEADER);
+      writer.write("\n");
+      for (Map.Entry<String, List<String>> snapshot : snapshots.entrySet()) {
+        writeLine(writer, TABLE, snapshot.getKey());
+        for (String row : snapshot.getValue()) {
+          writeLine(writer, SNAPSHOT_ROW, snapshot.getKey(), row);
+        }
+      }
+      for (Map.Entry<String, List<LogEntry>> log : logs.entrySet()) {
+        for (LogEntry entry : log.getValue()) {
+          writeLine(writer, LOG_RECORD, Long.toString(entry.txid), log.getKey(), entry.record);
+        }
+      }
+      for (long txid : committed) {
+        writeLine(writer, COMMIT, Long.toString(txid));
+      }
+      writer.flush();
+      channel.force(true);
+    }
+    Files.move(temporaryPath, path, ATOMIC_MOVE, REPLACE_EXISTING);
+    try (FileChannel channel = FileChannel.open(path.getParent(), READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      // Not every platform allows a directory to be opened; the rename is still atomic
+    }
+  }
+
+  private static void writeLine(BufferedWriter writer, String type, String... fields)
+      throws IOException {
+    writer.write(line(type, fields));
+  }
+
+  /** Formats a line of the file, escaping its fields. */
+  private static String line(String type, String... fields) {
+    StringBuilder line = new StringBuilder(type);
+    for (String field : fields) {
+      line.append(FIELD_DELIMITER);
+      escape(field, line);
+    }
+    return line.append('\n').toString();
+  }
+
+  private static void escape(String field, StringBuilder line) {
+    for (int i = 0; i < field.length(); i++) {
+      char c = field.charAt(i);
+      switch (c) {
+        case '\\':
+          line.append("\\\\");
+          break;
+        case '\t':
+          line.append("\\t");
+          break;
+        case '\n':
+          line.append("\\n");
+          break;
+        case '\r':
+          line.append("\\r");
+          break;
+        default:
+          line.append(c);
+      }
+    }
+  }
+
+  private static String unescape(String field) {
+    if (field.indexOf('\\') < 0) {
+      return field;
+    }
+    StringBuilder unescaped = new StringBuilder(field.length());
+    for (int i = 0; i < field.length(); i++) {
+      char c = field.charAt(i);
+      if (c != '\\' || i + 1 == field.length()) {
+        unescaped.append(c);
+        continue;
+      }
+      char escaped = field.charAt(++i);
+      unescaped.append(
+          escaped == 't' ? '\t' : escaped == 'n' ? '\n' : escaped == 'r' ? '\r' : escaped);
+    }
+    return unescaped.toString();
+  }
+
+  /**
+   * Reads the file into memory on first use. A line left incomplete by an interrupted append is cut
+   * off, so the next append starts on a line of its own.
+   */
+  private void load() throws IOException {
+    if (loaded) {
+      return;
+    }
+
+    long maxTxid = 0;
+    if (Files.exists(path)) {
+      byte[] data = Files.readAllBytes(path);
+      int end = data.length - 1;
+      while (end >= 0 && data[end] != '\n') {
+        end--;
+      }
+      if (end + 1 < data.length) {
+        try (FileChannel channel = FileChannel.open(path, WRITE)) {
+          channel.truncate(end + 1);
+        }
+      }
+      String[] lines = end < 0 ? new String[0] : new String(data, 0, end, UTF_8).split("\n");
+      if (lines.length > 0 && !lines[0].equals(HEADER)) {
+        throw new IOException("Not a database file: " + path);
+      }
+      for (int i = 1; i < lines.length; i++) {
+        String[] fields = lines[i].split(FIELD_DELIMITER, -1);
+        for (int j = 1; j < fields.length; j++) {
+          fields[j] = unescape(fields[j]);
+        }
+        switch (fields[0]) {
+          case TABLE:
+            snapshots.put(fields[1], new ArrayList<>());
+            break;
+          case SNAPSHOT_ROW:
+            snapshots.get(fields[1]).add(fields[2]);
+            break;
+          case LOG_RECORD:
+            long txid = Long.parseLong(fields[1]);
+            logs.computeIfAbsent(fields[2], key -> new ArrayList<>())
+                .add(new LogEntry(txid, fields[3]));
+            maxTxid = Math.max(maxTxid, txid);
+            break;
+          case COMMIT:
+            committed.add(Long.parseLong(fields[1]));
+            maxTxid = Math.max(maxTxid, Long.parseLong(fields[1]));
+            break;
+          default:
+            throw new IOException("Corrupt line " + (i + 1) + " in database file " + path);
+        }
+      }
+    }
+    nextTxid = Math.max(maxTxid + 1, System.currentTimeMillis() * 1000);
+    loaded = true;
+  }
+
+  /** A log record of a table, together with the ID of the transaction that wrote it. */
+  private static final class LogEntry {
+    private final long txid;
+    private final String record;
+
+    private LogEntry(long txid, String record) {
+      this.txid = txid;
+      this.record = record;
+    }
+  }
+
+  /** The view of one table within the database file. */
+  private final class FileTableStorage<T> implements TableStorage<T> {
+    private final String table;
+
+    private FileTableStorage(String table) {
+      this.table = table;
+    }
+
+    @Override
+    public void readSnapshot(BiConsumer<String, T> consumer) throws IOException {
+      List<String> snapshot = getSnapshot(table);
+      if (snapshot != null) {
+        snapshot.forEach(row -> consumer.accept(row, null));
+        return;
+      }
+
+      try (BufferedReader reader = CsvTableStorage.openCsv(CsvTable.snapshotPathOf(table), table)) {
+        reader.readLine(); // Skip the header line
+        String row;
+        while ((row = reader.readLine()) != null) {
+          if (!row.isEmpty()) {
+            consumer.accept(row, null);
+          }
+        }
+      }
+    }
+
+    @Override
+    public boolean hasLog() {
+      return getLogRecordCount() > 0;
+    }
+
+    @Override
+    public void replayLog(Map<String, String> rows, LongPredicate committed) throws IOException {
+      for (LogEntry entry : getLog(table)) {
+        if (committed.test(entry.txid)) {
+          MutationLog.apply(rows, entry.record);
+        }
+      }
+    }
+
+    @Override
+    public void appendToLog(Map<Long, List<String>> recordsByTxid) throws IOException {
+      SingleFileStorageEngine.this.appendToLog(table, recordsByTxid);
+    }
+
+    @Override
+    public int getLogRecordCount() {
+      try {
+        return getLogSize(table);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Error reading database file " + path, e);
+      }
+    }
+
+    @Override
+    public void compact(Map<String, String> rows) throws IOException {
+      SingleFileStorageEngine.this.compact(table, rows);
+    }
+
+    @Override
+    public void close(Map<String, String> rows) {
+      // The file is opened for each write, so there is nothing to release
+    }
+
+    @Override
+    public long[] getPersistedState() throws IOException {
+      return SingleFileStorageEngine.this.getPersistedState(table);
+    }
+  }
+}
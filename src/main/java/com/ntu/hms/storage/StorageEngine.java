@@ -0,0 +1,66 @@
+package com.ntu.hms.storage;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Persists the tables of the database. A {@link CsvTable} keeps its rows and models in memory and
+ * hands the engine the snapshot to load, the log records of every commit and the rows to compact;
+ * the {@link GroupCommitter} asks the engine for transaction IDs and records the commit of every
+ * batch through it. Where and how the data is stored is up to the engine.
+ *
+ * <p>Three engines are available through {@link StorageEngines#forName(String)}: the {@link
+ * CsvStorageEngine}, which is the default, the {@link MemoryStorageEngine} and the {@link
+ * SingleFileStorageEngine}. The engine is chosen once, before any table is used.
+ */
+public interface StorageEngine {
+  /**
+   * Retrieves the name of the engine, as accepted by {@link StorageEngines#forName(String)}.
+   *
+   * @return the name of the engine
+   */
+  String getName();
+
+  /**
+   * Opens the storage of a table.
+   *
+   * @param csvPath the classpath-relative path of the CSV file the table was defined with
+   * @param header the header row of the CSV file
+   * @param modelClass the model class stored in the table
+   * @param <T> the model class stored in the table
+   * @return the storage of the table
+   */
+  <T> TableStorage<T> openTable(String csvPath, String header, Class<T> modelClass);
+
+  /**
+   * Allocates the ID of a new transaction.
+   *
+   * @return a transaction ID greater than every ID allocated or committed before
+   * @throws IOException if the commit records cannot be read
+   */
+  long nextTxid() throws IOException;
+
+  /**
+   * Checks whether the transaction with the specified ID was committed.
+   *
+   * @param txid the ID of the transaction
+   * @return true if the transaction was committed, false otherwise
+   */
+  boolean isCommitted(long txid);
+
+  /**
+   * Commits a batch of transactions, once the log records they wrote are durable.
+   *
+   * @param txids the IDs of the transactions to be committed
+   * @throws IOException if the commit cannot be recorded
+   */
+  void commit(List<Long> txids) throws IOException;
+
+  /**
+   * Discards the commit records once every table has been compacted. Called by {@link
+   * GroupCommitter#checkpoint(List)}.
+   *
+   * @throws IOException if the commit records cannot be discarded
+   */
+  void checkpoint() throws IOException;
+}
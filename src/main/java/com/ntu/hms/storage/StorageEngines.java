@@ -0,0 +1,63 @@
+package com.ntu.hms.storage;
+
+/**
+ * Holds the {@link StorageEngine} every {@link CsvTable} and the {@link GroupCommitter} work with.
+ * The {@link CsvStorageEngine} is used unless another engine is chosen with {@link
+ * #use(StorageEngine)} before the first table is opened.
+ */
+public final class StorageEngines {
+  private static StorageEngine current;
+  private static boolean opened;
+
+  private StorageEngines() {}
+
+  /**
+   * Creates the engine with the specified name.
+   *
+   * @param name "csv", "memory" or "file"
+   * @return a new engine
+   * @throws IllegalArgumentException if there is no engine with that name
+   */
+  public static StorageEngine forName(String name) {
+    switch (name) {
+      case CsvStorageEngine.NAME:
+        return new CsvStorageEngine();
+      case MemoryStorageEngine.NAME:
+        return new MemoryStorageEngine();
+      case SingleFileStorageEngine.NAME:
+        return new SingleFileStorageEngine();
+      default:
+        throw new IllegalArgumentException("Unknown storage engine: " + name);
+    }
+  }
+
+  /**
+   * Chooses the engine of the database. Choosing the engine already in use does nothing.
+   *
+   * @param engine the engine to be used
+   * @throws IllegalStateException if a table was already opened with another engine
+   */
+  public static synchronized void use(StorageEngine engine) {
+    if (engine == current) {
+      return;
+    }
+    if (opened) {
+      throw new IllegalStateException(
+          "The storage engine cannot change once tables use " + current.getName());
+    }
+    current = engine;
+  }
+
+  /**
+   * Retrieves the engine of the database, which cannot change from then on.
+   *
+   * @return the engine in use
+   */
+  public static synchronized StorageEngine current() {
+    if (current == null) {
+      current = new CsvStorageEngine();
+    }
+    opened = true;
+    return current;
+  }
+}
@@ -0,0 +1,297 @@
+package com.ntu.hms.storage;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import com.ntu.hms.codec.CsvCodec;
+import com.ntu.hms.codec.ModelMetadata;
+import com.ntu.hms.codec.ModelMetadataRegistry;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * The archive of a {@link CsvTable}: rows moved out of the table once they are no longer part of
+ * the working set, kept in read-only CSV segments under target/classes/csvdb/archive. Every call to
+ * {@link #archive(List)} writes one segment per month of the archived models, named after the month
+ * and the sequence number of the call, such as "2024-11_000003.csv", so a read over a date range
+ * opens only the segments of the months it covers. Models without a date go to "undated" segments.
+ *
+ * <p>A segment is written to a temporary file, forced to disk and renamed, before the rows are
+ * removed from the table, so a crash leaves a row in the table, the archive or both, never in
+ * neither. The table stays authoritative: archived rows whose key is still in the table are left
+ * out of every read, and archiving them again later simply replaces them, since the most recent
+ * segment holding a key wins.
+ *
+ * <p>The archive reads its segments only when it is first read, so the table's own loads and
+ * lookups never pay for its history. The keys of the archived rows are then held in memory, with
+ * the segment holding each of them.
+ *
+ * @param <T> the model class stored in the table
+ */
+public final class TableArchive<T> {
+  private static final String UNDATED = "undated";
+  private static final String SEGMENT_EXTENSION = ".csv";
+
+  private final CsvTable<T> table;
+  private final Function<? super T, LocalDate> dateFunction;
+  private final Path directory;
+
+  // The segments by month, the undated ones under null, and the segment holding each archived key
+  private Map<YearMonth, List<Path>> segments;
+  private Map<String, Path> segmentsByKey;
+  private int lastSequence;
+
+  /**
+   * Constructs the archive of the specified table.
+   *
+   * @param table the table whose rows are archived
+   * @param dateFunction the function returning the date a model is archived under, or null if it
+   *     has none
+   */
+  public TableArchive(CsvTable<T> table, Function<? super T, LocalDate> dateFunction) {
+    this.table = table;
+    this.dateFunction = dateFunction;
+    String fileName = table.getSnapshotPath().getFileName().toString();
+    this.directory =
+        table
+            .getSnapshotPath()
+            .resolveSibling("archive")
+            .resolve(fileName.replaceFirst("\\.csv$", ""));
+  }
+
+  /**
+   * Writes the specified models to new segments, one per month. The models must then be removed
+   * from the table by the caller.
+   *
+   * @param models the models to be archived
+   * @throws UncheckedIOException if a segment cannot be written
+   */
+  public synchronized void archive(List<? extends T> models) {
+    if (models.isEmpty()) {
+      return;
+    }
+    scan();
+    Map<YearMonth, List<T>> modelsByMonth = new TreeMap<>(TableArchive::compareMonths);
+    for (T model : models) {
+      LocalDate date = dateFunction.apply(model);
+      modelsByMonth
+          .computeIfAbsent(date == null ? null : YearMonth.from(date), month -> new ArrayList<>())
+          .add(model);
+    }
+
+    int sequence = ++lastSequence;
+    CsvCodec<T> codec = ModelMetadataRegistry.forClass(table.getModelClass()).getCodec();
+    try {
+      Files.createDirectories(directory);
+      for (Map.Entry<YearMonth, List<T>> entry : modelsByMonth.entrySet()) {
+        Path segment =
+            directory.resolve(
+                String.format(
+                    "%s_%06d%s",
+                    entry.getKey() == null ? UNDATED : entry.getKey(),
+                    sequence,
+                    SEGMENT_EXTENSION));
+        writeSegment(segment, entry.getValue(), codec);
+        segments.computeIfAbsent(entry.getKey(), month -> new ArrayList<>()).add(segment);
+        for (T model : entry.getValue()) {
+          segmentsByKey.put(table.keyOf(model), segment);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error archiving rows of " + table.getCsvPath(), e);
+    }
+    CsvTableStorage.forceDirectory(directory);
+  }
+
+  /**
+   * Retrieves the archived model with the specified primary key.
+   *
+   * @param id the primary key of the model
+   * @return the archived model, or null if it is not archived or is still in the table
+   * @throws UncheckedIOException if its segment cannot be read
+   */
+  public synchronized T findById(String id) {
+    scan();
+    Path segment = segmentsByKey.get(id);
+    if (segment == null || table.existsById(id)) {
+      return null;
+    }
+    return readSegment(segment).get(id);
+  }
+
+  /**
+   * Retrieves the archived models dated between the specified dates, inclusive, reading only the
+   * segments of the months in the range. Either date may be null to leave that end of the range
+   * open. Undated models are never returned.
+   *
+   * @param from the first date of the range, or null
+   * @param to the last date of the range, or null
+   * @return a list of the matching models, sorted by month and then in archive order
+   * @throws UncheckedIOException if a segment cannot be read
+   */
+  public synchronized List<T> findBetween(LocalDate from, LocalDate to) {
+    scan();
+    List<T> result = new ArrayList<>();
+    for (Map.Entry<YearMonth, List<Path>> entry : segments.entrySet()) {
+      YearMonth month = entry.getKey();
+      if (month == null
+          || (from != null && month.isBefore(YearMonth.from(from)))
+          || (to != null && month.isAfter(YearMonth.from(to)))) {
+        continue;
+      }
+      for (Path segment : entry.getValue()) {
+        readSegment(segment)
+            .forEach(
+                (key, model) -> {
+                  LocalDate date = dateFunction.apply(model);
+                  if (segment.equals(segmentsByKey.get(key))
+                      && (from == null || !date.isBefore(from))
+                      && (to == null || !date.isAfter(to))
+                      && !table.existsById(key)) {
+                    result.add(model);
+                  }
+                });
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Retrieves the number of distinct keys archived so far, including those back in the table.
+   *
+   * @return the number of archived keys
+   * @throws UncheckedIOException if a segment cannot be read
+   */
+  public synchronized int count() {
+    scan();
+    return segmentsByKey.size();
+  }
+
+  /**
+   * Retrieves the distinct keys archived so far, including those back in the table.
+   *
+   * @return a new list of the archived keys
+   * @throws UncheckedIOException if a segment cannot be read
+   */
+  public synchronized List<String> findKeys() {
+    scan();
+    return new ArrayList<>(segmentsByKey.keySet());
+  }
+
+  /**
+   * Forgets the segments and keys read so far, so the next read lists them again. This is called
+   * when the application exits, together with {@link CsvTable#close()}.
+   */
+  public synchronized void close() {
+    segments = null;
+    segmentsByKey = null;
+  }
+
+  /**
+   * Lists the segments on first use and reads the keys they hold, later segments overriding earlier
+   * ones.
+   */
+  private void scan() {
+    if (segments != null) {
+      return;
+    }
+
+    Map<YearMonth, List<Path>> scannedSegments = new TreeMap<>(TableArchive::compareMonths);
+    Map<String, Path> scannedKeys = new HashMap<>();
+    TreeMap<Integer, List<Path>> segmentsBySequence = new TreeMap<>();
+    if (Files.isDirectory(directory)) {
+      try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*_*.csv")) {
+        for (Path segment : stream) {
+          String name = segment.getFileName().toString();
+          int separator = name.lastIndexOf('_');
+          String month = name.substring(0, separator);
+          int sequence =
+              Integer.parseInt(
+                  name.substring(separator + 1, name.length() - SEGMENT_EXTENSION.length()));
+          scannedSegments
+              .computeIfAbsent(
+                  month.equals(UNDATED) ? null : YearMonth.parse(month), key -> new ArrayList<>())
+              .add(segment);
+          segmentsBySequence.computeIfAbsent(sequence, key -> new ArrayList<>()).add(segment);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException("Error listing archive of " + table.getCsvPath(), e);
+      }
+    }
+    for (List<Path> sequenceSegments : segmentsBySequence.values()) {
+      for (Path segment : sequenceSegments) {
+        readSegment(segment).keySet().forEach(key -> scannedKeys.put(key, segment));
+      }
+    }
+    scannedSegments.values().forEach(paths -> paths.sort(null));
+
+    segments = scannedSegments;
+    segmentsByKey = scannedKeys;
+    lastSequence = segmentsBySequence.isEmpty() ? 0 : segmentsBySequence.lastKey();
+  }
+
+  /** Reads the models of a segment, keyed by primary key. */
+  private Map<String, T> readSegment(Path segment) {
+    ModelMetadata<T> metadata = ModelMetadataRegistry.forClass(table.getModelClass());
+    Map<String, T> models = new LinkedHashMap<>();
+    try (BufferedReader reader = Files.newBufferedReader(segment, UTF_8)) {
+      reader.readLine(); // Skip the header line
+      String row;
+      while ((row = reader.readLine()) != null) {
+        if (!row.isEmpty()) {
+          T model = metadata.decode(row);
+          models.put(table.keyOf(model), model);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error reading archive segment " + segment, e);
+    }
+    return models;
+  }
+
+  /** Writes a segment atomically: to a temporary file, forced to disk, then renamed. */
+  private void writeSegment(Path segment, List<T> models, CsvCodec<T> codec) throws IOException {
+    Path temporaryPath = segment.resolveSibling(segment.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporaryPath, CREATE, WRITE, TRUNCATE_EXISTING);
+        BufferedWriter writer =
+            new BufferedWriter(Channels.newWriter(channel, UTF_8.newEncoder(), -1))) {
+      writer.write(table.getHeader());
+      writer.write("\n");
+      for (T model : models) {
+        writer.write(codec.encode(model));
+        writer.write("\n");
+      }
+      writer.flush();
+      channel.force(true);
+    }
+    Files.move(temporaryPath, segment, ATOMIC_MOVE, REPLACE_EXISTING);
+  }
+
+  /** Orders the months chronologically, the undated segments last. */
+  private static int compareMonths(YearMonth a, YearMonth b) {
+    if (a == null || b == null) {
+      return a == b ? 0 : a == null ? 1 : -1;
+    }
+    return a.compareTo(b);
+  }
+}
@@ -0,0 +1,47 @@
+package com.ntu.hms.storage;
+
+/**
+ * Base class of the indexes maintained by a {@link CsvTable} besides its primary key. An index is
+ * attached to its table with {@link CsvTable#addIndex(TableIndex)}; the table then rebuilds it on
+ * load and reports the rows inserted, updated or deleted by each save, all while holding its lock.
+ * Lookups must hold the same lock, which {@link #getTable()} provides.
+ *
+ * @param <T> the model class stored in the table
+ */
+public abstract class TableIndex<T> {
+  private CsvTable<T> table;
+
+  /** Attaches the index to its table. Called by {@link CsvTable#addIndex(TableIndex)}. */
+  final void attach(CsvTable<T> table) {
+    if (this.table != null) {
+      throw new IllegalStateException("The index is already attached to a table.");
+    }
+    this.table = table;
+  }
+
+  /**
+   * Retrieves the table the index is attached to. Lookups synchronize on it and call {@link
+   * CsvTable#ensureLoaded()} before reading the index.
+   *
+   * @return the table of the index
+   * @throws IllegalStateException if the index is not attached to a table
+   */
+  final CsvTable<T> getTable() {
+    if (table == null) {
+      throw new IllegalStateException("The index is not attached to a table.");
+    }
+    return table;
+  }
+
+  /** Forgets every model. Called by the table before it is reloaded. */
+  abstract void clear();
+
+  /**
+   * Files a model under its current key. Called for every model on load, in table order, and for
+   * every model inserted or updated by a save; a model with a new primary key is last in the table.
+   */
+  abstract void put(String primaryKey, T model);
+
+  /** Removes the model with the specified primary key. */
+  abstract void remove(String primaryKey);
+}
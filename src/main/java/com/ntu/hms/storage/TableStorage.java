@@ -0,0 +1,82 @@
+package com.ntu.hms.storage;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * The storage of one table within a {@link StorageEngine}: a snapshot of its rows and a log of the
+ * records appended since. Rows are encoded as by the table's codec and keyed by the keys computed
+ * by the table; log records are formatted by {@link MutationLog#record(char, String, String)}.
+ * Every method is called while holding the lock of the table.
+ *
+ * @param <T> the model class stored in the table
+ */
+public interface TableStorage<T> {
+  /**
+   * Reads the snapshot of the table, in table order. Each row is passed to the consumer together
+   * with its model, either of which may be null when the storage only holds the other one.
+   *
+   * @param consumer the consumer of each row and model
+   * @throws IOException if the snapshot cannot be read
+   */
+  void readSnapshot(BiConsumer<String, T> consumer) throws IOException;
+
+  /**
+   * Checks whether the table has a log to replay on top of its snapshot.
+   *
+   * @return true if the table has a log, false otherwise
+   */
+  boolean hasLog();
+
+  /**
+   * Replays the committed records of the log on top of the rows read from the snapshot.
+   *
+   * @param rows the snapshot rows keyed by row key, in table order; updated in place
+   * @param committed tests whether the transaction with a given ID was committed
+   * @throws IOException if the log cannot be read
+   */
+  void replayLog(Map<String, String> rows, LongPredicate committed) throws IOException;
+
+  /**
+   * Appends the records of a batch of transactions to the log and makes them durable.
+   *
+   * @param recordsByTxid the records, keyed by the ID of the transaction that wrote them
+   * @throws IOException if the log cannot be written
+   */
+  void appendToLog(Map<Long, List<String>> recordsByTxid) throws IOException;
+
+  /**
+   * Retrieves the number of records in the log.
+   *
+   * @return the number of records replayed or appended since the log was last compacted
+   */
+  int getLogRecordCount();
+
+  /**
+   * Replaces the snapshot with the specified rows and empties the log.
+   *
+   * @param rows the current rows of the table, keyed by row key, in table order
+   * @throws IOException if the snapshot cannot be written
+   */
+  void compact(Map<String, String> rows) throws IOException;
+
+  /**
+   * Releases the storage once the table has been compacted and closed. The rows are those of the
+   * snapshot just compacted, or null if the table was not loaded.
+   *
+   * @param rows the rows of the table, keyed by row key, in table order
+   */
+  void close(Map<String, String> rows);
+
+  /**
+   * Describes the state of the table in storage. It changes with every commit and compaction of the
+   * table, so files derived from the table can tell whether they are out of date.
+   *
+   * @return the state of the table, as a few numbers compared as a whole
+   * @throws IOException if the state cannot be read
+   */
+  long[] getPersistedState() throws IOException;
+}
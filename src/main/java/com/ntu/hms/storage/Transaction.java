@@ -0,0 +1,88 @@
+package com.ntu.hms.storage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * The log records staged by one transaction, grouped by table, together with the tables it read and
+ * the state of its commit. Instances are created and committed by the {@link GroupCommitter}.
+ */
+class Transaction {
+  private final long txid;
+  private final Map<CsvTable<?>, List<String>> records = new LinkedHashMap<>();
+  private final Set<CsvTable<?>> tables = new LinkedHashSet<>();
+  private final CountDownLatch done = new CountDownLatch(1);
+  private long queuedAtNanos;
+  private volatile Throwable failure;
+
+  Transaction(long txid) {
+    this.txid = txid;
+  }
+
+  long getTxid() {
+    return txid;
+  }
+
+  Map<CsvTable<?>, List<String>> getRecords() {
+    return records;
+  }
+
+  boolean isEmpty() {
+    return records.isEmpty();
+  }
+
+  /** Retrieves the tables read or saved by the transaction, whose models it may have changed. */
+  Set<CsvTable<?>> getTables() {
+    return tables;
+  }
+
+  void touch(CsvTable<?> table) {
+    tables.add(table);
+  }
+
+  void stage(CsvTable<?> table, List<String> tableRecords) {
+    tables.add(table);
+    records.computeIfAbsent(table, key -> new ArrayList<>()).addAll(tableRecords);
+  }
+
+  void markQueued() {
+    queuedAtNanos = System.nanoTime();
+  }
+
+  long getQueuedAtNanos() {
+    return queuedAtNanos;
+  }
+
+  void complete(Throwable failure) {
+    this.failure = failure;
+    done.countDown();
+  }
+
+  /**
+   * Waits until the transaction is durable.
+   *
+   * @throws CommitFailedException if the transaction could not be committed
+   */
+  void await() {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        done.await();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    if (failure != null) {
+      throw new CommitFailedException("Transaction " + txid + " could not be committed", failure);
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package com.ntu.hms.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * An index over a {@link CsvTable} mapping a grouping key to the distinct values the models of the
+ * group hold, such as a doctor to the patients booked in any of the doctor's schedules. Each value
+ * is counted once per model holding it, so removing one of several models holding a value keeps the
+ * value in its group, and a lookup costs time proportional to the number of distinct values it
+ * returns, however many models hold them.
+ *
+ * <p>The values of every model are copied when it is filed, so a model changed in place is still
+ * unfiled from the values it was saved with. Values are returned in the order they first entered
+ * their group, which after a load is table order.
+ *
+ * @param <G> the type of the grouping key
+ * @param <V> the type of the values
+ * @param <T> the model class stored in the table
+ */
+public final class ValueSetIndex<G, V, T> extends TableIndex<T> {
+  private final Function<? super T, ? extends G> groupFunction;
+  private final Function<? super T, ? extends Collection<? extends V>> valuesFunction;
+  private final Map<G, Map<V, Integer>> groups = new HashMap<>();
+  private final Map<String, Entry<G, V>> entries = new HashMap<>();
+
+  /**
+   * Constructs a ValueSetIndex with the specified keys.
+   *
+   * @param groupFunction the function returning the grouping key of a model
+   * @param valuesFunction the function returning the values a model holds
+   */
+  public ValueSetIndex(
+      Function<? super T, ? extends G> groupFunction,
+      Function<? super T, ? extends Collection<? extends V>> valuesFunction) {
+    this.groupFunction = groupFunction;
+    this.valuesFunction = valuesFunction;
+  }
+
+  /**
+   * Finds the distinct values held by the models of a group.
+   *
+   * @param group the grouping key
+   * @return a new list of the values, in the order they entered the group
+   * @throws IllegalStateException if the index is not attached to a table
+   */
+  public List<V> find(G group) {
+    CsvTable<T> owner = getTable();
+    synchronized (owner) {
+      owner.ensureLoaded();
+      Map<V, Integer> values = groups.get(group);
+      return values == null ? new ArrayList<>() : new ArrayList<>(values.keySet());
+    }
+  }
+
+  @Override
+  void clear() {
+    groups.clear();
+    entries.clear();
+  }
+
+  @Override
+  void put(String primaryKey, T model) {
+    remove(primaryKey);
+    G group = groupFunction.apply(model);
+    List<V> values = new ArrayList<>(valuesFunction.apply(model));
+    if (group == null || values.isEmpty()) {
+      return;
+    }
+    Map<V, Integer> counts = groups.computeIfAbsent(group, ignored -> new LinkedHashMap<>());
+    for (V value : values) {
+      counts.merge(value, 1, Integer::sum);
+    }
+    entries.put(primaryKey, new Entry<>(group, values));
+  }
+
+  @Override
+  void remove(String primaryKey) {
+    Entry<G, V> entry = entries.remove(primaryKey);
+    if (entry == null) {
+      return;
+    }
+    Map<V, Integer> counts = groups.get(entry.group);
+    for (V value : entry.values) {
+      counts.computeIfPresent(value, (ignored, count) -> count == 1 ? null : count - 1);
+    }
+    if (counts.isEmpty()) {
+      groups.remove(entry.group);
+    }
+  }
+
+  /** The group and values a model was filed with. */
+  private static final class Entry<G, V> {
+    private final G group;
+    private final List<V> values;
+
+    private Entry(G group, List<V> values) {
+      this.group = group;
+      this.values = values;
+    }
+  }
+}
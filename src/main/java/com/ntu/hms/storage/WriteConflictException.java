@@ -0,0 +1,18 @@
+package com.ntu.hms.storage;
+
+/**
+ * Thrown when a save would overwrite, delete or bring back a row that another thread changed since
+ * the saving thread last read the table. The transaction of the save is rolled back, so the caller
+ * can read the table again and retry.
+ */
+public class WriteConflictException extends RuntimeException {
+
+  /**
+   * Constructs a WriteConflictException with the specified message.
+   *
+   * @param message the detail message
+   */
+  public WriteConflictException(String message) {
+    super(message);
+  }
+}
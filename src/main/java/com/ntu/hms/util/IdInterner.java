@@ -0,0 +1,59 @@
+package com.ntu.hms.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * IdInterner maps identifiers such as patient IDs to dense int references, so that models holding
+ * many references to the same identifier can store an int instead of a String. References start at
+ * 0 and are never reused; an interned identifier stays interned for the life of the application.
+ *
+ * <p>Interning is synchronized, while looking up an identifier by reference reads a volatile array
+ * and takes no lock.
+ */
+public class IdInterner {
+  private final Map<String, Integer> references = new HashMap<>();
+  private volatile String[] ids = new String[16];
+  private int size;
+
+  /**
+   * Retrieves the reference of the specified identifier, interning it if needed.
+   *
+   * @param id the identifier to be interned
+   * @return the reference of the identifier
+   * @throws NullPointerException if the identifier is null
+   */
+  public synchronized int intern(String id) {
+    Integer reference = references.get(Objects.requireNonNull(id));
+    if (reference != null) {
+      return reference;
+    }
+
+    String[] current = ids;
+    if (size == current.length) {
+      current = Arrays.copyOf(current, size * 2);
+    }
+    current[size] = id;
+    ids = current; // The volatile write publishes the new entry to lookups
+    references.put(id, size);
+    return size++;
+  }
+
+  /**
+   * Retrieves the identifier with the specified reference.
+   *
+   * @param reference a reference returned by {@link #intern(String)}
+   * @return the identifier with that reference
+   * @throws IllegalArgumentException if the reference was not returned by this interner
+   */
+  public String lookup(int reference) {
+    String[] snapshot = ids;
+    String id = reference >= 0 && reference < snapshot.length ? snapshot[reference] : null;
+    if (id == null) {
+      throw new IllegalArgumentException("Unknown reference: " + reference);
+    }
+    return id;
+  }
+}
@@ -5,8 +5,8 @@ import com.ntu.hms.model.AppointmentOutcomeRecord;
 import com.ntu.hms.model.Schedule;
 import com.ntu.hms.model.users.Doctor;
 import com.ntu.hms.model.users.Patient;
+import java.time.LocalDate;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Utility class providing various methods to retrieve information about Patients, Doctors, and
@@ -15,18 +15,13 @@ import java.util.stream.Collectors;
 public class UtilProvider {
 
   /**
-   * Retrieves a Patient object from a list of patients based on the provided patient ID.
+   * Retrieves a Patient object based on the provided patient ID.
    *
    * @param patientID The ID of the patient to be retrieved.
-   * @param patients A list of patients to search within.
    * @return The Patient object with the matching ID, or null if no match is found.
    */
-  public static Patient getPatientById(String patientID, List<Patient> patients) {
-    return patients
-        .stream()
-        .filter(patient -> patient.getHospitalID().equals(patientID))
-        .findFirst()
-        .orElse(null);
+  public static Patient getPatientById(String patientID) {
+    return CsvDB.getPatientRepository().findById(patientID);
   }
 
   /**
@@ -36,24 +31,29 @@ public class UtilProvider {
    * @return The Doctor object with the matching ID, or null if no match is found.
    */
   public static Doctor getDoctorById(String doctorID) {
-    return CsvDB.readDoctors()
-        .stream()
-        .filter(doctor -> doctor.getHospitalID().equals(doctorID))
-        .findFirst()
-        .orElse(null);
+    return CsvDB.getDoctorRepository().findById(doctorID);
   }
 
   /**
    * Retrieves a list of schedules for a given doctor based on the provided doctor ID.
    *
    * @param doctorID The ID of the doctor for whom to retrieve schedules.
-   * @return A list of Schedule objects that belong to the doctor with the specified ID.
+   * @return A list of Schedule objects that belong to the doctor with the specified ID, sorted by
+   *     date.
    */
   public static List<Schedule> getScheduleByDoctorID(String doctorID) {
-    return CsvDB.readSchedules()
-        .stream()
-        .filter(schedule -> schedule.getDoctorID().equals(doctorID))
-        .collect(Collectors.toList());
+    return CsvDB.findSchedulesBetween(doctorID, null, null);
+  }
+
+  /**
+   * Retrieves the schedule of a doctor on the specified date.
+   *
+   * @param doctorID The ID of the doctor whose schedule is to be retrieved.
+   * @param date The date of the schedule.
+   * @return The Schedule object for that doctor and date, or null if no match is found.
+   */
+  public static Schedule getScheduleByDoctorIDAndDate(String doctorID, LocalDate date) {
+    return CsvDB.findSchedule(doctorID, date);
   }
 
   /**
@@ -64,12 +64,6 @@ public class UtilProvider {
    *     found.
    */
   public static AppointmentOutcomeRecord getOutcomeByAppointmentID(String appointmentID) {
-    return CsvDB.readAppointmentOutcomeRecords()
-        .stream()
-        .filter(
-            appointmentOutcomeRecord ->
-                appointmentOutcomeRecord.getAppointmentID().equals(appointmentID))
-        .findFirst()
-        .orElse(null);
+    return CsvDB.findAppointmentOutcomeRecord(appointmentID);
   }
 }
@@ -1,12 +1,19 @@
 package com.ntu.hms;
 
+import static java.nio.file.StandardCopyOption.COPY_ATTRIBUTES;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
+import com.ntu.hms.factory.SingletonFactory;
+import com.ntu.hms.storage.StorageEngines;
 import java.io.*;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * The type Test manager. This class provides utility methods for managing tests, such as starting
@@ -58,6 +65,71 @@ public class TestManager {
     }
   }
 
+  /**
+   * Back up the database. Closes the tables of CsvDB and copies every file of the target folder, so
+   * {@link #restoreDatabase(Path)} can put back the exact data the other tests left behind.
+   *
+   * @return the folder holding the copy
+   */
+  public static Path backupDatabase() {
+    openTablesInApplicationEngine();
+    CsvDB.close();
+    return copyDatabase();
+  }
+
+  /**
+   * Copy the database. Copies every file of the target folder as it is on disk, without closing the
+   * tables of CsvDB, so restoring the copy with {@link #restoreDatabase(Path)} leaves the files a
+   * crash at this point would have left.
+   *
+   * @return the folder holding the copy
+   */
+  public static Path copyDatabase() {
+    try {
+      Path copy = Files.createTempDirectory("csvdb");
+      copyRecursively(TARGET_FOLDER_PATH, copy);
+      return copy;
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Restore the database. Closes the tables of CsvDB and replaces the target folder with the copy
+   * made by {@link #backupDatabase()}, which is then deleted.
+   *
+   * @param backup the folder holding the copy
+   */
+  public static void restoreDatabase(Path backup) {
+    CsvDB.close();
+    try {
+      deleteContents(TARGET_FOLDER_PATH, path -> true);
+      copyRecursively(backup, TARGET_FOLDER_PATH);
+      deleteContents(backup, path -> true);
+      Files.delete(backup);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Reset the database. Closes the tables of CsvDB, deletes every file derived from the CSV files,
+   * such as mutation logs, the commit journal and the archive, and refreshes the CSV files, so the
+   * next access reads the original data.
+   */
+  public static void resetDatabase() {
+    openTablesInApplicationEngine();
+    CsvDB.close();
+    try {
+      deleteContents(
+          TARGET_FOLDER_PATH,
+          path -> Files.isDirectory(path) || !path.getFileName().toString().endsWith(".csv"));
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    refreshCsvFiles();
+  }
+
   /**
    * Provide input to the system. Sets the System input stream to the provided string.
    *
@@ -88,6 +160,38 @@ public class TestManager {
     return new ByteArrayOutputStream();
   }
 
+  /** Opens the tables in the engine the application uses, as a later run of it will. */
+  private static void openTablesInApplicationEngine() {
+    StorageEngines.use(SingletonFactory.getStorageEngine());
+  }
+
+  private static void copyRecursively(Path source, Path target) throws IOException {
+    try (Stream<Path> paths = Files.walk(source)) {
+      for (Path path : paths.collect(Collectors.toList())) {
+        Path copy = target.resolve(source.relativize(path).toString());
+        if (Files.isDirectory(path)) {
+          Files.createDirectories(copy);
+        } else {
+          // Keep the modification times, which identify the snapshot each mutation log applies to
+          Files.copy(path, copy, REPLACE_EXISTING, COPY_ATTRIBUTES);
+        }
+      }
+    }
+  }
+
+  /** Deletes the entries of a folder accepted by the filter, with everything under them. */
+  private static void deleteContents(Path folder, Predicate<Path> filter) throws IOException {
+    try (Stream<Path> entries = Files.list(folder)) {
+      for (Path entry : entries.filter(filter).collect(Collectors.toList())) {
+        try (Stream<Path> paths = Files.walk(entry)) {
+          for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+            Files.delete(path);
+          }
+        }
+      }
+    }
+  }
+
   /**
    * Set the system output consumer. Sets the system output stream to the provided
    * ByteArrayOutputStream.
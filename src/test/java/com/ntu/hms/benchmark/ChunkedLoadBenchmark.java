@@ -0,0 +1,126 @@
+package com.ntu.hms.benchmark;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.ntu.hms.codec.CsvCodec;
+import com.ntu.hms.codec.CsvCodecs;
+import com.ntu.hms.model.Appointment;
+import com.ntu.hms.storage.ChunkedCsvDecoder;
+import com.ntu.hms.storage.MappedCsvScanner;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures how decoding a large Appointment table scales with the number of threads. {@code
+ * sequential} reads the whole file with a single {@link MappedCsvScanner}; {@code chunked} decodes
+ * it with the {@link ChunkedCsvDecoder} on a fork-join pool of {@link #threads} threads.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.ntu.hms.benchmark.ChunkedLoadBenchmark}, or from the IDE through {@link
+ * #main(String[])}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChunkedLoadBenchmark {
+  @Param({"2000000"})
+  private int rows;
+
+  @Param({"1", "2", "4", "8", "16", "32"})
+  private int threads;
+
+  private final CsvCodec<Appointment> codec = CsvCodecs.forClass(Appointment.class);
+  private Path file;
+  private ForkJoinPool pool;
+
+  /**
+   * Writes the temporary Appointment table and starts the pool.
+   *
+   * @throws IOException if the file cannot be written
+   */
+  @Setup
+  public void setUp() throws IOException {
+    file = Files.createTempFile("Appointment", ".csv");
+    try (BufferedWriter writer = Files.newBufferedWriter(file, UTF_8)) {
+      writer.write("Appointment ID,Patient ID,Doctor ID,Date,Session,Status\n");
+      for (int i = 1; i <= rows; i++) {
+        writer.write(
+            String.format(
+                "A%07d,P%04d,D%04d,%02d/11/2024,%d,COMPLETED\n",
+                i, i % 1000, i % 50, i % 28 + 1, i % 8 + 1));
+      }
+    }
+    pool = new ForkJoinPool(threads);
+  }
+
+  /**
+   * Deletes the temporary Appointment table and stops the pool.
+   *
+   * @throws IOException if the file cannot be deleted
+   */
+  @TearDown
+  public void tearDown() throws IOException {
+    pool.shutdown();
+    Files.deleteIfExists(file);
+  }
+
+  /**
+   * Decodes the table on the calling thread, keeping the rows as the chunks do.
+   *
+   * @param blackhole the sink for the decoded rows
+   * @return the decoded appointments
+   * @throws IOException if the file cannot be read
+   */
+  @Benchmark
+  public List<Appointment> sequential(Blackhole blackhole) throws IOException {
+    List<String> lines = new ArrayList<>(rows);
+    List<Appointment> appointments = new ArrayList<>(rows);
+    try (MappedCsvScanner scanner = MappedCsvScanner.open(file)) {
+      scanner.next();
+      while (scanner.next()) {
+        appointments.add(codec.decode(scanner.getColumns()));
+        lines.add(scanner.getRow());
+      }
+    }
+    blackhole.consume(lines);
+    return appointments;
+  }
+
+  /**
+   * Decodes the table in chunks on the pool.
+   *
+   * @return the decoded chunks
+   * @throws IOException if the file cannot be read
+   */
+  @Benchmark
+  public List<ChunkedCsvDecoder.Chunk<Appointment>> chunked() throws IOException {
+    return ChunkedCsvDecoder.decode(file, codec, pool);
+  }
+
+  /**
+   * Runs all benchmarks in this class.
+   *
+   * @param args unused
+   * @throws RunnerException if the benchmarks cannot be run
+   */
+  public static void main(String[] args) throws RunnerException {
+    Options options =
+        new OptionsBuilder().include(ChunkedLoadBenchmark.class.getSimpleName()).build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,146 @@
+package com.ntu.hms.benchmark;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.ntu.hms.enums.AppointmentStatus;
+import com.ntu.hms.model.Appointment;
+import com.ntu.hms.storage.ColumnarTable;
+import com.ntu.hms.storage.CsvTable;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares a status breakdown of an Appointment table of {@link #rows} rows computed from the
+ * models of the table against one computed from its status column. Every invocation starts from a
+ * fresh table, as a report run after a restart would, so the row-oriented report pays for loading
+ * the table while the columnar one only reads the status column file.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.ntu.hms.benchmark.ColumnarReportBenchmark}, or from the IDE through {@link
+ * #main(String[])}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ColumnarReportBenchmark {
+  private static final String CSV_PATH = "csvdb/benchmark/Appointment.csv";
+  private static final String HEADER = "Appointment ID,Patient ID,Doctor ID,Date,Session,Status";
+  private static final AppointmentStatus[] STATUSES = AppointmentStatus.values();
+
+  @Param({"1000000"})
+  private int rows;
+
+  private final Path directory = Paths.get("target", "classes", "csvdb", "benchmark");
+
+  /**
+   * Writes the Appointment table and its column files.
+   *
+   * @throws IOException if the table cannot be written
+   */
+  @Setup
+  public void setUp() throws IOException {
+    Files.createDirectories(directory);
+    try (BufferedWriter writer =
+        Files.newBufferedWriter(directory.resolve("Appointment.csv"), UTF_8)) {
+      writer.write(HEADER);
+      writer.write("\n");
+      for (int i = 1; i <= rows; i++) {
+        writer.write(
+            String.format(
+                "A%07d,P%04d,D%04d,%02d/%02d/2024,%d,%s\n",
+                i,
+                i % 1000,
+                i % 50,
+                i % 28 + 1,
+                i % 12 + 1,
+                i % 8 + 1,
+                STATUSES[i % STATUSES.length]));
+      }
+    }
+    newColumns().readDictionary("status");
+  }
+
+  /**
+   * Deletes the table and its column files.
+   *
+   * @throws IOException if the files cannot be deleted
+   */
+  @TearDown
+  public void tearDown() throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  /**
+   * Loads a fresh table and counts its appointments by status.
+   *
+   * @return the number of appointments of each status
+   */
+  @Benchmark
+  public Map<AppointmentStatus, Integer> rows() {
+    Map<AppointmentStatus, Integer> counts = new EnumMap<>(AppointmentStatus.class);
+    for (Appointment appointment : newTable().read()) {
+      counts.merge(appointment.getStatus(), 1, Integer::sum);
+    }
+    return counts;
+  }
+
+  /**
+   * Reads the status column of a fresh table and counts its codes.
+   *
+   * @return the number of appointments of each status
+   */
+  @Benchmark
+  public Map<AppointmentStatus, Integer> columns() {
+    ColumnarTable.DictionaryColumn status = newColumns().readDictionary("status");
+    int[] codeCounts = new int[status.getDictionarySize()];
+    for (int code : status.getCodes()) {
+      codeCounts[code]++;
+    }
+    Map<AppointmentStatus, Integer> counts = new EnumMap<>(AppointmentStatus.class);
+    for (int code = 0; code < codeCounts.length; code++) {
+      counts.put(AppointmentStatus.valueOf(status.getValue(code)), codeCounts[code]);
+    }
+    return counts;
+  }
+
+  private static CsvTable<Appointment> newTable() {
+    return new CsvTable<>(CSV_PATH, HEADER, Appointment.class, Appointment::getAppointmentID);
+  }
+
+  private static ColumnarTable<Appointment> newColumns() {
+    return new ColumnarTable<>(newTable())
+        .addDictionaryColumn("doctorID", Appointment::getDoctorID)
+        .addDateColumn("date", Appointment::getDate)
+        .addDictionaryColumn("status", Appointment::getStatus);
+  }
+
+  /**
+   * Runs all benchmarks in this class.
+   *
+   * @param args unused
+   * @throws RunnerException if the benchmarks cannot be run
+   */
+  public static void main(String[] args) throws RunnerException {
+    Options options =
+        new OptionsBuilder().include(ColumnarReportBenchmark.class.getSimpleName()).build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,176 @@
+package com.ntu.hms.benchmark;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import com.ntu.hms.codec.CsvCodec;
+import com.ntu.hms.codec.CsvCodecs;
+import com.ntu.hms.enums.AppointmentStatus;
+import com.ntu.hms.model.Appointment;
+import com.ntu.hms.storage.CsvTable;
+import com.ntu.hms.storage.GroupCommitter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the latency of committing a single changed appointment, reported by JMH as p50 and p99
+ * in sample-time mode. {@code rewriteInPlace} is how CsvDB used to save a table: truncate the file
+ * and write every row. {@code rewriteAtomic} adds the temp file, fsync and rename needed to make
+ * that crash-safe. {@code groupCommit} saves through a {@link CsvTable}, which appends the changed
+ * row to its log, alone and with concurrent commits sharing each fsync.
+ *
+ * <p>The tables are written under target/classes/benchmark, away from the application's data.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommitLatencyBenchmark {
+  private static final String CSV_PATH = "benchmark/Appointment.csv";
+  private static final String HEADER = "Appointment ID,Patient ID,Doctor ID,Date,Session,Status";
+
+  @Param({"1000"})
+  private int rows;
+
+  private final CsvCodec<Appointment> codec = CsvCodecs.forClass(Appointment.class);
+  private final AtomicInteger counter = new AtomicInteger();
+  private Path csvPath;
+  private CsvTable<Appointment> table;
+  private List<Appointment> appointments;
+
+  /**
+   * Writes the initial table.
+   *
+   * @throws IOException if the table cannot be written
+   */
+  @Setup
+  public void setUp() throws IOException {
+    csvPath = Paths.get("target", "classes", CSV_PATH);
+    Files.createDirectories(csvPath.getParent());
+
+    appointments = Collections.synchronizedList(new ArrayList<>(rows));
+    for (int i = 1; i <= rows; i++) {
+      appointments.add(
+          new Appointment(
+              String.format("A%04d", i),
+              String.format("P%04d", i % 100),
+              String.format("D%04d", i % 10),
+              LocalDate.of(2024, 11, i % 28 + 1),
+              i % 8 + 1,
+              AppointmentStatus.PENDING));
+    }
+    rewriteInPlace();
+    table = new CsvTable<>(CSV_PATH, HEADER, Appointment.class, Appointment::getAppointmentID);
+  }
+
+  /** Compacts the benchmark table and prints the latency statistics kept by the committer. */
+  @TearDown
+  public void tearDown() {
+    GroupCommitter.checkpoint(Collections.singletonList(table));
+    System.out.println(GroupCommitter.getStatistics());
+  }
+
+  /**
+   * Rewrites the whole table in place, as CsvDB did before mutation logs were introduced.
+   *
+   * @throws IOException if the table cannot be written
+   */
+  @Benchmark
+  public void rewriteInPlace() throws IOException {
+    try (Writer writer = new FileWriter(csvPath.toFile())) {
+      writeTable(writer);
+    }
+  }
+
+  /**
+   * Rewrites the whole table to a temporary file, forces it to disk and renames it over the table.
+   *
+   * @throws IOException if the table cannot be written
+   */
+  @Benchmark
+  public void rewriteAtomic() throws IOException {
+    Path temporaryPath = csvPath.resolveSibling("Appointment.csv.tmp");
+    try (FileChannel channel =
+        FileChannel.open(
+            temporaryPath,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      Writer writer = new OutputStreamWriter(Channels.newOutputStream(channel), UTF_8);
+      writeTable(writer);
+      writer.flush();
+      channel.force(true);
+    }
+    Files.move(temporaryPath, csvPath, ATOMIC_MOVE, REPLACE_EXISTING);
+  }
+
+  /** Changes one appointment and saves the table through its mutation log. */
+  @Benchmark
+  public void groupCommit() {
+    saveOneChange();
+  }
+
+  /** Saves through the mutation log from four threads, so that commits share their fsyncs. */
+  @Benchmark
+  @Threads(4)
+  public void groupCommitConcurrent() {
+    saveOneChange();
+  }
+
+  private void saveOneChange() {
+    int index = counter.incrementAndGet() % rows;
+    synchronized (appointments) {
+      Appointment appointment = appointments.get(index);
+      appointment.setStatus(
+          appointment.getStatus() == AppointmentStatus.PENDING
+              ? AppointmentStatus.CONFIRMED
+              : AppointmentStatus.PENDING);
+    }
+    table.save(new ArrayList<>(appointments));
+  }
+
+  /**
+   * Runs all benchmarks in this class.
+   *
+   * @param args unused
+   * @throws RunnerException if the benchmarks cannot be run
+   */
+  public static void main(String[] args) throws RunnerException {
+    Options options =
+        new OptionsBuilder().include(CommitLatencyBenchmark.class.getSimpleName()).build();
+    new Runner(options).run();
+  }
+
+  private void writeTable(Writer writer) throws IOException {
+    writer.write(HEADER);
+    writer.write("\n");
+    synchronized (appointments) {
+      for (Appointment appointment : appointments) {
+        writer.write(codec.encode(appointment));
+        writer.write("\n");
+      }
+    }
+  }
+}
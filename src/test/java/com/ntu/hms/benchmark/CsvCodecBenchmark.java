@@ -0,0 +1,168 @@
+package com.ntu.hms.benchmark;
+
+import static com.ntu.hms.factory.SingletonFactory.getDateTimeFormatter;
+
+import com.ntu.hms.codec.CsvCodec;
+import com.ntu.hms.codec.CsvCodecs;
+import com.ntu.hms.codec.CsvValues;
+import com.ntu.hms.model.Appointment;
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the per-entity CSV codecs against the reflective row mapping that CsvDB used previously.
+ * Each benchmark decodes or encodes a full Appointment table of {@link #rows} rows.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.ntu.hms.benchmark.CsvCodecBenchmark}, or from the IDE through {@link
+ * #main(String[])}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvCodecBenchmark {
+  @Param({"1000", "100000"})
+  private int rows;
+
+  private final CsvCodec<Appointment> codec = CsvCodecs.forClass(Appointment.class);
+  private List<String> lines;
+  private List<Appointment> appointments;
+
+  /** Generates the rows of the Appointment table used by every benchmark. */
+  @Setup
+  public void setUp() {
+    lines = new ArrayList<>(rows);
+    for (int i = 1; i <= rows; i++) {
+      lines.add(
+          String.format(
+              "A%04d,P%04d,D%04d,%02d/11/2024,%d,CONFIRMED",
+              i, i % 100, i % 10, i % 28 + 1, i % 8 + 1));
+    }
+    appointments = decodeWithCodec();
+  }
+
+  /**
+   * Decodes the table with the Appointment codec.
+   *
+   * @return the decoded appointments
+   */
+  @Benchmark
+  public List<Appointment> decodeWithCodec() {
+    List<Appointment> result = new ArrayList<>(lines.size());
+    for (String line : lines) {
+      result.add(codec.decode(CsvValues.split(line)));
+    }
+    return result;
+  }
+
+  /**
+   * Decodes the table with the reflective row mapping.
+   *
+   * @return the decoded appointments
+   * @throws ReflectiveOperationException if an appointment cannot be instantiated
+   */
+  @Benchmark
+  public List<Appointment> decodeWithReflection() throws ReflectiveOperationException {
+    List<Appointment> result = new ArrayList<>(lines.size());
+    for (String line : lines) {
+      result.add(ReflectiveMapper.decode(line, Appointment.class));
+    }
+    return result;
+  }
+
+  /**
+   * Encodes the table with the Appointment codec.
+   *
+   * @return the total length of the encoded rows
+   */
+  @Benchmark
+  public int encodeWithCodec() {
+    int length = 0;
+    for (Appointment appointment : appointments) {
+      length += codec.encode(appointment).length();
+    }
+    return length;
+  }
+
+  /**
+   * Encodes the table with the reflective row mapping.
+   *
+   * @return the total length of the encoded rows
+   * @throws IllegalAccessException if a field of an appointment cannot be read
+   */
+  @Benchmark
+  public int encodeWithReflection() throws IllegalAccessException {
+    int length = 0;
+    for (Appointment appointment : appointments) {
+      length += ReflectiveMapper.encode(appointment).length();
+    }
+    return length;
+  }
+
+  /**
+   * Runs all benchmarks in this class.
+   *
+   * @param args unused
+   * @throws RunnerException if the benchmarks cannot be run
+   */
+  public static void main(String[] args) throws RunnerException {
+    Options options = new OptionsBuilder().include(CsvCodecBenchmark.class.getSimpleName()).build();
+    new Runner(options).run();
+  }
+
+  /**
+   * Replica of the reflective mapping that CsvDB used before the codecs were introduced, covering
+   * the column types of the Appointment table. Fields are looked up for every row, as they were
+   * originally.
+   */
+  private static final class ReflectiveMapper {
+
+    private static <T> T decode(String line, Class<T> clazz) throws ReflectiveOperationException {
+      T instance = clazz.getDeclaredConstructor().newInstance();
+      String[] data = line.split(CsvValues.CSV_DELIMITER);
+      Field[] fields = clazz.getDeclaredFields();
+      for (int index = 0; index < fields.length; index++) {
+        Field field = fields[index];
+        field.setAccessible(true);
+        if (field.getType().equals(int.class)) {
+          field.set(instance, Integer.parseInt(data[index].trim()));
+        } else if (field.getType().equals(boolean.class)) {
+          field.set(instance, Boolean.parseBoolean(data[index].trim()));
+        } else if (field.getType().equals(String.class)) {
+          field.set(instance, data[index].trim());
+        } else if (field.getType().equals(LocalDate.class)) {
+          field.set(instance, LocalDate.parse(data[index], getDateTimeFormatter()));
+        }
+      }
+      return instance;
+    }
+
+    private static String encode(Object model) throws IllegalAccessException {
+      StringBuilder row = new StringBuilder();
+      for (Field field : model.getClass().getDeclaredFields()) {
+        field.setAccessible(true);
+        Object value = field.get(model);
+        if (row.length() > 0) {
+          row.append(CsvValues.CSV_DELIMITER);
+        }
+        if (value instanceof LocalDate) {
+          row.append(((LocalDate) value).format(getDateTimeFormatter()));
+        } else {
+          row.append(value);
+        }
+      }
+      return row.toString();
+    }
+  }
+}
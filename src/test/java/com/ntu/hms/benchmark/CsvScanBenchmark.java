@@ -0,0 +1,176 @@
+package com.ntu.hms.benchmark;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.ntu.hms.codec.CsvCodec;
+import com.ntu.hms.codec.CsvCodecs;
+import com.ntu.hms.codec.CsvValues;
+import com.ntu.hms.model.Schedule;
+import com.ntu.hms.storage.MappedCsvScanner;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares reading a Schedule table through a {@link BufferedReader} and {@link String#split}, the
+ * way CsvDB originally read every CSV file, against the {@link MappedCsvScanner}. Each benchmark
+ * reads a temporary file of {@link #rows} rows, either decoding every schedule or only looking up
+ * the schedules of one doctor on one date.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.ntu.hms.benchmark.CsvScanBenchmark}, or from the IDE through {@link
+ * #main(String[])}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvScanBenchmark {
+  private static final String DOCTOR_ID = "D0007";
+  private static final LocalDate DATE = LocalDate.of(2024, 11, 15);
+
+  @Param({"1000000"})
+  private int rows;
+
+  private final CsvCodec<Schedule> codec = CsvCodecs.forClass(Schedule.class);
+  private Path file;
+
+  /**
+   * Writes the temporary Schedule table read by every benchmark.
+   *
+   * @throws IOException if the file cannot be written
+   */
+  @Setup
+  public void setUp() throws IOException {
+    file = Files.createTempFile("Schedule", ".csv");
+    try (BufferedWriter writer = Files.newBufferedWriter(file, UTF_8)) {
+      writer.write("Doctor ID,Date,Session 1,Session 2,Session 3,Session 4,");
+      writer.write("Session 5,Session 6,Session 7,Session 8\n");
+      LocalDate start = LocalDate.of(2020, 1, 1);
+      for (int i = 0; i < rows; i++) {
+        writer.write(
+            String.format(
+                "D%04d,%s,Available,P%04d-CONFIRMED,Unavailable,Available,"
+                    + "P%04d-PENDING,Available,Available,Unavailable\n",
+                i % 100, CsvValues.formatDate(start.plusDays(i / 100)), i % 1000, (i + 1) % 1000));
+      }
+    }
+  }
+
+  /**
+   * Deletes the temporary Schedule table.
+   *
+   * @throws IOException if the file cannot be deleted
+   */
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  /**
+   * Decodes every schedule through a reader, splitting each line into strings.
+   *
+   * @return the decoded schedules
+   * @throws IOException if the file cannot be read
+   */
+  @Benchmark
+  public List<Schedule> decodeWithReader() throws IOException {
+    List<Schedule> schedules = new ArrayList<>(rows);
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(Files.newInputStream(file), UTF_8))) {
+      reader.readLine();
+      String line;
+      while ((line = reader.readLine()) != null) {
+        schedules.add(codec.decode(CsvValues.split(line)));
+      }
+    }
+    return schedules;
+  }
+
+  /**
+   * Decodes every schedule through the mapped scanner.
+   *
+   * @return the decoded schedules
+   * @throws IOException if the file cannot be read
+   */
+  @Benchmark
+  public List<Schedule> decodeWithMappedScanner() throws IOException {
+    List<Schedule> schedules = new ArrayList<>(rows);
+    try (MappedCsvScanner scanner = MappedCsvScanner.open(file)) {
+      scanner.next();
+      while (scanner.next()) {
+        schedules.add(codec.decode(scanner.getColumns()));
+      }
+    }
+    return schedules;
+  }
+
+  /**
+   * Looks up the schedules of one doctor on one date through a reader, which splits every line.
+   *
+   * @return the matching schedules
+   * @throws IOException if the file cannot be read
+   */
+  @Benchmark
+  public List<Schedule> lookupWithReader() throws IOException {
+    List<Schedule> schedules = new ArrayList<>();
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(Files.newInputStream(file), UTF_8))) {
+      reader.readLine();
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] columns = CsvValues.split(line);
+        if (columns[0].equals(DOCTOR_ID) && CsvValues.parseDate(columns[1]).equals(DATE)) {
+          schedules.add(codec.decode(columns));
+        }
+      }
+    }
+    return schedules;
+  }
+
+  /**
+   * Looks up the schedules of one doctor on one date through the mapped scanner, which only decodes
+   * the rows that match.
+   *
+   * @return the matching schedules
+   * @throws IOException if the file cannot be read
+   */
+  @Benchmark
+  public List<Schedule> lookupWithMappedScanner() throws IOException {
+    List<Schedule> schedules = new ArrayList<>();
+    try (MappedCsvScanner scanner = MappedCsvScanner.open(file)) {
+      scanner.next();
+      while (scanner.next()) {
+        if (scanner.columnEquals(0, DOCTOR_ID) && scanner.getDate(1).equals(DATE)) {
+          schedules.add(codec.decode(scanner.getColumns()));
+        }
+      }
+    }
+    return schedules;
+  }
+
+  /**
+   * Runs all benchmarks in this class.
+   *
+   * @param args unused
+   * @throws RunnerException if the benchmarks cannot be run
+   */
+  public static void main(String[] args) throws RunnerException {
+    Options options = new OptionsBuilder().include(CsvScanBenchmark.class.getSimpleName()).build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,110 @@
+package com.ntu.hms.benchmark;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.ntu.hms.model.Appointment;
+import com.ntu.hms.storage.CsvTable;
+import com.ntu.hms.storage.GroupCommitter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures how long an Appointment table of {@link #rows} rows takes to load when the application
+ * restarts, either from its CSV file or from the binary snapshot written when the table was last
+ * closed. Every invocation loads a fresh table, as a restart would.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.ntu.hms.benchmark.RestartBenchmark}, or from the IDE through {@link
+ * #main(String[])}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dcsvdb.binarySnapshots=true")
+@State(Scope.Benchmark)
+public class RestartBenchmark {
+  private static final String CSV_PATH = "csvdb/benchmark/Appointment.csv";
+  private static final String HEADER = "Appointment ID,Patient ID,Doctor ID,Date,Session,Status";
+
+  @Param({"1000000"})
+  private int rows;
+
+  @Param({"csv", "binary"})
+  private String format;
+
+  private final Path directory = Paths.get("target", "classes", "csvdb", "benchmark");
+
+  /**
+   * Writes the Appointment table, and its binary snapshot when loading from one.
+   *
+   * @throws IOException if the table cannot be written
+   */
+  @Setup
+  public void setUp() throws IOException {
+    Files.createDirectories(directory);
+    try (BufferedWriter writer =
+        Files.newBufferedWriter(directory.resolve("Appointment.csv"), UTF_8)) {
+      writer.write(HEADER);
+      writer.write("\n");
+      for (int i = 1; i <= rows; i++) {
+        writer.write(
+            String.format(
+                "A%07d,P%04d,D%04d,%02d/11/2024,%d,COMPLETED\n",
+                i, i % 1000, i % 50, i % 28 + 1, i % 8 + 1));
+      }
+    }
+    if (format.equals("binary")) {
+      CsvTable<Appointment> table = newTable();
+      table.count();
+      GroupCommitter.exclusive(table::close);
+    }
+  }
+
+  /**
+   * Deletes the table and its binary snapshot.
+   *
+   * @throws IOException if the files cannot be deleted
+   */
+  @TearDown
+  public void tearDown() throws IOException {
+    for (String fileName : new String[] {"Appointment.csv", "Appointment.bin", "Appointment.log"}) {
+      Files.deleteIfExists(directory.resolve(fileName));
+    }
+    Files.deleteIfExists(directory);
+  }
+
+  /**
+   * Loads a fresh copy of the table.
+   *
+   * @return the number of rows loaded
+   */
+  @Benchmark
+  public int load() {
+    return newTable().count();
+  }
+
+  private static CsvTable<Appointment> newTable() {
+    return new CsvTable<>(CSV_PATH, HEADER, Appointment.class, Appointment::getAppointmentID);
+  }
+
+  /**
+   * Runs all benchmarks in this class.
+   *
+   * @param args unused
+   * @throws RunnerException if the benchmarks cannot be run
+   */
+  public static void main(String[] args) throws RunnerException {
+    Options options = new OptionsBuilder().include(RestartBenchmark.class.getSimpleName()).build();
+    new Runner(options).run();
+  }
+}
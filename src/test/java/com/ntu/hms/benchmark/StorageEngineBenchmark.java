@@ -0,0 +1,146 @@
+package com.ntu.hms.benchmark;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.ntu.hms.codec.CsvCodec;
+import com.ntu.hms.codec.CsvCodecs;
+import com.ntu.hms.enums.AppointmentStatus;
+import com.ntu.hms.model.Appointment;
+import com.ntu.hms.storage.CsvTable;
+import com.ntu.hms.storage.GroupCommitter;
+import com.ntu.hms.storage.SingleFileStorageEngine;
+import com.ntu.hms.storage.StorageEngines;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the commit throughput of the storage engines under the same workload: an Appointment
+ * table of {@link #rows} rows, one of which is changed and saved by every operation, alone and from
+ * four threads sharing each batch. Each engine runs in a JVM of its own, since the engine cannot
+ * change once a table is opened.
+ *
+ * <p>The tables are written under target/classes/csvdb/benchmark, away from the application's data.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StorageEngineBenchmark {
+  private static final String CSV_PATH = "csvdb/benchmark/Appointment.csv";
+  private static final String HEADER = "Appointment ID,Patient ID,Doctor ID,Date,Session,Status";
+
+  @Param({"1000"})
+  private int rows;
+
+  @Param({"csv", "memory", "file"})
+  private String engine;
+
+  private final Path directory = Paths.get("target", "classes", "csvdb", "benchmark");
+  private final AtomicInteger counter = new AtomicInteger();
+  private CsvTable<Appointment> table;
+  private List<Appointment> appointments;
+
+  /**
+   * Writes the seed CSV file and loads the table through the engine.
+   *
+   * @throws IOException if the seed file cannot be written
+   */
+  @Setup
+  public void setUp() throws IOException {
+    Files.createDirectories(directory);
+    StorageEngines.use(
+        engine.equals(SingleFileStorageEngine.NAME)
+            ? new SingleFileStorageEngine(directory.resolve("hms.db"))
+            : StorageEngines.forName(engine));
+
+    CsvCodec<Appointment> codec = CsvCodecs.forClass(Appointment.class);
+    try (BufferedWriter writer =
+        Files.newBufferedWriter(directory.resolve("Appointment.csv"), UTF_8)) {
+      writer.write(HEADER);
+      writer.write("\n");
+      for (int i = 1; i <= rows; i++) {
+        writer.write(
+            codec.encode(
+                new Appointment(
+                    String.format("A%04d", i),
+                    String.format("P%04d", i % 100),
+                    String.format("D%04d", i % 10),
+                    LocalDate.of(2024, 11, i % 28 + 1),
+                    i % 8 + 1,
+                    AppointmentStatus.PENDING)));
+        writer.write("\n");
+      }
+    }
+    table = new CsvTable<>(CSV_PATH, HEADER, Appointment.class, Appointment::getAppointmentID);
+    appointments = Collections.synchronizedList(table.read());
+  }
+
+  /**
+   * Compacts the table and deletes its files.
+   *
+   * @throws IOException if the files cannot be deleted
+   */
+  @TearDown
+  public void tearDown() throws IOException {
+    GroupCommitter.checkpoint(Collections.singletonList(table));
+    System.out.println(GroupCommitter.getStatistics());
+    try (Stream<Path> paths = Files.walk(directory)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  /** Changes one appointment and saves the table. */
+  @Benchmark
+  public void commit() {
+    saveOneChange();
+  }
+
+  /** Saves from four threads, so that commits share their batches. */
+  @Benchmark
+  @Threads(4)
+  public void commitConcurrent() {
+    saveOneChange();
+  }
+
+  private void saveOneChange() {
+    int index = counter.incrementAndGet() % rows;
+    synchronized (appointments) {
+      Appointment appointment = appointments.get(index);
+      appointment.setStatus(
+          appointment.getStatus() == AppointmentStatus.PENDING
+              ? AppointmentStatus.CONFIRMED
+              : AppointmentStatus.PENDING);
+    }
+    table.save(new ArrayList<>(appointments));
+  }
+
+  /**
+   * Runs all benchmarks in this class.
+   *
+   * @param args unused
+   * @throws RunnerException if the benchmarks cannot be run
+   */
+  public static void main(String[] args) throws RunnerException {
+    Options options =
+        new OptionsBuilder().include(StorageEngineBenchmark.class.getSimpleName()).build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,124 @@
+package com.ntu.hms.codec;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ntu.hms.enums.ScheduleStatus;
+import com.ntu.hms.model.Schedule;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that a {@link Schedule}, held as one bitmask per status, an interned patient reference per
+ * booked session and the text of any session in no known form, converts back to the exact row it
+ * was decoded from, through the CSV and the binary form of the {@link ScheduleCodec}.
+ */
+public class ScheduleCodecTest {
+  private static final ScheduleCodec CODEC = new ScheduleCodec();
+
+  private static final List<String> ROWS =
+      Arrays.asList(
+          "D0001,15/11/2024,P0001-CONFIRMED,Available,Available,Available,Available,Available,Available,Available",
+          "D0001,18/11/2024,Unavailable,P0001-PENDING,P0002-CANCELLED,Available,P0003-PENDING,Unavailable,Available,P0001-CONFIRMED",
+          // Sessions in no known form are kept as they are
+          "D0002,19/11/2024,Holiday,P0001-DONE,P0001-P0002-PENDING,-PENDING,,Available,Unavailable,P0004-PENDING",
+          // Schedules of other lengths than a day
+          "D0003,20/11/2024,Available,P0005-PENDING,Unavailable",
+          "D0004,21/11/2024");
+
+  /** Every row is encoded back to itself after being decoded. */
+  @Test
+  @DisplayName("Rows round-trip through the CSV form")
+  public void testCsvRoundTrip() {
+    for (String row : ROWS) {
+      assertEquals(row, CODEC.encode(CODEC.decode(CsvValues.split(row))));
+    }
+  }
+
+  /** Every schedule written to a snapshot is read back to the same row. */
+  @Test
+  @DisplayName("Rows round-trip through the binary form")
+  public void testBinaryRoundTrip() throws IOException {
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    SnapshotOutput output = new SnapshotOutput();
+    for (String row : ROWS) {
+      CODEC.write(CODEC.decode(CsvValues.split(row)), output);
+      output.writeRecord(stream);
+    }
+
+    byte[] data = stream.toByteArray();
+    SnapshotInput input = new SnapshotInput(data, 0, data.length);
+    List<String> read = new ArrayList<>();
+    for (int i = 0; i < ROWS.size(); i++) {
+      input.beginRecord();
+      read.add(CODEC.encode(CODEC.read(input)));
+      input.endRecord();
+    }
+    assertEquals(ROWS, read);
+  }
+
+  /** The masks of each status hold exactly the sessions with that status. */
+  @Test
+  @DisplayName("Status masks match the session text")
+  public void testStatusMasks() {
+    Schedule schedule = CODEC.decode(CsvValues.split(ROWS.get(1)));
+
+    assertEquals(0b10010, schedule.getSessionsWithStatus(ScheduleStatus.PENDING));
+    assertEquals(0b10000000, schedule.getSessionsWithStatus(ScheduleStatus.CONFIRMED));
+    assertEquals(0b100, schedule.getSessionsWithStatus(ScheduleStatus.CANCELLED));
+    assertTrue(schedule.isSessionAvailable(3));
+    assertTrue(schedule.isSessionUnavailable(0));
+    assertEquals("P0003", schedule.getPatientIdFromSession(4));
+
+    Schedule custom = CODEC.decode(CsvValues.split(ROWS.get(2)));
+    assertEquals(0b10000000, custom.getSessionsWithStatus(ScheduleStatus.PENDING));
+    assertFalse(custom.isSessionAvailable(0));
+    assertFalse(custom.isSessionUnavailable(0));
+    assertTrue(custom.isSessionUnavailable(6));
+  }
+
+  /** Changing sessions moves their bits between masks and replaces any custom text. */
+  @Test
+  @DisplayName("Changed sessions encode to their new text")
+  public void testChangedSessions() {
+    Schedule schedule = CODEC.decode(CsvValues.split(ROWS.get(2)));
+    schedule.bookSession(0, "P0009");
+    schedule.acceptAppointment(7);
+    schedule.setSessionAvailable(1);
+    schedule.setSessionUnavailable(5);
+
+    String[] expected =
+        new String[] {
+          "P0009-PENDING",
+          "Available",
+          "P0001-P0002-PENDING",
+          "-PENDING",
+          "",
+          "Unavailable",
+          "Unavailable",
+          "P0004-CONFIRMED"
+        };
+    assertArrayEquals(expected, schedule.getSession());
+    assertEquals("D0002,19/11/2024," + String.join(",", expected), CODEC.encode(schedule));
+    assertEquals(0b1, schedule.getSessionsWithStatus(ScheduleStatus.PENDING));
+    assertEquals(0b10000000, schedule.getSessionsWithStatus(ScheduleStatus.CONFIRMED));
+  }
+
+  /** A schedule of a day's sessions is the same whether it was decoded or created by default. */
+  @Test
+  @DisplayName("A default schedule encodes as a day of available sessions")
+  public void testDefaultSchedule() {
+    Schedule schedule = Schedule.createDefaultSchedule("D0005", CsvValues.parseDate("22/11/2024"));
+    assertEquals(
+        "D0005,22/11/2024," + String.join(",", Collections.nCopies(8, "Available")),
+        CODEC.encode(schedule));
+  }
+}
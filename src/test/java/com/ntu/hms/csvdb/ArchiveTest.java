@@ -0,0 +1,127 @@
+package com.ntu.hms.csvdb;
+
+import static com.ntu.hms.TestManager.backupDatabase;
+import static com.ntu.hms.TestManager.resetDatabase;
+import static com.ntu.hms.TestManager.restoreDatabase;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.ntu.hms.CsvDB;
+import com.ntu.hms.enums.AppointmentOutcomeStatus;
+import com.ntu.hms.enums.AppointmentStatus;
+import com.ntu.hms.model.Appointment;
+import com.ntu.hms.model.Schedule;
+import com.ntu.hms.storage.WriteConflictException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the lists a terminal session read before an archiving pass cannot bring the archived
+ * appointments and schedules back into their tables.
+ */
+public class ArchiveTest {
+  private static final LocalDate HORIZON = LocalDate.of(2030, 1, 1);
+  private static final LocalDate ARCHIVED_DATE = LocalDate.of(2024, 11, 15);
+  private static Path backup;
+
+  /** Keeps the data the other tests left behind. */
+  @BeforeAll
+  public static void backUp() {
+    backup = backupDatabase();
+  }
+
+  /** Puts back the data the other tests left behind. */
+  @AfterAll
+  public static void restore() {
+    restoreDatabase(backup);
+  }
+
+  /**
+   * Starts from the original data, with the prescription of appointment A0001 dispensed, so the
+   * appointment and its schedule can be archived.
+   */
+  @BeforeEach
+  public void setUp() {
+    resetDatabase();
+    CsvDB.findAppointmentOutcomeRecord("A0001")
+        .setPrescriptionStatus(AppointmentOutcomeStatus.DISPENSED);
+    CsvDB.saveAppointmentOutcomeRecords(CsvDB.readAppointmentOutcomeRecords());
+  }
+
+  /**
+   * Saving lists read before the archiving pass keeps their changes but leaves the archived rows
+   * out, in memory and after a restart.
+   */
+  @Test
+  @DisplayName("A stale save does not bring archived rows back")
+  public void testStaleSaveKeepsArchivedRowsOut() throws Exception {
+    List<Appointment> appointments = CsvDB.readAppointments();
+    List<Schedule> schedules = CsvDB.readSchedules();
+
+    assertEquals(1, (int) inArchiverThread(() -> CsvDB.archive(HORIZON)));
+
+    CsvDB.getAppointmentRepository().findById("A0002").setStatus(AppointmentStatus.CONFIRMED);
+    CsvDB.saveAppointments(appointments);
+    CsvDB.findSchedule("D0001", LocalDate.of(2024, 11, 17)).acceptAppointment(0);
+    CsvDB.saveSchedules(schedules);
+
+    assertArchived();
+    CsvDB.close();
+    assertArchived();
+  }
+
+  /** A stale list changing an archived row fails rather than overwriting the archive's move. */
+  @Test
+  @DisplayName("Changing a row archived since it was read fails")
+  public void testChangeOfArchivedRowConflicts() throws Exception {
+    List<Appointment> appointments = CsvDB.readAppointments();
+    Appointment archived = CsvDB.getAppointmentRepository().findById("A0001");
+
+    inArchiverThread(() -> CsvDB.archive(HORIZON));
+
+    archived.setStatus(AppointmentStatus.CANCELLED);
+    assertThrows(WriteConflictException.class, () -> CsvDB.saveAppointments(appointments));
+    assertNull(CsvDB.getAppointmentRepository().findById("A0001"));
+  }
+
+  private static void assertArchived() {
+    assertEquals(
+        "[A0002, A0003]",
+        CsvDB.readAppointments()
+            .stream()
+            .map(Appointment::getAppointmentID)
+            .collect(Collectors.toList())
+            .toString());
+    assertEquals(
+        AppointmentStatus.CONFIRMED,
+        CsvDB.getAppointmentRepository().findById("A0002").getStatus());
+    assertEquals(1, CsvDB.findArchivedAppointmentsBetween(ARCHIVED_DATE, ARCHIVED_DATE).size());
+    assertNull(CsvDB.findSchedule("D0001", ARCHIVED_DATE));
+    assertEquals(
+        1, CsvDB.findArchivedSchedulesBetween("D0001", ARCHIVED_DATE, ARCHIVED_DATE).size());
+    assertEquals(
+        "P0001-CONFIRMED",
+        CsvDB.findSchedule("D0001", LocalDate.of(2024, 11, 17)).getSessionInfo(0));
+  }
+
+  /** Runs the archiving pass on its own thread, as the archive compactor does. */
+  private static <T> T inArchiverThread(Callable<T> task) throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      return executor.submit(task).get();
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package com.ntu.hms.csvdb;
+
+import static com.ntu.hms.TestManager.backupDatabase;
+import static com.ntu.hms.TestManager.copyDatabase;
+import static com.ntu.hms.TestManager.resetDatabase;
+import static com.ntu.hms.TestManager.restoreDatabase;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import com.ntu.hms.CsvDB;
+import com.ntu.hms.enums.AppointmentStatus;
+import com.ntu.hms.model.Appointment;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the IDs of new appointments stay unique across restarts of the application, and that
+ * new users are numbered as they were when IDs followed the size of their table.
+ */
+public class IdSequenceTest {
+  private static Path backup;
+
+  /** Keeps the data the other tests left behind. */
+  @BeforeAll
+  public static void backUp() {
+    backup = backupDatabase();
+  }
+
+  /** Puts back the data the other tests left behind. */
+  @AfterAll
+  public static void restore() {
+    restoreDatabase(backup);
+  }
+
+  /** Starts from the original data, with appointments A0001 to A0003 and no sequence yet. */
+  @BeforeEach
+  public void setUp() {
+    resetDatabase();
+  }
+
+  /**
+   * The first user of each kind follows the users of the original data, the administrators with an
+   * "AH" ID included.
+   */
+  @Test
+  @DisplayName("The first user IDs follow the original users")
+  public void testFirstUserIdsFollowOriginalUsers() {
+    assertEquals("P0006", CsvDB.nextPatientID());
+    assertEquals("D0007", CsvDB.nextDoctorID());
+    assertEquals("PH0006", CsvDB.nextPharmacistID());
+    assertEquals("A0006", CsvDB.nextAdministratorID());
+    assertEquals("A0007", CsvDB.nextAdministratorID());
+  }
+
+  /** IDs continue one after another across a clean restart in the middle of a block. */
+  @Test
+  @DisplayName("Appointment IDs continue after a clean restart")
+  public void testIdsContinueAfterCleanRestart() {
+    assertEquals("A0004", CsvDB.nextAppointmentID());
+    assertEquals("A0005", CsvDB.nextAppointmentID());
+    CsvDB.close();
+    assertEquals("A0006", CsvDB.nextAppointmentID());
+  }
+
+  /**
+   * The first ID after a crash does not collide with the appointments booked before it, even though
+   * the block they were drawn from was never released.
+   */
+  @Test
+  @DisplayName("The first appointment ID after a crash is unused")
+  public void testFirstIdAfterCrashIsUnused() {
+    for (int i = 0; i < 2; i++) {
+      String appointmentID = CsvDB.nextAppointmentID();
+      CsvDB.transaction(
+          () -> {
+            List<Appointment> appointments = CsvDB.readAppointments();
+            appointments.add(
+                new Appointment(
+                    appointmentID,
+                    "P0002",
+                    "D0002",
+                    LocalDate.of(2024, 11, 20),
+                    1,
+                    AppointmentStatus.PENDING));
+            CsvDB.saveAppointments(appointments);
+          });
+    }
+
+    // The application stops without closing its tables
+    Path crashed = copyDatabase();
+    CsvDB.close();
+    restoreDatabase(crashed);
+
+    List<String> appointmentIDs =
+        CsvDB.readAppointments()
+            .stream()
+            .map(Appointment::getAppointmentID)
+            .collect(Collectors.toList());
+    assertEquals(5, appointmentIDs.size());
+    assertFalse(appointmentIDs.contains(CsvDB.nextAppointmentID()));
+  }
+}
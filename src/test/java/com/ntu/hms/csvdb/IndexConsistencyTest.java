@@ -0,0 +1,569 @@
+package com.ntu.hms.csvdb;
+
+import static com.ntu.hms.TestManager.backupDatabase;
+import static com.ntu.hms.TestManager.resetDatabase;
+import static com.ntu.hms.TestManager.restoreDatabase;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.DynamicContainer.dynamicContainer;
+import static org.junit.jupiter.api.DynamicTest.dynamicTest;
+
+import com.ntu.hms.CsvDB;
+import com.ntu.hms.enums.AppointmentOutcomeStatus;
+import com.ntu.hms.enums.AppointmentStatus;
+import com.ntu.hms.enums.ScheduleStatus;
+import com.ntu.hms.model.Appointment;
+import com.ntu.hms.model.AppointmentOutcomeRecord;
+import com.ntu.hms.model.Diagnosis;
+import com.ntu.hms.model.MedicalRecordEntry;
+import com.ntu.hms.model.Schedule;
+import com.ntu.hms.model.Treatment;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DynamicContainer;
+import org.junit.jupiter.api.DynamicNode;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * Tests that every index kept by CsvDB returns what a scan of its tables does, whatever the change
+ * made to the tables through CsvDB after the index was first read: the indexes of appointments by
+ * patient, doctor, date and status, the index of schedules by doctor and date, the patients under
+ * each doctor's care and the materialized medical records.
+ *
+ * <p>Each change starts from the original data, where P0001 has appointments A0001 to A0003 with
+ * D0001 on 15, 17 and 18 November 2024, the first one confirmed and completed, with a diagnosis,
+ * treatment and outcome record.
+ */
+public class IndexConsistencyTest {
+  private static final List<String> PATIENT_IDS = Arrays.asList("P0001", "P0002", "P0003");
+  private static final List<String> DOCTOR_IDS = Arrays.asList("D0001", "D0002", "D0003");
+  private static final LocalDate NOVEMBER_15 = LocalDate.of(2024, 11, 15);
+  private static final LocalDate NOVEMBER_16 = LocalDate.of(2024, 11, 16);
+  private static final LocalDate NOVEMBER_17 = LocalDate.of(2024, 11, 17);
+  private static final LocalDate NOVEMBER_18 = LocalDate.of(2024, 11, 18);
+  private static final LocalDate HORIZON = LocalDate.of(2030, 1, 1);
+  private static Path backup;
+
+  /** Keeps the data the other tests left behind. */
+  @BeforeAll
+  public static void backUp() {
+    backup = backupDatabase();
+  }
+
+  /** Puts back the data the other tests left behind. */
+  @AfterAll
+  public static void restore() {
+    restoreDatabase(backup);
+  }
+
+  /** Every index matches a scan after every change made to its tables. */
+  @TestFactory
+  @DisplayName("Indexes match a scan after every change")
+  public Stream<DynamicNode> testIndexesMatchScan() {
+    return Stream.of(
+        index(
+            "Appointments by patient, doctor, date and status",
+            IndexConsistencyTest::assertAppointmentIndexesMatchScan,
+            appointmentChanges()),
+        index(
+            "Schedules by doctor and date",
+            IndexConsistencyTest::assertScheduleIndexMatchesScan,
+            scheduleChanges()),
+        index(
+            "Patients under care",
+            IndexConsistencyTest::assertPatientsUnderCareMatchScan,
+            patientsUnderCareChanges()),
+        index(
+            "Medical records",
+            IndexConsistencyTest::assertMedicalRecordsMatchJoin,
+            medicalRecordChanges()));
+  }
+
+  /**
+   * Creates the tests of an index, one per change. Each test reads the index before the change, so
+   * the change is applied to the index rather than the index built after it.
+   */
+  private static DynamicContainer index(
+      String name, Runnable assertMatchesScan, Map<String, Executable> changes) {
+    return dynamicContainer(
+        name,
+        changes
+            .entrySet()
+            .stream()
+            .map(
+                change ->
+                    dynamicTest(
+                        change.getKey(),
+                        () -> {
+                          resetDatabase();
+                          assertMatchesScan.run();
+                          change.getValue().execute();
+                          assertMatchesScan.run();
+                        })));
+  }
+
+  private static Map<String, Executable> appointmentChanges() {
+    Map<String, Executable> changes = new LinkedHashMap<>();
+    // Updating every indexed field of an appointment, and adding one, moves them in every index
+    changes.put(
+        "Update and insert",
+        () -> {
+          List<Appointment> appointments = CsvDB.readAppointments();
+          Appointment appointment = CsvDB.getAppointmentRepository().findById("A0002");
+          appointment.setPatientID("P0002");
+          appointment.setDoctorID("D0002");
+          appointment.setDate(NOVEMBER_16);
+          appointment.setStatus(AppointmentStatus.CONFIRMED);
+          appointments.add(
+              new Appointment(
+                  "A0004", "P0003", "D0001", NOVEMBER_17, 3, AppointmentStatus.PENDING));
+          CsvDB.saveAppointments(appointments);
+        });
+    changes.put(
+        "Delete",
+        () -> {
+          List<Appointment> appointments = CsvDB.readAppointments();
+          appointments.removeIf(appointment -> appointment.getAppointmentID().equals("A0002"));
+          CsvDB.saveAppointments(appointments);
+        });
+    // The appointment is removed under the values it was indexed with, not its new ones
+    changes.put(
+        "Mutate then delete",
+        () -> {
+          List<Appointment> appointments = CsvDB.readAppointments();
+          Appointment appointment = CsvDB.getAppointmentRepository().findById("A0002");
+          appointment.setPatientID("P0003");
+          appointment.setDoctorID("D0003");
+          appointment.setDate(NOVEMBER_16);
+          appointment.setStatus(AppointmentStatus.CANCELLED);
+          appointments.remove(appointment);
+          CsvDB.saveAppointments(appointments);
+        });
+    changes.put("Archive", IndexConsistencyTest::archiveFirstAppointment);
+    changes.put(
+        "Rollback",
+        () -> {
+          List<String> original = describeAppointments(CsvDB.readAppointments());
+          rollBack(
+              () -> {
+                List<Appointment> appointments = CsvDB.readAppointments();
+                Appointment appointment = CsvDB.getAppointmentRepository().findById("A0003");
+                appointment.setDoctorID("D0003");
+                appointment.setStatus(AppointmentStatus.CANCELLED);
+                appointments.removeIf(removed -> removed.getAppointmentID().equals("A0002"));
+                appointments.add(
+                    new Appointment(
+                        "A0004", "P0002", "D0002", NOVEMBER_16, 3, AppointmentStatus.PENDING));
+                CsvDB.saveAppointments(appointments);
+              });
+          assertEquals(original, describeAppointments(CsvDB.readAppointments()));
+        });
+    return changes;
+  }
+
+  private static Map<String, Executable> scheduleChanges() {
+    Map<String, Executable> changes = new LinkedHashMap<>();
+    // Moving a schedule to another doctor and date, and adding one, moves them in the index; a
+    // session booked in place is seen through it
+    changes.put(
+        "Update and insert",
+        () -> {
+          List<Schedule> schedules = CsvDB.readSchedules();
+          Schedule moved = CsvDB.findSchedule("D0001", NOVEMBER_17);
+          moved.setDoctorID("D0002");
+          moved.setDate(NOVEMBER_16);
+          CsvDB.findSchedule("D0001", NOVEMBER_18).bookSession(4, "P0002");
+          schedules.add(Schedule.createDefaultSchedule("D0001", NOVEMBER_16));
+          CsvDB.saveSchedules(schedules);
+          assertNull(CsvDB.findSchedule("D0001", NOVEMBER_17));
+        });
+    changes.put(
+        "Delete",
+        () -> {
+          List<Schedule> schedules = CsvDB.readSchedules();
+          schedules.removeIf(schedule -> schedule.getDate().equals(NOVEMBER_18));
+          CsvDB.saveSchedules(schedules);
+          assertNull(CsvDB.findSchedule("D0001", NOVEMBER_18));
+        });
+    changes.put(
+        "Mutate then delete",
+        () -> {
+          List<Schedule> schedules = CsvDB.readSchedules();
+          Schedule schedule = CsvDB.findSchedule("D0001", NOVEMBER_17);
+          schedule.setDoctorID("D0002");
+          schedule.setDate(NOVEMBER_16);
+          schedules.remove(schedule);
+          CsvDB.saveSchedules(schedules);
+          assertNull(CsvDB.findSchedule("D0001", NOVEMBER_17));
+          assertNull(CsvDB.findSchedule("D0002", NOVEMBER_16));
+        });
+    changes.put(
+        "Archive",
+        () -> {
+          archiveFirstAppointment();
+          assertNull(CsvDB.findSchedule("D0001", NOVEMBER_15));
+        });
+    changes.put(
+        "Rollback",
+        () -> {
+          List<String> original = describeSchedules(CsvDB.readSchedules());
+          rollBack(
+              () -> {
+                List<Schedule> schedules = CsvDB.readSchedules();
+                CsvDB.findSchedule("D0001", NOVEMBER_17).setDate(NOVEMBER_16);
+                schedules.removeIf(schedule -> schedule.getDate().equals(NOVEMBER_18));
+                schedules.add(Schedule.createDefaultSchedule("D0002", NOVEMBER_18));
+                CsvDB.saveSchedules(schedules);
+              });
+          assertEquals(original, describeSchedules(CsvDB.readSchedules()));
+        });
+    return changes;
+  }
+
+  private static Map<String, Executable> patientsUnderCareChanges() {
+    Map<String, Executable> changes = new LinkedHashMap<>();
+    // Confirming sessions adds their patients, once each however many sessions they have
+    changes.put(
+        "Confirm",
+        () -> {
+          List<Schedule> schedules = CsvDB.readSchedules();
+          CsvDB.findSchedule("D0001", NOVEMBER_17).acceptAppointment(0);
+          Schedule schedule = CsvDB.findSchedule("D0001", NOVEMBER_18);
+          schedule.bookSession(4, "P0002");
+          schedule.acceptAppointment(4);
+          CsvDB.saveSchedules(schedules);
+        });
+    // Declining the only confirmed session of a patient removes the patient
+    changes.put(
+        "Decline",
+        () -> {
+          List<Schedule> schedules = CsvDB.readSchedules();
+          CsvDB.findSchedule("D0001", NOVEMBER_15).declineAppointment(0);
+          CsvDB.saveSchedules(schedules);
+        });
+    changes.put(
+        "Move to another doctor",
+        () -> {
+          List<Schedule> schedules = CsvDB.readSchedules();
+          CsvDB.findSchedule("D0001", NOVEMBER_15).setDoctorID("D0002");
+          CsvDB.saveSchedules(schedules);
+        });
+    changes.put(
+        "Delete",
+        () -> {
+          List<Schedule> schedules = CsvDB.readSchedules();
+          schedules.removeIf(schedule -> schedule.getDate().equals(NOVEMBER_15));
+          CsvDB.saveSchedules(schedules);
+        });
+    // The patients are removed from the doctor the schedule was indexed under, not its new one
+    changes.put(
+        "Mutate then delete",
+        () -> {
+          List<Schedule> schedules = CsvDB.readSchedules();
+          Schedule schedule = CsvDB.findSchedule("D0001", NOVEMBER_15);
+          schedule.setDoctorID("D0002");
+          schedules.remove(schedule);
+          CsvDB.saveSchedules(schedules);
+        });
+    changes.put("Archive", IndexConsistencyTest::archiveFirstAppointment);
+    changes.put(
+        "Rollback",
+        () -> {
+          rollBack(
+              () -> {
+                List<Schedule> schedules = CsvDB.readSchedules();
+                CsvDB.findSchedule("D0001", NOVEMBER_15).declineAppointment(0);
+                Schedule schedule = Schedule.createDefaultSchedule("D0002", NOVEMBER_18);
+                schedule.bookSession(0, "P0003");
+                schedule.acceptAppointment(0);
+                schedules.add(schedule);
+                CsvDB.saveSchedules(schedules);
+              });
+          assertEquals(Arrays.asList("P0001"), CsvDB.findPatientIDsUnderCare("D0001"));
+        });
+    return changes;
+  }
+
+  private static Map<String, Executable> medicalRecordChanges() {
+    Map<String, Executable> changes = new LinkedHashMap<>();
+    // Changing a diagnosis, a treatment and an outcome record, and adding a diagnosis with and one
+    // without a treatment, refreshes the records of the patients concerned
+    changes.put(
+        "Update and insert",
+        () -> {
+          List<Diagnosis> diagnoses = CsvDB.readDiagnoses();
+          CsvDB.getDiagnosisRepository().findById("A0001").setDiagnosis("Cold");
+          diagnoses.add(new Diagnosis("A0002", "P0002", "Sprain"));
+          diagnoses.add(new Diagnosis("A0003", "P0003", "Migraine"));
+          CsvDB.saveDiagnosis(diagnoses);
+
+          List<Treatment> treatments = CsvDB.readTreatments();
+          CsvDB.getTreatmentRepository().findById("A0001").setTreatment("Fluids");
+          treatments.add(new Treatment("A0002", "P0002", "Bandage"));
+          CsvDB.saveTreatment(treatments);
+
+          CsvDB.findAppointmentOutcomeRecord("A0001")
+              .setPrescriptionStatus(AppointmentOutcomeStatus.DISPENSED);
+          CsvDB.saveAppointmentOutcomeRecords(CsvDB.readAppointmentOutcomeRecords());
+        });
+    // Moving a diagnosis and its treatment to another patient moves the entry between records
+    changes.put(
+        "Move to another patient",
+        () ->
+            CsvDB.transaction(
+                () -> {
+                  List<Diagnosis> diagnoses = CsvDB.readDiagnoses();
+                  CsvDB.getDiagnosisRepository().findById("A0001").setPatientId("P0002");
+                  CsvDB.saveDiagnosis(diagnoses);
+                  List<Treatment> treatments = CsvDB.readTreatments();
+                  CsvDB.getTreatmentRepository().findById("A0001").setPatientID("P0002");
+                  CsvDB.saveTreatment(treatments);
+                }));
+    // Deleting the treatment of a diagnosis leaves the diagnosis out of the record
+    changes.put(
+        "Delete",
+        () -> {
+          List<Treatment> treatments = CsvDB.readTreatments();
+          treatments.clear();
+          CsvDB.saveTreatment(treatments);
+        });
+    // The record of the patient the diagnosis belonged to is refreshed, not only the new one's
+    changes.put(
+        "Mutate then delete",
+        () -> {
+          List<Diagnosis> diagnoses = CsvDB.readDiagnoses();
+          Diagnosis diagnosis = CsvDB.getDiagnosisRepository().findById("A0001");
+          diagnosis.setPatientId("P0002");
+          diagnoses.remove(diagnosis);
+          CsvDB.saveDiagnosis(diagnoses);
+        });
+    // The outcome of an archived appointment is still joined, from the archive
+    changes.put("Archive", IndexConsistencyTest::archiveFirstAppointment);
+    changes.put(
+        "Rollback",
+        () -> {
+          List<String> original = describeRecord(CsvDB.findMedicalRecord("P0001"));
+          rollBack(
+              () -> {
+                List<Diagnosis> diagnoses = CsvDB.readDiagnoses();
+                CsvDB.getDiagnosisRepository().findById("A0001").setDiagnosis("Cold");
+                diagnoses.add(new Diagnosis("A0002", "P0001", "Sprain"));
+                CsvDB.saveDiagnosis(diagnoses);
+                List<Treatment> treatments = CsvDB.readTreatments();
+                treatments.add(new Treatment("A0002", "P0001", "Bandage"));
+                CsvDB.saveTreatment(treatments);
+              });
+          assertEquals(original, describeRecord(CsvDB.findMedicalRecord("P0001")));
+        });
+    return changes;
+  }
+
+  /**
+   * Dispenses the prescription of appointment A0001, the only finished appointment of the original
+   * data, and archives the appointment with its outcome record and schedule, on the archiver's own
+   * thread.
+   */
+  private static void archiveFirstAppointment() throws Exception {
+    CsvDB.findAppointmentOutcomeRecord("A0001")
+        .setPrescriptionStatus(AppointmentOutcomeStatus.DISPENSED);
+    CsvDB.saveAppointmentOutcomeRecords(CsvDB.readAppointmentOutcomeRecords());
+    assertEquals(1, (int) inArchiverThread(() -> CsvDB.archive(HORIZON)));
+  }
+
+  /** Runs the specified changes in a transaction that then fails, so they are rolled back. */
+  private static void rollBack(Runnable changes) {
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            CsvDB.transaction(
+                () -> {
+                  changes.run();
+                  throw new IllegalStateException("Interrupted");
+                }));
+  }
+
+  /** Runs the archiving pass on its own thread, as the archive compactor does. */
+  private static <T> T inArchiverThread(Callable<T> task) throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      return executor.submit(task).get();
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static void assertAppointmentIndexesMatchScan() {
+    List<Appointment> appointments = CsvDB.readAppointments();
+    for (String patientID : PATIENT_IDS) {
+      assertEquals(
+          describeAppointments(
+              filter(appointments, appointment -> appointment.getPatientID().equals(patientID))),
+          describeAppointments(CsvDB.findAppointmentsByPatientID(patientID)),
+          patientID);
+    }
+    for (String doctorID : DOCTOR_IDS) {
+      assertEquals(
+          describeAppointments(
+              filter(appointments, appointment -> appointment.getDoctorID().equals(doctorID))),
+          describeAppointments(CsvDB.findAppointmentsByDoctorID(doctorID)),
+          doctorID);
+    }
+    for (AppointmentStatus status : AppointmentStatus.values()) {
+      assertEquals(
+          describeAppointments(
+              filter(appointments, appointment -> appointment.getStatus() == status)),
+          describeAppointments(CsvDB.findAppointmentsByStatus(status)),
+          status.name());
+    }
+    assertDateRangeMatchesScan(appointments, null, null);
+    assertDateRangeMatchesScan(appointments, NOVEMBER_16, NOVEMBER_17);
+    assertDateRangeMatchesScan(appointments, NOVEMBER_17, null);
+  }
+
+  private static void assertDateRangeMatchesScan(
+      List<Appointment> appointments, LocalDate from, LocalDate to) {
+    List<Appointment> expected =
+        filter(
+            appointments,
+            appointment ->
+                (from == null || !appointment.getDate().isBefore(from))
+                    && (to == null || !appointment.getDate().isAfter(to)));
+    expected.sort(Comparator.comparing(Appointment::getDate));
+    assertEquals(
+        describeAppointments(expected),
+        describeAppointments(CsvDB.findAppointmentsBetween(from, to)),
+        from + " to " + to);
+  }
+
+  private static void assertScheduleIndexMatchesScan() {
+    List<Schedule> schedules = CsvDB.readSchedules();
+    for (Schedule schedule : schedules) {
+      assertEquals(
+          describe(schedule),
+          describe(CsvDB.findSchedule(schedule.getDoctorID(), schedule.getDate())));
+    }
+    for (String doctorID : DOCTOR_IDS) {
+      assertScheduleRangeMatchesScan(schedules, doctorID, null, null);
+      assertScheduleRangeMatchesScan(schedules, doctorID, NOVEMBER_16, NOVEMBER_17);
+      assertScheduleRangeMatchesScan(schedules, doctorID, NOVEMBER_17, null);
+    }
+  }
+
+  private static void assertScheduleRangeMatchesScan(
+      List<Schedule> schedules, String doctorID, LocalDate from, LocalDate to) {
+    List<Schedule> expected =
+        schedules
+            .stream()
+            .filter(
+                schedule ->
+                    schedule.getDoctorID().equals(doctorID)
+                        && (from == null || !schedule.getDate().isBefore(from))
+                        && (to == null || !schedule.getDate().isAfter(to)))
+            .sorted(Comparator.comparing(Schedule::getDate))
+            .collect(Collectors.toList());
+    assertEquals(
+        describeSchedules(expected),
+        describeSchedules(CsvDB.findSchedulesBetween(doctorID, from, to)),
+        doctorID + " from " + from + " to " + to);
+  }
+
+  private static void assertPatientsUnderCareMatchScan() {
+    List<Schedule> schedules = CsvDB.readSchedules();
+    for (String doctorID : DOCTOR_IDS) {
+      TreeSet<String> expected = new TreeSet<>();
+      for (Schedule schedule : schedules) {
+        if (!schedule.getDoctorID().equals(doctorID)) {
+          continue;
+        }
+        for (int i = 0; i < schedule.getSessionCount(); i++) {
+          if (schedule.hasSessionStatus(i, ScheduleStatus.CONFIRMED)) {
+            expected.add(schedule.getPatientIdFromSession(i));
+          }
+        }
+      }
+
+      List<String> patientIDs = CsvDB.findPatientIDsUnderCare(doctorID);
+      assertEquals(new ArrayList<>(expected), new ArrayList<>(new TreeSet<>(patientIDs)), doctorID);
+      assertEquals(expected.size(), patientIDs.size(), doctorID + " lists a patient twice");
+    }
+  }
+
+  private static void assertMedicalRecordsMatchJoin() {
+    List<Diagnosis> diagnoses = CsvDB.readDiagnoses();
+    List<Treatment> treatments = CsvDB.readTreatments();
+    for (String patientID : PATIENT_IDS) {
+      List<String> expected = new ArrayList<>();
+      for (Diagnosis diagnosis : diagnoses) {
+        if (!diagnosis.getPatientId().equals(patientID)) {
+          continue;
+        }
+        for (Treatment treatment : treatments) {
+          if (treatment.getPatientID().equals(patientID)
+              && treatment.getAppointmentID().equals(diagnosis.getAppointmentId())) {
+            expected.add(
+                describe(
+                    diagnosis,
+                    treatment,
+                    CsvDB.findAppointmentOutcomeRecord(diagnosis.getAppointmentId())));
+          }
+        }
+      }
+      assertEquals(expected, describeRecord(CsvDB.findMedicalRecord(patientID)), patientID);
+    }
+  }
+
+  private static List<Appointment> filter(
+      List<Appointment> appointments, Predicate<Appointment> predicate) {
+    return appointments.stream().filter(predicate).collect(Collectors.toList());
+  }
+
+  private static List<String> describeAppointments(List<Appointment> appointments) {
+    return appointments.stream().map(Appointment::toString).collect(Collectors.toList());
+  }
+
+  private static List<String> describeSchedules(List<Schedule> schedules) {
+    return schedules.stream().map(IndexConsistencyTest::describe).collect(Collectors.toList());
+  }
+
+  private static String describe(Schedule schedule) {
+    return schedule.getDoctorID()
+        + " "
+        + schedule.getDate()
+        + " "
+        + String.join(",", schedule.getSession());
+  }
+
+  private static List<String> describeRecord(List<MedicalRecordEntry> entries) {
+    return entries
+        .stream()
+        .map(entry -> describe(entry.getDiagnosis(), entry.getTreatment(), entry.getOutcome()))
+        .collect(Collectors.toList());
+  }
+
+  private static String describe(
+      Diagnosis diagnosis, Treatment treatment, AppointmentOutcomeRecord outcome) {
+    return diagnosis
+        + " | "
+        + treatment
+        + " | "
+        + (outcome == null ? "no outcome" : outcome.getPrescriptionStatus());
+  }
+}
@@ -0,0 +1,107 @@
+package com.ntu.hms.csvdb;
+
+import static com.ntu.hms.TestManager.backupDatabase;
+import static com.ntu.hms.TestManager.resetDatabase;
+import static com.ntu.hms.TestManager.restoreDatabase;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ntu.hms.CsvDB;
+import com.ntu.hms.model.Diagnosis;
+import com.ntu.hms.model.MedicalRecordEntry;
+import com.ntu.hms.model.Treatment;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the entries the hash join of the diagnosis, treatment and outcome record tables yields for
+ * a patient: which rows it pairs, which it leaves out and in what order it returns them.
+ */
+public class MedicalRecordJoinTest {
+  private static Path backup;
+
+  /** Keeps the data the other tests left behind. */
+  @BeforeAll
+  public static void backUp() {
+    backup = backupDatabase();
+  }
+
+  /** Puts back the data the other tests left behind. */
+  @AfterAll
+  public static void restore() {
+    restoreDatabase(backup);
+  }
+
+  /**
+   * Starts from the original data, which has a diagnosis, treatment and outcome record of A0001 for
+   * P0001, and adds diagnoses and treatments in different orders.
+   */
+  @BeforeEach
+  public void setUp() {
+    resetDatabase();
+    CsvDB.transaction(
+        () -> {
+          List<Diagnosis> diagnoses = CsvDB.readDiagnoses();
+          diagnoses.add(new Diagnosis("A0005", "P0001", "Migraine"));
+          diagnoses.add(new Diagnosis("A0003", "P0001", "Sprain"));
+          diagnoses.add(new Diagnosis("A0004", "P0001", "Cough"));
+          diagnoses.add(new Diagnosis("A0006", "P0002", "Asthma"));
+          CsvDB.saveDiagnosis(diagnoses);
+          List<Treatment> treatments = CsvDB.readTreatments();
+          treatments.add(new Treatment("A0003", "P0001", "Bandage"));
+          treatments.add(new Treatment("A0005", "P0001", "Painkillers"));
+          treatments.add(new Treatment("A0006", "P0003", "Inhaler"));
+          treatments.add(new Treatment("A0007", "P0001", "Rest"));
+          CsvDB.saveTreatment(treatments);
+        });
+  }
+
+  /**
+   * Every diagnosis with a treatment is paired with it, in diagnosis order, and with its outcome
+   * record when there is one; diagnoses without a treatment and treatments without a diagnosis are
+   * left out.
+   */
+  @Test
+  @DisplayName("Entries pair diagnoses with their treatments in diagnosis order")
+  public void testEntriesInDiagnosisOrder() {
+    assertEquals(
+        Arrays.asList(
+            "A0001,P0001,Flu | A0001,P0001,Rest | PENDING",
+            "A0005,P0001,Migraine | A0005,P0001,Painkillers | no outcome",
+            "A0003,P0001,Sprain | A0003,P0001,Bandage | no outcome"),
+        describe(CsvDB.findMedicalRecord("P0001")));
+  }
+
+  /**
+   * A treatment filed under another patient than the diagnosis of its appointment is not paired.
+   */
+  @Test
+  @DisplayName("Rows of different patients are not paired")
+  public void testOtherPatientsNotPaired() {
+    assertTrue(CsvDB.findMedicalRecord("P0002").isEmpty());
+    assertTrue(CsvDB.findMedicalRecord("P0003").isEmpty());
+    assertTrue(CsvDB.findMedicalRecord("P9999").isEmpty());
+  }
+
+  private static List<String> describe(List<MedicalRecordEntry> entries) {
+    return entries
+        .stream()
+        .map(
+            entry ->
+                entry.getDiagnosis()
+                    + " | "
+                    + entry.getTreatment()
+                    + " | "
+                    + (entry.getOutcome() == null
+                        ? "no outcome"
+                        : entry.getOutcome().getPrescriptionStatus()))
+        .collect(Collectors.toList());
+  }
+}
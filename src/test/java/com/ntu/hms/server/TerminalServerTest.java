@@ -0,0 +1,256 @@
+package com.ntu.hms.server;
+
+import static com.ntu.hms.TestManager.backupDatabase;
+import static com.ntu.hms.TestManager.resetDatabase;
+import static com.ntu.hms.TestManager.restoreDatabase;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ntu.hms.CsvDB;
+import com.ntu.hms.factory.SingletonFactory;
+import com.ntu.hms.model.Appointment;
+import com.ntu.hms.util.ScannerWrapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the terminals of a {@link TerminalServer} are served at the same time, each seeing
+ * only its own output, and that two terminals booking the same session book it once.
+ */
+public class TerminalServerTest {
+  private static final int TIMEOUT_MILLISECONDS = 10_000;
+  private static final String NAME_PROMPT = "Name: ";
+  private static final String BOOKING_PROMPT = "Select a session number to book";
+  private static Path backup;
+
+  /** Keeps the data the other tests left behind. */
+  @BeforeAll
+  public static void backUp() {
+    backup = backupDatabase();
+  }
+
+  /** Puts back the data the other tests left behind. */
+  @AfterAll
+  public static void restore() {
+    restoreDatabase(backup);
+  }
+
+  /** Starts from the original data. */
+  @BeforeEach
+  public void setUp() {
+    resetDatabase();
+  }
+
+  /** Drops the managers built over the terminals, so later tests read their own input. */
+  @AfterEach
+  public void tearDown() {
+    SingletonFactory.destroySingletons();
+  }
+
+  /** Lines printed by two sessions at the same time each reach only their own terminal. */
+  @Test
+  @DisplayName("Concurrent sessions only see their own output")
+  public void testOutputIsIsolated() throws Exception {
+    int lineCount = 200;
+    CyclicBarrier bothConnected = new CyclicBarrier(2);
+    Runnable flow =
+        () -> {
+          ScannerWrapper scanner = SingletonFactory.getScannerWrapper();
+          System.out.print(NAME_PROMPT);
+          String name = scanner.nextLine();
+          try {
+            bothConnected.await(TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS);
+          } catch (Exception e) {
+            throw new IllegalStateException(e);
+          }
+          for (int i = 0; i < lineCount; i++) {
+            System.out.println(name + " " + i);
+          }
+        };
+
+    List<String> expectedAlice = new ArrayList<>();
+    List<String> expectedBob = new ArrayList<>();
+    for (int i = 0; i < lineCount; i++) {
+      expectedAlice.add("alice " + i);
+      expectedBob.add("bob " + i);
+    }
+
+    try (TerminalServer server = TerminalServer.start(0, flow);
+        Terminal alice = new Terminal(server.getPort());
+        Terminal bob = new Terminal(server.getPort())) {
+      alice.awaitOutput(NAME_PROMPT);
+      bob.awaitOutput(NAME_PROMPT);
+      alice.send("alice");
+      bob.send("bob");
+
+      assertEquals(expectedAlice, linesAfterPrompt(alice.readToEnd()));
+      assertEquals(expectedBob, linesAfterPrompt(bob.readToEnd()));
+    }
+  }
+
+  /**
+   * A terminal that stops reading stalls only its own session: another session still prints while
+   * the stalled one is blocked writing to its socket.
+   */
+  @Test
+  @DisplayName("A stalled terminal does not block the other sessions")
+  public void testStalledTerminalBlocksOnlyItsSession() throws Exception {
+    CountDownLatch stalling = new CountDownLatch(1);
+    char[] chunk = new char[8192];
+    Arrays.fill(chunk, 'x');
+    Runnable flow =
+        () -> {
+          ScannerWrapper scanner = SingletonFactory.getScannerWrapper();
+          System.out.print(NAME_PROMPT);
+          String name = scanner.nextLine();
+          if (name.equals("stalled")) {
+            // Fill the socket buffers of a terminal that never reads, until it is disconnected
+            stalling.countDown();
+            while (!System.out.checkError()) {
+              System.out.println(chunk);
+            }
+          } else {
+            System.out.println(name + " done");
+          }
+        };
+
+    try (TerminalServer server = TerminalServer.start(0, flow);
+        Terminal stalled = new Terminal(server.getPort());
+        Terminal bob = new Terminal(server.getPort())) {
+      stalled.awaitOutput(NAME_PROMPT);
+      bob.awaitOutput(NAME_PROMPT);
+      stalled.send("stalled");
+      assertTrue(stalling.await(TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS));
+      // Give the stalled session time to fill the buffers and block
+      Thread.sleep(500);
+
+      bob.send("bob");
+      assertEquals(Arrays.asList("bob done"), linesAfterPrompt(bob.readToEnd()));
+    }
+  }
+
+  /**
+   * Two patients choosing the same free session at the same time get one appointment between them,
+   * and the patient who lost the race is told so.
+   */
+  @Test
+  @DisplayName("A session chosen by two terminals at once is booked once")
+  public void testDoubleBookingIsRejected() throws Exception {
+    LocalDate date = LocalDate.of(2024, 11, 20);
+    String booking = "4\n1\n20/11/2024";
+
+    try (TerminalServer server =
+            TerminalServer.start(0, SingletonFactory.getApplicationManager()::runSession);
+        Terminal first = new Terminal(server.getPort());
+        Terminal second = new Terminal(server.getPort())) {
+      first.send("login\nP0001\n123\n" + booking);
+      second.send("login\nP0002\n456\n" + booking);
+      first.awaitOutput(BOOKING_PROMPT);
+      second.awaitOutput(BOOKING_PROMPT);
+
+      // Both terminals were shown session 3 as available
+      first.send("3");
+      second.send("3");
+      first.send("\n9\nexit");
+      second.send("\n9\nexit");
+      List<String> outputs = Arrays.asList(first.readToEnd(), second.readToEnd());
+
+      assertEquals(
+          1, outputs.stream().filter(output -> output.contains("Appointment booked")).count());
+      assertEquals(
+          1,
+          outputs
+              .stream()
+              .filter(output -> output.contains("Session 3 was just booked by someone else."))
+              .count());
+    }
+
+    List<Appointment> appointments =
+        CsvDB.readAppointments()
+            .stream()
+            .filter(appointment -> appointment.getDate().equals(date))
+            .collect(Collectors.toList());
+    assertEquals(1, appointments.size());
+    String patientID = appointments.get(0).getPatientID();
+    assertTrue(patientID.equals("P0001") || patientID.equals("P0002"));
+    assertEquals(patientID + "-PENDING", CsvDB.findSchedule("D0001", date).getSessionInfo(2));
+  }
+
+  /** Splits the output of a terminal into lines, leaving out the name prompt. */
+  private static List<String> linesAfterPrompt(String output) {
+    assertTrue(output.startsWith(NAME_PROMPT));
+    return Arrays.asList(output.substring(NAME_PROMPT.length()).split("\\R"));
+  }
+
+  /** A terminal connected to the server, as {@code nc} would be. */
+  private static final class Terminal implements AutoCloseable {
+    private final Socket socket;
+    private final InputStream input;
+    private final OutputStream output;
+    private final StringBuilder received = new StringBuilder();
+
+    private Terminal(int port) throws IOException {
+      socket = new Socket(InetAddress.getLoopbackAddress(), port);
+      socket.setSoTimeout(TIMEOUT_MILLISECONDS);
+      input = socket.getInputStream();
+      output = socket.getOutputStream();
+    }
+
+    /** Types a line, or several separated by newlines, and presses Enter. */
+    private void send(String lines) throws IOException {
+      output.write((lines + "\n").getBytes(UTF_8));
+      output.flush();
+    }
+
+    /** Reads until the terminal shows the specified text, failing after the timeout. */
+    private void awaitOutput(String text) throws IOException {
+      while (received.indexOf(text) < 0) {
+        if (!readChunk()) {
+          throw new IOException("Disconnected before \"" + text + "\" was shown: " + received);
+        }
+      }
+    }
+
+    /** Reads until the server disconnects, failing after the timeout. */
+    private String readToEnd() throws IOException {
+      while (readChunk()) {
+        // Keep reading
+      }
+      return received.toString();
+    }
+
+    private boolean readChunk() throws IOException {
+      byte[] buffer = new byte[4096];
+      int length = input.read(buffer);
+      if (length < 0) {
+        return false;
+      }
+      received.append(new String(buffer, 0, length, UTF_8));
+      return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      socket.close();
+    }
+  }
+}
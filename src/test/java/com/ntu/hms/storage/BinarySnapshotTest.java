@@ -0,0 +1,138 @@
+package com.ntu.hms.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ntu.hms.codec.CsvCodecs;
+import com.ntu.hms.model.Diagnosis;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that a restarted table reads its {@link BinarySnapshot} only while it matches the CSV file,
+ * and falls back to the CSV file when the binary snapshot is corrupt, truncated or stale.
+ */
+public class BinarySnapshotTest {
+  private static final String NAME = "Binary";
+  private static final List<String> ROWS =
+      Arrays.asList("A0001,P0001,Flu", "A0002,P0002,Cough", "A0003,P0001,Migraine");
+
+  private CsvTable<Diagnosis> table;
+  private Path binaryPath;
+
+  /** Writes the CSV snapshot and a binary snapshot matching it. */
+  @BeforeEach
+  public void setUp() {
+    table = TestTables.create(NAME, ROWS.toArray(new String[0]));
+    binaryPath = CsvTable.snapshotPathOf(TestTables.DIRECTORY).resolve(NAME + ".bin");
+    storage().close(rowMap(ROWS));
+  }
+
+  /** Removes the table and its snapshots. */
+  @AfterEach
+  public void tearDown() {
+    TestTables.drop(table);
+  }
+
+  /** A binary snapshot matching the CSV file is read in its place, to the same models. */
+  @Test
+  @DisplayName("A matching binary snapshot is read instead of the CSV file")
+  public void testMatchingSnapshotIsRead() throws IOException {
+    assertTrue(Files.exists(binaryPath));
+    assertEquals(ROWS, read(storage(), true));
+  }
+
+  /**
+   * A binary snapshot with a damaged record fails its checksum and the CSV file is read instead.
+   */
+  @Test
+  @DisplayName("A corrupt binary snapshot falls back to the CSV file")
+  public void testCorruptSnapshotFallsBack() throws IOException {
+    byte[] data = Files.readAllBytes(binaryPath);
+    data[data.length - 8] ^= 0x5A;
+    Files.write(binaryPath, data);
+
+    assertThrows(IOException.class, () -> binarySnapshot().read());
+    assertEquals(ROWS, read(storage(), false));
+  }
+
+  /** A binary snapshot cut short is reported and the CSV file is read instead. */
+  @Test
+  @DisplayName("A truncated binary snapshot falls back to the CSV file")
+  public void testTruncatedSnapshotFallsBack() throws IOException {
+    Files.write(binaryPath, Arrays.copyOf(Files.readAllBytes(binaryPath), 20));
+
+    assertThrows(IOException.class, () -> binarySnapshot().read());
+    assertEquals(ROWS, read(storage(), false));
+  }
+
+  /**
+   * Once the CSV file changes, say after a compaction, the binary snapshot is ignored until the
+   * table is closed again and writes a new one.
+   */
+  @Test
+  @DisplayName("A stale binary snapshot is ignored until rewritten")
+  public void testStaleSnapshotIsIgnored() throws IOException {
+    List<String> rows = new ArrayList<>(ROWS);
+    rows.add("A0004,P0003,Sprain");
+    CsvTableStorage<Diagnosis> storage = storage();
+    storage.compact(rowMap(rows));
+
+    assertFalse(binarySnapshot().isCurrent());
+    assertNull(binarySnapshot().read());
+    assertEquals(rows, read(storage(), false));
+
+    storage.close(rowMap(rows));
+    assertTrue(binarySnapshot().isCurrent());
+    assertEquals(rows, read(storage(), true));
+  }
+
+  /** Opens the storage of the table as a restarted application would, with binary snapshots. */
+  private static CsvTableStorage<Diagnosis> storage() {
+    return new CsvTableStorage<>(
+        TestTables.csvPathOf(NAME), TestTables.HEADER, Diagnosis.class, true);
+  }
+
+  private static BinarySnapshot<Diagnosis> binarySnapshot() {
+    return new BinarySnapshot<>(
+        CsvTable.snapshotPathOf(TestTables.csvPathOf(NAME)),
+        TestTables.HEADER,
+        CsvCodecs.binaryForClass(Diagnosis.class));
+  }
+
+  /**
+   * Reads the snapshot of a storage, checking whether it came from the binary snapshot, which holds
+   * models but no rows.
+   */
+  private static List<String> read(CsvTableStorage<Diagnosis> storage, boolean fromBinary)
+      throws IOException {
+    List<String> rows = new ArrayList<>();
+    storage.readSnapshot(
+        (row, model) -> {
+          assertEquals(fromBinary, row == null);
+          rows.add(row == null ? model.toString() : row);
+        });
+    return rows;
+  }
+
+  private static Map<String, String> rowMap(List<String> rows) {
+    Map<String, String> rowMap = new LinkedHashMap<>();
+    for (String row : rows) {
+      rowMap.put(row.substring(0, row.indexOf(',')), row);
+    }
+    return rowMap;
+  }
+}
@@ -0,0 +1,94 @@
+package com.ntu.hms.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.ntu.hms.model.Diagnosis;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that tables loaded concurrently by a {@link BootstrapLoader} hold the same rows as tables
+ * loaded one after the other on first use, and that the loads are reported in the order started.
+ */
+public class BootstrapLoaderTest {
+  private static final int TABLE_COUNT = 6;
+
+  private final List<CsvTable<Diagnosis>> tables = new ArrayList<>();
+
+  /** Creates tables of different sizes, table i holding 100 * i + 1 rows. */
+  @BeforeEach
+  public void setUp() {
+    for (int i = 0; i < TABLE_COUNT; i++) {
+      String[] rows = new String[100 * i + 1];
+      for (int j = 0; j < rows.length; j++) {
+        rows[j] = String.format("A%04d,P%04d,Diagnosis %d", j, j % 37, i);
+      }
+      tables.add(TestTables.create("Bootstrap" + i, rows));
+    }
+  }
+
+  /** Removes the tables. */
+  @AfterEach
+  public void tearDown() {
+    TestTables.drop(tables.toArray(new CsvTable<?>[0]));
+  }
+
+  /** Every load is reported, in order, with the row count of its table. */
+  @Test
+  @DisplayName("Loads are reported in the order the tables were started")
+  public void testLoadsReportedInOrder() {
+    List<BootstrapLoader.TableLoad> loads = BootstrapLoader.start(tables).awaitAll();
+
+    assertEquals(
+        tables.stream().map(CsvTable::getCsvPath).collect(Collectors.toList()),
+        loads.stream().map(BootstrapLoader.TableLoad::getCsvPath).collect(Collectors.toList()));
+    for (int i = 0; i < TABLE_COUNT; i++) {
+      assertEquals(100 * i + 1, loads.get(i).getRowCount());
+    }
+  }
+
+  /** A table loaded in the background holds what a table loaded on first use does. */
+  @Test
+  @DisplayName("A concurrent load matches a sequential load")
+  public void testConcurrentLoadMatchesSequential() {
+    BootstrapLoader.start(tables).awaitAll();
+
+    for (int i = 0; i < TABLE_COUNT; i++) {
+      CsvTable<Diagnosis> sequential = TestTables.open("Bootstrap" + i);
+      assertEquals(TestTables.rowsOf(sequential), TestTables.rowsOf(tables.get(i)));
+      assertEquals(
+          "A0000",
+          tables
+              .get(i)
+              .findFirst(diagnosis -> diagnosis.getPatientId().equals("P0000"))
+              .getAppointmentId());
+    }
+  }
+
+  /**
+   * A table that fails to load fails the wait for it, but not the wait for the other tables, which
+   * are loaded all the same.
+   */
+  @Test
+  @DisplayName("A failed load is reported only to those waiting for it")
+  public void testFailedLoadIsReportedToItsWaiters() {
+    CsvTable<Diagnosis> broken = TestTables.create("Broken", "A0001");
+    List<CsvTable<Diagnosis>> started = new ArrayList<>(tables);
+    started.add(0, broken);
+    BootstrapLoader loader = BootstrapLoader.start(started);
+
+    loader.await(tables.toArray(new CsvTable<?>[0]));
+    assertEquals(Arrays.asList("A0000,P0000,Diagnosis 0"), TestTables.rowsOf(tables.get(0)));
+    assertThrows(RuntimeException.class, () -> loader.await(broken));
+    assertThrows(RuntimeException.class, loader::awaitAll);
+    // A table the loader did not start is not waited for
+    loader.await(TestTables.open("Bootstrap0"));
+  }
+}
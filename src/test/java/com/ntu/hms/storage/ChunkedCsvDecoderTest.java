@@ -0,0 +1,110 @@
+package com.ntu.hms.storage;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ntu.hms.codec.CsvCodec;
+import com.ntu.hms.codec.CsvCodecs;
+import com.ntu.hms.codec.CsvValues;
+import com.ntu.hms.model.Diagnosis;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a CSV file decoded in parallel chunks by a {@link ChunkedCsvDecoder} yields the same
+ * rows and models, in the same order, as reading the file line by line.
+ */
+public class ChunkedCsvDecoderTest {
+  private static final CsvCodec<Diagnosis> CODEC = CsvCodecs.forClass(Diagnosis.class);
+
+  @TempDir Path directory;
+
+  /**
+   * A file large enough for several chunks, with rows of varying length and CRLF line endings, is
+   * decoded in file order, with no row lost or cut at a chunk boundary.
+   */
+  @Test
+  @DisplayName("Chunks decode in file order like a sequential read")
+  public void testChunksMatchSequentialRead() throws IOException {
+    Path path = directory.resolve("Diagnosis.csv");
+    List<String> rows = new ArrayList<>();
+    try (BufferedWriter writer = Files.newBufferedWriter(path, UTF_8)) {
+      writer.write(TestTables.HEADER + "\r\n");
+      // About 16 MiB, so at least three chunks; the last row has no line separator
+      for (int i = 0; rows.size() * 48L < 4L * ChunkedCsvDecoder.CHUNK_SIZE; i++) {
+        String row =
+            String.format("A%07d,P%04d,%s", i, i % 9973, repeat("Fever ", 1 + i % 13).trim());
+        rows.add(row);
+        writer.write(row);
+        if (i % 1000 == 0) {
+          // Blank lines are skipped
+          writer.write("\r\n");
+        }
+        writer.write(i % 2 == 0 ? "\n" : "\r\n");
+      }
+      String last = "A9999999,P0001,Flu";
+      rows.add(last);
+      writer.write(last);
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      List<ChunkedCsvDecoder.Chunk<Diagnosis>> chunks = ChunkedCsvDecoder.decode(path, CODEC, pool);
+      assertTrue(chunks.size() > 1, "Decoded in " + chunks.size() + " chunk");
+
+      List<String> decodedRows = new ArrayList<>();
+      List<String> encodedModels = new ArrayList<>();
+      for (ChunkedCsvDecoder.Chunk<Diagnosis> chunk : chunks) {
+        assertEquals(chunk.getRows().size(), chunk.getModels().size());
+        decodedRows.addAll(chunk.getRows());
+        chunk.getModels().forEach(model -> encodedModels.add(CODEC.encode(model)));
+      }
+      assertEquals(rows, decodedRows);
+      assertEquals(sequentialRead(path), encodedModels);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /** A file too small for two chunks is decoded as a single chunk. */
+  @Test
+  @DisplayName("A small file is decoded as one chunk")
+  public void testSmallFileIsOneChunk() throws IOException {
+    Path path = directory.resolve("Small.csv");
+    Files.write(
+        path, (TestTables.HEADER + "\nA0001,P0001,Flu\nA0002,P0002,Cough\n").getBytes(UTF_8));
+
+    List<ChunkedCsvDecoder.Chunk<Diagnosis>> chunks = ChunkedCsvDecoder.decode(path, CODEC);
+    assertEquals(1, chunks.size());
+    assertEquals(sequentialRead(path), chunks.get(0).getRows());
+  }
+
+  /** Reads the rows of a file line by line and encodes the models decoded from them. */
+  private static List<String> sequentialRead(Path path) throws IOException {
+    List<String> lines = Files.readAllLines(path, UTF_8);
+    return lines
+        .subList(1, lines.size())
+        .stream()
+        .filter(line -> !line.isEmpty())
+        .map(line -> CODEC.encode(CODEC.decode(CsvValues.split(line))))
+        .collect(Collectors.toList());
+  }
+
+  private static String repeat(String text, int count) {
+    StringBuilder repeated = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      repeated.append(text);
+    }
+    return repeated.toString();
+  }
+}
@@ -0,0 +1,140 @@
+package com.ntu.hms.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.ntu.hms.model.Diagnosis;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the columns of a {@link ColumnarTable} follow the rows committed to its table, and are
+ * rewritten only once the table on disk has changed.
+ */
+public class ColumnarTableTest {
+  private CsvTable<Diagnosis> table;
+  private ColumnarTable<Diagnosis> columns;
+
+  /** Creates a table of four diagnoses, with a numeric and a dictionary column. */
+  @BeforeEach
+  public void setUp() {
+    table =
+        TestTables.create(
+            "Columnar",
+            "A0001,P0001,Flu",
+            "A0002,P0002,Cough",
+            "A0003,P0001,Migraine",
+            "A0004,P0003,Flu");
+    columns = columnsOf(table);
+  }
+
+  /** Removes the table and its column files. */
+  @AfterEach
+  public void tearDown() {
+    TestTables.drop(table);
+  }
+
+  /** The columns hold the values of the rows, in table order. */
+  @Test
+  @DisplayName("Columns hold the values of the rows")
+  public void testColumnsMatchRows() {
+    assertArrayEquals(new int[] {1, 2, 3, 4}, columns.readInts("number"));
+    assertEquals(
+        Arrays.asList("P0001", "P0002", "P0001", "P0003"),
+        valuesOf(columns.readDictionary("patient")));
+    assertEquals(3, columns.readDictionary("patient").getDictionarySize());
+    assertThrows(IllegalArgumentException.class, () -> columns.readInts("patient"));
+  }
+
+  /**
+   * A column read before a commit is stale afterwards and is rebuilt with the committed rows, while
+   * changes not saved yet are left out.
+   */
+  @Test
+  @DisplayName("Columns are rebuilt after a commit")
+  public void testColumnsRebuiltAfterCommit() {
+    assertEquals(
+        Arrays.asList("P0001", "P0002", "P0001", "P0003"),
+        valuesOf(columns.readDictionary("patient")));
+
+    List<Diagnosis> diagnoses = table.read();
+    diagnoses.get(1).setPatientId("P0004");
+    diagnoses.remove(0);
+    diagnoses.add(new Diagnosis("A0005", "P0001", "Sprain"));
+    table.save(diagnoses);
+
+    assertArrayEquals(new int[] {2, 3, 4, 5}, columns.readInts("number"));
+    assertEquals(
+        Arrays.asList("P0004", "P0001", "P0003", "P0001"),
+        valuesOf(columns.readDictionary("patient")));
+
+    // A change not saved yet leaves the table on disk, and so the columns, as they were
+    table.read().get(0).setPatientId("P0009");
+    assertEquals(
+        Arrays.asList("P0004", "P0001", "P0003", "P0001"),
+        valuesOf(columns.readDictionary("patient")));
+  }
+
+  /**
+   * A restarted application reads the column files as they are while the table is unchanged, and
+   * rewrites those that are out of date or damaged.
+   */
+  @Test
+  @DisplayName("Column files are only rewritten when out of date")
+  public void testColumnFilesReusedUntilStale() throws IOException {
+    columns.readInts("number");
+    Path numberPath = columnPathOf("number");
+    byte[] written = Files.readAllBytes(numberPath);
+    Files.delete(columnPathOf("patient"));
+
+    // The file of the deleted column is written again, along with the others
+    assertEquals(
+        Arrays.asList("P0001", "P0002", "P0001", "P0003"),
+        valuesOf(columnsOf(TestTables.open("Columnar")).readDictionary("patient")));
+    assertArrayEquals(written, Files.readAllBytes(numberPath));
+
+    Files.write(numberPath, Arrays.copyOf(written, 20));
+    assertArrayEquals(
+        new int[] {1, 2, 3, 4}, columnsOf(TestTables.open("Columnar")).readInts("number"));
+    assertArrayEquals(written, Files.readAllBytes(numberPath));
+
+    List<Diagnosis> diagnoses = table.read();
+    diagnoses.remove(3);
+    table.save(diagnoses);
+    assertArrayEquals(
+        new int[] {1, 2, 3}, columnsOf(TestTables.open("Columnar")).readInts("number"));
+    assertNotEquals(written.length, Files.readAllBytes(numberPath).length);
+  }
+
+  private static ColumnarTable<Diagnosis> columnsOf(CsvTable<Diagnosis> table) {
+    return new ColumnarTable<>(table)
+        .addIntColumn(
+            "number", diagnosis -> Integer.parseInt(diagnosis.getAppointmentId().substring(1)))
+        .addDictionaryColumn("patient", Diagnosis::getPatientId);
+  }
+
+  private static Path columnPathOf(String name) {
+    return CsvTable.snapshotPathOf(TestTables.DIRECTORY)
+        .resolve("columns")
+        .resolve("Columnar")
+        .resolve(name + ".col");
+  }
+
+  private static List<String> valuesOf(ColumnarTable.DictionaryColumn column) {
+    List<String> values = new ArrayList<>();
+    for (int code : column.getCodes()) {
+      values.add(column.getValue(code));
+    }
+    return values;
+  }
+}
@@ -0,0 +1,54 @@
+package com.ntu.hms.storage;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a {@link CommitJournal} reopened after a crash knows exactly the transactions whose
+ * commit was complete, and never hands out their IDs again.
+ */
+public class CommitJournalTest {
+  @TempDir Path directory;
+
+  /** A commit record cut short by a crash during the append does not commit its transaction. */
+  @Test
+  @DisplayName("A torn last commit record is ignored")
+  public void testTornLastRecordIsIgnored() throws IOException {
+    Path journalPath = directory.resolve("commit.log");
+    new CommitJournal(journalPath).commit(Arrays.asList(17L, 18L));
+    Files.write(journalPath, "1".getBytes(UTF_8), APPEND);
+
+    CommitJournal reopened = new CommitJournal(journalPath);
+    assertTrue(reopened.isCommitted(17));
+    assertTrue(reopened.isCommitted(18));
+    assertFalse(reopened.isCommitted(1));
+  }
+
+  /**
+   * Transaction IDs allocated after a restart are above every committed ID, even one ahead of the
+   * clock, so no committed record in a log can be mistaken for a new transaction's.
+   */
+  @Test
+  @DisplayName("Transaction IDs after a restart are above every committed ID")
+  public void testNextTxidIsAboveCommittedIds() throws IOException {
+    Path journalPath = directory.resolve("commit.log");
+    long future = (System.currentTimeMillis() + 3_600_000) * 1000;
+    new CommitJournal(journalPath).commit(Arrays.asList(future));
+
+    CommitJournal reopened = new CommitJournal(journalPath);
+    long txid = reopened.nextTxid();
+    assertTrue(txid > future);
+    assertFalse(reopened.isCommitted(txid));
+    assertTrue(reopened.nextTxid() > txid);
+  }
+}
@@ -0,0 +1,215 @@
+package com.ntu.hms.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ntu.hms.model.Diagnosis;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that a save made from a list read before another thread's save never undoes that save, as
+ * two terminal sessions of a server would otherwise do, and that a failed transaction is rolled
+ * back.
+ */
+public class CsvTableConflictTest {
+  private CsvTable<Diagnosis> table;
+
+  /** Creates a table of two diagnoses. */
+  @BeforeEach
+  public void setUp() {
+    table = TestTables.create("Conflict", "A0001,P0001,Flu", "A0002,P0002,Cough");
+  }
+
+  /** Removes the table. */
+  @AfterEach
+  public void tearDown() {
+    TestTables.drop(table);
+  }
+
+  /** Another thread's update of a row is not overwritten by a stale encoding of the row. */
+  @Test
+  @DisplayName("A stale update of a row changed since it was read fails")
+  public void testStaleUpdateConflicts() throws Exception {
+    List<Diagnosis> diagnoses = table.read();
+    inOtherThread(
+        () -> {
+          table.findById("A0001").setDiagnosis("Cold");
+          table.save(table.read());
+        });
+
+    diagnoses.set(0, new Diagnosis("A0001", "P0001", "Fever"));
+    assertThrows(WriteConflictException.class, () -> table.save(diagnoses));
+    assertEquals(Arrays.asList("A0001,P0001,Cold", "A0002,P0002,Cough"), TestTables.rowsOf(table));
+  }
+
+  /** A row updated by another thread is not deleted for missing from a stale list. */
+  @Test
+  @DisplayName("A stale deletion of a row changed since it was read fails")
+  public void testStaleDeleteConflicts() throws Exception {
+    List<Diagnosis> diagnoses = table.read();
+    inOtherThread(
+        () -> {
+          table.findById("A0002").setDiagnosis("Asthma");
+          table.save(table.read());
+        });
+
+    diagnoses.remove(1);
+    assertThrows(WriteConflictException.class, () -> table.save(diagnoses));
+    assertEquals(Arrays.asList("A0001,P0001,Flu", "A0002,P0002,Asthma"), TestTables.rowsOf(table));
+  }
+
+  /** A row deleted by another thread is not brought back by a change made to a stale list. */
+  @Test
+  @DisplayName("Changing a row deleted since it was read fails")
+  public void testChangeOfDeletedRowConflicts() throws Exception {
+    List<Diagnosis> diagnoses = table.read();
+    inOtherThread(
+        () -> {
+          List<Diagnosis> current = table.read();
+          current.remove(0);
+          table.save(current);
+        });
+
+    diagnoses.get(0).setDiagnosis("Fever");
+    assertThrows(WriteConflictException.class, () -> table.save(diagnoses));
+    assertEquals(Arrays.asList("A0002,P0002,Cough"), TestTables.rowsOf(table));
+  }
+
+  /** Rows inserted by another thread are kept, and the rows each thread changed are merged. */
+  @Test
+  @DisplayName("Saves of different rows from stale lists are merged")
+  public void testDisjointSavesAreMerged() throws Exception {
+    List<Diagnosis> diagnoses = table.read();
+    inOtherThread(
+        () -> {
+          List<Diagnosis> current = table.read();
+          current.add(new Diagnosis("A0003", "P0003", "Migraine"));
+          table.save(current);
+        });
+
+    diagnoses.add(new Diagnosis("A0004", "P0001", "Sprain"));
+    table.save(diagnoses);
+    assertEquals(
+        Arrays.asList(
+            "A0001,P0001,Flu", "A0002,P0002,Cough", "A0003,P0003,Migraine", "A0004,P0001,Sprain"),
+        TestTables.rowsOf(table));
+  }
+
+  /**
+   * A list keeps the version it was read at when the same thread reads the table again before
+   * saving it, as seeding a new ID does, so rows inserted by another thread in between are kept.
+   */
+  @Test
+  @DisplayName("Reading the table again does not make an older list current")
+  public void testLaterReadKeepsVersionOfList() throws Exception {
+    List<Diagnosis> diagnoses = table.read();
+    inOtherThread(
+        () -> {
+          List<Diagnosis> current = table.read();
+          current.add(new Diagnosis("A0003", "P0003", "Migraine"));
+          table.save(current);
+        });
+
+    table.read();
+    diagnoses.add(new Diagnosis("A0004", "P0001", "Sprain"));
+    table.save(diagnoses);
+    assertEquals(
+        Arrays.asList(
+            "A0001,P0001,Flu", "A0002,P0002,Cough", "A0003,P0003,Migraine", "A0004,P0001,Sprain"),
+        TestTables.rowsOf(table));
+  }
+
+  /**
+   * A list the thread did not read is not taken to be current, so it cannot undo a change another
+   * thread made since the table was loaded.
+   */
+  @Test
+  @DisplayName("A list not read from the table is checked against the load")
+  public void testUnreadListConflicts() throws Exception {
+    table.read();
+    CsvTable.forgetReads();
+    inOtherThread(
+        () -> {
+          table.findById("A0001").setDiagnosis("Cold");
+          table.save(table.read());
+        });
+
+    List<Diagnosis> diagnoses = Arrays.asList(new Diagnosis("A0002", "P0002", "Cough"));
+    assertThrows(WriteConflictException.class, () -> table.save(diagnoses));
+    assertEquals(Arrays.asList("A0001,P0001,Cold", "A0002,P0002,Cough"), TestTables.rowsOf(table));
+  }
+
+  /**
+   * A model changed by another thread while its row is being encoded stays dirty, so the change is
+   * saved by the next save rather than lost.
+   */
+  @Test
+  @DisplayName("A change made while a model is saved is saved next")
+  public void testChangeDuringSaveIsKept() {
+    List<Diagnosis> diagnoses = table.read();
+    diagnoses.set(
+        0,
+        new Diagnosis("A0001", "P0001", "Cold") {
+          private boolean encoded;
+
+          @Override
+          public String getDiagnosis() {
+            String diagnosis = super.getDiagnosis();
+            if (!encoded) {
+              // Another session changes the model right after its diagnosis was encoded
+              encoded = true;
+              setDiagnosis("Fever");
+            }
+            return diagnosis;
+          }
+        });
+    table.save(diagnoses);
+    assertTrue(diagnoses.get(0).isDirty());
+    assertEquals(
+        Arrays.asList("A0001,P0001,Cold", "A0002,P0002,Cough"),
+        TestTables.rowsOf(TestTables.open("Conflict")));
+
+    table.save(table.read());
+    assertEquals(
+        Arrays.asList("A0001,P0001,Fever", "A0002,P0002,Cough"),
+        TestTables.rowsOf(TestTables.open("Conflict")));
+  }
+
+  /** The saves of a transaction whose body throws are neither kept in memory nor committed. */
+  @Test
+  @DisplayName("A transaction whose body throws is rolled back")
+  public void testFailedTransactionIsRolledBack() {
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            GroupCommitter.transaction(
+                () -> {
+                  List<Diagnosis> diagnoses = table.read();
+                  diagnoses.add(new Diagnosis("A0003", "P0003", "Migraine"));
+                  table.save(diagnoses);
+                  table.findById("A0001").setDiagnosis("Fever");
+                  throw new IllegalStateException("Interrupted");
+                }));
+
+    List<String> expected = Arrays.asList("A0001,P0001,Flu", "A0002,P0002,Cough");
+    assertEquals(expected, TestTables.rowsOf(table));
+    assertEquals(expected, TestTables.rowsOf(TestTables.open("Conflict")));
+  }
+
+  private static void inOtherThread(Runnable action) throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      executor.submit(action).get();
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package com.ntu.hms.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.ntu.hms.model.Diagnosis;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that a {@link Cursor} applies its filter lazily, in table order, over the table as it was
+ * when the cursor was opened.
+ */
+public class CursorTest {
+  private CsvTable<Diagnosis> table;
+
+  /** Creates a table of four diagnoses. */
+  @BeforeEach
+  public void setUp() {
+    table =
+        TestTables.create(
+            "Cursor",
+            "A0001,P0001,Flu",
+            "A0002,P0002,Cough",
+            "A0003,P0001,Migraine",
+            "A0004,P0003,Flu");
+  }
+
+  /** Removes the table. */
+  @AfterEach
+  public void tearDown() {
+    TestTables.drop(table);
+  }
+
+  /** Only the matching models are returned, in table order. */
+  @Test
+  @DisplayName("A cursor returns the matching models in table order")
+  public void testFilterInTableOrder() {
+    assertEquals(
+        Arrays.asList("A0001", "A0003"),
+        idsOf(table.findAll(diagnosis -> diagnosis.getPatientId().equals("P0001"))));
+    assertEquals(
+        Arrays.asList("A0001", "A0004"),
+        table
+            .scan(diagnosis -> diagnosis.getDiagnosis().equals("Flu"))
+            .stream()
+            .map(Diagnosis::getAppointmentId)
+            .collect(Collectors.toList()));
+  }
+
+  /** A caller stopping at the first match never has the filter applied to the rest of the table. */
+  @Test
+  @DisplayName("findFirst stops at the first match")
+  public void testFindFirstStopsEarly() {
+    AtomicInteger tested = new AtomicInteger();
+    Diagnosis cough =
+        table.findFirst(
+            diagnosis -> {
+              tested.incrementAndGet();
+              return diagnosis.getDiagnosis().equals("Cough");
+            });
+
+    assertEquals("A0002", cough.getAppointmentId());
+    assertEquals(2, tested.get());
+  }
+
+  /**
+   * Rows inserted or deleted after the cursor was opened are not seen, while changes made to the
+   * live models are.
+   */
+  @Test
+  @DisplayName("A cursor reads the table as it was when opened")
+  public void testCursorReadsOpeningState() {
+    Cursor<Diagnosis> cursor = table.scan(diagnosis -> true);
+    List<Diagnosis> diagnoses = table.read();
+    diagnoses.get(1).setDiagnosis("Asthma");
+    diagnoses.remove(0);
+    diagnoses.add(new Diagnosis("A0005", "P0004", "Sprain"));
+    table.save(diagnoses);
+
+    List<String> seen = new ArrayList<>();
+    cursor.forEachRemaining(diagnosis -> seen.add(diagnosis.toString()));
+    assertEquals(
+        Arrays.asList(
+            "A0001,P0001,Flu", "A0002,P0002,Asthma", "A0003,P0001,Migraine", "A0004,P0003,Flu"),
+        seen);
+    assertEquals(
+        Arrays.asList("A0002", "A0003", "A0004", "A0005"), idsOf(table.findAll(model -> true)));
+  }
+
+  /** A cursor split for a parallel stream returns the same models as a sequential one. */
+  @Test
+  @DisplayName("A parallel scan matches a sequential scan")
+  public void testParallelScanMatchesSequential() {
+    List<String> sequential =
+        idsOf(table.findAll(diagnosis -> !diagnosis.getPatientId().equals("P0002")));
+    List<String> parallel =
+        StreamSupport.stream(
+                table.scan(diagnosis -> !diagnosis.getPatientId().equals("P0002")).spliterator(),
+                true)
+            .map(Diagnosis::getAppointmentId)
+            .collect(Collectors.toList());
+    assertEquals(sequential, parallel);
+  }
+
+  /** A cursor is consumed once, by iterating it or as a stream. */
+  @Test
+  @DisplayName("A cursor already iterated cannot be streamed")
+  public void testIteratedCursorCannotBeStreamed() {
+    Cursor<Diagnosis> cursor = table.scan(diagnosis -> true);
+    cursor.next();
+    assertThrows(IllegalStateException.class, cursor::stream);
+  }
+
+  private static List<String> idsOf(List<Diagnosis> diagnoses) {
+    return diagnoses.stream().map(Diagnosis::getAppointmentId).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,122 @@
+package com.ntu.hms.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.ntu.hms.model.Diagnosis;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the {@link GroupCommitter} coalesces the records of a batch and leaves no trace of a
+ * commit that failed.
+ */
+public class GroupCommitterTest {
+  private CsvTable<Diagnosis> table;
+
+  /** Creates a table of two diagnoses. */
+  @BeforeEach
+  public void setUp() {
+    table = TestTables.create("Commit", "A0001,P0001,Flu", "A0002,P0002,Cough");
+  }
+
+  /** Removes the table. */
+  @AfterEach
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(logPathOf("Commit"));
+    TestTables.drop(table);
+  }
+
+  /**
+   * Updates of a row inserted earlier in the batch are folded into the insert, which is written
+   * under the ID of the last transaction with the records that follow it.
+   */
+  @Test
+  @DisplayName("Updates are coalesced into an earlier insert of the batch")
+  public void testUpdatesAreCoalescedIntoInsert() {
+    Map<Long, List<String>> recordsByTxid = new LinkedHashMap<>();
+    recordsByTxid.put(
+        1L, Arrays.asList(MutationLog.record(MutationLog.INSERT, "A0003", "A0003,P0003,Flu")));
+    recordsByTxid.put(
+        2L,
+        Arrays.asList(
+            MutationLog.record(MutationLog.UPDATE, "A0003", "A0003,P0003,Fever"),
+            MutationLog.record(MutationLog.UPDATE, "A0001", "A0001,P0001,Cold")));
+    recordsByTxid.put(
+        3L, Arrays.asList(MutationLog.record(MutationLog.UPDATE, "A0003", "A0003,P0003,Migraine")));
+
+    assertEquals(
+        Collections.singletonMap(
+            3L,
+            Arrays.asList(
+                MutationLog.record(MutationLog.INSERT, "A0003", "A0003,P0003,Migraine"),
+                MutationLog.record(MutationLog.UPDATE, "A0001", "A0001,P0001,Cold"))),
+        GroupCommitter.coalesce(recordsByTxid));
+  }
+
+  /**
+   * An update following an insert of the same row is folded into it, even within one transaction,
+   * while an update following a delete starts a new record.
+   */
+  @Test
+  @DisplayName("Updates after an insert are coalesced under the last transaction ID")
+  public void testUpdateAfterInsertIsCoalesced() {
+    Map<Long, List<String>> recordsByTxid = new LinkedHashMap<>();
+    recordsByTxid.put(
+        4L,
+        Arrays.asList(
+            MutationLog.record(MutationLog.INSERT, "A0003", "A0003,P0003,Flu"),
+            MutationLog.record(MutationLog.UPDATE, "A0003", "A0003,P0003,Fever"),
+            MutationLog.record(MutationLog.DELETE, "A0002", null)));
+    recordsByTxid.put(
+        7L,
+        Arrays.asList(
+            MutationLog.record(MutationLog.UPDATE, "A0002", "A0002,P0002,Cold"),
+            MutationLog.record(MutationLog.UPDATE, "A0003", "A0003,P0003,Cough")));
+
+    assertEquals(
+        Collections.singletonMap(
+            7L,
+            Arrays.asList(
+                MutationLog.record(MutationLog.INSERT, "A0003", "A0003,P0003,Cough"),
+                MutationLog.record(MutationLog.DELETE, "A0002", null),
+                MutationLog.record(MutationLog.UPDATE, "A0002", "A0002,P0002,Cold"))),
+        GroupCommitter.coalesce(recordsByTxid));
+  }
+
+  /**
+   * A save whose log cannot be written fails, and the table is reloaded from storage on its next
+   * access rather than keeping the change that was never committed.
+   */
+  @Test
+  @DisplayName("Tables are invalidated after a failed commit")
+  public void testTableIsInvalidatedAfterFailedCommit() throws IOException {
+    List<String> original = TestTables.rowsOf(table);
+
+    // A directory in place of the log makes its append fail
+    Path logPath = logPathOf("Commit");
+    Files.createDirectories(logPath);
+    List<Diagnosis> diagnoses = table.read();
+    diagnoses.add(new Diagnosis("A0003", "P0003", "Migraine"));
+    diagnoses.get(0).setDiagnosis("Fever");
+    assertThrows(CommitFailedException.class, () -> table.save(diagnoses));
+
+    Files.delete(logPath);
+    assertEquals(original, TestTables.rowsOf(table));
+    assertEquals(original, TestTables.rowsOf(TestTables.open("Commit")));
+  }
+
+  private static Path logPathOf(String name) {
+    return CsvTable.snapshotPathOf(TestTables.csvPathOf(name)).resolveSibling(name + ".log");
+  }
+}
@@ -0,0 +1,144 @@
+package com.ntu.hms.storage;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ntu.hms.codec.CsvValues;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a {@link MappedCsvScanner} reads the same rows and values as the codecs would from the
+ * text of the file, including across the regions it maps one at a time.
+ */
+public class MappedCsvScannerTest {
+  @TempDir Path directory;
+
+  /** Rows cut by the end of a region are read whole from the next region. */
+  @Test
+  @DisplayName("Rows straddling regions are read whole")
+  public void testRowsStraddlingRegions() throws IOException {
+    List<String> rows = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      rows.add("A" + i + ",P" + (i * 7) + ",Flu");
+    }
+
+    try (MappedCsvScanner scanner = scannerOf(String.join("\n", rows) + "\n", 16)) {
+      assertEquals(rows, rowsOf(scanner));
+    }
+  }
+
+  /** A row that cannot fit in one region is reported rather than cut. */
+  @Test
+  @DisplayName("A row longer than a region fails")
+  public void testRowLongerThanRegionFails() throws IOException {
+    try (MappedCsvScanner scanner = scannerOf("A1,P1\nA0002,P0002,Influenza\n", 16)) {
+      assertTrue(scanner.next());
+      assertEquals("A1,P1", scanner.getRow());
+      assertThrows(IOException.class, scanner::next);
+    }
+  }
+
+  /** Carriage returns before line feeds are dropped, and blank lines are skipped. */
+  @Test
+  @DisplayName("CRLF line endings and blank lines are handled")
+  public void testLineEndings() throws IOException {
+    String text = "A1,P1,Flu\r\n\r\n\nA2,P2,\r\nA3,P3,Cough";
+
+    try (MappedCsvScanner scanner = scannerOf(text, 16)) {
+      assertTrue(scanner.next());
+      assertArrayEquals(new String[] {"A1", "P1", "Flu"}, scanner.getColumns());
+      assertTrue(scanner.next());
+      assertArrayEquals(new String[] {"A2", "P2", ""}, scanner.getColumns());
+      // The last row has no line separator
+      assertTrue(scanner.next());
+      assertEquals("A3,P3,Cough", scanner.getRow());
+      assertEquals(3, scanner.getColumnCount());
+      assertFalse(scanner.next());
+    }
+  }
+
+  /** Integers the fast path cannot read are parsed, or rejected, as the codecs would. */
+  @Test
+  @DisplayName("Integers outside the fast path are parsed by CsvValues")
+  public void testIntFallback() throws IOException {
+    try (MappedCsvScanner scanner = scannerOf("42,-7, 13 ,1234567890,abc,\n", 1024)) {
+      assertTrue(scanner.next());
+      assertEquals(42, scanner.getInt(0));
+      assertEquals(-7, scanner.getInt(1));
+      assertEquals(CsvValues.parseInt(" 13 "), scanner.getInt(2));
+      assertEquals(1234567890, scanner.getInt(3));
+      assertThrows(NumberFormatException.class, () -> scanner.getInt(4));
+      assertThrows(NumberFormatException.class, () -> scanner.getInt(5));
+    }
+  }
+
+  /**
+   * Dates the fast path cannot build, such as a 31st of February, are resolved or rejected by the
+   * formatter exactly as {@link CsvValues#parseDate(String)} does.
+   */
+  @Test
+  @DisplayName("Dates outside the fast path match CsvValues.parseDate")
+  public void testDateFallback() throws IOException {
+    try (MappedCsvScanner scanner =
+        scannerOf("15/11/2024,31/02/2024, 18/11/2024,1/1/2024,32/13/2024\n", 1024)) {
+      assertTrue(scanner.next());
+      assertEquals(LocalDate.of(2024, 11, 15), scanner.getDate(0));
+      assertEquals(CsvValues.parseDate("31/02/2024"), scanner.getDate(1));
+      assertEquals(CsvValues.parseDate(" 18/11/2024"), scanner.getDate(2));
+      assertThrows(DateTimeParseException.class, () -> CsvValues.parseDate("1/1/2024"));
+      assertThrows(DateTimeParseException.class, () -> scanner.getDate(3));
+      assertThrows(DateTimeParseException.class, () -> CsvValues.parseDate("32/13/2024"));
+      assertThrows(DateTimeParseException.class, () -> scanner.getDate(4));
+    }
+  }
+
+  /** Non-ASCII values are compared as decoded text, whether or not their byte length matches. */
+  @Test
+  @DisplayName("columnEquals compares non-ASCII values")
+  public void testColumnEqualsNonAscii() throws IOException {
+    try (MappedCsvScanner scanner = scannerOf("P1,Zoë,Café au lait,abcd\n", 1024)) {
+      assertTrue(scanner.next());
+      assertTrue(scanner.columnEquals(1, "Zoë"));
+      assertFalse(scanner.columnEquals(1, "Zoe"));
+      assertFalse(scanner.columnEquals(1, "Zoé"));
+      assertTrue(scanner.columnEquals(2, "Café au lait"));
+      // "é" takes two bytes, so the column has as many bytes as this value has characters
+      assertFalse(scanner.columnEquals(2, "Café au laitx"));
+      assertFalse(scanner.columnEquals(3, "abçd"));
+      assertTrue(scanner.columnEquals(3, "abcd"));
+    }
+  }
+
+  /** Writes a CSV file and opens a scanner over it that maps the specified number of bytes. */
+  private MappedCsvScanner scannerOf(String text, int regionSize) throws IOException {
+    Path path = directory.resolve("Scanned.csv");
+    Files.write(path, text.getBytes(UTF_8));
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    return new MappedCsvScanner(channel, 0, channel.size(), regionSize);
+  }
+
+  private static List<String> rowsOf(MappedCsvScanner scanner) throws IOException {
+    List<String> rows = new ArrayList<>();
+    while (scanner.next()) {
+      rows.add(scanner.getRow());
+      assertEquals(Arrays.asList(scanner.getRow().split(",")), Arrays.asList(scanner.getColumns()));
+    }
+    return rows;
+  }
+}
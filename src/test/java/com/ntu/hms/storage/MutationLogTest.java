@@ -0,0 +1,115 @@
+package com.ntu.hms.storage;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a {@link MutationLog} left behind by a crash is replayed onto its snapshot with only
+ * the committed, complete records of the same snapshot.
+ */
+public class MutationLogTest {
+  private static final String FLU = "A0001,P0001,Flu";
+  private static final String COUGH = "A0002,P0002,Cough";
+  private static final String FEVER = "A0001,P0001,Fever";
+  private static final String MIGRAINE = "A0003,P0003,Migraine";
+
+  @TempDir Path directory;
+  private Path snapshotPath;
+
+  /** Writes the snapshot of a table of two diagnoses. */
+  @BeforeEach
+  public void setUp() throws IOException {
+    snapshotPath = directory.resolve("Diagnosis.csv");
+    Files.write(
+        snapshotPath, (TestTables.HEADER + "\n" + FLU + "\n" + COUGH + "\n").getBytes(UTF_8));
+  }
+
+  /** The records of a transaction missing from the commit journal are skipped on replay. */
+  @Test
+  @DisplayName("Only the records of committed transactions are replayed")
+  public void testOnlyCommittedRecordsAreReplayed() throws IOException {
+    Map<Long, List<String>> records = new LinkedHashMap<>();
+    records.put(1L, Arrays.asList(MutationLog.record(MutationLog.INSERT, "A0003", MIGRAINE)));
+    records.put(2L, Arrays.asList(MutationLog.record(MutationLog.UPDATE, "A0001", FEVER)));
+    records.put(3L, Arrays.asList(MutationLog.record(MutationLog.DELETE, "A0002", null)));
+    new MutationLog(snapshotPath).append(records);
+
+    // Transaction 2 crashed before its commit record was written
+    Map<String, String> rows = snapshotRows();
+    new MutationLog(snapshotPath).replay(rows, txid -> txid != 2);
+    assertEquals(rowsOf(FLU, MIGRAINE), rows);
+  }
+
+  /** A record cut short by a crash during the append is ignored, and the ones before it kept. */
+  @Test
+  @DisplayName("A torn last line is ignored")
+  public void testTornLastLineIsIgnored() throws IOException {
+    MutationLog log = new MutationLog(snapshotPath);
+    log.append(
+        Collections.singletonMap(
+            1L, Arrays.asList(MutationLog.record(MutationLog.INSERT, "A0003", MIGRAINE))));
+    Files.write(logPath(), "2\tU\tA0001\tA0001,P00".getBytes(UTF_8), APPEND);
+
+    Map<String, String> rows = snapshotRows();
+    MutationLog reopened = new MutationLog(snapshotPath);
+    reopened.replay(rows, txid -> true);
+    assertEquals(rowsOf(FLU, COUGH, MIGRAINE), rows);
+    assertEquals(1, reopened.getRecordCount());
+  }
+
+  /**
+   * A log written against an earlier snapshot is discarded rather than replayed onto a snapshot
+   * that may already hold its records.
+   */
+  @Test
+  @DisplayName("A log whose snapshot was replaced is discarded")
+  public void testLogOfReplacedSnapshotIsDiscarded() throws IOException {
+    new MutationLog(snapshotPath)
+        .append(
+            Collections.singletonMap(
+                1L, Arrays.asList(MutationLog.record(MutationLog.DELETE, "A0001", null))));
+
+    // The snapshot was rewritten, with a new row, before the log could be truncated
+    Files.write(
+        snapshotPath,
+        (TestTables.HEADER + "\n" + FLU + "\n" + COUGH + "\n" + MIGRAINE + "\n").getBytes(UTF_8));
+
+    Map<String, String> rows = snapshotRows();
+    new MutationLog(snapshotPath).replay(rows, txid -> true);
+    assertEquals(rowsOf(FLU, COUGH, MIGRAINE), rows);
+    assertFalse(Files.exists(logPath()));
+  }
+
+  private Path logPath() {
+    return directory.resolve("Diagnosis.log");
+  }
+
+  /** Reads the rows of the snapshot keyed by appointment ID, as the table does on load. */
+  private Map<String, String> snapshotRows() throws IOException {
+    List<String> lines = Files.readAllLines(snapshotPath, UTF_8);
+    return rowsOf(lines.subList(1, lines.size()).toArray(new String[0]));
+  }
+
+  private static Map<String, String> rowsOf(String... rows) {
+    Map<String, String> rowsByKey = new LinkedHashMap<>();
+    for (String row : rows) {
+      rowsByKey.put(row.substring(0, row.indexOf(',')), row);
+    }
+    return rowsByKey;
+  }
+}
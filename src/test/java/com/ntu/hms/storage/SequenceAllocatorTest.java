@@ -0,0 +1,103 @@
+package com.ntu.hms.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import com.ntu.hms.model.Diagnosis;
+import com.ntu.hms.model.IdSequence;
+import java.util.List;
+import java.util.function.IntSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the numbers handed out by a {@link SequenceAllocator} stay unique across restarts,
+ * clean or not, and never collide with the rows already in a table.
+ */
+public class SequenceAllocatorTest {
+  private static final String SEQUENCE = "Diagnosis";
+  private static final String SEQUENCE_HEADER = "Sequence,Next Value";
+  private static final IntSupplier NOT_CALLED =
+      () -> fail("The sequence has a row, so the rows in use should not be read");
+
+  private CsvTable<IdSequence> sequences;
+  private CsvTable<Diagnosis> diagnoses;
+
+  /** Creates an empty sequence table and a table of diagnoses up to A0003. */
+  @BeforeEach
+  public void setUp() {
+    sequences =
+        TestTables.create("IdSequence", SEQUENCE_HEADER, IdSequence.class, IdSequence::getName);
+    diagnoses =
+        TestTables.create(
+            "Numbered", "A0001,P0001,Flu", "A0002,P0002,Cough", "A0003,P0003,Migraine");
+  }
+
+  /** Removes the tables. */
+  @AfterEach
+  public void tearDown() {
+    TestTables.drop(sequences, diagnoses);
+  }
+
+  /**
+   * After a clean shutdown in the middle of a block, a restarted allocator continues the sequence
+   * exactly where it stopped, without reading the rows in use.
+   */
+  @Test
+  @DisplayName("Numbers continue exactly after a clean restart")
+  public void testCleanRestartContinuesSequence() {
+    SequenceAllocator allocator = new SequenceAllocator(sequences);
+    assertEquals(4, allocator.next(SEQUENCE, this::firstUnused));
+    assertEquals(5, allocator.next(SEQUENCE, NOT_CALLED));
+    allocator.release();
+
+    SequenceAllocator restarted = new SequenceAllocator(reopenSequences());
+    assertEquals(6, restarted.next(SEQUENCE, NOT_CALLED));
+    assertEquals(7, restarted.next(SEQUENCE, NOT_CALLED));
+  }
+
+  /**
+   * After a crash in the middle of a block, a restarted allocator starts after the whole block, so
+   * the numbers of the rows saved before the crash are not handed out again.
+   */
+  @Test
+  @DisplayName("Numbers after an unclean restart do not collide with existing rows")
+  public void testUncleanRestartSkipsReservedBlock() {
+    SequenceAllocator allocator = new SequenceAllocator(sequences);
+    List<Diagnosis> rows = diagnoses.read();
+    for (int i = 0; i < 3; i++) {
+      int number = allocator.next(SEQUENCE, this::firstUnused);
+      rows.add(new Diagnosis(String.format("A%04d", number), "P0004", "Sprain"));
+    }
+    diagnoses.save(rows);
+
+    // The application stops without releasing the allocator
+    diagnoses = TestTables.open("Numbered");
+    SequenceAllocator restarted = new SequenceAllocator(reopenSequences());
+    int number = restarted.next(SEQUENCE, NOT_CALLED);
+
+    assertEquals(4 + SequenceAllocator.DEFAULT_BLOCK_SIZE, number);
+    assertFalse(
+        TestTables.rowsOf(diagnoses)
+            .stream()
+            .anyMatch(row -> row.startsWith(String.format("A%04d,", number))));
+  }
+
+  private CsvTable<IdSequence> reopenSequences() {
+    return TestTables.open("IdSequence", SEQUENCE_HEADER, IdSequence.class, IdSequence::getName);
+  }
+
+  /** Finds the number after the highest appointment ID among the diagnoses. */
+  private int firstUnused() {
+    return diagnoses
+            .read()
+            .stream()
+            .mapToInt(diagnosis -> Integer.parseInt(diagnosis.getAppointmentId().substring(1)))
+            .max()
+            .orElse(0)
+        + 1;
+  }
+}
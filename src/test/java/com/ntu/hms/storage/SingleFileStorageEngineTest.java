@@ -0,0 +1,74 @@
+package com.ntu.hms.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.ntu.hms.model.Diagnosis;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that rows holding the delimiters of the database file of a {@link SingleFileStorageEngine}
+ * are read back as they were written.
+ */
+public class SingleFileStorageEngineTest {
+  private static final String TABLE = TestTables.csvPathOf("Escaped");
+  private static final String FLU = "A0001,P0001,\"Flu,\nthen a\tcough\"";
+  private static final String PATH = "A0002,P0002,C:\\temp\\new \\t\\\\";
+  private static final String CRLF = "A0002,P0002,\"Cough\r\nwith\\\ttab\"";
+
+  private Path file;
+
+  /** Creates the location of a new database file. */
+  @BeforeEach
+  public void setUp() throws IOException {
+    file = Files.createTempDirectory("hms-db").resolve("hms.db");
+  }
+
+  /** Removes the database file. */
+  @AfterEach
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+    Files.deleteIfExists(file.getParent());
+  }
+
+  /**
+   * Snapshot rows and log records with backslashes, tabs and line breaks survive a restart, and the
+   * rows of the snapshot stay apart from each other.
+   */
+  @Test
+  @DisplayName("Rows with tabs, line breaks and backslashes round-trip")
+  public void testEscapedRowsRoundTrip() throws IOException {
+    SingleFileStorageEngine engine = new SingleFileStorageEngine(file);
+    TableStorage<Diagnosis> storage = engine.openTable(TABLE, TestTables.HEADER, Diagnosis.class);
+    Map<String, String> rows = new LinkedHashMap<>();
+    rows.put("A0001", FLU);
+    rows.put("A0002", PATH);
+    storage.compact(rows);
+
+    long txid = engine.nextTxid();
+    storage.appendToLog(
+        Collections.singletonMap(
+            txid, Arrays.asList(MutationLog.record(MutationLog.UPDATE, "A0002", CRLF))));
+    engine.commit(Collections.singletonList(txid));
+
+    SingleFileStorageEngine reopened = new SingleFileStorageEngine(file);
+    TableStorage<Diagnosis> reopenedStorage =
+        reopened.openTable(TABLE, TestTables.HEADER, Diagnosis.class);
+    Map<String, String> read = new LinkedHashMap<>();
+    reopenedStorage.readSnapshot((row, model) -> read.put(row.substring(0, 5), row));
+    assertEquals(rows, read);
+
+    reopenedStorage.replayLog(read, reopened::isCommitted);
+    rows.put("A0002", CRLF);
+    assertEquals(rows, read);
+  }
+}
@@ -0,0 +1,128 @@
+package com.ntu.hms.storage;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.ntu.hms.factory.SingletonFactory;
+import com.ntu.hms.model.Diagnosis;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Throwaway tables, of diagnoses unless stated otherwise, for the storage tests, kept under
+ * target/classes/csvdb/test so the tables of the application are never touched.
+ */
+final class TestTables {
+  static final String DIRECTORY = "csvdb/test";
+  static final String HEADER = "Appointment ID,Patient ID,Diagnosis";
+
+  private TestTables() {}
+
+  /**
+   * Writes the snapshot of a table and opens it.
+   *
+   * @param name the name of the table
+   * @param rows the rows of the snapshot, without the header
+   * @return the table, not loaded yet
+   */
+  static CsvTable<Diagnosis> create(String name, String... rows) {
+    return create(name, HEADER, Diagnosis.class, Diagnosis::getAppointmentId, rows);
+  }
+
+  /**
+   * Writes the snapshot of a table of any model and opens it.
+   *
+   * @param name the name of the table
+   * @param header the header line of the table
+   * @param modelClass the model class stored in the table
+   * @param keyFunction the function returning the key of a model
+   * @param rows the rows of the snapshot, without the header
+   * @return the table, not loaded yet
+   */
+  static <T> CsvTable<T> create(
+      String name,
+      String header,
+      Class<T> modelClass,
+      Function<? super T, String> keyFunction,
+      String... rows) {
+    Path snapshotPath = CsvTable.snapshotPathOf(csvPathOf(name));
+    try {
+      Files.createDirectories(snapshotPath.getParent());
+      Files.write(
+          snapshotPath,
+          (header + "\n" + String.join("\n", rows) + (rows.length > 0 ? "\n" : ""))
+              .getBytes(UTF_8));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return open(name, header, modelClass, keyFunction);
+  }
+
+  /**
+   * Opens a table as a restarted application would, from its snapshot and log alone.
+   *
+   * @param name the name of the table
+   * @return a new instance of the table, not loaded yet
+   */
+  static CsvTable<Diagnosis> open(String name) {
+    return open(name, HEADER, Diagnosis.class, Diagnosis::getAppointmentId);
+  }
+
+  /**
+   * Opens a table of any model as a restarted application would, from its snapshot and log alone.
+   *
+   * @param name the name of the table
+   * @param header the header line of the table
+   * @param modelClass the model class stored in the table
+   * @param keyFunction the function returning the key of a model
+   * @return a new instance of the table, not loaded yet
+   */
+  static <T> CsvTable<T> open(
+      String name, String header, Class<T> modelClass, Function<? super T, String> keyFunction) {
+    // Open the table in the engine the application uses, as a later run of it will
+    StorageEngines.use(SingletonFactory.getStorageEngine());
+    return new CsvTable<>(csvPathOf(name), header, modelClass, keyFunction);
+  }
+
+  /**
+   * Retrieves the rows of a table, as "appointment,patient,diagnosis", in table order.
+   *
+   * @param table the table
+   * @return the rows of the table
+   */
+  static List<String> rowsOf(CsvTable<Diagnosis> table) {
+    return table.read().stream().map(Diagnosis::toString).collect(Collectors.toList());
+  }
+
+  /**
+   * Checkpoints the tables, which removes the commit records of the tests, and deletes the test
+   * directory.
+   *
+   * @param tables every test table that may have a log
+   */
+  static void drop(CsvTable<?>... tables) {
+    GroupCommitter.checkpoint(Arrays.asList(tables));
+    Path directory = CsvTable.snapshotPathOf(DIRECTORY);
+    if (!Files.exists(directory)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+        Files.delete(path);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  static String csvPathOf(String name) {
+    return DIRECTORY + "/" + name + ".csv";
+  }
+}
@@ -0,0 +1,92 @@
+package com.ntu.hms.storage;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.ntu.hms.model.Diagnosis;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the {@link GroupCommitter} in write-behind mode persists queued transactions together
+ * and reports a failed commit through the next flush. Run in a JVM of its own with the {@code
+ * csvdb.writeBehindMillis} system property set, by the write-behind-test execution of surefire.
+ */
+public class WriteBehindTest {
+  private CsvTable<Diagnosis> table;
+
+  /** Creates a table of two diagnoses. */
+  @BeforeEach
+  public void setUp() {
+    assumeTrue(GroupCommitter.isWriteBehind(), "Write-behind is not enabled");
+    table = TestTables.create("WriteBehind", "A0001,P0001,Flu", "A0002,P0002,Cough");
+    table.read(); // Loaded beforehand, so the saves below all fall within one window
+  }
+
+  /** Removes the table. */
+  @AfterEach
+  public void tearDown() throws IOException {
+    if (table != null) {
+      Files.deleteIfExists(logPathOf("WriteBehind"));
+      TestTables.drop(table);
+    }
+  }
+
+  /** Updates of a row queued within one window are persisted as a single log record. */
+  @Test
+  @DisplayName("Updates queued together are persisted as one record")
+  public void testQueuedUpdatesPersistedTogether() throws IOException {
+    for (int i = 1; i <= 10; i++) {
+      List<Diagnosis> diagnoses = table.read();
+      diagnoses.get(0).setDiagnosis("Fever " + i);
+      table.save(diagnoses);
+    }
+    GroupCommitter.flush();
+
+    assertEquals(
+        Arrays.asList("A0001,P0001,Fever 10", "A0002,P0002,Cough"),
+        TestTables.rowsOf(TestTables.open("WriteBehind")));
+    // The identity of the snapshot, then the coalesced update
+    assertEquals(2, Files.readAllLines(logPathOf("WriteBehind"), UTF_8).size());
+  }
+
+  /**
+   * A save returns before its commit fails; the failure is thrown by the next flush alone, and the
+   * table is reloaded from storage without the change.
+   */
+  @Test
+  @DisplayName("A failed commit is reported by the next flush")
+  public void testFailedCommitReportedByFlush() throws IOException {
+    List<String> original = TestTables.rowsOf(table);
+
+    // A directory in place of the log makes its append fail
+    Path logPath = logPathOf("WriteBehind");
+    Files.createDirectories(logPath);
+    List<Diagnosis> diagnoses = table.read();
+    diagnoses.add(new Diagnosis("A0003", "P0003", "Migraine"));
+    table.save(diagnoses);
+
+    CommitFailedException failure =
+        assertThrows(CommitFailedException.class, GroupCommitter::flush);
+    assertInstanceOf(IOException.class, failure.getCause());
+    GroupCommitter.flush();
+
+    Files.delete(logPath);
+    assertEquals(original, TestTables.rowsOf(table));
+    assertEquals(original, TestTables.rowsOf(TestTables.open("WriteBehind")));
+  }
+
+  private static Path logPathOf(String name) {
+    return CsvTable.snapshotPathOf(TestTables.csvPathOf(name)).resolveSibling(name + ".log");
+  }
+}